@@ -0,0 +1,134 @@
+package com.casuarinas.app.build;
+
+import com.casuarinas.app.App;
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.repo.PedidoRepo;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MEDICIÓN DE ESCRITURA POR CANTIDAD DE FRAGMENTOS (HERRAMIENTA) - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Inserta pedidos con varios hilos concurrentes, igual que POST /api/pedidos, repartiéndolos
+ * primero en 1 fragmento, después en 2, y así hasta la cantidad configurada. Imprime los
+ * pedidos por segundo de cada pasada, para ver cómo escala la escritura al sumar fragmentos.
+ * Levanta la aplicación con el perfil "fragmentos" y bases en target/medicion-fragmentos;
+ * los argumentos --propiedad=valor pisan esos valores:
+ *
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.casuarinas.app.build.MedicionFragmentos
+ *       -Dexec.args="pedidos=20000 hilos=8 --casuarinas.fragmentos.cantidad=4"
+ *
+ * Vive en src/build/java junto a las demás herramientas de build: no llega al JAR.
+ *
+ * RELACIÓN CON SQL:
+ * - Cada pedido es un INSERT INTO pedido en su propia transacción (el camino real de la API)
+ * - Al terminar borra los pedidos de prueba: DELETE FROM pedido WHERE nombre_cliente = ?
+ */
+public final class MedicionFragmentos {
+
+    private static final String CLIENTE_PRUEBA = "medicion-fragmentos";
+
+    private final FragmentosPedidos fragmentos;
+    private final PedidoRepo pedidoRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final int hilos;
+
+    private MedicionFragmentos(ConfigurableApplicationContext contexto, int hilos) {
+        this.fragmentos = contexto.getBean(FragmentosPedidos.class);
+        this.pedidoRepo = contexto.getBean(PedidoRepo.class);
+        this.jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+        this.hilos = hilos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int pedidos = 20_000;
+        int hilos = 8;
+        // Como argumentos de línea de comandos: así pisan a application.properties
+        Map<String, String> propiedades = new LinkedHashMap<>();
+        propiedades.put("spring.profiles.active", "fragmentos");
+        propiedades.put("server.port", "0");
+        propiedades.put("spring.datasource.url", "jdbc:h2:file:./target/medicion-fragmentos/casuarinas-db");
+        propiedades.put("casuarinas.fragmentos.url", "jdbc:h2:file:./target/medicion-fragmentos/pedidos-{n}");
+        propiedades.put("casuarinas.archivo.habilitado", "false");
+        propiedades.put("casuarinas.respaldo.habilitado", "false");
+        propiedades.put("casuarinas.mantenimiento.habilitado", "false");
+        propiedades.put("casuarinas.calentamiento.habilitado", "false");
+        propiedades.put("casuarinas.jfr.habilitado", "false");
+        propiedades.put("casuarinas.accesos.habilitado", "false");
+        propiedades.put("logging.level.root", "WARN");
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            if (kv.length < 2) {
+                throw new IllegalArgumentException("Parámetro sin valor: " + arg);
+            }
+            switch (kv[0]) {
+                case "pedidos" -> pedidos = Integer.parseInt(kv[1]);
+                case "hilos" -> hilos = Integer.parseInt(kv[1]);
+                default -> propiedades.put(kv[0], kv[1]);
+            }
+        }
+        String[] argumentos = propiedades.entrySet().stream()
+            .map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new);
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(App.class).run(argumentos)) {
+            new MedicionFragmentos(contexto, hilos).correr(pedidos);
+        }
+    }
+
+    private void correr(int pedidos) throws Exception {
+        if (!fragmentos.habilitado()) {
+            System.out.println("[fragmentos] el modo fragmentado está apagado, solo se mide la base principal");
+        }
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            // Pasada de calentamiento (JIT, pools, páginas de H2) que no se informa
+            medir(ejecutor, fragmentos.cantidad(), Math.max(1, pedidos / 5));
+            double base = 0;
+            for (int usados = 1; usados <= fragmentos.cantidad(); usados++) {
+                double porSegundo = medir(ejecutor, usados, pedidos);
+                base = usados == 1 ? porSegundo : base;
+                System.out.printf(Locale.ROOT, "[fragmentos] %d fragmento(s), %d hilos: %.0f pedidos/s (x%.2f)%n",
+                    usados, hilos, porSegundo, porSegundo / base);
+            }
+        } finally {
+            ejecutor.shutdown();
+            // CONSULTA SQL: DELETE FROM pedido WHERE nombre_cliente = ? (en cada fragmento)
+            fragmentos.sumar(() -> jdbcTemplate.update("delete from pedido where nombre_cliente = ?", CLIENTE_PRUEBA));
+        }
+    }
+
+    private double medir(ExecutorService ejecutor, int usados, int cantidad) throws Exception {
+        AtomicLong siguiente = new AtomicLong();
+        List<Future<?>> tareas = new ArrayList<>(hilos);
+        long t0 = System.nanoTime();
+        for (int h = 0; h < hilos; h++) {
+            tareas.add(ejecutor.submit(() -> {
+                long i;
+                while ((i = siguiente.getAndIncrement()) < cantidad) {
+                    Pedido pedido = new Pedido(null, CLIENTE_PRUEBA, "099000000", "Calle " + i, "Pocitos",
+                        "[{\"id\":1,\"nombre\":\"Prueba\",\"precio\":100.0,\"cantidad\":1}]", 100.0, null,
+                        LocalDateTime.now());
+                    // CONSULTA SQL: INSERT INTO pedido (...) VALUES (...)
+                    fragmentos.en((int) (i % usados), () -> pedidoRepo.save(pedido));
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        return cantidad / Math.max(1e-9, (System.nanoTime() - t0) / 1e9);
+    }
+}
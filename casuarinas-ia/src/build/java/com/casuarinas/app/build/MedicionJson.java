@@ -0,0 +1,221 @@
+package com.casuarinas.app.build;
+
+import com.casuarinas.app.json.ItemPedido;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.model.Producto;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * MEDICIÓN DE LECTURA Y ESCRITURA JSON - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Compara, en un solo hilo y sin Spring levantado, el JSON de las entidades como lo hacía
+ * el conversor de Spring (un ObjectReader / ObjectWriter por llamada, itemsJson con
+ * readTree) contra los lectores y escritores preparados de EnlaceJson y el lector de
+ * ItemPedido. El ObjectMapper se configura igual que el de Spring Boot
+ * (Jackson2ObjectMapperBuilder).
+ *
+ * Uso (herramienta de build en src/build/java, no llega al JAR):
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.casuarinas.app.build.MedicionJson -Dexec.args="segundos=2 rondas=5"
+ *
+ * Informa por operación el tiempo (mediana de las rondas) y los bytes asignados en el heap
+ * (ThreadMXBean.getCurrentThreadAllocatedBytes). Antes de medir calienta cada escenario
+ * otros "segundos" para que el JIT compile los dos caminos.
+ *
+ * Escenarios:
+ * 1. catalogo: escribir List<Producto> (40 productos, GET /api/productos)
+ * 2. pedidos: escribir List<Pedido> (50 pedidos, GET /api/pedidos)
+ * 3. checkout: leer un Pedido (cuerpo de POST /api/pedidos)
+ * 4. items: leer las líneas de un itemsJson de 3 productos (RankingVentas)
+ */
+public final class MedicionJson {
+
+    /** Una operación a medir; devuelve algo para que el JIT no la descarte */
+    @FunctionalInterface
+    private interface Operacion {
+        Object ejecutar() throws Exception;
+    }
+
+    private record Resultado(double nsPorOp, double bytesPorOp) {}
+
+    private final long nsPorRonda;
+    private final int rondas;
+    private final com.sun.management.ThreadMXBean hilos =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private MedicionJson(double segundos, int rondas) {
+        this.nsPorRonda = (long) (segundos * 1_000_000_000L);
+        this.rondas = rondas;
+    }
+
+    public static void main(String[] args) throws Exception {
+        double segundos = 2;
+        int rondas = 5;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "segundos" -> segundos = Double.parseDouble(kv[1]);
+                case "rondas" -> rondas = Integer.parseInt(kv[1]);
+                default -> throw new IllegalArgumentException("Parámetro desconocido: " + arg);
+            }
+        }
+        new MedicionJson(segundos, rondas).medir();
+    }
+
+    private void medir() throws Exception {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<Producto> catalogo = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            Producto p = new Producto("Producto " + i, 50.0 + random.nextInt(400), "Comentario del producto " + i,
+                "Categoría " + (i % 6), i % 2 == 0 ? "unidad" : "kg");
+            p.setId((long) i);
+            catalogo.add(p);
+        }
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            pedidos.add(new Pedido((long) i, "Cliente " + i, "09" + (1_000_000 + random.nextInt(8_999_999)),
+                "Av. Brasil " + random.nextInt(4000), "Pocitos", items(random), 450.0 + random.nextInt(900),
+                "Pocitos", LocalDateTime.of(2026, 3, 1, 9, 30).plusMinutes(random.nextInt(200_000))));
+        }
+        byte[] checkout = mapper.writeValueAsBytes(pedidos.get(0));
+        String itemsJson = pedidos.get(0).getItemsJson();
+
+        JavaType listaProductos = mapper.constructType(new TypeReference<List<Producto>>() {});
+        JavaType listaPedidos = mapper.constructType(new TypeReference<List<Pedido>>() {});
+        ObjectWriter escritorProductos = mapper.writerFor(listaProductos);
+        ObjectWriter escritorPedidos = mapper.writerFor(listaPedidos);
+        ObjectReader lectorPedido = mapper.readerFor(Pedido.class);
+        ObjectReader lectorItems = mapper.readerFor(new TypeReference<List<ItemPedido>>() {});
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(64 * 1024);
+        System.out.printf(Locale.ROOT, "Java %s, %d núcleos, %d rondas de %.1f s%n",
+            Runtime.version(), Runtime.getRuntime().availableProcessors(), rondas, nsPorRonda / 1e9);
+        System.out.printf(Locale.ROOT, "%-9s %-12s %12s %14s%n", "escenario", "camino", "us/op", "bytes/op");
+
+        comparar("catalogo",
+            () -> {
+                salida.reset();
+                mapper.writer().forType(listaProductos).writeValue(salida, catalogo);
+                return salida.size();
+            },
+            () -> {
+                salida.reset();
+                escritorProductos.writeValue(salida, catalogo);
+                return salida.size();
+            });
+        comparar("pedidos",
+            () -> {
+                salida.reset();
+                mapper.writer().forType(listaPedidos).writeValue(salida, pedidos);
+                return salida.size();
+            },
+            () -> {
+                salida.reset();
+                escritorPedidos.writeValue(salida, pedidos);
+                return salida.size();
+            });
+        comparar("checkout",
+            () -> mapper.readerFor(mapper.constructType(Pedido.class)).readValue(checkout),
+            () -> lectorPedido.readValue(checkout));
+        comparar("items",
+            () -> {
+                long unidades = 0;
+                for (JsonNode item : mapper.readTree(itemsJson)) {
+                    unidades += item.path("cantidad").asLong(1);
+                }
+                return unidades;
+            },
+            () -> {
+                long unidades = 0;
+                for (ItemPedido item : lectorItems.<List<ItemPedido>>readValue(itemsJson)) {
+                    unidades += item.cantidad();
+                }
+                return unidades;
+            });
+    }
+
+    private static String items(SplittableRandom random) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 3; i++) {
+            long id = 1 + random.nextInt(12);
+            sb.append(i > 0 ? "," : "").append("{\"id\":").append(id).append(",\"nombre\":\"Producto ").append(id)
+                .append("\",\"precio\":").append(50.0 + random.nextInt(400)).append(",\"cantidad\":")
+                .append(1 + random.nextInt(4)).append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private void comparar(String escenario, Operacion porLlamada, Operacion preparado) throws Exception {
+        ejecutar(porLlamada);
+        ejecutar(preparado);
+        // Rondas alternadas: una deriva de la máquina (GC, otro proceso) afecta a los dos caminos por igual
+        double[][] a = new double[2][rondas];
+        double[][] b = new double[2][rondas];
+        for (int r = 0; r < rondas; r++) {
+            ronda(porLlamada, a, r);
+            ronda(preparado, b, r);
+        }
+        Resultado ra = mediana(a);
+        Resultado rb = mediana(b);
+        System.out.printf(Locale.ROOT, "%-9s %-12s %12.2f %14.0f%n", escenario, "por llamada",
+            ra.nsPorOp() / 1000, ra.bytesPorOp());
+        System.out.printf(Locale.ROOT, "%-9s %-12s %12.2f %14.0f   (%+.0f%% tiempo, %+.0f%% bytes)%n", "", "preparado",
+            rb.nsPorOp() / 1000, rb.bytesPorOp(), 100 * (rb.nsPorOp() / ra.nsPorOp() - 1),
+            100 * (rb.bytesPorOp() / ra.bytesPorOp() - 1));
+    }
+
+    /** Calentamiento: repite la operación durante una ronda sin medir */
+    private void ejecutar(Operacion op) throws Exception {
+        long fin = System.nanoTime() + nsPorRonda;
+        while (System.nanoTime() < fin) {
+            for (int i = 0; i < 100; i++) {
+                op.ejecutar();
+            }
+        }
+    }
+
+    /** Una ronda medida: guarda ns/op en medidas[0][r] y bytes/op en medidas[1][r] */
+    private void ronda(Operacion op, double[][] medidas, int r) throws Exception {
+        Object sumidero = null;
+        long ops = 0;
+        long bytes0 = hilos.getCurrentThreadAllocatedBytes();
+        long t0 = System.nanoTime();
+        long t;
+        do {
+            for (int i = 0; i < 100; i++) {
+                sumidero = op.ejecutar();
+            }
+            ops += 100;
+            t = System.nanoTime();
+        } while (t - t0 < nsPorRonda);
+        medidas[0][r] = (double) (t - t0) / ops;
+        medidas[1][r] = (double) (hilos.getCurrentThreadAllocatedBytes() - bytes0) / ops;
+        if (sumidero == null) {
+            throw new IllegalStateException("sin resultado");
+        }
+    }
+
+    private static Resultado mediana(double[][] medidas) {
+        double[] ns = medidas[0].clone();
+        double[] bytes = medidas[1].clone();
+        Arrays.sort(ns);
+        Arrays.sort(bytes);
+        return new Resultado(ns[ns.length / 2], bytes[bytes.length / 2]);
+    }
+}
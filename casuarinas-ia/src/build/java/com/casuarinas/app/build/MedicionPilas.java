@@ -0,0 +1,268 @@
+package com.casuarinas.app.build;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MEDICIÓN DE PILAS WEB (SERVLET VS REACTIVA) - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Generador de carga independiente de Spring: corre los mismos escenarios contra una
+ * instancia con la pila servlet (por defecto), con el perfil "virtuales" (Java 21) o con el
+ * perfil "reactivo" y compara.
+ *
+ * Uso (con la aplicación ya levantada; vive en src/build/java y no llega al JAR):
+ *   mvn -q test-compile
+ *   java -cp target/test-classes com.casuarinas.app.build.MedicionPilas url=http://localhost:8080
+ *        clientes=64 segundos=10 lentos=1000 lento-ms=8000 [pid=proceso del servidor]
+ *
+ * Escenarios:
+ * 1. catalogo: "clientes" hilos repiten GET /api/productos durante "segundos"
+ * 2. checkout: lo mismo con POST /api/pedidos (Idempotency-Key distinta en cada pedido)
+ * 3. lentos: abre "lentos" conexiones que envían la mitad del cuerpo de un POST /api/pedidos
+ *    y lo completan recién a los "lento-ms" (un celular con mala señal). Mientras están
+ *    abiertas mide la memoria del servidor (GET /api/diagnostico/memoria) y repite el
+ *    escenario catalogo para ver si los clientes rápidos siguen siendo atendidos.
+ *
+ * RELACIÓN CON SQL:
+ * - Cada pedido del escenario checkout y de los lentos es un INSERT real en la base
+ */
+public final class MedicionPilas {
+
+    private static final String PEDIDO = "{\"nombreCliente\":\"medicion\",\"localidad\":\"Pocitos\",\"total\":10.5,"
+        + "\"itemsJson\":\"[{\\\"nombre\\\":\\\"Huevos 12\\\",\\\"cantidad\\\":1}]\"}";
+
+    private static final Pattern NUMERO = Pattern.compile("\"(\\w+)\":(-?\\d+)");
+
+    /** Latencias y errores de un escenario */
+    private record Resultado(String escenario, int peticiones, int errores, double segundos, long[] latenciasUs) {
+
+        double porSegundo() { return peticiones / segundos; }
+
+        double percentilMs(double p) {
+            if (latenciasUs.length == 0) {
+                return 0;
+            }
+            return latenciasUs[(int) Math.min(latenciasUs.length - 1, Math.floor(p * latenciasUs.length))] / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-9s %8.0f pet/s  p50 %7.1f ms  p99 %8.1f ms  errores %d",
+                escenario, porSegundo(), percentilMs(0.50), percentilMs(0.99), errores);
+        }
+    }
+
+    private final String url;
+    private final String pid;
+    private final HttpClient http;
+
+    private MedicionPilas(String url, String pid) {
+        this.url = url;
+        this.pid = pid;
+        this.http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            opciones.put(arg.substring(0, igual), arg.substring(igual + 1));
+        }
+        String url = opciones.getOrDefault("url", "http://localhost:8080");
+        int clientes = Integer.parseInt(opciones.getOrDefault("clientes", "64"));
+        int segundos = Integer.parseInt(opciones.getOrDefault("segundos", "10"));
+        int lentos = Integer.parseInt(opciones.getOrDefault("lentos", "1000"));
+        int lentoMs = Integer.parseInt(opciones.getOrDefault("lento-ms", "8000"));
+
+        // pid: proceso del servidor en la misma máquina, para leer memoria residente e hilos de /proc
+        MedicionPilas medicion = new MedicionPilas(url, opciones.get("pid"));
+        // Pasada corta sin registrar: el JIT del servidor compila los caminos medidos
+        medicion.carga("calentar", clientes, 10, i -> medicion.get("/api/productos"));
+
+        System.out.println(medicion.carga("catalogo", clientes, segundos, i -> medicion.get("/api/productos")));
+        AtomicInteger clave = new AtomicInteger();
+        String prefijo = "medicion-" + System.currentTimeMillis() + "-";
+        System.out.println(medicion.carga("checkout", clientes, segundos,
+            i -> medicion.post(prefijo + clave.incrementAndGet())));
+        if (lentos > 0) {
+            medicion.lentos(lentos, lentoMs, clientes, prefijo);
+        }
+    }
+
+    private HttpRequest get(String ruta) {
+        return HttpRequest.newBuilder(URI.create(url + ruta)).timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private HttpRequest post(String clave) {
+        return HttpRequest.newBuilder(URI.create(url + "/api/pedidos"))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .header("Idempotency-Key", clave)
+            .POST(HttpRequest.BodyPublishers.ofString(PEDIDO))
+            .build();
+    }
+
+    /**
+     * Cada hilo envía la petición siguiente apenas recibe la respuesta anterior
+     */
+    private Resultado carga(String escenario, int clientes, int segundos, IntFunction<HttpRequest> peticion)
+            throws InterruptedException {
+        long fin = System.nanoTime() + segundos * 1_000_000_000L;
+        long[][] latencias = new long[clientes][1 << 16];
+        int[] cantidades = new int[clientes];
+        AtomicInteger errores = new AtomicInteger();
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < clientes; h++) {
+            int hilo = h;
+            Thread t = new Thread(() -> {
+                int n = 0;
+                while (System.nanoTime() < fin) {
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<Void> r = http.send(peticion.apply(hilo), HttpResponse.BodyHandlers.discarding());
+                        if (r.statusCode() != 200) {
+                            errores.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errores.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    if (n < latencias[hilo].length) {
+                        latencias[hilo][n] = (System.nanoTime() - t0) / 1000;
+                    }
+                    n++;
+                }
+                cantidades[hilo] = n;
+            });
+            t.start();
+            hilos.add(t);
+        }
+        int total = 0;
+        for (int h = 0; h < clientes; h++) {
+            hilos.get(h).join();
+            total += cantidades[h];
+        }
+        long[] todas = new long[0];
+        for (int h = 0; h < clientes; h++) {
+            int n = Math.min(cantidades[h], latencias[h].length);
+            int previas = todas.length;
+            todas = Arrays.copyOf(todas, previas + n);
+            System.arraycopy(latencias[h], 0, todas, previas, n);
+        }
+        Arrays.sort(todas);
+        return new Resultado(escenario, total, errores.get(), segundos, todas);
+    }
+
+    private void lentos(int cantidad, int lentoMs, int clientes, String prefijo) throws Exception {
+        byte[] cuerpo = PEDIDO.getBytes(StandardCharsets.UTF_8);
+        int mitad = cuerpo.length / 2;
+        Map<String, Long> antes = memoria();
+        List<Socket> sockets = new ArrayList<>(cantidad);
+        URI destino = URI.create(url);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < cantidad; i++) {
+            Socket s = new Socket(destino.getHost(), destino.getPort());
+            s.setSoTimeout(60_000);
+            OutputStream out = s.getOutputStream();
+            out.write(("POST /api/pedidos HTTP/1.1\r\nHost: " + destino.getHost() + "\r\n"
+                + "Content-Type: application/json\r\nIdempotency-Key: " + prefijo + "lento-" + i + "\r\n"
+                + "Content-Length: " + cuerpo.length + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(cuerpo, 0, mitad);
+            out.flush();
+            sockets.add(s);
+        }
+        Thread.sleep(1000);
+        Map<String, Long> durante = memoria();
+        int segundosCarga = Math.max(1, (int) ((lentoMs - (System.nanoTime() - t0) / 1_000_000) / 1000) - 1);
+        Resultado catalogo = carga("catalogo", clientes, segundosCarga, i -> get("/api/productos"));
+        long restante = lentoMs - (System.nanoTime() - t0) / 1_000_000;
+        if (restante > 0) {
+            Thread.sleep(restante);
+        }
+        int correctos = 0;
+        for (Socket s : sockets) {
+            try (s) {
+                s.getOutputStream().write(cuerpo, mitad, cuerpo.length - mitad);
+                s.getOutputStream().flush();
+                InputStream in = s.getInputStream();
+                byte[] linea = new byte[12];
+                if (in.readNBytes(linea, 0, 12) == 12 && new String(linea, StandardCharsets.US_ASCII).endsWith("200")) {
+                    correctos++;
+                }
+            } catch (IOException e) {
+                // Conexión cortada por el servidor: cuenta como error
+            }
+        }
+        long totalMs = (System.nanoTime() - t0) / 1_000_000;
+        System.out.printf("lentos    %d conexiones, %d respondidas con 200 en %d ms%n", cantidad, correctos, totalMs);
+        System.out.println("  mientras: " + catalogo);
+        System.out.printf("  servidor: hilos %s -> %s, heap %s, residente %s%n",
+            antes.getOrDefault("hilos", -1L), durante.getOrDefault("hilos", -1L),
+            cambio(antes, durante, "heapUsado", 1, 1048576.0, "MB"),
+            cambio(antes, durante, "residente", 1, 1048576.0, "MB"));
+        System.out.printf("  por conexión: heap %s, residente %s%n",
+            cambio(antes, durante, "heapUsado", cantidad, 1024.0, "KB"),
+            cambio(antes, durante, "residente", cantidad, 1024.0, "KB"));
+    }
+
+    private static String cambio(Map<String, Long> antes, Map<String, Long> durante, String clave,
+                                 int conexiones, double unidad, String nombre) {
+        if (!antes.containsKey(clave) || !durante.containsKey(clave)) {
+            return "sin datos";
+        }
+        return String.format("%+.1f %s", (durante.get(clave) - antes.get(clave)) / unidad / conexiones, nombre);
+    }
+
+    /**
+     * Heap por GET /api/diagnostico/memoria; residente e hilos de /proc/&lt;pid&gt;/status si se
+     * indicó pid. Con la pila servlet saturada la sonda HTTP no consigue hilo y solo queda /proc.
+     */
+    private Map<String, Long> memoria() throws InterruptedException {
+        Map<String, Long> valores = new HashMap<>();
+        try {
+            HttpRequest sonda = HttpRequest.newBuilder(URI.create(url + "/api/diagnostico/memoria?gc=true"))
+                .timeout(Duration.ofSeconds(5)).build();
+            Matcher m = NUMERO.matcher(http.send(sonda, HttpResponse.BodyHandlers.ofString()).body());
+            while (m.find()) {
+                valores.put(m.group(1), Long.parseLong(m.group(2)));
+            }
+        } catch (IOException e) {
+            System.out.println("  (la sonda de memoria no respondió: " + e.getClass().getSimpleName() + ")");
+        }
+        if (pid != null) {
+            try {
+                for (String linea : Files.readAllLines(Path.of("/proc", pid, "status"))) {
+                    if (linea.startsWith("VmRSS:")) {
+                        valores.put("residente", Long.parseLong(linea.replaceAll("\\D", "")) * 1024);
+                    } else if (linea.startsWith("Threads:")) {
+                        valores.put("hilos", Long.parseLong(linea.replaceAll("\\D", "")));
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("  (sin /proc/" + pid + "/status)");
+            }
+        }
+        return valores;
+    }
+}
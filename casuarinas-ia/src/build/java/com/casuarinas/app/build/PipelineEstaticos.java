@@ -0,0 +1,189 @@
+package com.casuarinas.app.build;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.casuarinas.app.web.FiltroCacheEstaticos;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * PIPELINE DE RECURSOS ESTÁTICOS (TIEMPO DE BUILD) - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Lo ejecuta Maven (exec-maven-plugin, fase process-test-classes) sobre target/classes/static:
+ * 1. Minifica cada página (.html) de forma conservadora: recorta sangrías, quita líneas vacías,
+ *    comentarios HTML y comentarios // de línea completa dentro de los scripts.
+ * 2. Calcula la huella (hash del contenido) de cada página y reescribe los enlaces entre páginas
+ *    como "pagina.html?v=huella", así la versión con huella se puede cachear como inmutable.
+ * 3. Escribe las variantes precomprimidas pagina.html.gz y pagina.html.br (si achican el archivo).
+ * 4. Escribe manifest-estaticos.properties con la huella y el ETag de cada página,
+ *    que FiltroCacheEstaticos usa en tiempo de ejecución.
+ *
+ * No es un componente de Spring: solo se usa durante el build. Vive en src/build/java, que
+ * Maven compila con las clases de prueba: no llega al JAR ni a su classpath.
+ */
+public final class PipelineEstaticos {
+
+    private static final String MANIFIESTO = FiltroCacheEstaticos.MANIFIESTO;
+
+    private static final Pattern ENLACE = Pattern.compile("(href|src)=\"([\\w.-]+\\.(?:html|css|js))(?:\\?v=[0-9a-f]+)?\"");
+
+    private PipelineEstaticos() {}
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "target/classes/static");
+        if (!Files.isDirectory(dir)) {
+            System.out.println("[estaticos] No existe " + dir + ", nada que procesar");
+            return;
+        }
+        boolean brotli = brotliDisponible();
+
+        // PASO 1 - minificar y calcular la huella de cada página sin sus enlaces versionados
+        Map<String, String> paginas = new TreeMap<>();
+        Map<String, String> huellas = new TreeMap<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(dir, "*.{html,css,js}")) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                String minificado = minificar(Files.readString(archivo, StandardCharsets.UTF_8), nombre);
+                paginas.put(nombre, minificado);
+                huellas.put(nombre, hash(sinVersiones(minificado)).substring(0, 12));
+            }
+        }
+
+        // PASO 2 - reescribir enlaces, escribir variantes comprimidas y el manifiesto
+        Properties manifiesto = new Properties();
+        for (Map.Entry<String, String> pagina : paginas.entrySet()) {
+            String nombre = pagina.getKey();
+            byte[] contenido = versionarEnlaces(pagina.getValue(), huellas).getBytes(StandardCharsets.UTF_8);
+            long original = Files.size(dir.resolve(nombre));
+            Files.write(dir.resolve(nombre), contenido);
+            byte[] gz = gzip(contenido);
+            escribirSiAchica(dir.resolve(nombre + ".gz"), gz, contenido.length);
+            byte[] br = brotli ? Encoder.compress(contenido, new Encoder.Parameters().setQuality(11)) : null;
+            if (br != null) {
+                escribirSiAchica(dir.resolve(nombre + ".br"), br, contenido.length);
+            }
+            manifiesto.setProperty(nombre, huellas.get(nombre));
+            manifiesto.setProperty(nombre + ".etag", hash(contenido).substring(0, 16));
+            System.out.printf("[estaticos] %s: %d -> %d bytes (gzip %d, brotli %s), huella %s%n",
+                nombre, original, contenido.length, gz.length, br != null ? String.valueOf(br.length) : "-",
+                huellas.get(nombre));
+        }
+        try (Writer out = Files.newBufferedWriter(dir.resolve(MANIFIESTO), StandardCharsets.UTF_8)) {
+            manifiesto.store(out, "Generado por PipelineEstaticos - no editar");
+        }
+    }
+
+    /**
+     * Minificación conservadora: preserva los saltos de línea para no alterar el significado
+     * del JavaScript (inserción automática de punto y coma, comentarios al final de línea)
+     */
+    static String minificar(String texto, String nombre) {
+        boolean html = nombre.endsWith(".html");
+        boolean enScript = !html && nombre.endsWith(".js");
+        boolean enComentario = false;
+        StringBuilder sb = new StringBuilder(texto.length());
+        for (String linea : texto.split("\r?\n")) {
+            String l = linea.strip();
+            if (html && !enScript) {
+                if (enComentario) {
+                    int fin = l.indexOf("-->");
+                    if (fin < 0) {
+                        continue;
+                    }
+                    enComentario = false;
+                    l = l.substring(fin + 3).strip();
+                }
+                l = l.replaceAll("<!--(?!\\[).*?-->", "").strip();
+                int inicio = l.indexOf("<!--");
+                if (inicio >= 0 && !l.startsWith("<!--[")) {
+                    enComentario = true;
+                    l = l.substring(0, inicio).strip();
+                }
+            }
+            if (html && l.contains("<script")) {
+                enScript = !l.contains("</script>");
+            } else if (html && l.contains("</script>")) {
+                enScript = false;
+            } else if (enScript && l.startsWith("//")) {
+                continue;
+            }
+            if (!l.isEmpty()) {
+                sb.append(l).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String sinVersiones(String texto) {
+        return ENLACE.matcher(texto).replaceAll("$1=\"$2\"");
+    }
+
+    private static String versionarEnlaces(String texto, Map<String, String> huellas) {
+        Matcher m = ENLACE.matcher(texto);
+        StringBuilder sb = new StringBuilder(texto.length() + 64);
+        while (m.find()) {
+            String huella = huellas.get(m.group(2));
+            String reemplazo = huella != null
+                ? m.group(1) + "=\"" + m.group(2) + "?v=" + huella + "\""
+                : m.group(0);
+            m.appendReplacement(sb, Matcher.quoteReplacement(reemplazo));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static byte[] gzip(byte[] datos) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 3);
+        try (OutputStream gz = new GZIPOutputStream(salida) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gz.write(datos);
+        }
+        return salida.toByteArray();
+    }
+
+    private static void escribirSiAchica(Path destino, byte[] comprimido, int original) throws IOException {
+        if (comprimido.length < original) {
+            Files.write(destino, comprimido);
+        } else {
+            Files.deleteIfExists(destino);
+        }
+    }
+
+    private static boolean brotliDisponible() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (Throwable e) {
+            System.out.println("[estaticos] Brotli no disponible en esta plataforma, solo se genera gzip: " + e);
+            return false;
+        }
+    }
+
+    private static String hash(String texto) {
+        return hash(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hash(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
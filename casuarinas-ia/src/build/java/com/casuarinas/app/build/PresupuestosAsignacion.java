@@ -0,0 +1,390 @@
+package com.casuarinas.app.build;
+
+import com.casuarinas.app.App;
+import com.casuarinas.app.diagnostico.EstadisticasSql;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PRESUPUESTOS DE ASIGNACIÓN POR ENDPOINT (TIEMPO DE BUILD) - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Las pausas de GC dependen de cuánta memoria asigna cada petición. Este verificador levanta
+ * la aplicación con varios tamaños de datos (base H2 en memoria, puerto libre), recorre los
+ * endpoints de ProductoController, PedidoController y ClienteController y mide los bytes
+ * asignados por petición con el mismo contador que usa FiltroMetricasSql en producción
+ * (ThreadMXBean.getCurrentThreadAllocatedBytes del hilo que atiende la petición, acumulado
+ * en EstadisticasSql).
+ *
+ * Lo ejecuta Maven en la fase verify de todo build (mvn verify, mvn install), en una JVM
+ * aparte; -Dasignaciones.omitir=true lo saltea. Cada endpoint se calienta unas vueltas
+ * (JIT) y luego se promedia:
+ * 1. Compara cada promedio con presupuestos-asignacion.txt ("tamaño MÉTODO /ruta=KB") y
+ *    falla el build si alguno lo supera
+ * 2. Agrega la corrida a target/asignaciones/historial.csv y escribe un reporte con la
+ *    asignación de cada endpoint a lo largo de las corridas (target/asignaciones/reporte.txt)
+ * 3. Con actualizar=true reescribe los presupuestos con lo medido más un margen, para
+ *    aceptar a conciencia un aumento o fijar una mejora
+ *
+ * No es un componente de Spring: solo se usa durante el build. Vive en src/build/java, que
+ * Maven compila con las clases de prueba: no llega al JAR ni a su classpath. El historial
+ * queda en target/ (se pierde con mvn clean); para conservarlo entre clones, pasar
+ * historial= con otra ruta.
+ *
+ * RELACIÓN CON SQL:
+ * - Las escrituras medidas (POST, PUT, DELETE, PATCH) son INSERT / UPDATE / DELETE reales
+ *   en la base en memoria de cada tamaño
+ */
+public final class PresupuestosAsignacion {
+
+    /** Datos generados para cada corrida (GeneradorDatos); los productos son el catálogo base */
+    private record Tamano(String nombre, int clientes, int pedidos) {}
+
+    private static final List<Tamano> TAMANOS = List.of(
+        new Tamano("chico", 50, 200),
+        new Tamano("mediano", 500, 2_000),
+        new Tamano("grande", 2_000, 5_000));
+
+    // Presupuesto nuevo con actualizar=true: lo medido más el mayor de los dos márgenes
+    private static final double MARGEN = 1.25;
+    private static final double MARGEN_MINIMO_KB = 16;
+
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final DateTimeFormatter SELLO = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private static final String PEDIDO = "{\"nombreCliente\":\"Medición\",\"localidad\":\"Pocitos\",\"total\":%d,"
+        + "\"itemsJson\":\"[{\\\"id\\\":1,\\\"nombre\\\":\\\"Huevos 12\\\",\\\"precio\\\":220.0,\\\"cantidad\\\":2}]\"}";
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final int calentar;
+    private final int medir;
+
+    // CORRIDA EN CURSO
+    private String base;
+    private EstadisticasSql estadisticas;
+    private Tamano tamano;
+    /** KB por petición, por "tamaño endpoint" en el orden medido */
+    private final Map<String, Double> medidos = new LinkedHashMap<>();
+
+    private PresupuestosAsignacion(int calentar, int medir) {
+        this.calentar = calentar;
+        this.medir = medir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path presupuestos = Paths.get("presupuestos-asignacion.txt");
+        Path historial = Paths.get("target/asignaciones/historial.csv");
+        Path reporte = Paths.get("target/asignaciones/reporte.txt");
+        List<String> tamanos = TAMANOS.stream().map(Tamano::nombre).toList();
+        int calentar = 5;
+        int medir = 10;
+        boolean actualizar = false;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "presupuestos" -> presupuestos = Paths.get(kv[1]);
+                case "historial" -> historial = Paths.get(kv[1]);
+                case "reporte" -> reporte = Paths.get(kv[1]);
+                case "tamanos" -> tamanos = List.of(kv[1].split(","));
+                case "calentar" -> calentar = Integer.parseInt(kv[1]);
+                case "medir" -> medir = Integer.parseInt(kv[1]);
+                case "actualizar" -> actualizar = Boolean.parseBoolean(kv[1]);
+                default -> throw new IllegalArgumentException("Parámetro desconocido: " + arg);
+            }
+        }
+        PresupuestosAsignacion verificador = new PresupuestosAsignacion(calentar, medir);
+        for (Tamano t : TAMANOS) {
+            if (tamanos.contains(t.nombre())) {
+                verificador.correr(t);
+            }
+        }
+        verificador.informar(presupuestos, historial, reporte, actualizar);
+    }
+
+    /** Levanta la aplicación con los datos de un tamaño, mide todos los endpoints y la cierra */
+    private void correr(Tamano t) {
+        System.out.printf("[asignaciones] %s: %d clientes, %d pedidos%n", t.nombre(), t.clientes(), t.pedidos());
+        // Como argumentos de línea de comandos: así pisan a application.properties
+        String[] argumentos = {
+            "--server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:asignaciones-" + t.nombre() + ";DB_CLOSE_DELAY=-1",
+            "--casuarinas.generador.clientes=" + t.clientes(),
+            "--casuarinas.generador.pedidos=" + t.pedidos(),
+            // Nada de lo que corre en segundo plano escribe en ./data
+            "--casuarinas.archivo.directorio=target/asignaciones/archivo",
+            "--casuarinas.accesos.directorio=target/asignaciones/accesos",
+            "--casuarinas.respaldo.habilitado=false",
+            "--casuarinas.mantenimiento.habilitado=false",
+            "--casuarinas.jfr.habilitado=false",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN"};
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(App.class)
+                .run(argumentos)) {
+            base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+            estadisticas = contexto.getBean(EstadisticasSql.class);
+            tamano = t;
+            medirProductos();
+            medirClientes();
+            medirPedidos();
+        }
+    }
+
+    private void medirProductos() {
+        // Lecturas primero: las escrituras vacían la caché del catálogo
+        medir("GET /api/productos", i -> get("/api/productos"));
+        medir("GET /api/productos/activos", i -> get("/api/productos/activos"));
+        medir("GET /api/productos/admin", i -> get("/api/productos/admin"));
+        medir("GET /api/productos/buscar", i -> get("/api/productos/buscar?nombre=queso"));
+        medir("GET /api/productos/categoria", i -> get("/api/productos/categoria?categoria=Quesos"));
+        medir("GET /api/productos/sugerir", i -> get("/api/productos/sugerir?prefijo=que"));
+        medir("POST /api/productos/consulta", i -> enviar("POST", "/api/productos/consulta",
+            "{\"activo\":true,\"ordenarPor\":\"precio\",\"limite\":20}"));
+        List<Long> ids = new ArrayList<>();
+        medir("POST /api/productos", i -> enviar("POST", "/api/productos", "{\"nombre\":\"Medición " + i
+            + "\",\"precio\":100.0,\"categoria\":\"Medición\",\"unidad\":\"unidad\"}"), ids);
+        medir("GET /api/productos/{id}", i -> get("/api/productos/" + ids.get(i)));
+        medir("PUT /api/productos/{id}", i -> enviar("PUT", "/api/productos/" + ids.get(i), "{\"nombre\":\"Medición "
+            + i + "\",\"precio\":110.0,\"categoria\":\"Medición\",\"unidad\":\"unidad\",\"activo\":true}"));
+        medir("PATCH /api/productos/bulk", i -> enviar("PATCH", "/api/productos/bulk",
+            "{\"categoria\":\"Medición\",\"porcentajePrecio\":1}"));
+        medir("DELETE /api/productos/{id}", i -> enviar("DELETE", "/api/productos/" + ids.get(i), null));
+    }
+
+    private void medirClientes() {
+        medir("GET /api/clientes", i -> get("/api/clientes"));
+        List<Long> ids = new ArrayList<>();
+        medir("POST /api/clientes", i -> enviar("POST", "/api/clientes",
+            "{\"nombre\":\"Medición " + i + "\",\"telefono\":\"099123456\",\"localidad\":\"Pocitos\"}"), ids);
+        medir("GET /api/clientes/{id}", i -> get("/api/clientes/" + ids.get(i)));
+        medir("PUT /api/clientes/{id}", i -> enviar("PUT", "/api/clientes/" + ids.get(i),
+            "{\"nombre\":\"Medición " + i + "\",\"telefono\":\"099654321\",\"localidad\":\"Pocitos\"}"));
+        medir("DELETE /api/clientes/{id}", i -> enviar("DELETE", "/api/clientes/" + ids.get(i), null));
+    }
+
+    private void medirPedidos() {
+        LocalDateTime ahora = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        medir("GET /api/pedidos", i -> get("/api/pedidos"));
+        medir("GET /api/pedidos/fecha", i -> get("/api/pedidos/fecha?fechaInicio=" + ahora.minusDays(30)
+            + "&fechaFin=" + ahora));
+        medir("GET /api/pedidos/total", i -> get("/api/pedidos/total?total=1300"));
+        medir("POST /api/pedidos/consulta", i -> enviar("POST", "/api/pedidos/consulta",
+            "{\"desde\":\"" + ahora.minusDays(30) + "\",\"totalMinimo\":1000,\"ordenarPor\":\"total\",\"limite\":50}"));
+        List<Long> ids = new ArrayList<>();
+        medir("POST /api/pedidos", i -> enviar("POST", "/api/pedidos", String.format(PEDIDO, 440 + i)), ids);
+        medir("GET /api/pedidos/{id}", i -> get("/api/pedidos/" + ids.get(i)));
+        medir("PUT /api/pedidos/{id}", i -> enviar("PUT", "/api/pedidos/" + ids.get(i), String.format(PEDIDO, 660 + i)));
+        medir("DELETE /api/pedidos/{id}", i -> enviar("DELETE", "/api/pedidos/" + ids.get(i), null));
+        medir("DELETE /api/pedidos", i -> enviar("DELETE", "/api/pedidos?hasta="
+            + URLEncoder.encode("2000-01-01T00:00:00", StandardCharsets.UTF_8), null));
+    }
+
+    private void medir(String endpoint, IntFunction<HttpRequest> peticion) {
+        medir(endpoint, peticion, null);
+    }
+
+    /**
+     * Calienta y mide un endpoint; el promedio sale de la diferencia de los acumulados de
+     * EstadisticasSql antes y después de las vueltas medidas
+     * @param creados si no es null, recibe el id de cada entidad creada (para PUT y DELETE)
+     */
+    private void medir(String endpoint, IntFunction<HttpRequest> peticion, List<Long> creados) {
+        int i = 0;
+        for (; i < calentar; i++) {
+            ejecutar(peticion.apply(i), creados);
+        }
+        long[] antes = acumulado(endpoint);
+        for (; i < calentar + medir; i++) {
+            ejecutar(peticion.apply(i), creados);
+        }
+        long[] despues = acumulado(endpoint);
+        long peticiones = despues[0] - antes[0];
+        if (peticiones == 0) {
+            throw new IllegalStateException(endpoint + ": ninguna petición medida (¿cambió la ruta o se "
+                + "ejecuta en hilos virtuales?)");
+        }
+        double kb = (despues[1] - antes[1]) / 1024.0 / peticiones;
+        medidos.put(tamano.nombre() + " " + endpoint, kb);
+        System.out.printf(Locale.ROOT, "[asignaciones]   %-30s %10.1f KB%n", endpoint, kb);
+    }
+
+    /** {peticiones medidas, bytes asignados} del endpoint hasta ahora */
+    private long[] acumulado(String endpoint) {
+        EstadisticasSql.Endpoint e = estadisticas.getEndpoints().get(endpoint);
+        return e == null ? new long[2] : new long[] {e.getPeticionesMedidas(), e.getBytesAsignados()};
+    }
+
+    private void ejecutar(HttpRequest peticion, List<Long> creados) {
+        try {
+            HttpResponse<String> respuesta = http.send(peticion, HttpResponse.BodyHandlers.ofString());
+            if (respuesta.statusCode() / 100 != 2) {
+                throw new IllegalStateException(peticion.method() + " " + peticion.uri() + ": "
+                    + respuesta.statusCode() + " " + respuesta.body());
+            }
+            if (creados != null) {
+                Matcher m = ID.matcher(respuesta.body());
+                if (!m.find()) {
+                    throw new IllegalStateException(peticion.uri() + " no devolvió el id creado: " + respuesta.body());
+                }
+                creados.add(Long.valueOf(m.group(1)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpRequest get(String ruta) {
+        return HttpRequest.newBuilder(URI.create(base + ruta)).GET().build();
+    }
+
+    private HttpRequest enviar(String metodo, String ruta, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + ruta));
+        if (json == null) {
+            return builder.method(metodo, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder.header("Content-Type", "application/json")
+            .method(metodo, HttpRequest.BodyPublishers.ofString(json)).build();
+    }
+
+    /** Compara con los presupuestos, guarda el historial, escribe el reporte y falla si hubo excesos */
+    private void informar(Path archivoPresupuestos, Path archivoHistorial, Path archivoReporte, boolean actualizar)
+            throws IOException {
+        Map<String, Double> presupuestos = leerPresupuestos(archivoPresupuestos);
+        Map<String, List<Double>> historial = agregarAlHistorial(archivoHistorial);
+
+        List<String> lineas = new ArrayList<>();
+        List<String> excedidos = new ArrayList<>();
+        lineas.add(String.format(Locale.ROOT, "%-8s %-30s %10s %8s %10s %8s  %s", "tamaño", "endpoint",
+            "KB/pet.", "presup.", "anterior", "cambio", "historial (KB, de la más vieja a esta)"));
+        for (Map.Entry<String, Double> medido : medidos.entrySet()) {
+            String clave = medido.getKey();
+            double kb = medido.getValue();
+            Double presupuesto = presupuestos.get(clave);
+            List<Double> serie = historial.getOrDefault(clave, List.of(kb));
+            Double anterior = serie.size() > 1 ? serie.get(serie.size() - 2) : null;
+            String estado = presupuesto == null ? "  SIN PRESUPUESTO" : kb > presupuesto ? "  EXCEDIDO" : "";
+            if (presupuesto != null && kb > presupuesto) {
+                excedidos.add(String.format(Locale.ROOT, "%s: %.1f KB (presupuesto %.0f KB)", clave, kb, presupuesto));
+            }
+            StringBuilder tendencia = new StringBuilder();
+            for (Double valor : serie.subList(Math.max(0, serie.size() - 8), serie.size())) {
+                tendencia.append(String.format(Locale.ROOT, " %.1f", valor));
+            }
+            String[] partes = clave.split(" ", 2);
+            lineas.add(String.format(Locale.ROOT, "%-8s %-30s %10.1f %8s %10s %8s %s%s", partes[0], partes[1], kb,
+                presupuesto == null ? "-" : String.format(Locale.ROOT, "%.0f", presupuesto),
+                anterior == null ? "-" : String.format(Locale.ROOT, "%.1f", anterior),
+                anterior == null || anterior == 0 ? "-" : String.format(Locale.ROOT, "%+.1f%%", (kb / anterior - 1) * 100),
+                tendencia, estado));
+        }
+        Files.createDirectories(archivoReporte.toAbsolutePath().getParent());
+        Files.write(archivoReporte, lineas, StandardCharsets.UTF_8);
+        lineas.forEach(l -> System.out.println("[asignaciones] " + l));
+        System.out.println("[asignaciones] Reporte: " + archivoReporte + ", historial: " + archivoHistorial);
+
+        if (actualizar) {
+            escribirPresupuestos(archivoPresupuestos, presupuestos);
+            System.out.println("[asignaciones] Presupuestos actualizados en " + archivoPresupuestos);
+        } else if (!excedidos.isEmpty()) {
+            throw new IllegalStateException("Presupuesto de asignación superado en " + excedidos.size()
+                + " endpoint(s):\n  " + String.join("\n  ", excedidos)
+                + "\nSi el aumento es esperado: mvn verify -Dasignaciones.actualizar=true");
+        }
+    }
+
+    /** "tamaño MÉTODO /ruta=KB" por línea; # inicia un comentario */
+    private static Map<String, Double> leerPresupuestos(Path archivo) throws IOException {
+        Map<String, Double> presupuestos = new HashMap<>();
+        if (!Files.exists(archivo)) {
+            return presupuestos;
+        }
+        for (String linea : Files.readAllLines(archivo, StandardCharsets.UTF_8)) {
+            int igual = linea.lastIndexOf('=');
+            if (!linea.isBlank() && !linea.startsWith("#") && igual > 0) {
+                presupuestos.put(linea.substring(0, igual).trim(), Double.parseDouble(linea.substring(igual + 1).trim()));
+            }
+        }
+        return presupuestos;
+    }
+
+    private void escribirPresupuestos(Path archivo, Map<String, Double> anteriores) throws IOException {
+        List<String> lineas = new ArrayList<>();
+        lineas.add("# PRESUPUESTOS DE ASIGNACIÓN POR PETICIÓN (KB) - LOS VERIFICA PresupuestosAsignacion");
+        lineas.add("# mvn verify falla si un endpoint asigna más que esto en promedio;");
+        lineas.add("# -Dasignaciones.actualizar=true los recalcula (lo medido + 25%, al menos 16 KB más)");
+        lineas.add("# Formato: tamaño MÉTODO /ruta=KB");
+        String tamanoAnterior = null;
+        Map<String, Double> todos = new LinkedHashMap<>(medidos);
+        anteriores.forEach(todos::putIfAbsent);
+        for (Map.Entry<String, Double> e : todos.entrySet()) {
+            String tamanoEntrada = e.getKey().split(" ", 2)[0];
+            if (!tamanoEntrada.equals(tamanoAnterior)) {
+                lineas.add("");
+                TAMANOS.stream().filter(t -> t.nombre().equals(tamanoEntrada)).findFirst().ifPresent(t ->
+                    lineas.add("# " + t.nombre() + ": " + t.clientes() + " clientes, " + t.pedidos() + " pedidos"));
+                tamanoAnterior = tamanoEntrada;
+            }
+            double presupuesto = medidos.containsKey(e.getKey())
+                ? Math.ceil(Math.max(e.getValue() * MARGEN, e.getValue() + MARGEN_MINIMO_KB))
+                : e.getValue();
+            lineas.add(String.format(Locale.ROOT, "%s=%.0f", e.getKey(), presupuesto));
+        }
+        Files.write(archivo, lineas, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Agrega lo medido a historial.csv (fecha;tamaño;endpoint;KB) y devuelve la serie de
+     * cada "tamaño endpoint", de la corrida más vieja a esta
+     */
+    private Map<String, List<Double>> agregarAlHistorial(Path archivo) throws IOException {
+        Files.createDirectories(archivo.toAbsolutePath().getParent());
+        if (!Files.exists(archivo)) {
+            Files.write(archivo, List.of("fecha;tamaño;endpoint;kb"), StandardCharsets.UTF_8);
+        }
+        String fecha = LocalDateTime.now().format(SELLO);
+        List<String> nuevas = new ArrayList<>();
+        medidos.forEach((clave, kb) -> {
+            String[] partes = clave.split(" ", 2);
+            nuevas.add(String.format(Locale.ROOT, "%s;%s;%s;%.1f", fecha, partes[0], partes[1], kb));
+        });
+        Files.write(archivo, nuevas, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        Map<String, List<Double>> series = new TreeMap<>();
+        List<String> lineas = Files.readAllLines(archivo, StandardCharsets.UTF_8);
+        for (String linea : lineas.subList(1, lineas.size())) {
+            String[] campos = linea.split(";");
+            if (campos.length == 4) {
+                series.computeIfAbsent(campos[1] + " " + campos[2], k -> new ArrayList<>())
+                    .add(Double.parseDouble(campos[3]));
+            }
+        }
+        return series;
+    }
+}
@@ -2,6 +2,7 @@ package com.casuarinas.app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * CLASE PRINCIPAL DE LA APLICACIÓN - PROGRAMACIÓN ORIENTADA A OBJETOS
@@ -19,8 +20,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * - Habilita JPA para mapeo objeto-relacional
  * - Configura el pool de conexiones SQL automáticamente
  * - Inicializa las tablas SQL basadas en las entidades JPA
+ * 
+ * @EnableScheduling: habilita las tareas periódicas (@Scheduled) de mantenimiento
  */
 @SpringBootApplication
+@EnableScheduling
 public class App {
     
     /**
@@ -0,0 +1,259 @@
+package com.casuarinas.app.boot;
+
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import com.casuarinas.app.model.IdempotenciaPedido;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.model.Producto;
+import com.casuarinas.app.repo.ClienteRepo;
+import com.casuarinas.app.repo.IdempotenciaRepo;
+import com.casuarinas.app.repo.PedidoRepo;
+import com.casuarinas.app.repo.ProductoRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CALENTAMIENTO AL INICIAR - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Después de DataLoader (y del generador, si corre) ejercita los caminos calientes antes
+ * de que la aplicación se declare lista para recibir tráfico. Mientras tanto
+ * GET /api/diagnostico/listo responde 503, así el balanceador todavía no envía clientes.
+ *
+ * Fases (cada una informa su duración):
+ * 1. Pool: abre a la vez todas las conexiones de cada pool (principal y fragmentos)
+ * 2. Páginas H2: lee las tablas chicas completas y los pedidos más recientes
+ * 3. Repositorios y JSON: repite las consultas de los endpoints calientes, inserta un
+ *    pedido de prueba dentro de una transacción que se revierte y serializa con el
+ *    mismo ObjectMapper de Spring MVC (el JIT compila esos caminos)
+ * 4. HTTP: pide por localhost los GET de cliente.html y admin.html, incluida la página,
+ *    para inicializar Tomcat, los filtros y el DispatcherServlet
+ *
+ * RELACIÓN CON SQL:
+ * - Solo lecturas, salvo el INSERT de prueba que termina en ROLLBACK (deja un hueco en los ids)
+ * - Las peticiones HTTP llevan la cabecera X-Calentamiento y no cuentan en EstadisticasSql
+ */
+@Component
+@Order(10) // Último CommandLineRunner: la aplicación se declara lista al terminar todos
+public class Calentamiento implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(Calentamiento.class);
+
+    /** Cabecera que identifica las peticiones de calentamiento */
+    public static final String CABECERA = "X-Calentamiento";
+
+    // Solo endpoints de respuesta acotada: nada que devuelva la lista completa de pedidos
+    private static final String[] RUTAS = {"/api/productos", "/api/productos/activos", "/api/productos/admin",
+        "/api/productos/buscar?nombre=queso", "/api/productos/sugerir?prefijo=que",
+        "/api/admin/dashboard", "/api/reportes/top", "/cliente.html", "/admin.html"};
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Autowired
+    private ProductoRepo productoRepo;
+
+    @Autowired
+    private PedidoRepo pedidoRepo;
+
+    @Autowired
+    private ClienteRepo clienteRepo;
+
+    @Autowired
+    private IdempotenciaRepo idempotenciaRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WebServerApplicationContext contexto;
+
+    @Value("${casuarinas.calentamiento.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${casuarinas.calentamiento.iteraciones:300}")
+    private int iteraciones;
+
+    @Value("${casuarinas.calentamiento.max-segundos:30}")
+    private int maxSegundos;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int conexiones;
+
+    @Value("${casuarinas.fragmentos.pool:10}")
+    private int conexionesFragmento;
+
+    // RESULTADO - lo lee DiagnosticoController
+    private volatile boolean terminado;
+    private volatile long duracionMs = -1;
+    private final Map<String, Long> fases = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private HttpClient http;
+
+    @Override
+    public void run(String... args) {
+        if (!habilitado) {
+            terminado = true;
+            return;
+        }
+        long t0 = System.nanoTime();
+        long limite = t0 + maxSegundos * 1_000_000_000L;
+        try {
+            fase("pool", this::llenarPools);
+            fase("paginas", this::leerPaginas);
+            fase("repositorios", () -> repetir(limite, this::ejercitarRepositorios));
+            fase("http", () -> repetir(limite, this::ejercitarHttp));
+        } catch (RuntimeException e) {
+            // Un calentamiento fallido no debe impedir que la aplicación arranque
+            log.warn("Calentamiento interrumpido: {}", e.toString());
+        } finally {
+            duracionMs = (System.nanoTime() - t0) / 1_000_000;
+            terminado = true;
+        }
+        log.info("Calentamiento terminado en {} ms {}", duracionMs, fases);
+    }
+
+    public boolean isTerminado() { return terminado; }
+    public long getDuracionMs() { return duracionMs; }
+    public Map<String, Long> getFases() { return new LinkedHashMap<>(fases); }
+
+    private void fase(String nombre, Runnable trabajo) {
+        long t0 = System.nanoTime();
+        trabajo.run();
+        fases.put(nombre, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    /**
+     * Repite el trabajo hasta completar las iteraciones o agotar el tiempo máximo
+     */
+    private void repetir(long limite, Runnable trabajo) {
+        for (int i = 0; i < iteraciones && System.nanoTime() < limite; i++) {
+            trabajo.run();
+        }
+    }
+
+    private void llenarPools() {
+        abrirConexiones(conexiones);
+        if (fragmentos.habilitado()) {
+            for (int n = 0; n < fragmentos.cantidad(); n++) {
+                fragmentos.ejecutarEn(n, () -> abrirConexiones(conexionesFragmento));
+            }
+        }
+    }
+
+    /** Hikari crea las conexiones de a una y en segundo plano: se piden todas juntas */
+    private void abrirConexiones(int cantidad) {
+        List<Connection> abiertas = new ArrayList<>(cantidad);
+        try {
+            for (int i = 0; i < cantidad; i++) {
+                abiertas.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            log.warn("Calentamiento: no se pudieron abrir {} conexiones: {}", cantidad, e.getMessage());
+        } finally {
+            for (Connection c : abiertas) {
+                try {
+                    c.close();
+                } catch (SQLException e) {
+                    // La conexión vuelve al pool de todos modos
+                }
+            }
+        }
+    }
+
+    private void leerPaginas() {
+        // CONSULTAS SQL: SELECT * FROM producto; SELECT * FROM cliente
+        productoRepo.findAll();
+        clienteRepo.findAll();
+        // CONSULTA SQL: SELECT * FROM pedido ORDER BY creado DESC LIMIT 1000 (en cada fragmento)
+        fragmentos.enTodos(() -> pedidoRepo.findByOrderByCreadoDesc(PageRequest.of(0, 1000)));
+        // CONSULTA SQL: SELECT COUNT(*) FROM pedido - recorre el índice primario
+        fragmentos.enTodos(() -> jdbcTemplate.queryForObject("select count(*) from pedido", Long.class));
+    }
+
+    private void ejercitarRepositorios() {
+        try {
+            List<Producto> activos = productoRepo.findByActivoTrue();
+            objectMapper.writeValueAsBytes(activos);
+            productoRepo.findAll(Specification.allOf(ProductoRepo.activo(true), ProductoRepo.nombreContiene("queso")));
+            productoRepo.findAll(Specification.allOf(ProductoRepo.activo(true), ProductoRepo.categoriaEn(List.of("Huevos"))));
+            List<Pedido> recientes = fragmentos.dispersar(
+                () -> pedidoRepo.findByOrderByCreadoDesc(PageRequest.of(0, 20)), Comparator.comparing(Pedido::getId));
+            objectMapper.writeValueAsBytes(recientes);
+            if (!recientes.isEmpty()) {
+                Long id = recientes.get(0).getId();
+                fragmentos.porId(id, () -> pedidoRepo.findById(id));
+            }
+            fragmentos.enTodos(() -> pedidoRepo.resumirPorLocalidad(LocalDateTime.now().toLocalDate().atStartOfDay()));
+
+            // CAMINO DEL CHECKOUT - leer el JSON, INSERT del pedido y de su clave, ROLLBACK
+            Pedido pedido = objectMapper.readValue("{\"nombreCliente\":\"calentamiento\",\"localidad\":\"Pocitos\","
+                + "\"itemsJson\":\"[]\",\"total\":0,\"creado\":\"2000-01-01T00:00:00\"}", Pedido.class);
+            fragmentos.enFragmentoDe(pedido, () -> transactionTemplate.execute(status -> {
+                Pedido creado = pedidoRepo.save(pedido);
+                idempotenciaRepo.save(new IdempotenciaPedido("calentamiento-" + System.nanoTime(),
+                    creado.getId(), LocalDateTime.now()));
+                idempotenciaRepo.flush();
+                status.setRollbackOnly();
+                return null;
+            }));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void ejercitarHttp() {
+        if (http == null) {
+            http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        }
+        int puerto = contexto.getWebServer().getPort();
+        for (String ruta : RUTAS) {
+            HttpRequest pedido = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta))
+                .header(CABECERA, "1")
+                .header("Accept-Encoding", "gzip")
+                .build();
+            try {
+                http.send(pedido, HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                throw new IllegalStateException("No se pudo llamar a " + ruta, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
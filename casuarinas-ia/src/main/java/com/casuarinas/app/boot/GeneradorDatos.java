@@ -0,0 +1,364 @@
+package com.casuarinas.app.boot;
+
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * GENERADOR DE DATOS SINTÉTICOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Carga clientes, productos y pedidos de prueba con distribuciones parecidas a las reales,
+ * para reproducir en local el volumen de producción. Solo se ejecuta si se indica una cantidad:
+ *
+ *   java -jar app.jar --casuarinas.generador.pedidos=10000000 --casuarinas.generador.clientes=50000
+ *
+ * Distribuciones:
+ * - Localidades: Pocitos 45%, Carrasco 35%, Solymar/La Tahona 20%
+ * - Clientes: unos pocos compran mucho (popularidad tipo Zipf), igual que los productos
+ * - Canasta: de 1 a 6 productos distintos, la mayoría 1-3; cantidades de 1 a 3
+ * - Fechas: más pedidos en diciembre y en verano, fines de semana y picos de 10-12 y 18-21 h
+ * - itemsJson: mismo formato que arma cliente.html ({id, nombre, precio, cantidad})
+ *
+ * RELACIÓN CON SQL:
+ * - Inserta con JDBC batch: INSERT ... VALUES (?, ...) con addBatch(), sobre una conexión
+ *   (productos y clientes) o una por fragmento (pedidos, ver FragmentosPedidos)
+ * - Confirma cada lote (COMMIT) para no acumular una transacción gigante
+ * - Las filas se generan a medida que se insertan: nunca se tienen todas en memoria
+ */
+@Component
+@Order(2) // Después de DataLoader, que garantiza el catálogo base
+public class GeneradorDatos implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorDatos.class);
+
+    private static final String[] LOCALIDADES = {"Pocitos", "Carrasco", "Solymar/La Tahona"};
+    private static final double[] PESO_LOCALIDAD = {0.45, 0.35, 0.20};
+    private static final String[] NOMBRES = {"María", "Juan", "Lucía", "Martín", "Sofía", "Diego", "Valentina",
+        "Pablo", "Camila", "Santiago", "Florencia", "Nicolás", "Agustina", "Federico", "Carolina", "Gonzalo"};
+    private static final String[] APELLIDOS = {"Rodríguez", "González", "Fernández", "Pérez", "García", "Martínez",
+        "López", "Silva", "Sosa", "Pereira", "Díaz", "Suárez", "Núñez", "Castro", "Méndez", "Acosta"};
+    private static final String[] CALLES = {"Av. Brasil", "Benito Blanco", "Av. Arocena", "Rivera", "Av. Giannattasio",
+        "Juan Benito Blanco", "Av. Italia", "Schroeder", "Av. de las Américas", "Ellauri"};
+    // Peso relativo de cada mes (enero..diciembre): verano y fiestas venden más
+    private static final double[] PESO_MES = {1.2, 1.1, 0.9, 0.9, 0.8, 0.8, 0.8, 0.9, 0.9, 1.0, 1.1, 1.6};
+    // Peso relativo de cada hora del día
+    private static final double[] PESO_HORA = {0, 0, 0, 0, 0, 0, 0.1, 0.3, 0.6, 1.0, 1.6, 1.7, 1.4, 0.9,
+        0.7, 0.7, 0.9, 1.2, 1.7, 1.9, 1.6, 1.0, 0.5, 0.2};
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Value("${casuarinas.generador.clientes:0}")
+    private int clientes;
+
+    @Value("${casuarinas.generador.productos:0}")
+    private int productos;
+
+    @Value("${casuarinas.generador.pedidos:0}")
+    private long pedidos;
+
+    @Value("${casuarinas.generador.dias:730}")
+    private int dias;
+
+    @Value("${casuarinas.generador.lote:5000}")
+    private int lote;
+
+    @Value("${casuarinas.generador.semilla:42}")
+    private long semilla;
+
+    private record ProductoGenerado(long id, String nombre, double precio) {}
+
+    private record ClienteGenerado(String nombre, String telefono, String direccion, String localidad) {}
+
+    @Override
+    public void run(String... args) throws SQLException {
+        if (clientes <= 0 && productos <= 0 && pedidos <= 0) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(semilla);
+        try (Connection con = dataSource.getConnection()) {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try {
+                generarProductos(con, random);
+                List<ClienteGenerado> listaClientes = generarClientes(con, random);
+                generarPedidos(random, leerCatalogo(con), listaClientes);
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void generarProductos(Connection con, SplittableRandom random) throws SQLException {
+        if (productos <= 0) {
+            return;
+        }
+        String[][] bases = {
+            {"Huevos", "docena", "220"}, {"Queso", "400g", "250"}, {"Yogur", "unidad", "310"},
+            {"Miel", "1kg", "330"}, {"Dulce de leche", "500g", "190"}, {"Manteca", "200g", "150"}};
+        long t0 = System.nanoTime();
+        // CONSULTA SQL: INSERT INTO producto (nombre, precio, comentario, categoria, unidad, activo, creado, actualizado)
+        try (PreparedStatement ps = con.prepareStatement("insert into producto "
+                + "(nombre, precio, comentario, categoria, unidad, activo, creado, actualizado) "
+                + "values (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 1; i <= productos; i++) {
+                String[] base = bases[random.nextInt(bases.length)];
+                double precio = Math.round(Double.parseDouble(base[2]) * (0.6 + random.nextDouble() * 0.9));
+                ps.setString(1, base[0] + " " + i);
+                ps.setDouble(2, precio);
+                ps.setString(3, "Generado");
+                ps.setString(4, base[0]);
+                ps.setString(5, base[1]);
+                ps.setBoolean(6, random.nextInt(10) > 0);
+                ps.setTimestamp(7, ahora);
+                ps.setTimestamp(8, ahora);
+                ps.addBatch();
+                if (i % lote == 0) {
+                    ps.executeBatch();
+                    con.commit();
+                }
+            }
+            ps.executeBatch();
+            con.commit();
+        }
+        informar("productos", productos, t0);
+    }
+
+    private List<ClienteGenerado> generarClientes(Connection con, SplittableRandom random) throws SQLException {
+        int cantidad = Math.max(clientes, pedidos > 0 ? 1000 : 0);
+        List<ClienteGenerado> lista = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            lista.add(new ClienteGenerado(
+                NOMBRES[random.nextInt(NOMBRES.length)] + " " + APELLIDOS[random.nextInt(APELLIDOS.length)],
+                String.format("09%07d", random.nextInt(10_000_000)),
+                CALLES[random.nextInt(CALLES.length)] + " " + (100 + random.nextInt(4900)),
+                LOCALIDADES[elegirPonderado(random, PESO_LOCALIDAD)]));
+        }
+        if (clientes <= 0) {
+            // Solo se usan como compradores de los pedidos, no se insertan
+            return lista;
+        }
+        long t0 = System.nanoTime();
+        // CONSULTA SQL: INSERT INTO cliente (nombre, telefono, direccion, localidad) VALUES (?, ?, ?, ?)
+        try (PreparedStatement ps = con.prepareStatement(
+                "insert into cliente (nombre, telefono, direccion, localidad) values (?, ?, ?, ?)")) {
+            for (int i = 0; i < clientes; i++) {
+                ClienteGenerado c = lista.get(i);
+                ps.setString(1, c.nombre());
+                ps.setString(2, c.telefono());
+                ps.setString(3, c.direccion());
+                ps.setString(4, c.localidad());
+                ps.addBatch();
+                if ((i + 1) % lote == 0) {
+                    ps.executeBatch();
+                    con.commit();
+                }
+            }
+            ps.executeBatch();
+            con.commit();
+        }
+        informar("clientes", clientes, t0);
+        return lista;
+    }
+
+    private List<ProductoGenerado> leerCatalogo(Connection con) throws SQLException {
+        List<ProductoGenerado> catalogo = new ArrayList<>();
+        // CONSULTA SQL: SELECT id, nombre, precio FROM producto WHERE activo = true
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("select id, nombre, precio from producto where activo = true order by id")) {
+            while (rs.next()) {
+                catalogo.add(new ProductoGenerado(rs.getLong(1), rs.getString(2), rs.getDouble(3)));
+            }
+        }
+        return catalogo;
+    }
+
+    private void generarPedidos(SplittableRandom random, List<ProductoGenerado> catalogo,
+                                List<ClienteGenerado> compradores) throws SQLException {
+        if (pedidos <= 0 || catalogo.isEmpty()) {
+            return;
+        }
+        double[] pesoDia = pesosPorDia();
+        double[] acumuladoDia = acumular(pesoDia);
+        double[] acumuladoHora = acumular(PESO_HORA);
+        LocalDate primerDia = LocalDate.now().minusDays(dias - 1L);
+        StringBuilder items = new StringBuilder(256);
+        long t0 = System.nanoTime();
+        // Una conexión por fragmento (una sola si el modo fragmentado está apagado): cada pedido se
+        // inserta en el fragmento de su localidad, igual que PedidoService.guardarNuevo
+        int cantidad = fragmentos.cantidad();
+        Connection[] conexiones = new Connection[cantidad];
+        PreparedStatement[] inserts = new PreparedStatement[cantidad];
+        try {
+            for (int n = 0; n < cantidad; n++) {
+                int fragmento = n;
+                conexiones[n] = fragmentos.en(fragmento, () -> DataSourceUtils.getConnection(dataSource));
+                conexiones[n].setAutoCommit(false);
+                // CONSULTA SQL: INSERT INTO pedido (nombre_cliente, telefono, direccion, localidad, items_json, total, ubicacion, creado)
+                inserts[n] = conexiones[n].prepareStatement("insert into pedido "
+                    + "(nombre_cliente, telefono, direccion, localidad, items_json, total, ubicacion, creado) "
+                    + "values (?, ?, ?, ?, ?, ?, ?, ?)");
+            }
+            for (long i = 1; i <= pedidos; i++) {
+                ClienteGenerado c = compradores.get(zipf(random, compradores.size()));
+                double total = armarItems(random, catalogo, items);
+                LocalDateTime creado = primerDia.plusDays(buscar(acumuladoDia, random.nextDouble()))
+                    .atTime(buscar(acumuladoHora, random.nextDouble()), random.nextInt(60), random.nextInt(60));
+                PreparedStatement ps = inserts[fragmentos.fragmentoDe(c.localidad())];
+                ps.setString(1, c.nombre());
+                ps.setString(2, c.telefono());
+                ps.setString(3, c.direccion());
+                ps.setString(4, c.localidad());
+                ps.setString(5, items.toString());
+                ps.setDouble(6, total);
+                ps.setString(7, c.localidad());
+                ps.setTimestamp(8, Timestamp.valueOf(creado));
+                ps.addBatch();
+                if (i % lote == 0) {
+                    confirmar(conexiones, inserts);
+                    if (i % (lote * 200L) == 0) {
+                        informar("pedidos (parcial)", i, t0);
+                    }
+                }
+            }
+            confirmar(conexiones, inserts);
+        } finally {
+            for (int n = 0; n < cantidad; n++) {
+                if (inserts[n] != null) {
+                    inserts[n].close();
+                }
+                if (conexiones[n] != null) {
+                    conexiones[n].setAutoCommit(true);
+                    conexiones[n].close();
+                }
+            }
+        }
+        informar("pedidos", pedidos, t0);
+    }
+
+    /** Ejecuta el lote pendiente de cada fragmento y lo confirma (COMMIT) */
+    private static void confirmar(Connection[] conexiones, PreparedStatement[] inserts) throws SQLException {
+        for (int n = 0; n < inserts.length; n++) {
+            inserts[n].executeBatch();
+            conexiones[n].commit();
+        }
+    }
+
+    /** Arma el itemsJson en el mismo formato que cliente.html y devuelve el total */
+    private static double armarItems(SplittableRandom random, List<ProductoGenerado> catalogo, StringBuilder sb) {
+        sb.setLength(0);
+        sb.append('[');
+        int distintos = Math.min(catalogo.size(), 1 + (int) Math.floor(-Math.log(1 - random.nextDouble()) * 1.3));
+        distintos = Math.min(distintos, 6);
+        double total = 0;
+        long usados = 0; // evita repetir producto en la misma canasta (catálogos de hasta 64 ítems populares)
+        for (int k = 0; k < distintos; k++) {
+            int idx = zipf(random, catalogo.size());
+            if (idx < 64 && (usados & (1L << idx)) != 0) {
+                continue;
+            }
+            if (idx < 64) {
+                usados |= 1L << idx;
+            }
+            ProductoGenerado p = catalogo.get(idx);
+            int cantidad = 1 + (random.nextInt(10) < 7 ? 0 : random.nextInt(3));
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(p.id())
+              .append(",\"nombre\":\"").append(p.nombre().replace("\"", "\\\""))
+              .append("\",\"precio\":").append(p.precio())
+              .append(",\"cantidad\":").append(cantidad).append('}');
+            total += p.precio() * cantidad;
+        }
+        sb.append(']');
+        return total;
+    }
+
+    /** Peso de cada día del período: mes de la temporada y fin de semana */
+    private double[] pesosPorDia() {
+        double[] pesos = new double[dias];
+        LocalDate dia = LocalDate.now().minusDays(dias - 1L);
+        for (int d = 0; d < dias; d++, dia = dia.plusDays(1)) {
+            double finDeSemana = dia.getDayOfWeek().getValue() >= 6 ? 1.4 : 1.0;
+            pesos[d] = PESO_MES[dia.getMonthValue() - 1] * finDeSemana;
+        }
+        return pesos;
+    }
+
+    private static double[] acumular(double[] pesos) {
+        double[] acumulado = new double[pesos.length];
+        double suma = 0;
+        for (double p : pesos) {
+            suma += p;
+        }
+        double parcial = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            parcial += pesos[i] / suma;
+            acumulado[i] = parcial;
+        }
+        return acumulado;
+    }
+
+    /** Búsqueda binaria sobre la distribución acumulada */
+    private static int buscar(double[] acumulado, double u) {
+        int lo = 0;
+        int hi = acumulado.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (acumulado[mid] < u) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int elegirPonderado(SplittableRandom random, double[] pesos) {
+        double u = random.nextDouble();
+        for (int i = 0; i < pesos.length; i++) {
+            u -= pesos[i];
+            if (u <= 0) {
+                return i;
+            }
+        }
+        return pesos.length - 1;
+    }
+
+    /** Índice con popularidad aproximadamente Zipf (s = 1): pocos elementos concentran la mayoría */
+    private static int zipf(SplittableRandom random, int n) {
+        double u = random.nextDouble();
+        int i = (int) Math.floor(Math.pow(n + 1, u)) - 1;
+        return Math.min(Math.max(i, 0), n - 1);
+    }
+
+    private void informar(String que, long filas, long t0) {
+        double segundos = Math.max(1e-9, (System.nanoTime() - t0) / 1e9);
+        log.info(String.format(Locale.ROOT, "Generador: %d %s en %.1f s (%.0f filas/s)",
+            filas, que, segundos, filas / segundos));
+    }
+}
@@ -0,0 +1,123 @@
+package com.casuarinas.app.diagnostico;
+
+import java.util.function.Supplier;
+
+/**
+ * CONTADOR DE SENTENCIAS SQL POR PETICIÓN - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Acumula, para el hilo actual, cuántas sentencias SQL se ejecutaron (por tipo),
+ * cuántas filas se leyeron, cuánto tiempo se pasó en JDBC y cuánto tiempo se tuvieron
+ * conexiones del pool tomadas (desde getConnection() hasta close()).
+ * FiltroMetricasSql lo inicia al entrar una petición y lo lee al terminar.
+ *
+ * RELACIÓN CON SQL:
+ * - Lo alimenta ProxyDataSourceSql, que envuelve cada Statement/PreparedStatement
+ * - select/insert/update/delete: tipo según el primer verbo de la sentencia
+ */
+public final class ContadorSql {
+
+    private static final ThreadLocal<ContadorSql> ACTUAL = new ThreadLocal<>();
+
+    private int select;
+    private int insert;
+    private int update;
+    private int delete;
+    private int otras;
+    private long filas;
+    private long nanos;
+    private int conexiones;
+    private long nanosConexion;
+
+    /** Empieza a contar en el hilo actual y devuelve el contador */
+    public static ContadorSql iniciar() {
+        ContadorSql contador = new ContadorSql();
+        ACTUAL.set(contador);
+        return contador;
+    }
+
+    /** Deja de contar en el hilo actual */
+    public static void terminar() {
+        ACTUAL.remove();
+    }
+
+    /** Contador del hilo actual, o null si el hilo no está atendiendo una petición */
+    public static ContadorSql actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * Envuelve una tarea que correrá en otro hilo (consultas en paralelo de una misma petición):
+     * cuenta en un contador propio de ese hilo y al terminar lo suma a este
+     */
+    public <T> Supplier<T> incluir(Supplier<T> tarea) {
+        return () -> {
+            ContadorSql anterior = ACTUAL.get();
+            ContadorSql propio = iniciar();
+            try {
+                return tarea.get();
+            } finally {
+                ACTUAL.set(anterior);
+                sumar(propio);
+            }
+        };
+    }
+
+    private synchronized void sumar(ContadorSql otro) {
+        select += otro.select;
+        insert += otro.insert;
+        update += otro.update;
+        delete += otro.delete;
+        otras += otro.otras;
+        filas += otro.filas;
+        nanos += otro.nanos;
+        conexiones += otro.conexiones;
+        nanosConexion += otro.nanosConexion;
+    }
+
+    void sentencia(String sql, long duracionNanos) {
+        nanos += duracionNanos;
+        String verbo = sql == null ? "" : sql.stripLeading();
+        if (verbo.regionMatches(true, 0, "select", 0, 6) || verbo.regionMatches(true, 0, "with", 0, 4)) {
+            select++;
+        } else if (verbo.regionMatches(true, 0, "insert", 0, 6) || verbo.regionMatches(true, 0, "merge", 0, 5)) {
+            insert++;
+        } else if (verbo.regionMatches(true, 0, "update", 0, 6)) {
+            update++;
+        } else if (verbo.regionMatches(true, 0, "delete", 0, 6)) {
+            delete++;
+        } else {
+            otras++;
+        }
+    }
+
+    void fila() {
+        filas++;
+    }
+
+    /** Una conexión devuelta al pool después de tenerla tomada esa cantidad de nanosegundos */
+    void conexion(long retenidaNanos) {
+        conexiones++;
+        nanosConexion += retenidaNanos;
+    }
+
+    public int getSelect() { return select; }
+    public int getInsert() { return insert; }
+    public int getUpdate() { return update; }
+    public int getDelete() { return delete; }
+    public int getOtras() { return otras; }
+    public long getFilas() { return filas; }
+    public long getNanos() { return nanos; }
+    public int getConexiones() { return conexiones; }
+    public long getNanosConexion() { return nanosConexion; }
+
+    public int getTotal() {
+        return select + insert + update + delete + otras;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d sentencias (select=%d insert=%d update=%d delete=%d otras=%d), %d filas, %.1f ms SQL, "
+            + "%d conexiones tomadas %.1f ms", getTotal(), select, insert, update, delete, otras, filas, nanos / 1e6,
+            conexiones, nanosConexion / 1e6);
+    }
+}
@@ -0,0 +1,193 @@
+package com.casuarinas.app.diagnostico;
+
+import com.casuarinas.app.json.EnlaceJson;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConversionException;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CONVERSOR JSON CON EVENTOS JFR - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Reemplaza al MappingJackson2HttpMessageConverter de Spring Boot (mismo ObjectMapper) y
+ * registra como evento casuarinas.Json cuánto tarda y cuántos bytes ocupa cada lectura de
+ * un @RequestBody y cada escritura de una respuesta.
+ *
+ * Los cuerpos de Pedido, Producto y Cliente (y sus listas) en UTF-8 se leen y escriben
+ * con el ObjectReader / ObjectWriter ya preparado de EnlaceJson en lugar de crear uno por
+ * petición; los demás tipos siguen el camino normal de Spring.
+ *
+ * RELACIÓN CON POO:
+ * - Herencia: solo envuelve read() y writeInternal(); el resto es el conversor de Spring
+ * - La escritura incluye el envío al buffer de la respuesta: con un cliente lento, el
+ *   tiempo de red también aparece aquí
+ */
+@Component
+public class ConvertidorJsonJfr extends MappingJackson2HttpMessageConverter {
+
+    public ConvertidorJsonJfr(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Autowired
+    private EnlaceJson enlace;
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        EventosJfr.Json evento = new EventosJfr.Json();
+        if (!evento.isEnabled()) {
+            return leer(type, contextClass, inputMessage);
+        }
+        EntradaContada entrada = new EntradaContada(inputMessage.getBody());
+        evento.begin();
+        Object resultado = leer(type, contextClass, new HttpInputMessage() {
+            @Override
+            public InputStream getBody() {
+                return entrada;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return inputMessage.getHeaders();
+            }
+        });
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.operacion = "lectura";
+            evento.tipo = resultado != null ? resultado.getClass().getSimpleName() : type.getTypeName();
+            evento.bytes = entrada.bytes;
+            evento.commit();
+        }
+        return resultado;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        EventosJfr.Json evento = new EventosJfr.Json();
+        if (!evento.isEnabled()) {
+            escribir(object, type, outputMessage);
+            return;
+        }
+        SalidaContada salida = new SalidaContada(outputMessage.getBody());
+        evento.begin();
+        escribir(object, type, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return salida;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return outputMessage.getHeaders();
+            }
+        });
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.operacion = "escritura";
+            evento.tipo = object.getClass().getSimpleName();
+            evento.bytes = salida.bytes;
+            evento.commit();
+        }
+    }
+
+    private Object leer(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        if (!EnlaceJson.preparado(type) || !utf8(inputMessage.getHeaders().getContentType())) {
+            return super.read(type, contextClass, inputMessage);
+        }
+        // Mismas excepciones que AbstractJackson2HttpMessageConverter: un JSON inválido es un 400
+        try {
+            return enlace.lector(type).readValue(StreamUtils.nonClosing(inputMessage.getBody()));
+        } catch (InvalidDefinitionException ex) {
+            throw new HttpMessageConversionException("Type definition error: " + ex.getType(), ex);
+        } catch (JsonProcessingException ex) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + ex.getOriginalMessage(), ex, inputMessage);
+        }
+    }
+
+    private void escribir(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (type == null || !EnlaceJson.preparado(type) || !EnlaceJson.clase(type).isInstance(object)
+                || !utf8(outputMessage.getHeaders().getContentType())) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        try {
+            enlace.escritor(type).writeValue(StreamUtils.nonClosing(outputMessage.getBody()), object);
+        } catch (InvalidDefinitionException ex) {
+            throw new HttpMessageConversionException("Type definition error: " + ex.getType(), ex);
+        } catch (JsonProcessingException ex) {
+            throw new HttpMessageNotWritableException("Could not write JSON: " + ex.getOriginalMessage(), ex);
+        }
+    }
+
+    /** Sin charset application/json es UTF-8 */
+    private static boolean utf8(MediaType contentType) {
+        Charset charset = contentType != null ? contentType.getCharset() : null;
+        return charset == null || StandardCharsets.UTF_8.equals(charset);
+    }
+
+    private static final class EntradaContada extends FilterInputStream {
+        long bytes;
+
+        EntradaContada(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                bytes += n;
+            }
+            return n;
+        }
+    }
+
+    private static final class SalidaContada extends FilterOutputStream {
+        long bytes;
+
+        SalidaContada(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytes += len;
+        }
+    }
+}
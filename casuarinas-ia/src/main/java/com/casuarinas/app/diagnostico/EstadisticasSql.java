@@ -0,0 +1,137 @@
+package com.casuarinas.app.diagnostico;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ESTADÍSTICAS SQL POR ENDPOINT - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Acumula los ContadorSql de cada petición agrupados por endpoint ("GET /api/productos/{id}")
+ * y los compara con el presupuesto de sentencias configurado para ese endpoint. También
+ * suma los bytes que asignó cada petición en el heap (la presión que termina en pausas de
+ * GC); sus presupuestos los verifica PresupuestosAsignacion durante el build.
+ *
+ * Configuración (application.properties):
+ * - casuarinas.sql.presupuestos: "MÉTODO /ruta=máximo" separados por coma
+ * - casuarinas.sql.log-peticiones: registra los contadores de cada petición
+ * - casuarinas.sql.lenta-ms / casuarinas.sql.charlatana: umbrales del log de peticiones lentas o con muchas sentencias
+ *
+ * RELACIÓN CON SQL:
+ * - Un endpoint que supera su presupuesto (por ejemplo un N+1 nuevo) queda registrado
+ *   como violación y se informa con WARN
+ */
+@Component
+public class EstadisticasSql {
+
+    private static final Logger log = LoggerFactory.getLogger(EstadisticasSql.class);
+
+    /** Totales de un endpoint */
+    public static final class Endpoint {
+        final LongAdder peticiones = new LongAdder();
+        final LongAdder sentencias = new LongAdder();
+        final LongAdder filas = new LongAdder();
+        final LongAdder nanosSql = new LongAdder();
+        final LongAdder nanosConexion = new LongAdder();
+        final AtomicLong maximoNanosConexion = new AtomicLong();
+        final AtomicInteger maximoSentencias = new AtomicInteger();
+        final LongAdder violaciones = new LongAdder();
+        final LongAdder peticionesMedidas = new LongAdder();
+        final LongAdder bytesAsignados = new LongAdder();
+        final AtomicLong maximoBytesAsignados = new AtomicLong();
+
+        public long getPeticiones() { return peticiones.sum(); }
+        public long getSentencias() { return sentencias.sum(); }
+        public long getFilas() { return filas.sum(); }
+        public double getMsSql() { return nanosSql.sum() / 1e6; }
+        /** Tiempo total con conexiones del pool tomadas; dividido por peticiones, la retención media */
+        public double getMsConexion() { return nanosConexion.sum() / 1e6; }
+        public double getMaximoMsConexion() { return maximoNanosConexion.get() / 1e6; }
+        public int getMaximoSentencias() { return maximoSentencias.get(); }
+        public long getViolaciones() { return violaciones.sum(); }
+        /** Peticiones con asignación medida (en hilos virtuales la JVM no la informa) */
+        public long getPeticionesMedidas() { return peticionesMedidas.sum(); }
+        /** Bytes asignados en el heap por el hilo de la petición, sumados */
+        public long getBytesAsignados() { return bytesAsignados.sum(); }
+        public double getKbAsignadosPorPeticion() {
+            long n = peticionesMedidas.sum();
+            return n == 0 ? 0 : bytesAsignados.sum() / 1024.0 / n;
+        }
+        public double getMaximoKbAsignados() { return maximoBytesAsignados.get() / 1024.0; }
+    }
+
+    @Value("${casuarinas.sql.presupuestos:}")
+    private String presupuestosTexto;
+
+    @Value("${casuarinas.sql.log-peticiones:false}")
+    private boolean logPeticiones;
+
+    @Value("${casuarinas.sql.lenta-ms:500}")
+    private long lentaMs;
+
+    @Value("${casuarinas.sql.charlatana:20}")
+    private int charlatana;
+
+    private final Map<String, Integer> presupuestos = new ConcurrentHashMap<>();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void leerPresupuestos() {
+        for (String entrada : presupuestosTexto.split(",")) {
+            int igual = entrada.lastIndexOf('=');
+            if (igual > 0) {
+                presupuestos.put(entrada.substring(0, igual).trim(), Integer.parseInt(entrada.substring(igual + 1).trim()));
+            }
+        }
+    }
+
+    /**
+     * Registra una petición terminada
+     * @param endpoint método y patrón de ruta, p. ej. "GET /api/productos/{id}"
+     * @param duracionMs duración total de la petición
+     * @param asignados bytes asignados en el heap por el hilo de la petición; negativo = sin medir
+     */
+    public void registrar(String endpoint, ContadorSql contador, long duracionMs, long asignados) {
+        Endpoint e = endpoints.computeIfAbsent(endpoint, k -> new Endpoint());
+        e.peticiones.increment();
+        e.sentencias.add(contador.getTotal());
+        e.filas.add(contador.getFilas());
+        e.nanosSql.add(contador.getNanos());
+        e.nanosConexion.add(contador.getNanosConexion());
+        e.maximoNanosConexion.accumulateAndGet(contador.getNanosConexion(), Math::max);
+        e.maximoSentencias.accumulateAndGet(contador.getTotal(), Math::max);
+        if (asignados >= 0) {
+            e.peticionesMedidas.increment();
+            e.bytesAsignados.add(asignados);
+            e.maximoBytesAsignados.accumulateAndGet(asignados, Math::max);
+        }
+
+        Integer presupuesto = presupuestos.get(endpoint);
+        if (presupuesto != null && contador.getTotal() > presupuesto) {
+            e.violaciones.increment();
+            log.warn("Presupuesto SQL superado en {}: {} (máximo {})", endpoint, contador, presupuesto);
+        } else if (duracionMs >= lentaMs || contador.getTotal() >= charlatana) {
+            log.warn("Petición lenta o con muchas sentencias {}: {} ms, {}", endpoint, duracionMs, contador);
+        } else if (logPeticiones) {
+            log.info("{}: {} ms, {}", endpoint, duracionMs, contador);
+        }
+    }
+
+    /** Presupuesto configurado para el endpoint, o null */
+    public Integer presupuesto(String endpoint) {
+        return presupuestos.get(endpoint);
+    }
+
+    /** Copia ordenada de los totales por endpoint */
+    public Map<String, Endpoint> getEndpoints() {
+        return new TreeMap<>(endpoints);
+    }
+}
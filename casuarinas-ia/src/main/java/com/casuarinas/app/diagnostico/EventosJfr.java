@@ -0,0 +1,126 @@
+package com.casuarinas.app.diagnostico;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * EVENTOS DE JAVA FLIGHT RECORDER - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Eventos propios que GrabacionJfr graba en forma continua. Anidados en el tiempo, muestran
+ * en qué se fue una petición lenta (por ejemplo POST /api/pedidos):
+ *
+ *   casuarinas.Peticion     toda la petición: endpoint, estado, bytes, sentencias, filas y memoria asignada
+ *     casuarinas.Json       lectura del cuerpo / escritura de la respuesta (ConvertidorJsonJfr)
+ *     casuarinas.Repositorio  cada llamada a un repositorio de Spring Data (EventosRepositorio)
+ *       casuarinas.Jdbc     cada sentencia, COMMIT y ROLLBACK (ProxyDataSourceSql)
+ *
+ * El flush de Hibernate aparece como los INSERT/UPDATE que se ejecutan justo antes del
+ * COMMIT, dentro del evento Repositorio del save().
+ *
+ * RELACIÓN CON POO:
+ * - Herencia: cada evento extiende jdk.jfr.Event; los campos son el contenido grabado
+ * - Sin pila de llamadas (@StackTrace(false)): el costo de un evento es el de unos pocos campos
+ *
+ * RELACIÓN CON SQL:
+ * - Jdbc.sql guarda el texto con parámetros "?", nunca los valores
+ */
+public final class EventosJfr {
+
+    private EventosJfr() {
+    }
+
+    @Name("casuarinas.Peticion")
+    @Label("Petición HTTP")
+    @Description("Petición a /api/** atendida por Spring MVC o WebFlux (perfil reactivo)")
+    @Category({"Casuarinas", "Web"})
+    @StackTrace(false)
+    public static final class Peticion extends Event {
+        @Label("Endpoint")
+        public String endpoint;
+
+        @Label("Estado HTTP")
+        public int estado;
+
+        @Label("Cuerpo recibido")
+        @DataAmount
+        public long bytesPedido;
+
+        @Label("Sentencias SQL")
+        public int sentencias;
+
+        @Label("Filas leídas")
+        public long filas;
+
+        @Label("Tiempo en JDBC")
+        @Timespan
+        public long tiempoSql;
+
+        @Label("Conexiones tomadas")
+        @Timespan
+        public long tiempoConexion;
+
+        @Label("Memoria asignada")
+        @Description("Bytes asignados en el heap por el hilo de la petición")
+        @DataAmount
+        public long asignado;
+    }
+
+    @Name("casuarinas.Json")
+    @Label("JSON")
+    @Description("Lectura del cuerpo de una petición o escritura de la respuesta con Jackson")
+    @Category({"Casuarinas", "Web"})
+    @StackTrace(false)
+    public static final class Json extends Event {
+        @Label("Operación")
+        public String operacion;
+
+        @Label("Tipo")
+        public String tipo;
+
+        @Label("Tamaño")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("casuarinas.Repositorio")
+    @Label("Repositorio")
+    @Description("Llamada a un repositorio de Spring Data, con su transacción si la abre")
+    @Category({"Casuarinas", "Datos"})
+    @StackTrace(false)
+    public static final class Repositorio extends Event {
+        @Label("Repositorio")
+        public String repositorio;
+
+        @Label("Método")
+        public String metodo;
+
+        @Label("Resultados")
+        @Description("Elementos devueltos, filas afectadas por un UPDATE/DELETE o 1 si devuelve una entidad")
+        public long resultados;
+
+        @Label("Sentencias SQL")
+        public int sentencias;
+    }
+
+    @Name("casuarinas.Jdbc")
+    @Label("JDBC")
+    @Description("Sentencia SQL, COMMIT o ROLLBACK contra la base")
+    @Category({"Casuarinas", "Datos"})
+    @StackTrace(false)
+    public static final class Jdbc extends Event {
+        @Label("Operación")
+        public String operacion;
+
+        @Label("SQL")
+        public String sql;
+
+        @Label("Filas afectadas")
+        public long filas;
+    }
+}
@@ -0,0 +1,97 @@
+package com.casuarinas.app.diagnostico;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * EVENTOS JFR DE LOS REPOSITORIOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Agrega un interceptor a cada repositorio de Spring Data (ProductoRepo, PedidoRepo, ...)
+ * que registra cada llamada como evento casuarinas.Repositorio: método, resultados devueltos
+ * y sentencias SQL que ejecutó.
+ *
+ * RELACIÓN CON POO:
+ * - BeanPostProcessor (patrón Decorator), igual que ProxyDataSourceSql: los repositorios ya
+ *   son proxies de Spring AOP y el interceptor se suma como primer consejo de la cadena
+ * - Con la grabación apagada el interceptor solo pregunta isEnabled() y sigue
+ *
+ * RELACIÓN CON SQL:
+ * - El interceptor queda por fuera de la transacción del repositorio: la duración del
+ *   evento incluye el flush de Hibernate y el COMMIT de un save()
+ */
+@Component
+public class EventosRepositorio implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Repository<?, ?> && bean instanceof Advised proxy && !proxy.isFrozen()) {
+            proxy.addAdvice(0, new Interceptor(nombre(proxy, beanName)));
+        }
+        return bean;
+    }
+
+    /** Interfaz propia del repositorio (ProductoRepo), no las de Spring Data que extiende */
+    private static String nombre(Advised proxy, String beanName) {
+        for (Class<?> interfaz : proxy.getProxiedInterfaces()) {
+            if (Repository.class.isAssignableFrom(interfaz) && !interfaz.getName().startsWith("org.springframework.")) {
+                return interfaz.getSimpleName();
+            }
+        }
+        return beanName;
+    }
+
+    private static final class Interceptor implements MethodInterceptor {
+        private final String repositorio;
+
+        Interceptor(String repositorio) {
+            this.repositorio = repositorio;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocacion) throws Throwable {
+            EventosJfr.Repositorio evento = new EventosJfr.Repositorio();
+            if (!evento.isEnabled()) {
+                return invocacion.proceed();
+            }
+            ContadorSql contador = ContadorSql.actual();
+            int antes = contador != null ? contador.getTotal() : 0;
+            evento.begin();
+            Object resultado = invocacion.proceed();
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.repositorio = repositorio;
+                evento.metodo = invocacion.getMethod().getName();
+                evento.resultados = resultados(resultado);
+                evento.sentencias = contador != null ? contador.getTotal() - antes : 0;
+                evento.commit();
+            }
+            return resultado;
+        }
+
+        private static long resultados(Object resultado) {
+            if (resultado == null) {
+                return 0;
+            }
+            if (resultado instanceof Collection<?> lista) {
+                return lista.size();
+            }
+            if (resultado instanceof Slice<?> pagina) {
+                return pagina.getNumberOfElements();
+            }
+            if (resultado instanceof Optional<?> opcional) {
+                return opcional.isPresent() ? 1 : 0;
+            }
+            if (resultado instanceof Number filas) {
+                return filas.longValue();
+            }
+            return 1;
+        }
+    }
+}
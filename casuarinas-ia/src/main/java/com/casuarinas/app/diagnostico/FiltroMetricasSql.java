@@ -0,0 +1,175 @@
+package com.casuarinas.app.diagnostico;
+
+import com.casuarinas.app.boot.Calentamiento;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * FILTRO DE MÉTRICAS SQL POR PETICIÓN - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Abre un ContadorSql al entrar cada petición a /api/** y, al salir, lo entrega a
+ * EstadisticasSql junto con el endpoint resuelto por Spring MVC y los bytes que la petición
+ * asignó en el heap. La duración también alimenta a LatenciaPeticiones, la petición queda
+ * anotada en RegistroAccesos (con los bytes de la respuesta, contados por RespuestaContada)
+ * y, si GrabacionJfr está grabando, queda como evento casuarinas.Peticion.
+ *
+ * RELACIÓN CON SQL:
+ * - No ejecuta SQL: solo delimita qué sentencias pertenecen a cada petición
+ */
+@Component
+public class FiltroMetricasSql extends OncePerRequestFilter {
+
+    public static final String SIN_RUTA = "(sin ruta)";
+
+    private static final com.sun.management.ThreadMXBean HILOS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private EstadisticasSql estadisticas;
+
+    @Autowired
+    private LatenciaPeticiones latencias;
+
+    @Autowired
+    private RegistroAccesos accesos;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Las peticiones del calentamiento de arranque no representan tráfico real
+        return !request.getRequestURI().startsWith("/api/") || request.getHeader(Calentamiento.CABECERA) != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long t0 = System.nanoTime();
+        long asignados0 = asignados();
+        ContadorSql contador = ContadorSql.iniciar();
+        EventosJfr.Peticion evento = new EventosJfr.Peticion();
+        evento.begin();
+        RespuestaContada contada = accesos.isHabilitado() ? new RespuestaContada(response) : null;
+        try {
+            chain.doFilter(request, contada != null ? contada : response);
+        } finally {
+            ContadorSql.terminar();
+            long nanos = System.nanoTime() - t0;
+            long ms = nanos / 1_000_000;
+            long asignados1 = asignados();
+            long asignado = asignados0 < 0 || asignados1 < 0 ? -1 : asignados1 - asignados0;
+            String endpoint = endpoint(request);
+            estadisticas.registrar(endpoint, contador, ms, asignado);
+            if (contada != null) {
+                accesos.registrar(endpoint, response.getStatus(), nanos, Math.max(0, request.getContentLengthLong()),
+                    contada.getBytes(), contador.getTotal());
+            }
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.endpoint = endpoint;
+                evento.estado = response.getStatus();
+                evento.bytesPedido = Math.max(0, request.getContentLengthLong());
+                evento.sentencias = contador.getTotal();
+                evento.filas = contador.getFilas();
+                evento.tiempoSql = contador.getNanos();
+                evento.tiempoConexion = contador.getNanosConexion();
+                evento.asignado = Math.max(0, asignado);
+                evento.commit();
+            }
+            if (!request.getRequestURI().startsWith("/api/diagnostico/")) {
+                // POST /api/diagnostico/respaldo dura lo que el respaldo: no es tráfico de clientes
+                latencias.registrar(ms);
+            }
+        }
+    }
+
+    /**
+     * Bytes asignados hasta ahora por el hilo actual (contador por hilo de HotSpot, sin
+     * pausa ni muestreo); -1 si la JVM no lo informa, como en los hilos virtuales
+     */
+    static long asignados() {
+        return HILOS.isThreadAllocatedMemoryEnabled() ? HILOS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * "MÉTODO /patrón" del handler que atendió la petición, o "MÉTODO (sin ruta)" si no hubo
+     * handler: con la URI cruda cada id o ruta inventada sería un endpoint nuevo en
+     * EstadisticasSql y RegistroAccesos, sin límite
+     */
+    static String endpoint(HttpServletRequest request) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (patron != null ? patron : SIN_RUTA);
+    }
+
+    /**
+     * Cuenta los bytes del cuerpo de la respuesta a medida que pasan, sin copiarlos. Las
+     * respuestas escritas con getWriter() (páginas de error) usan el Content-Length si lo hay
+     */
+    static final class RespuestaContada extends HttpServletResponseWrapper {
+
+        private ServletOutputStream salida;
+        private long bytes;
+
+        RespuestaContada(HttpServletResponse response) {
+            super(response);
+        }
+
+        long getBytes() {
+            if (bytes > 0) {
+                return bytes;
+            }
+            String largo = getHeader("Content-Length");
+            return largo != null ? Long.parseLong(largo) : 0;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (salida == null) {
+                ServletOutputStream original = super.getOutputStream();
+                salida = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        original.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        original.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        original.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        original.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return original.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        original.setWriteListener(listener);
+                    }
+                };
+            }
+            return salida;
+        }
+    }
+}
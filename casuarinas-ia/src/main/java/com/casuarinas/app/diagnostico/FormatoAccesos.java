@@ -0,0 +1,228 @@
+package com.casuarinas.app.diagnostico;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * FORMATO BINARIO DEL REGISTRO DE ACCESOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Lo escribe RegistroAccesos y lo lee LectorAccesos. Un archivo es:
+ *
+ *   cabecera: int MAGIA, byte VERSION, long epoch ms de apertura
+ *   registros, cada uno con un byte de tipo:
+ *   - ENDPOINT (1): varint id, varint largo, nombre en UTF-8. Aparece en el archivo antes
+ *     del primer acceso que usa ese id, así cada archivo se lee solo
+ *   - ACCESO (2): varint zigzag ms desde el registro anterior, varint id de endpoint,
+ *     varint estado HTTP, varint microsegundos, varint bytes del pedido, varint bytes de
+ *     la respuesta, varint sentencias SQL
+ *   - DESCARTES (3): varint zigzag ms desde el registro anterior, varint entradas que no
+ *     entraron en el buffer desde el último DESCARTES
+ *
+ * Un acceso típico ocupa 10-14 bytes. Un archivo cortado a la mitad (caída del proceso)
+ * se lee hasta el último registro completo.
+ *
+ * RELACIÓN CON POO:
+ * - Encapsulación: solo esta clase conoce el formato; Escritor y leer() son sus dos caras
+ * - Acceso: record inmutable con una entrada ya decodificada
+ */
+public final class FormatoAccesos {
+
+    static final int MAGIA = 0x43414343; // "CACC"
+    static final byte VERSION = 1;
+
+    static final byte ENDPOINT = 1;
+    static final byte ACCESO = 2;
+    static final byte DESCARTES = 3;
+
+    /** Una petición decodificada; instante en epoch ms */
+    public record Acceso(long instante, String endpoint, int estado, long micros,
+                         long bytesPedido, long bytesRespuesta, int sentencias) {}
+
+    private FormatoAccesos() {}
+
+    /**
+     * Escritor de un archivo, usado por un único hilo. Codifica en un buffer propio y lo
+     * pasa al archivo al llenarse o con vaciar(): ninguna escritura pasa por un lock
+     */
+    static final class Escritor implements Closeable {
+        // Un registro de acceso ocupa como mucho 1 + 6 varints de 10 bytes
+        private static final int MAXIMO_REGISTRO = 64;
+
+        private final OutputStream salida;
+        private final byte[] buffer = new byte[64 * 1024];
+        private int posicion;
+        private long escritos;
+        private long ultimoInstante;
+
+        Escritor(Path archivo, long inicio) throws IOException {
+            salida = new FileOutputStream(archivo.toFile());
+            entero(MAGIA);
+            buffer[posicion++] = VERSION;
+            largo(inicio);
+            ultimoInstante = inicio;
+        }
+
+        void endpoint(int id, String nombre) throws IOException {
+            byte[] utf8 = nombre.getBytes(StandardCharsets.UTF_8);
+            asegurar(MAXIMO_REGISTRO + utf8.length);
+            buffer[posicion++] = ENDPOINT;
+            varint(id);
+            varint(utf8.length);
+            System.arraycopy(utf8, 0, buffer, posicion, utf8.length);
+            posicion += utf8.length;
+        }
+
+        void acceso(long instante, int endpoint, int estado, long micros,
+                    long bytesPedido, long bytesRespuesta, int sentencias) throws IOException {
+            asegurar(MAXIMO_REGISTRO);
+            buffer[posicion++] = ACCESO;
+            delta(instante);
+            varint(endpoint);
+            varint(estado);
+            varint(micros);
+            varint(bytesPedido);
+            varint(bytesRespuesta);
+            varint(sentencias);
+        }
+
+        void descartes(long instante, long cantidad) throws IOException {
+            asegurar(MAXIMO_REGISTRO);
+            buffer[posicion++] = DESCARTES;
+            delta(instante);
+            varint(cantidad);
+        }
+
+        /** Pasa lo codificado al archivo (sin fsync: el sistema operativo decide cuándo bajarlo) */
+        void vaciar() throws IOException {
+            if (posicion > 0) {
+                salida.write(buffer, 0, posicion);
+                escritos += posicion;
+                posicion = 0;
+            }
+        }
+
+        /** Bytes del archivo, incluido lo que todavía está en el buffer */
+        long getBytes() {
+            return escritos + posicion;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                vaciar();
+            } finally {
+                salida.close();
+            }
+        }
+
+        private void asegurar(int bytes) throws IOException {
+            if (posicion + bytes > buffer.length) {
+                vaciar();
+            }
+        }
+
+        private void delta(long instante) {
+            // Los hilos publican en un orden que no es estrictamente el de sus relojes: zigzag
+            long d = instante - ultimoInstante;
+            ultimoInstante = instante;
+            varint((d << 1) ^ (d >> 63));
+        }
+
+        private void varint(long valor) {
+            while ((valor & ~0x7FL) != 0) {
+                buffer[posicion++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            buffer[posicion++] = (byte) valor;
+        }
+
+        private void entero(int valor) {
+            for (int s = 24; s >= 0; s -= 8) {
+                buffer[posicion++] = (byte) (valor >>> s);
+            }
+        }
+
+        private void largo(long valor) {
+            entero((int) (valor >>> 32));
+            entero((int) valor);
+        }
+    }
+
+    /**
+     * Decodifica un archivo completo
+     * @param accesos recibe cada petición, en el orden en que se escribió
+     * @param descartes recibe la cantidad de cada registro DESCARTES
+     * @throws IOException si no es un archivo de accesos o no se puede leer
+     */
+    public static void leer(Path archivo, Consumer<Acceso> accesos, LongConsumer descartes) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo), 64 * 1024))) {
+            if (entrada.readInt() != MAGIA) {
+                throw new IOException(archivo + " no es un registro de accesos");
+            }
+            byte version = entrada.readByte();
+            if (version != VERSION) {
+                throw new IOException(archivo + ": versión " + version + " desconocida");
+            }
+            long instante = entrada.readLong();
+            Map<Integer, String> endpoints = new HashMap<>();
+            try {
+                int tipo;
+                while ((tipo = entrada.read()) != -1) {
+                    switch (tipo) {
+                        case ENDPOINT -> {
+                            int id = (int) varint(entrada);
+                            byte[] utf8 = new byte[(int) varint(entrada)];
+                            entrada.readFully(utf8);
+                            endpoints.put(id, new String(utf8, StandardCharsets.UTF_8));
+                        }
+                        case ACCESO -> {
+                            instante += zigzag(varint(entrada));
+                            String endpoint = endpoints.getOrDefault((int) varint(entrada), "?");
+                            accesos.accept(new Acceso(instante, endpoint, (int) varint(entrada), varint(entrada),
+                                varint(entrada), varint(entrada), (int) varint(entrada)));
+                        }
+                        case DESCARTES -> {
+                            instante += zigzag(varint(entrada));
+                            descartes.accept(varint(entrada));
+                        }
+                        default -> throw new IOException(archivo + ": registro de tipo " + tipo + " desconocido");
+                    }
+                }
+            } catch (EOFException e) {
+                // Último registro a medio escribir: lo anterior es válido
+            }
+        }
+    }
+
+    private static long varint(InputStream entrada) throws IOException {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            int b = entrada.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("varint demasiado largo");
+    }
+
+    private static long zigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+}
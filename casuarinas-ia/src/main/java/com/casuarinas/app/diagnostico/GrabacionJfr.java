@@ -0,0 +1,164 @@
+package com.casuarinas.app.diagnostico;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.management.jfr.FlightRecorderMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * GRABACIÓN CONTINUA CON JAVA FLIGHT RECORDER - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Al arrancar inicia una grabación JFR que no termina nunca: conserva en disco los últimos
+ * casuarinas.jfr.retener-minutos (o casuarinas.jfr.max-mb) y descarta lo anterior. Cuando
+ * hubo un pico de latencia, GET /api/diagnostico/jfr?minutos=N vuelca los últimos N
+ * minutos a un archivo .jfr para abrirlo con JDK Mission Control o "jfr print", sin haber
+ * tenido un profiler conectado.
+ *
+ * Perfil de la grabación:
+ * - Los ajustes de la configuración "default" del JDK (pensada para producción, ~1% de costo);
+ *   con casuarinas.jfr.configuracion vacía solo se graban los eventos propios
+ * - Los eventos propios de EventosJfr, con umbral casuarinas.jfr.umbral-ms
+ *
+ * RELACIÓN CON POO:
+ * - Encapsulación: la grabación solo se maneja desde aquí
+ * - El volcado usa FlightRecorderMXBean: una instantánea de todo lo grabado y un stream
+ *   desde la hora pedida
+ *
+ * RELACIÓN CON SQL:
+ * - Las sentencias quedan en los eventos casuarinas.Jdbc (texto con "?", sin valores)
+ */
+@Component
+public class GrabacionJfr implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(GrabacionJfr.class);
+
+    private static final List<String> EVENTOS = List.of(
+        "casuarinas.Peticion", "casuarinas.Json", "casuarinas.Repositorio", "casuarinas.Jdbc");
+
+    private static final DateTimeFormatter SELLO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Value("${casuarinas.jfr.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${casuarinas.jfr.configuracion:default}")
+    private String configuracion;
+
+    @Value("${casuarinas.jfr.umbral-ms:0}")
+    private long umbralMs;
+
+    @Value("${casuarinas.jfr.retener-minutos:30}")
+    private long retenerMinutos;
+
+    @Value("${casuarinas.jfr.max-mb:250}")
+    private long maxMb;
+
+    @Value("${casuarinas.jfr.directorio:./data/jfr}")
+    private String directorio;
+
+    @Value("${casuarinas.jfr.volcados:10}")
+    private int volcados;
+
+    private Recording grabacion;
+
+    @PostConstruct
+    public void iniciar() throws IOException, ParseException {
+        if (!habilitado) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("JFR no está disponible en esta JVM: no se graba");
+            return;
+        }
+        Map<String, String> ajustes = configuracion.isBlank()
+            ? new HashMap<>()
+            : new HashMap<>(Configuration.getConfiguration(configuracion).getSettings());
+        for (String evento : EVENTOS) {
+            ajustes.put(evento + "#enabled", "true");
+            ajustes.put(evento + "#threshold", umbralMs + " ms");
+        }
+        Recording nueva = new Recording(ajustes);
+        nueva.setName("casuarinas");
+        nueva.setToDisk(true);
+        nueva.setMaxAge(Duration.ofMinutes(retenerMinutos));
+        nueva.setMaxSize(maxMb * 1024 * 1024);
+        nueva.start();
+        grabacion = nueva;
+        log.info("Grabación JFR continua: configuración {}, últimos {} min (máx. {} MB)",
+            configuracion, retenerMinutos, maxMb);
+    }
+
+    public boolean isGrabando() {
+        return grabacion != null;
+    }
+
+    /**
+     * Vuelca los últimos minutos grabados a casuarinas.jfr.directorio y devuelve el archivo.
+     * JFR guarda por bloques ("chunks"): el archivo puede empezar un poco antes de lo pedido.
+     */
+    public Path volcar(int minutos) throws IOException {
+        if (grabacion == null) {
+            throw new IllegalStateException("La grabación JFR está apagada (casuarinas.jfr.habilitado)");
+        }
+        Path carpeta = Paths.get(directorio);
+        Files.createDirectories(carpeta);
+        Path destino = carpeta.resolve("casuarinas-" + LocalDateTime.now().format(SELLO) + "-" + minutos + "min.jfr");
+        long desde = System.currentTimeMillis() - Duration.ofMinutes(minutos).toMillis();
+
+        FlightRecorderMXBean jfr = ManagementFactory.getPlatformMXBean(FlightRecorderMXBean.class);
+        long instantanea = jfr.takeSnapshot();
+        try {
+            long stream = jfr.openStream(instantanea, Map.of("startTime", String.valueOf(desde), "blockSize", "1048576"));
+            try (OutputStream out = Files.newOutputStream(destino)) {
+                byte[] bloque;
+                while ((bloque = jfr.readStream(stream)) != null) {
+                    out.write(bloque);
+                }
+            } finally {
+                jfr.closeStream(stream);
+            }
+        } finally {
+            jfr.closeRecording(instantanea);
+        }
+        borrarViejos(carpeta);
+        log.info("Volcado JFR de los últimos {} min: {} ({} KB)", minutos, destino, Files.size(destino) / 1024);
+        return destino;
+    }
+
+    /** Conserva los últimos casuarinas.jfr.volcados archivos */
+    private void borrarViejos(Path carpeta) throws IOException {
+        List<Path> archivos;
+        try (Stream<Path> s = Files.list(carpeta)) {
+            archivos = s.filter(p -> p.getFileName().toString().endsWith(".jfr")).sorted().toList();
+        }
+        for (int i = 0; i < archivos.size() - volcados; i++) {
+            Files.deleteIfExists(archivos.get(i));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (grabacion != null) {
+            grabacion.close();
+        }
+    }
+}
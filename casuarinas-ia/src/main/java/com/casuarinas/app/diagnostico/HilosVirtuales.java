@@ -0,0 +1,242 @@
+package com.casuarinas.app.diagnostico;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * HILOS VIRTUALES Y PINNING - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Con el perfil "virtuales" en Java 21 (spring.threads.virtual.enabled) Tomcat atiende cada
+ * petición en un hilo virtual: una llamada JDBC bloqueante ya no ocupa un hilo del sistema.
+ * La excepción es el "pinning": si el hilo virtual se bloquea dentro de un bloque
+ * synchronized (o en código nativo) queda pegado a su hilo portador, y con pocos portadores
+ * (uno por núcleo) unas pocas esperas así frenan a todas las peticiones.
+ *
+ * Este componente escucha en vivo el evento jdk.VirtualThreadPinned de JFR (bloqueos de
+ * más de casuarinas.virtuales.pinning-umbral-ms), agrupa los casos por el primer marco de la
+ * pila fuera del JDK y registra un WARN con la pila la primera vez que aparece cada uno.
+ * GET /api/diagnostico/hilos muestra el resumen y el estado del pool de conexiones.
+ *
+ * Object.wait() no genera ese evento: la JVM agrega un portador por cada hilo virtual
+ * esperando así, hasta jdk.virtualThreadScheduler.maxPoolSize (256). Es lo que pasa con el
+ * conector NIO de Tomcat 10.1.20 mientras lee el cuerpo de un cliente lento. Por eso también
+ * se cuentan los portadores y se avisa cuando pasan de casuarinas.virtuales.portadores-aviso;
+ * las pilas se ven con "jcmd <pid> Thread.dump_to_file -format=text archivo".
+ *
+ * RELACIÓN CON POO:
+ * - Patrón Observer: RecordingStream llama a registrar() con cada evento
+ * - En Java 17, o sin el perfil, no escucha nada y solo informa el modo
+ *
+ * RELACIÓN CON SQL:
+ * - El pool Hikari es el límite real de concurrencia contra H2 cuando los hilos son
+ *   virtuales: "esperando" cuenta las peticiones que hacen cola por una conexión
+ */
+@Component
+public class HilosVirtuales implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(HilosVirtuales.class);
+
+    private static final String EVENTO = "jdk.VirtualThreadPinned";
+
+    /** Marcos de pila que se guardan por ubicación */
+    private static final int MARCOS = 12;
+
+    /** Casos agrupados por el primer marco fuera del JDK */
+    private static final class Ubicacion {
+        final String pila;
+        final AtomicLong veces = new AtomicLong();
+        final AtomicLong maximoNs = new AtomicLong();
+
+        Ubicacion(String pila) {
+            this.pila = pila;
+        }
+    }
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean pedidos;
+
+    @Value("${casuarinas.virtuales.pinning-umbral-ms:20}")
+    private long umbralMs;
+
+    @Value("${casuarinas.virtuales.portadores-aviso:32}")
+    private int portadoresAviso;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final Map<String, Ubicacion> ubicaciones = new ConcurrentHashMap<>();
+
+    private RecordingStream escucha;
+
+    private volatile int portadoresMaximo;
+    private volatile boolean avisado;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!pedidos) {
+            return;
+        }
+        if (!isActivos()) {
+            log.warn("spring.threads.virtual.enabled requiere Java 21 (esta JVM es {}): las peticiones siguen "
+                + "en hilos de plataforma", Runtime.version().feature());
+            return;
+        }
+        RecordingStream rs = new RecordingStream();
+        rs.enable(EVENTO).withThreshold(Duration.ofMillis(umbralMs)).withStackTrace();
+        rs.onEvent(EVENTO, this::registrar);
+        rs.startAsync();
+        escucha = rs;
+        log.info("Peticiones en hilos virtuales; se vigila el pinning de más de {} ms", umbralMs);
+    }
+
+    /** true si las peticiones corren en hilos virtuales */
+    public boolean isActivos() {
+        return pedidos && Runtime.version().feature() >= 21;
+    }
+
+    private void registrar(RecordedEvent evento) {
+        RecordedStackTrace traza = evento.getStackTrace();
+        List<RecordedFrame> marcos = traza != null ? traza.getFrames() : List.of();
+        String clave = marcos.stream()
+            .filter(m -> m.isJavaFrame() && !delJdk(m))
+            .findFirst()
+            .or(() -> marcos.stream().findFirst())
+            .map(HilosVirtuales::marco)
+            .orElse("(sin pila)");
+        Ubicacion u = ubicaciones.computeIfAbsent(clave, k -> new Ubicacion(
+            marcos.stream().limit(MARCOS).map(HilosVirtuales::marco).collect(Collectors.joining("\n    "))));
+        long ns = evento.getDuration().toNanos();
+        u.maximoNs.accumulateAndGet(ns, Math::max);
+        if (u.veces.getAndIncrement() == 0) {
+            log.warn("Hilo virtual bloqueado {} ms sin soltar su portador en {}:\n    {}",
+                ns / 1_000_000, clave, u.pila);
+        }
+    }
+
+    /**
+     * TAREA PROGRAMADA - cuenta los portadores; un aviso por episodio, hasta que vuelven a
+     * ser los de siempre (uno por núcleo)
+     */
+    @Scheduled(fixedDelay = 10_000)
+    public void vigilarPortadores() {
+        if (escucha == null) {
+            return;
+        }
+        int portadores = portadores();
+        portadoresMaximo = Math.max(portadoresMaximo, portadores);
+        if (portadores > portadoresAviso && !avisado) {
+            avisado = true;
+            log.warn("{} hilos portadores para {} núcleos: hay hilos virtuales bloqueados sin soltar su portador "
+                + "(Object.wait, E/S de archivos); ver GET /api/diagnostico/hilos", portadores,
+                Runtime.getRuntime().availableProcessors());
+        } else if (portadores <= Runtime.getRuntime().availableProcessors()) {
+            avisado = false;
+        }
+    }
+
+    /** Hilos del planificador de hilos virtuales ("ForkJoinPool-N-worker-M"; el pool común se llama distinto) */
+    private static int portadores() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        int cantidad = 0;
+        for (ThreadInfo info : mx.getThreadInfo(mx.getAllThreadIds(), 0)) {
+            if (info != null && info.getThreadName().startsWith("ForkJoinPool-")
+                    && info.getThreadName().contains("-worker-")) {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    private static boolean delJdk(RecordedFrame m) {
+        String clase = m.getMethod().getType().getName();
+        return clase.startsWith("java.") || clase.startsWith("jdk.") || clase.startsWith("sun.");
+    }
+
+    private static String marco(RecordedFrame m) {
+        return m.getMethod().getType().getName() + "." + m.getMethod().getName() + ":" + m.getLineNumber();
+    }
+
+    public Map<String, Object> getEstado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("java", Runtime.version().feature());
+        estado.put("virtuales", isActivos());
+        estado.put("hilosPlataforma", ManagementFactory.getThreadMXBean().getThreadCount());
+        estado.put("nucleos", Runtime.getRuntime().availableProcessors());
+        if (escucha != null) {
+            estado.put("portadores", portadores());
+            estado.put("portadoresMaximo", portadoresMaximo);
+        }
+        estado.put("pool", pool());
+
+        Map<String, Object> pinning = new LinkedHashMap<>();
+        pinning.put("vigilado", escucha != null);
+        pinning.put("umbralMs", umbralMs);
+        pinning.put("total", ubicaciones.values().stream().mapToLong(u -> u.veces.get()).sum());
+        pinning.put("ubicaciones", ubicaciones.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, Ubicacion> e) -> e.getValue().veces.get()).reversed())
+            .map(e -> {
+                Map<String, Object> caso = new LinkedHashMap<>();
+                caso.put("ubicacion", e.getKey());
+                caso.put("veces", e.getValue().veces.get());
+                caso.put("maximoMs", e.getValue().maximoNs.get() / 1_000_000.0);
+                caso.put("pila", e.getValue().pila.split("\n    "));
+                return caso;
+            })
+            .toList());
+        estado.put("pinning", pinning);
+        return estado;
+    }
+
+    /** Conexiones del pool principal; vacío si la base no es un pool Hikari (modo fragmentado) */
+    private Map<String, Object> pool() {
+        Map<String, Object> pool = new LinkedHashMap<>();
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                HikariPoolMXBean mx = hikari.getHikariPoolMXBean();
+                pool.put("nombre", hikari.getPoolName());
+                pool.put("maximo", hikari.getMaximumPoolSize());
+                if (mx != null) {
+                    pool.put("activas", mx.getActiveConnections());
+                    pool.put("inactivas", mx.getIdleConnections());
+                    pool.put("esperando", mx.getThreadsAwaitingConnection());
+                }
+            }
+        } catch (SQLException e) {
+            pool.put("error", e.getMessage());
+        }
+        return pool;
+    }
+
+    @Override
+    public void destroy() {
+        if (escucha != null) {
+            escucha.close();
+        }
+    }
+}
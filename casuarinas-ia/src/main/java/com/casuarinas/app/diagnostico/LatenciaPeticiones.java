@@ -0,0 +1,111 @@
+package com.casuarinas.app.diagnostico;
+
+import org.springframework.stereotype.Component;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LATENCIA DE PETICIONES DURANTE TAREAS DE FONDO - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Separa la latencia de las peticiones a /api/** en dos grupos: las que terminaron
+ * mientras corría una tarea pesada de fondo (por ejemplo el respaldo de H2) y el resto.
+ * Comparar los dos promedios muestra cuánto afecta esa tarea a los clientes.
+ *
+ * Además guarda una ventana de los últimos segundos (peticiones por segundo y latencia
+ * promedio): las tareas de fondo la consultan para esperar un momento tranquilo y para
+ * cederle lugar a los clientes cuando la latencia sube.
+ *
+ * RELACIÓN CON POO:
+ * - Las tareas avisan con iniciar()/terminar(); FiltroMetricasSql registra cada petición
+ * - Grupo: acumulador sin bloqueos (LongAdder), igual que EstadisticasSql.Endpoint
+ * - Reciente: record inmutable con el estado de la ventana
+ */
+@Component
+public class LatenciaPeticiones {
+
+    /** Totales de un grupo de peticiones */
+    public static final class Grupo {
+        final LongAdder peticiones = new LongAdder();
+        final LongAdder msTotales = new LongAdder();
+        final AtomicLong maximoMs = new AtomicLong();
+
+        void registrar(long ms) {
+            peticiones.increment();
+            msTotales.add(ms);
+            maximoMs.accumulateAndGet(ms, Math::max);
+        }
+
+        public long getPeticiones() { return peticiones.sum(); }
+        public double getPromedioMs() {
+            long n = peticiones.sum();
+            return n == 0 ? 0 : (double) msTotales.sum() / n;
+        }
+        public long getMaximoMs() { return maximoMs.get(); }
+    }
+
+    /** Tráfico de los últimos SEGUNDOS segundos completos */
+    public record Reciente(double peticionesPorSegundo, double promedioMs) {}
+
+    // VENTANA RECIENTE - una casilla por segundo, reutilizada en forma circular
+    private static final int SEGUNDOS = 10;
+    private final AtomicLongArray segundoDe = new AtomicLongArray(SEGUNDOS);
+    private final AtomicLongArray cantidades = new AtomicLongArray(SEGUNDOS);
+    private final AtomicLongArray msPorSegundo = new AtomicLongArray(SEGUNDOS);
+
+    private final AtomicInteger tareasEnCurso = new AtomicInteger();
+    private final Grupo normal = new Grupo();
+    private final Grupo duranteTarea = new Grupo();
+
+    public void iniciar() {
+        tareasEnCurso.incrementAndGet();
+    }
+
+    public void terminar() {
+        tareasEnCurso.decrementAndGet();
+    }
+
+    public boolean isTareaEnCurso() {
+        return tareasEnCurso.get() > 0;
+    }
+
+    public void registrar(long ms) {
+        (isTareaEnCurso() ? duranteTarea : normal).registrar(ms);
+        long segundo = System.currentTimeMillis() / 1000;
+        int i = (int) (segundo % SEGUNDOS);
+        long anterior = segundoDe.get(i);
+        if (anterior != segundo && segundoDe.compareAndSet(i, anterior, segundo)) {
+            // La casilla era de hace SEGUNDOS segundos: se vacía. Una petición que sume justo
+            // antes del reinicio se pierde; para decidir si hay tráfico alcanza
+            cantidades.set(i, 0);
+            msPorSegundo.set(i, 0);
+        }
+        cantidades.incrementAndGet(i);
+        msPorSegundo.addAndGet(i, ms);
+    }
+
+    /** Promedios de los últimos segundos completos (el segundo en curso no cuenta) */
+    public Reciente getReciente() {
+        long actual = System.currentTimeMillis() / 1000;
+        long peticiones = 0;
+        long ms = 0;
+        for (int i = 0; i < SEGUNDOS; i++) {
+            long segundo = segundoDe.get(i);
+            if (segundo < actual && segundo >= actual - SEGUNDOS) {
+                peticiones += cantidades.get(i);
+                ms += msPorSegundo.get(i);
+            }
+        }
+        return new Reciente((double) peticiones / SEGUNDOS, peticiones == 0 ? 0 : (double) ms / peticiones);
+    }
+
+    public Map<String, Grupo> getGrupos() {
+        Map<String, Grupo> grupos = new LinkedHashMap<>();
+        grupos.put("normal", normal);
+        grupos.put("duranteRespaldo", duranteTarea);
+        return grupos;
+    }
+}
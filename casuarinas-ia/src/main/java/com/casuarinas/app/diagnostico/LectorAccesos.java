@@ -0,0 +1,173 @@
+package com.casuarinas.app.diagnostico;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * LECTOR DEL REGISTRO DE ACCESOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Decodifica los archivos binarios de RegistroAccesos (FormatoAccesos) y resume, sin Spring
+ * levantado, las peticiones por endpoint: cantidad, estados, percentiles de latencia, bytes
+ * y sentencias SQL. También informa el minuto de más tráfico y las entradas descartadas.
+ *
+ * Uso (después de mvn package):
+ *   java -cp target/casuarinas-ia-0.0.1-SNAPSHOT.jar
+ *        -Dloader.main=com.casuarinas.app.diagnostico.LectorAccesos
+ *        org.springframework.boot.loader.launch.PropertiesLauncher [archivos o carpetas]
+ *        [desde=2026-10-19T09:00] [hasta=2026-10-19T18:00] [endpoint=pedidos] [volcar=true]
+ *
+ * Sin archivos lee ./data/accesos. volcar=true imprime cada petición en vez del resumen.
+ */
+public final class LectorAccesos {
+
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /** Acumulado de un endpoint */
+    private static final class Resumen {
+        long[] micros = new long[64];
+        int peticiones;
+        final int[] clases = new int[6];
+        long bytesPedido;
+        long bytesRespuesta;
+        long sentencias;
+
+        void sumar(FormatoAccesos.Acceso a) {
+            if (peticiones == micros.length) {
+                micros = Arrays.copyOf(micros, peticiones * 2);
+            }
+            micros[peticiones++] = a.micros();
+            clases[Math.min(5, Math.max(0, a.estado() / 100))]++;
+            bytesPedido += a.bytesPedido();
+            bytesRespuesta += a.bytesRespuesta();
+            sentencias += a.sentencias();
+        }
+    }
+
+    private final ZoneId zona = ZoneId.systemDefault();
+    private final Map<String, Resumen> porEndpoint = new TreeMap<>();
+    private final Resumen total = new Resumen();
+    private final Map<Long, Integer> porMinuto = new TreeMap<>();
+    private long descartados;
+    private long primero = Long.MAX_VALUE;
+    private long ultimo = Long.MIN_VALUE;
+
+    private long desde = Long.MIN_VALUE;
+    private long hasta = Long.MAX_VALUE;
+    private String filtroEndpoint;
+    private boolean volcar;
+
+    public static void main(String[] args) throws IOException {
+        LectorAccesos lector = new LectorAccesos();
+        List<Path> rutas = new ArrayList<>();
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length == 1) {
+                rutas.add(Paths.get(arg));
+                continue;
+            }
+            switch (kv[0]) {
+                case "desde" -> lector.desde = lector.epoch(LocalDateTime.parse(kv[1]));
+                case "hasta" -> lector.hasta = lector.epoch(LocalDateTime.parse(kv[1]));
+                case "endpoint" -> lector.filtroEndpoint = kv[1];
+                case "volcar" -> lector.volcar = Boolean.parseBoolean(kv[1]);
+                default -> throw new IllegalArgumentException("Parámetro desconocido: " + arg);
+            }
+        }
+        if (rutas.isEmpty()) {
+            rutas.add(Paths.get("./data/accesos"));
+        }
+        List<Path> archivos = archivos(rutas);
+        for (Path archivo : archivos) {
+            FormatoAccesos.leer(archivo, lector::procesar, n -> lector.descartados += n);
+        }
+        if (!lector.volcar) {
+            lector.imprimir(archivos.size());
+        }
+    }
+
+    /** Archivos .bin de cada carpeta, en orden de nombre (= de creación) */
+    private static List<Path> archivos(List<Path> rutas) throws IOException {
+        List<Path> archivos = new ArrayList<>();
+        for (Path ruta : rutas) {
+            if (Files.isDirectory(ruta)) {
+                try (Stream<Path> s = Files.list(ruta)) {
+                    s.filter(p -> p.getFileName().toString().endsWith(".bin")).sorted().forEach(archivos::add);
+                }
+            } else {
+                archivos.add(ruta);
+            }
+        }
+        return archivos;
+    }
+
+    private long epoch(LocalDateTime fecha) {
+        return fecha.atZone(zona).toInstant().toEpochMilli();
+    }
+
+    private String hora(long epoch) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epoch), zona).format(HORA);
+    }
+
+    private void procesar(FormatoAccesos.Acceso a) {
+        if (a.instante() < desde || a.instante() >= hasta
+                || (filtroEndpoint != null && !a.endpoint().contains(filtroEndpoint))) {
+            return;
+        }
+        if (volcar) {
+            System.out.printf(Locale.ROOT, "%s %3d %10.3f ms %8d %10d %3d %s%n", hora(a.instante()), a.estado(),
+                a.micros() / 1000.0, a.bytesPedido(), a.bytesRespuesta(), a.sentencias(), a.endpoint());
+            return;
+        }
+        porEndpoint.computeIfAbsent(a.endpoint(), e -> new Resumen()).sumar(a);
+        total.sumar(a);
+        porMinuto.merge(a.instante() / 60_000, 1, Integer::sum);
+        primero = Math.min(primero, a.instante());
+        ultimo = Math.max(ultimo, a.instante());
+    }
+
+    private void imprimir(int archivos) {
+        if (total.peticiones == 0) {
+            System.out.printf("%d archivos, ninguna petición en el rango (%d descartadas)%n", archivos, descartados);
+            return;
+        }
+        System.out.printf(Locale.ROOT, "%d archivos, %d peticiones de %s a %s, %d descartadas en memoria%n",
+            archivos, total.peticiones, hora(primero), hora(ultimo), descartados);
+        Map.Entry<Long, Integer> pico = porMinuto.entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow();
+        System.out.printf(Locale.ROOT, "Minuto de más tráfico: %s (%d peticiones, %.1f por segundo)%n%n",
+            hora(pico.getKey() * 60_000).substring(0, 16), pico.getValue(), pico.getValue() / 60.0);
+        System.out.printf(Locale.ROOT, "%-44s %8s %6s %6s %6s %9s %9s %9s %9s %10s %7s%n", "endpoint", "pet.",
+            "2xx", "4xx", "5xx", "p50 ms", "p95 ms", "p99 ms", "máx ms", "KB resp.", "sql");
+        porEndpoint.forEach(this::fila);
+        fila("TOTAL", total);
+    }
+
+    private void fila(String endpoint, Resumen r) {
+        long[] ordenadas = Arrays.copyOf(r.micros, r.peticiones);
+        Arrays.sort(ordenadas);
+        System.out.printf(Locale.ROOT, "%-44s %8d %6d %6d %6d %9.2f %9.2f %9.2f %9.2f %10.1f %7.1f%n",
+            endpoint.length() > 44 ? endpoint.substring(0, 43) + "…" : endpoint, r.peticiones,
+            r.clases[2], r.clases[4], r.clases[5],
+            percentil(ordenadas, 0.50), percentil(ordenadas, 0.95), percentil(ordenadas, 0.99),
+            ordenadas[ordenadas.length - 1] / 1000.0,
+            r.bytesRespuesta / 1024.0 / r.peticiones, (double) r.sentencias / r.peticiones);
+    }
+
+    /** Percentil por rango más cercano, en ms */
+    private static double percentil(long[] ordenadas, double p) {
+        int i = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, i)] / 1000.0;
+    }
+}
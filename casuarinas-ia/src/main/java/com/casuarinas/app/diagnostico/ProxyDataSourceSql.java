@@ -0,0 +1,157 @@
+package com.casuarinas.app.diagnostico;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * PROXY DEL DATASOURCE PARA CONTAR SQL - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Envuelve el DataSource (patrón Proxy / Decorator) para que cada sentencia ejecutada y cada
+ * fila leída se registren en el ContadorSql del hilo actual. Si el hilo no tiene contador
+ * (tareas de fondo, arranque) el costo es una lectura de ThreadLocal.
+ *
+ * RELACIÓN CON SQL:
+ * - Cubre todo lo que pasa por JDBC: Hibernate, Spring Data y JdbcTemplate
+ * - execute/executeQuery/executeUpdate/executeBatch cuentan como una ida y vuelta a la base
+ * - ResultSet.next() que devuelve true cuenta como una fila leída
+ * - Una conexión tomada con DataSource.getConnection() cuenta, al cerrarla (volver al pool),
+ *   el tiempo que estuvo tomada: con Open Session In View sería toda la petición
+ * - Cada ejecución, COMMIT y ROLLBACK es además un evento casuarinas.Jdbc (EventosJfr); con
+ *   la grabación apagada el evento no se registra
+ */
+@Component
+public class ProxyDataSourceSql implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !Proxy.isProxyClass(bean.getClass())) {
+            return envolver(dataSource, DataSource.class, new Manejador(dataSource, null));
+        }
+        return bean;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T envolver(Object destino, Class<T> tipo, InvocationHandler manejador) {
+        return (T) Proxy.newProxyInstance(ProxyDataSourceSql.class.getClassLoader(), new Class<?>[] {tipo}, manejador);
+    }
+
+    private static final class Manejador implements InvocationHandler {
+        private final Object destino;
+        private final String sql;
+
+        // Solo para las conexiones del pool tomadas durante una petición: a quién y desde cuándo
+        private final ContadorSql duenio;
+        private final long tomada;
+        private boolean devuelta;
+
+        Manejador(Object destino, String sql) {
+            this(destino, sql, null);
+        }
+
+        Manejador(Object destino, String sql, ContadorSql duenio) {
+            this.destino = destino;
+            this.sql = sql;
+            this.duenio = duenio;
+            this.tomada = duenio != null ? System.nanoTime() : 0;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (nombre.equals("unwrap") && args.length == 1 && ((Class<?>) args[0]).isInstance(proxy)) {
+                return proxy;
+            }
+            ContadorSql contador = ContadorSql.actual();
+            boolean sentencia = destino instanceof Statement && nombre.startsWith("execute");
+            boolean ejecucion = contador != null && sentencia;
+            EventosJfr.Jdbc evento = sentencia || (destino instanceof Connection
+                && (nombre.equals("commit") || nombre.equals("rollback"))) ? new EventosJfr.Jdbc() : null;
+            if (evento != null) {
+                evento.begin();
+            }
+            long t0 = ejecucion ? System.nanoTime() : 0;
+            Object resultado;
+            try {
+                resultado = metodo.invoke(destino, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (nombre.equals("unwrap")) {
+                // unwrap devuelve el objeto del driver tal cual (por ejemplo JdbcConnection para RespaldoH2)
+                return resultado;
+            }
+            if (ejecucion) {
+                contador.sentencia(texto(args), System.nanoTime() - t0);
+            }
+            if (evento != null) {
+                evento.end();
+                if (evento.shouldCommit()) {
+                    evento.operacion = nombre;
+                    evento.sql = sentencia ? texto(args) : null;
+                    evento.filas = filasAfectadas(resultado);
+                    evento.commit();
+                }
+            }
+            if (duenio != null && nombre.equals("close") && !devuelta) {
+                devuelta = true;
+                duenio.conexion(System.nanoTime() - tomada);
+            }
+            if (destino instanceof ResultSet && nombre.equals("next") && Boolean.TRUE.equals(resultado) && contador != null) {
+                contador.fila();
+            }
+            return envolverResultado(resultado, nombre, args);
+        }
+
+        private String texto(Object[] args) {
+            return sql != null ? sql : (args != null && args.length > 0 && args[0] instanceof String s ? s : "");
+        }
+
+        /** Resultado de executeUpdate/executeLargeUpdate/executeBatch; 0 para las consultas */
+        private static long filasAfectadas(Object resultado) {
+            if (resultado instanceof Number n) {
+                return n.longValue();
+            }
+            long total = 0;
+            if (resultado instanceof int[] lote) {
+                for (int filas : lote) {
+                    total += Math.max(0, filas);
+                }
+            } else if (resultado instanceof long[] lote) {
+                for (long filas : lote) {
+                    total += Math.max(0, filas);
+                }
+            }
+            return total;
+        }
+
+        private Object envolverResultado(Object resultado, String nombre, Object[] args) {
+            if (resultado instanceof Connection c) {
+                ContadorSql duenio = destino instanceof DataSource ? ContadorSql.actual() : null;
+                return envolver(c, Connection.class, new Manejador(c, null, duenio));
+            }
+            if (resultado instanceof CallableStatement cs) {
+                return envolver(cs, CallableStatement.class, new Manejador(cs, (String) args[0]));
+            }
+            if (resultado instanceof PreparedStatement ps) {
+                return envolver(ps, PreparedStatement.class, new Manejador(ps, (String) args[0]));
+            }
+            if (resultado instanceof Statement st && nombre.equals("createStatement")) {
+                return envolver(st, Statement.class, new Manejador(st, null));
+            }
+            if (resultado instanceof ResultSet rs) {
+                return envolver(rs, ResultSet.class, new Manejador(rs, null));
+            }
+            return resultado;
+        }
+    }
+}
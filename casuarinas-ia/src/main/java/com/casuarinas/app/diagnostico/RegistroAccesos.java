@@ -0,0 +1,347 @@
+package com.casuarinas.app.diagnostico;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * REGISTRO DE ACCESOS ASÍNCRONO - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Una entrada por petición a /api/** (endpoint, estado, latencia, bytes y sentencias SQL),
+ * para planificar capacidad sin pagar un log de texto síncrono en cada petición.
+ * FiltroMetricasSql llama a registrar(), que solo copia seis números a un buffer circular
+ * en memoria; un hilo de fondo ("registro-accesos") lo vacía cada casuarinas.accesos.intervalo-ms
+ * en archivos binarios rotativos (FormatoAccesos) que se resumen con LectorAccesos.
+ *
+ * - Buffer circular sin locks (cola acotada de varios productores y un consumidor): cada
+ *   casilla tiene una secuencia que dice si está libre para la vuelta actual o ya publicada.
+ *   Un productor reserva su casilla con un CAS sobre la cola y publica con setRelease
+ * - El hilo de la petición nunca espera: si el buffer está lleno la entrada se descarta y
+ *   se cuenta; el total queda en GET /api/diagnostico/accesos y en el archivo (DESCARTES)
+ * - Los endpoints se guardan como un número; el nombre se escribe una vez por archivo
+ * - Se rota por tiempo (casuarinas.accesos.rotar-minutos) o tamaño (casuarinas.accesos.max-mb)
+ *   y se conservan los últimos casuarinas.accesos.archivos
+ * - Cada archivo lleva el PID en el nombre (accesos-<sello>-<pid>.bin): en el perfil cluster
+ *   varias instancias escriben en la misma carpeta y dos que rotan en el mismo milisegundo no
+ *   se pisan. El sello va primero, así el orden por nombre sigue siendo el de creación
+ *
+ * RELACIÓN CON POO:
+ * - Encapsulación: las casillas son arreglos de primitivos, sin un objeto por petición
+ *
+ * RELACIÓN CON SQL:
+ * - No ejecuta SQL: registra cuántas sentencias contó ContadorSql en cada petición
+ */
+@Component
+public class RegistroAccesos {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroAccesos.class);
+
+    private static final DateTimeFormatter SELLO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private static final long PID = ProcessHandle.current().pid();
+
+    // ENDPOINTS - el id 0 agrupa los que llegan después de llenar el diccionario (URIs sin handler)
+    private static final int MAX_ENDPOINTS = 1024;
+    private static final int MAX_LARGO_ENDPOINT = 200;
+    private static final String OTROS = "(otros)";
+
+    @Value("${casuarinas.accesos.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${casuarinas.accesos.directorio:./data/accesos}")
+    private String directorio;
+
+    @Value("${casuarinas.accesos.capacidad:16384}")
+    private int capacidadPedida;
+
+    @Value("${casuarinas.accesos.intervalo-ms:200}")
+    private long intervaloMs;
+
+    @Value("${casuarinas.accesos.rotar-minutos:60}")
+    private long rotarMinutos;
+
+    @Value("${casuarinas.accesos.max-mb:64}")
+    private long maxMb;
+
+    @Value("${casuarinas.accesos.archivos:168}")
+    private int archivosRetenidos;
+
+    // BUFFER CIRCULAR - una casilla por posición (posición & mascara), en arreglos paralelos
+    private int mascara;
+    private AtomicLongArray secuencias;
+    private long[] instantes;
+    private long[] micros;
+    private long[] bytesPedido;
+    private long[] bytesRespuesta;
+    private int[] endpoints;
+    private int[] estados;
+    private int[] sentencias;
+
+    /** Próxima posición a reservar por los productores */
+    private final AtomicLong cola = new AtomicLong();
+    /** Próxima posición a leer; solo la usa el hilo escritor */
+    private long cabeza;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> nombres = new AtomicReferenceArray<>(MAX_ENDPOINTS);
+    private final AtomicInteger proximoId = new AtomicInteger(1);
+
+    private final LongAdder registrados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+
+    // ESTADO DEL HILO ESCRITOR - solo lo toca ese hilo, salvo los volatile que lee getEstado()
+    private Thread escritor;
+    private volatile boolean activo;
+    private FormatoAccesos.Escritor archivo;
+    private volatile Path rutaArchivo;
+    private long abiertoEn;
+    private boolean[] definidos;
+    private long descartesAnotados;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        int capacidad = Integer.highestOneBit(Math.max(2, capacidadPedida - 1)) << 1;
+        mascara = capacidad - 1;
+        secuencias = new AtomicLongArray(capacidad);
+        for (int i = 0; i < capacidad; i++) {
+            secuencias.set(i, i);
+        }
+        instantes = new long[capacidad];
+        micros = new long[capacidad];
+        bytesPedido = new long[capacidad];
+        bytesRespuesta = new long[capacidad];
+        endpoints = new int[capacidad];
+        estados = new int[capacidad];
+        sentencias = new int[capacidad];
+        nombres.set(0, OTROS);
+        definidos = new boolean[MAX_ENDPOINTS];
+
+        activo = true;
+        escritor = new Thread(this::escribir, "registro-accesos");
+        escritor.setDaemon(true);
+        escritor.start();
+        log.info("Registro de accesos en {} ({} entradas en memoria, vaciado cada {} ms)",
+            directorio, capacidad, intervaloMs);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Anota una petición. No bloquea: si el buffer está lleno la descarta y la cuenta
+     * @param nanos duración de la petición
+     * @param bytesEntrada cuerpo del pedido (Content-Length), 0 si no tenía
+     * @param bytesSalida cuerpo de la respuesta
+     */
+    public void registrar(String endpoint, int estado, long nanos, long bytesEntrada, long bytesSalida, int sql) {
+        if (secuencias == null) {
+            return;
+        }
+        int id = idDe(endpoint);
+        long posicion = cola.get();
+        int i;
+        while (true) {
+            i = (int) posicion & mascara;
+            long diferencia = secuencias.getAcquire(i) - posicion;
+            if (diferencia == 0) {
+                if (cola.compareAndSet(posicion, posicion + 1)) {
+                    break;
+                }
+                posicion = cola.get();
+            } else if (diferencia < 0) {
+                // La casilla todavía tiene la entrada de la vuelta anterior: el escritor va atrasado
+                descartados.increment();
+                return;
+            } else {
+                // Otro productor se quedó con esta posición
+                posicion = cola.get();
+            }
+        }
+        instantes[i] = System.currentTimeMillis();
+        endpoints[i] = id;
+        estados[i] = estado;
+        micros[i] = nanos / 1000;
+        bytesPedido[i] = bytesEntrada;
+        bytesRespuesta[i] = bytesSalida;
+        sentencias[i] = sql;
+        secuencias.setRelease(i, posicion + 1);
+        registrados.increment();
+    }
+
+    private int idDe(String endpoint) {
+        Integer id = ids.get(endpoint);
+        if (id != null) {
+            return id;
+        }
+        if (ids.size() >= MAX_ENDPOINTS) {
+            return 0;
+        }
+        return ids.computeIfAbsent(endpoint, e -> {
+            int nuevo = proximoId.getAndIncrement();
+            if (nuevo >= MAX_ENDPOINTS) {
+                return 0;
+            }
+            // El nombre queda visible para el escritor antes de que se publique la casilla que lo usa
+            nombres.set(nuevo, e.length() > MAX_LARGO_ENDPOINT ? e.substring(0, MAX_LARGO_ENDPOINT) : e);
+            return nuevo;
+        });
+    }
+
+    /** Bucle del hilo escritor: vacía el buffer, rota si corresponde y duerme hasta la próxima vuelta */
+    private void escribir() {
+        while (activo) {
+            vaciar();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(intervaloMs));
+        }
+        vaciar();
+        cerrarArchivo();
+    }
+
+    private void vaciar() {
+        try {
+            long ahora = System.currentTimeMillis();
+            if (archivo != null && (archivo.getBytes() >= maxMb * 1024 * 1024
+                    || ahora - abiertoEn >= TimeUnit.MINUTES.toMillis(rotarMinutos))) {
+                cerrarArchivo();
+            }
+            int capacidad = mascara + 1;
+            while (secuencias.getAcquire((int) cabeza & mascara) == cabeza + 1) {
+                int i = (int) cabeza & mascara;
+                long instante = instantes[i];
+                int id = endpoints[i];
+                int estado = estados[i];
+                long us = micros[i];
+                long entrada = bytesPedido[i];
+                long salida = bytesRespuesta[i];
+                int sql = sentencias[i];
+                // Copiados los datos, la casilla queda libre para la vuelta siguiente
+                secuencias.setRelease(i, cabeza + capacidad);
+                cabeza++;
+                if (archivo == null) {
+                    abrirArchivo(instante);
+                }
+                if (!definidos[id]) {
+                    archivo.endpoint(id, nombres.get(id));
+                    definidos[id] = true;
+                }
+                archivo.acceso(instante, id, estado, us, entrada, salida, sql);
+                escritos.incrementAndGet();
+            }
+            long descartes = descartados.sum();
+            if (descartes > descartesAnotados) {
+                if (archivo == null) {
+                    abrirArchivo(ahora);
+                }
+                archivo.descartes(ahora, descartes - descartesAnotados);
+                descartesAnotados = descartes;
+            }
+            if (archivo != null) {
+                archivo.vaciar();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Sin archivo las entradas leídas en esta vuelta se pierden; se reintenta en la siguiente
+            if (errores.getAndIncrement() == 0) {
+                log.warn("No se pudo escribir el registro de accesos en {}", directorio, e);
+            }
+            cerrarArchivo();
+        }
+    }
+
+    private void abrirArchivo(long inicio) throws IOException {
+        Path carpeta = Paths.get(directorio);
+        Files.createDirectories(carpeta);
+        Path ruta = carpeta.resolve("accesos-" + LocalDateTime.now().format(SELLO) + "-" + PID + ".bin");
+        archivo = new FormatoAccesos.Escritor(ruta, inicio);
+        rutaArchivo = ruta;
+        abiertoEn = System.currentTimeMillis();
+        definidos = new boolean[MAX_ENDPOINTS];
+        borrarViejos(carpeta);
+    }
+
+    private void cerrarArchivo() {
+        if (archivo == null) {
+            return;
+        }
+        try {
+            archivo.close();
+        } catch (IOException e) {
+            errores.incrementAndGet();
+            log.debug("Error cerrando {}: {}", rutaArchivo, e.getMessage());
+        }
+        archivo = null;
+    }
+
+    /**
+     * Conserva los últimos casuarinas.accesos.archivos archivos, incluido el que se está
+     * escribiendo. Con la carpeta compartida el límite es del conjunto de instancias
+     */
+    private void borrarViejos(Path carpeta) throws IOException {
+        List<Path> archivos;
+        try (Stream<Path> s = Files.list(carpeta)) {
+            archivos = s.filter(p -> {
+                String nombre = p.getFileName().toString();
+                return nombre.startsWith("accesos-") && nombre.endsWith(".bin");
+            }).sorted().toList();
+        }
+        for (int i = 0; i < archivos.size() - archivosRetenidos; i++) {
+            Files.deleteIfExists(archivos.get(i));
+        }
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        if (escritor == null) {
+            return;
+        }
+        // El escritor hace una última vuelta y cierra el archivo
+        activo = false;
+        LockSupport.unpark(escritor);
+        escritor.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public Map<String, Object> getEstado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("habilitado", secuencias != null);
+        if (secuencias == null) {
+            return estado;
+        }
+        long escritosHastaAhora = escritos.get();
+        long registradosHastaAhora = registrados.sum();
+        estado.put("capacidad", mascara + 1);
+        estado.put("registrados", registradosHastaAhora);
+        estado.put("escritos", escritosHastaAhora);
+        estado.put("pendientes", Math.max(0, registradosHastaAhora - escritosHastaAhora));
+        estado.put("descartados", descartados.sum());
+        estado.put("errores", errores.get());
+        estado.put("endpoints", Math.min(proximoId.get(), MAX_ENDPOINTS) - 1);
+        estado.put("archivo", rutaArchivo != null ? rutaArchivo.toString() : null);
+        return estado;
+    }
+}
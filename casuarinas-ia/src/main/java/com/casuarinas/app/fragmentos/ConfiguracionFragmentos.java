@@ -0,0 +1,122 @@
+package com.casuarinas.app.fragmentos;
+
+import com.casuarinas.app.model.Pedido;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * CONFIGURACIÓN DEL MODO FRAGMENTADO - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Con casuarinas.fragmentos.cantidad mayor que 0 reemplaza el DataSource de la aplicación
+ * por un DataSourceFragmentado: la base principal más una base H2 por fragmento, cada una
+ * con su propio pool Hikari.
+ *
+ * RELACIÓN CON POO:
+ * - BeanPostProcessor (patrón Decorator), igual que ProxyDataSourceSql; corre antes que él
+ *   para que el conteo de SQL envuelva también a los fragmentos
+ *
+ * RELACIÓN CON SQL:
+ * - Crea las tablas pedido e idempotencia_pedido en cada fragmento (ddl-auto solo actúa
+ *   sobre la base principal), con los índices que declara @Table de Pedido
+ * - La identidad de pedido.id empieza en n+1 y avanza de a N en el fragmento n: los ids
+ *   no se repiten entre fragmentos y el fragmento de un pedido se deduce de su id
+ */
+@Component
+public class ConfiguracionFragmentos implements BeanPostProcessor, Ordered, EnvironmentAware, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ConfiguracionFragmentos.class);
+
+    private Environment env;
+
+    private final List<HikariDataSource> creados = new ArrayList<>();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.env = environment;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        int cantidad = env.getProperty("casuarinas.fragmentos.cantidad", Integer.class, 0);
+        if (cantidad <= 0 || !"dataSource".equals(beanName) || !(bean instanceof DataSource principal)) {
+            return bean;
+        }
+        String url = env.getProperty("casuarinas.fragmentos.url", "jdbc:h2:file:./data/pedidos-{n}");
+        List<DataSource> fragmentos = new ArrayList<>(cantidad);
+        for (int n = 0; n < cantidad; n++) {
+            HikariDataSource ds = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url.replace("{n}", String.valueOf(n)))
+                .username(env.getProperty("spring.datasource.username", "sa"))
+                .password(env.getProperty("spring.datasource.password", ""))
+                .build();
+            ds.setPoolName("fragmento-" + n);
+            ds.setMaximumPoolSize(env.getProperty("casuarinas.fragmentos.pool", Integer.class, 10));
+            creados.add(ds);
+            crearTablas(new JdbcTemplate(ds), n, cantidad);
+            fragmentos.add(ds);
+        }
+        log.info("Modo fragmentado: {} fragmentos de pedidos en {}", cantidad, url);
+        return new DataSourceFragmentado(principal, fragmentos);
+    }
+
+    private static void crearTablas(JdbcTemplate jdbc, int n, int cantidad) {
+        // CONSULTA SQL: CREATE TABLE IF NOT EXISTS pedido (... id IDENTITY (START WITH n+1 INCREMENT BY N))
+        jdbc.execute("create table if not exists pedido ("
+            + "id bigint generated by default as identity (start with " + (n + 1) + " increment by " + cantidad + "),"
+            + " creado timestamp(6), direccion varchar(255), items_json clob, localidad varchar(255),"
+            + " nombre_cliente varchar(255), telefono varchar(255), total float(53), ubicacion varchar(255),"
+            + " primary key (id))");
+        // Los mismos índices que declara la entidad (@Table de Pedido): las consultas que se
+        // dispersan a los fragmentos filtran por localidad, creado y total igual que en la principal
+        for (Index indice : Pedido.class.getAnnotation(Table.class).indexes()) {
+            // CONSULTA SQL: CREATE INDEX IF NOT EXISTS idx_... ON pedido (columnas)
+            jdbc.execute("create index if not exists " + indice.name() + " on pedido ("
+                + columnas(indice.columnList()) + ")");
+        }
+        jdbc.execute("create table if not exists idempotencia_pedido ("
+            + "clave varchar(128) not null, creado timestamp(6), pedido_id bigint, primary key (clave))");
+        // Si cambió la cantidad de fragmentos, los ids existentes ya no indican su fragmento
+        Integer ajenos = jdbc.queryForObject(
+            "select count(*) from pedido where mod(id - 1, ?) <> ?", Integer.class, cantidad, n);
+        if (ajenos != null && ajenos > 0) {
+            throw new IllegalStateException("El fragmento " + n + " tiene " + ajenos
+                + " pedidos creados con otra cantidad de fragmentos; no se puede cambiar casuarinas.fragmentos.cantidad"
+                + " sin redistribuir los datos");
+        }
+    }
+
+    /** "localidad, nombreCliente" -> "localidad, nombre_cliente" (la estrategia de nombres de Hibernate) */
+    private static String columnas(String lista) {
+        return Arrays.stream(lista.split(","))
+            .map(c -> c.trim().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT))
+            .collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public void destroy() {
+        creados.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,70 @@
+package com.casuarinas.app.fragmentos;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DATASOURCE QUE ENRUTA A LOS FRAGMENTOS DE PEDIDOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Cada vez que Hibernate, Spring Data o JdbcTemplate piden una conexión, se elige el
+ * DataSource según el fragmento marcado en el hilo actual (ver FragmentosPedidos.en).
+ * Sin marca se usa la base principal: productos, clientes y todo lo que no es un pedido.
+ *
+ * RELACIÓN CON POO:
+ * - Herencia: extiende AbstractRoutingDataSource (patrón Strategy para elegir el destino)
+ * - El fragmento viaja en un ThreadLocal, igual que ContadorSql
+ *
+ * RELACIÓN CON SQL:
+ * - Cada fragmento es una base H2 propia con su propio pool de conexiones
+ * - La elección ocurre al abrir la conexión: una transacción queda en un único fragmento
+ */
+public class DataSourceFragmentado extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Integer> ACTUAL = new ThreadLocal<>();
+
+    private final DataSource principal;
+    private final List<DataSource> fragmentos;
+
+    public DataSourceFragmentado(DataSource principal, List<DataSource> fragmentos) {
+        this.principal = principal;
+        this.fragmentos = List.copyOf(fragmentos);
+        Map<Object, Object> destinos = new HashMap<>();
+        for (int i = 0; i < fragmentos.size(); i++) {
+            destinos.put(i, fragmentos.get(i));
+        }
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(principal);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ACTUAL.get();
+    }
+
+    public DataSource getPrincipal() {
+        return principal;
+    }
+
+    public List<DataSource> getFragmentos() {
+        return fragmentos;
+    }
+
+    /** Fragmento marcado en el hilo actual, o null si se usa la base principal */
+    static Integer actual() {
+        return ACTUAL.get();
+    }
+
+    /** Marca el fragmento del hilo actual (null vuelve a la base principal) */
+    static void marcar(Integer fragmento) {
+        if (fragmento == null) {
+            ACTUAL.remove();
+        } else {
+            ACTUAL.set(fragmento);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.casuarinas.app.fragmentos;
+
+import com.casuarinas.app.model.Pedido;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * SERVICIO DE FRAGMENTOS DE PEDIDOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Decide en qué fragmento vive cada pedido y ejecuta las operaciones sobre él:
+ * - Escrituras: por localidad (casuarinas.fragmentos.localidades, o hash del nombre)
+ * - Lecturas por id: el id indica el fragmento, sin consultar a los demás
+ * - Consultas que cruzan fragmentos: se dispersan en paralelo y se unen ordenadas
+ *
+ * Con el modo fragmentado apagado (cantidad 0) todas las operaciones corren tal cual
+ * sobre la base principal, así los llamadores no necesitan distinguir los dos modos.
+ *
+ * RELACIÓN CON POO:
+ * - Encapsulación: nadie más conoce la regla de ubicación ni el ThreadLocal del DataSource
+ * - Las operaciones se reciben como Supplier: el mismo método del repositorio sirve en
+ *   cualquier fragmento
+ *
+ * RELACIÓN CON SQL:
+ * - Una consulta dispersa ejecuta la misma sentencia en cada fragmento (scatter-gather)
+ */
+@Service
+public class FragmentosPedidos {
+
+    @Value("${casuarinas.fragmentos.cantidad:0}")
+    private int cantidad;
+
+    // "Pocitos=0,Carrasco=1,Solymar/La Tahona=2": localidad con fragmento fijo
+    @Value("${casuarinas.fragmentos.localidades:}")
+    private String localidades;
+
+    @Value("${casuarinas.fragmentos.hilos:16}")
+    private int hilos;
+
+    private final Map<String, Integer> asignadas = new HashMap<>();
+
+    private ExecutorService ejecutor;
+
+    @PostConstruct
+    public void iniciar() {
+        for (String par : localidades.split(",")) {
+            int igual = par.lastIndexOf('=');
+            if (igual > 0) {
+                int fragmento = Integer.parseInt(par.substring(igual + 1).trim());
+                if (cantidad > 0 && (fragmento < 0 || fragmento >= cantidad)) {
+                    throw new IllegalStateException("Fragmento inexistente en casuarinas.fragmentos.localidades: " + par);
+                }
+                asignadas.put(par.substring(0, igual).trim().toLowerCase(), fragmento);
+            }
+        }
+        if (habilitado()) {
+            AtomicInteger numero = new AtomicInteger();
+            ejecutor = Executors.newFixedThreadPool(hilos, r -> {
+                Thread t = new Thread(r, "fragmentos-" + numero.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (ejecutor != null) {
+            ejecutor.shutdown();
+        }
+    }
+
+    public boolean habilitado() {
+        return cantidad > 0;
+    }
+
+    /** Cantidad de fragmentos a recorrer: 1 (la base principal) con el modo apagado */
+    public int cantidad() {
+        return Math.max(1, cantidad);
+    }
+
+    /** Fragmento donde se guardan los pedidos de una localidad */
+    public int fragmentoDe(String localidad) {
+        if (!habilitado()) {
+            return 0;
+        }
+        String clave = localidad != null ? localidad.trim().toLowerCase() : "";
+        Integer asignado = asignadas.get(clave);
+        return asignado != null ? asignado : Math.floorMod(clave.hashCode(), cantidad);
+    }
+
+    /** Fragmento que contiene el pedido con ese id (ver ConfiguracionFragmentos.crearTablas) */
+    public int fragmentoDeId(Long id) {
+        return habilitado() && id != null ? (int) Math.floorMod(id - 1, (long) cantidad) : 0;
+    }
+
+    /**
+     * Ejecuta la operación con todas sus conexiones abiertas en el fragmento indicado
+     */
+    public <T> T en(int fragmento, Supplier<T> operacion) {
+        if (!habilitado()) {
+            return operacion.get();
+        }
+        Integer anterior = DataSourceFragmentado.actual();
+        DataSourceFragmentado.marcar(fragmento);
+        try {
+            return operacion.get();
+        } finally {
+            DataSourceFragmentado.marcar(anterior);
+        }
+    }
+
+    public void ejecutarEn(int fragmento, Runnable operacion) {
+        en(fragmento, () -> {
+            operacion.run();
+            return null;
+        });
+    }
+
+    /** Ejecuta la operación en el fragmento del pedido (según su localidad) */
+    public <T> T enFragmentoDe(Pedido pedido, Supplier<T> operacion) {
+        return en(pedido.getId() != null ? fragmentoDeId(pedido.getId()) : fragmentoDe(pedido.getLocalidad()), operacion);
+    }
+
+    /** Ejecuta la operación en el fragmento que contiene el id */
+    public <T> T porId(Long id, Supplier<T> operacion) {
+        return en(fragmentoDeId(id), operacion);
+    }
+
+    /**
+     * Ejecuta la operación en todos los fragmentos en paralelo y devuelve un resultado por fragmento
+     */
+    public <T> List<T> enTodos(Supplier<T> operacion) {
+        if (!habilitado()) {
+            return List.of(operacion.get());
+        }
+        List<CompletableFuture<T>> futuros = new ArrayList<>(cantidad);
+        for (int n = 1; n < cantidad; n++) {
+            int fragmento = n;
+            futuros.add(CompletableFuture.supplyAsync(() -> en(fragmento, operacion), ejecutor));
+        }
+        // El fragmento 0 lo atiende el hilo que llama, que de otro modo solo esperaría
+        T primero = en(0, operacion);
+        List<T> resultados = new ArrayList<>(cantidad);
+        resultados.add(primero);
+        for (CompletableFuture<T> futuro : futuros) {
+            resultados.add(esperar(futuro));
+        }
+        return resultados;
+    }
+
+    /**
+     * CONSULTA DISPERSA (SCATTER-GATHER) - ejecuta la consulta en todos los fragmentos y une
+     * los resultados en el orden indicado. Cada fragmento ya devuelve sus filas ordenadas,
+     * así el ordenamiento (TimSort) solo intercala esas corridas: O(n log k) para k fragmentos.
+     */
+    public <T> List<T> dispersar(Supplier<List<T>> consulta, Comparator<? super T> orden) {
+        if (!habilitado()) {
+            return consulta.get();
+        }
+        List<List<T>> parciales = enTodos(consulta);
+        List<T> unidos = new ArrayList<>(parciales.stream().mapToInt(List::size).sum());
+        parciales.forEach(unidos::addAll);
+        unidos.sort(orden);
+        return unidos;
+    }
+
+    /** Suma de un conteo ejecutado en todos los fragmentos (por ejemplo, filas borradas) */
+    public int sumar(Supplier<Integer> operacion) {
+        return enTodos(operacion).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static <T> T esperar(CompletableFuture<T> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
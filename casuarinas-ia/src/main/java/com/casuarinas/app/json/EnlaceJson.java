@@ -0,0 +1,92 @@
+package com.casuarinas.app.json;
+
+import com.casuarinas.app.model.Cliente;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.model.Producto;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LECTORES Y ESCRITORES JSON PREPARADOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Un ObjectReader y un ObjectWriter por tipo, creados una sola vez y reutilizados en cada
+ * petición. Pedir objectMapper.readerFor(tipo) o writer().forType(tipo) en cada llamada
+ * vuelve a resolver el JavaType y a buscar el (de)serializador raíz en la caché de
+ * Jackson; uno ya preparado lo tiene a mano (son inmutables y seguros entre hilos).
+ *
+ * - ConvertidorJsonJfr los usa para los cuerpos de Pedido, Producto y Cliente y sus listas
+ * - leerItems(): las líneas de Pedido.itemsJson como List<ItemPedido>, sin armar un árbol
+ *   de JsonNode por pedido (RankingVentas lo hace con cada checkout)
+ *
+ * RELACIÓN CON POO:
+ * - Caché por tipo (ConcurrentHashMap): crece solo con las firmas de los controladores
+ * - Mismo ObjectMapper de Spring Boot: las entidades se (de)serializan con los BeanSerializer
+ *   de Jackson, sin código a mano que mantener al agregar un campo
+ */
+@Component
+public class EnlaceJson {
+
+    /** Entidades de los cuerpos más frecuentes: catálogo, listados de pedidos y checkout */
+    private static final Set<Class<?>> ENTIDADES = Set.of(Pedido.class, Producto.class, Cliente.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<Type, ObjectReader> lectores = new ConcurrentHashMap<>();
+    private final Map<Type, ObjectWriter> escritores = new ConcurrentHashMap<>();
+
+    private ObjectReader items;
+
+    @PostConstruct
+    public void iniciar() {
+        items = objectMapper.readerFor(new TypeReference<List<ItemPedido>>() {});
+    }
+
+    /** true para Pedido, Producto, Cliente y colecciones de ellos (List<Pedido>, ...) */
+    public static boolean preparado(Type tipo) {
+        if (tipo instanceof Class<?> clase) {
+            return ENTIDADES.contains(clase);
+        }
+        return tipo instanceof ParameterizedType p
+            && p.getRawType() instanceof Class<?> crudo
+            && Collection.class.isAssignableFrom(crudo)
+            && p.getActualTypeArguments().length == 1
+            && p.getActualTypeArguments()[0] instanceof Class<?> elemento
+            && ENTIDADES.contains(elemento);
+    }
+
+    /** Clase del valor para el tipo (List para List<Pedido>) */
+    public static Class<?> clase(Type tipo) {
+        return tipo instanceof ParameterizedType p ? (Class<?>) p.getRawType() : (Class<?>) tipo;
+    }
+
+    public ObjectReader lector(Type tipo) {
+        return lectores.computeIfAbsent(tipo, t -> objectMapper.readerFor(objectMapper.constructType(t)));
+    }
+
+    public ObjectWriter escritor(Type tipo) {
+        return escritores.computeIfAbsent(tipo, t -> objectMapper.writerFor(objectMapper.constructType(t)));
+    }
+
+    /** Las líneas de un itemsJson; vacía si es null o está en blanco */
+    public List<ItemPedido> leerItems(String itemsJson) throws IOException {
+        if (itemsJson == null || itemsJson.isBlank()) {
+            return List.of();
+        }
+        List<ItemPedido> lineas = items.readValue(itemsJson);
+        return lineas != null ? lineas : List.of();
+    }
+}
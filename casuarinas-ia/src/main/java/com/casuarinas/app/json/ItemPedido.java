@@ -0,0 +1,65 @@
+package com.casuarinas.app.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+
+/**
+ * LÍNEA DE UN PEDIDO - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Un elemento del arreglo que guarda Pedido.itemsJson, en el formato que arma cliente.html
+ * y GeneradorDatos: {"id": 8, "nombre": "Queso Ricotta 400g", "precio": 75.0, "cantidad": 3}.
+ *
+ * RELACIÓN CON POO:
+ * - Record inmutable: se lee con su propio deserializador (Lector), sin JsonNode intermedio
+ *
+ * RELACIÓN CON SQL:
+ * - No es una tabla: viaja como texto dentro de la columna pedido.items_json
+ */
+@JsonDeserialize(using = ItemPedido.Lector.class)
+public record ItemPedido(Long id, String nombre, Double precio, long cantidad) {
+
+    /**
+     * Tolerante como lo era la lectura con JsonNode: los campos que no son del tipo esperado
+     * quedan en null, y cantidad en 1 si falta o no es un número
+     */
+    static final class Lector extends StdDeserializer<ItemPedido> {
+
+        private static final long serialVersionUID = 1L;
+
+        Lector() {
+            super(ItemPedido.class);
+        }
+
+        @Override
+        public ItemPedido deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken t = p.currentToken();
+            if (t == JsonToken.START_OBJECT) {
+                t = p.nextToken();
+            } else if (t != JsonToken.FIELD_NAME && t != JsonToken.END_OBJECT) {
+                return (ItemPedido) ctxt.handleUnexpectedToken(ItemPedido.class, p);
+            }
+            Long id = null;
+            String nombre = null;
+            Double precio = null;
+            long cantidad = 1;
+            for (; t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String campo = p.currentName();
+                JsonToken v = p.nextToken();
+                boolean numero = v == JsonToken.VALUE_NUMBER_INT || v == JsonToken.VALUE_NUMBER_FLOAT;
+                switch (campo) {
+                    case "id" -> id = numero ? p.getValueAsLong() : null;
+                    case "nombre" -> nombre = v.isScalarValue() && v != JsonToken.VALUE_NULL ? p.getValueAsString() : null;
+                    case "precio" -> precio = numero ? p.getValueAsDouble() : null;
+                    case "cantidad" -> cantidad = numero || v == JsonToken.VALUE_STRING ? p.getValueAsLong(1) : 1;
+                    default -> { }
+                }
+                p.skipChildren();
+            }
+            return new ItemPedido(id, nombre, precio, cantidad);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.casuarinas.app.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+import java.time.LocalDateTime;
+
+/**
+ * CLASE ENTIDAD IDEMPOTENCIA PEDIDO - PROGRAMACIÓN ORIENTADA A OBJETOS
+ * 
+ * Registra qué pedido se creó para cada clave Idempotency-Key recibida.
+ * Es el respaldo persistente de la caché en memoria de IdempotenciaService:
+ * si la clave ya no está en memoria (reinicio, expulsión) se consulta esta tabla.
+ * 
+ * RELACIÓN CON SQL:
+ * - @Entity + @Table: Genera una tabla SQL llamada "idempotencia_pedido"
+ * - @Id sobre la clave: la PRIMARY KEY impide registrar dos pedidos para la misma clave
+ * - creado: permite borrar los registros vencidos con un único DELETE
+ * - Persistable: como la clave la asigna el cliente, save() haría un SELECT previo (merge);
+ *   isNew() indica que las instancias nuevas van directo a INSERT
+ */
+@Entity
+@Table(name = "idempotencia_pedido")
+public class IdempotenciaPedido implements Persistable<String> {
+    /** Largo máximo de la clave (columna clave varchar(128)) */
+    public static final int LARGO_CLAVE = 128;
+
+    @Id
+    @Column(length = LARGO_CLAVE)
+    private String clave;
+    private Long pedidoId;
+    private LocalDateTime creado;
+
+    @Transient
+    private boolean nuevo = true;
+
+    public IdempotenciaPedido() {}
+
+    public IdempotenciaPedido(String clave, Long pedidoId, LocalDateTime creado) {
+        this.clave = clave;
+        this.pedidoId = pedidoId;
+        this.creado = creado;
+    }
+
+    public String getClave() { return clave; }
+    public void setClave(String clave) { this.clave = clave; }
+
+    public Long getPedidoId() { return pedidoId; }
+    public void setPedidoId(Long pedidoId) { this.pedidoId = pedidoId; }
+
+    public LocalDateTime getCreado() { return creado; }
+    public void setCreado(LocalDateTime creado) { this.creado = creado; }
+
+    @Override
+    public String getId() { return clave; }
+
+    @Override
+    public boolean isNew() { return nuevo; }
+
+    // MÉTODO DE CICLO DE VIDA - una vez leída o guardada, la instancia deja de ser nueva
+    @PostLoad
+    @PostPersist
+    void marcarPersistido() {
+        this.nuevo = false;
+    }
+}
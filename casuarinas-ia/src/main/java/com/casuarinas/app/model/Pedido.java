@@ -23,8 +23,15 @@ import java.time.LocalDateTime;
  * - Cada campo privado se mapea a una columna en la tabla SQL
  * - Hibernate genera automáticamente las consultas SQL (INSERT, UPDATE, DELETE, SELECT)
  * - El campo itemsJson almacena el carrito como JSON en la base de datos
+ * - @Index sobre creado: los pedidos recientes y los rangos de fechas no recorren toda la tabla
+ * - @Index sobre (localidad, creado) y total: los filtros de POST /api/pedidos/consulta
  */
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_pedido_creado", columnList = "creado"),
+    @Index(name = "idx_pedido_localidad_creado", columnList = "localidad, creado"),
+    @Index(name = "idx_pedido_total", columnList = "total")
+})
 public class Pedido {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,8 +22,10 @@ import java.time.LocalDateTime;
  * - Cada campo privado se mapea a una columna en la tabla SQL
  * - @PreUpdate: Se ejecuta antes de un UPDATE SQL
  * - Hibernate genera automáticamente las consultas SQL (INSERT, UPDATE, DELETE, SELECT)
+ * - @Index sobre categoria: el catálogo y POST /api/productos/consulta filtran por categoría
  */
 @Entity // ANOTACIÓN JPA: Indica que esta clase es una entidad de base de datos
+@Table(indexes = @Index(name = "idx_producto_categoria", columnList = "categoria"))
 public class Producto {
     
     // CAMPOS PRIVADOS - ENCAPSULACIÓN (POO)
@@ -1,6 +1,7 @@
 package com.casuarinas.app.repo;
 
 import com.casuarinas.app.model.Cliente;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 /**
@@ -30,4 +31,10 @@ public interface ClienteRepo extends JpaRepository<Cliente, Long> {
      * Busca clientes por localidad específica
      */
     java.util.List<Cliente> findByLocalidad(String localidad);
+
+    /**
+     * CONSULTA SQL GENERADA: SELECT * FROM cliente WHERE nombre LIKE '%?%' LIMIT ?
+     * Busca clientes por nombre (insensible a mayúsculas/minúsculas), con tope de resultados
+     */
+    java.util.List<Cliente> findByNombreContainingIgnoreCase(String nombre, Pageable pagina);
 }
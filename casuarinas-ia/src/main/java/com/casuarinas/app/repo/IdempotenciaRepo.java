@@ -0,0 +1,29 @@
+package com.casuarinas.app.repo;
+
+import com.casuarinas.app.model.IdempotenciaPedido;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+
+/**
+ * INTERFAZ REPOSITORIO IDEMPOTENCIA - PROGRAMACIÓN ORIENTADA A OBJETOS
+ * 
+ * Acceso a la tabla de respaldo de claves Idempotency-Key ya procesadas.
+ * 
+ * RELACIÓN CON SQL:
+ * - findById(clave): SELECT * FROM idempotencia_pedido WHERE clave = ?
+ * - borrarAnterioresA: un único DELETE sin leer las filas antes
+ */
+public interface IdempotenciaRepo extends JpaRepository<IdempotenciaPedido, String> {
+
+    /**
+     * CONSULTA SQL: DELETE FROM idempotencia_pedido WHERE creado < ?
+     * Elimina las claves vencidas y devuelve la cantidad de filas borradas
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotenciaPedido i where i.creado < :limite")
+    int borrarAnterioresA(LocalDateTime limite);
+}
@@ -1,8 +1,15 @@
 package com.casuarinas.app.repo;
 
 import com.casuarinas.app.model.Pedido;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,6 +24,7 @@ import java.util.List;
  * - Encapsulación: Oculta la complejidad del acceso a datos
  * - Patrón Repository: Abstrae la lógica de acceso a datos
  * - Métodos de consulta: Utilizan convenciones de nomenclatura (Query Method)
+ * - Especificaciones: filtros componibles (Specification) que PedidoService combina con AND
  * 
  * RELACIÓN CON SQL:
  * - Spring Data JPA traduce los nombres de métodos a consultas SQL automáticamente
@@ -24,8 +32,10 @@ import java.util.List;
  * - Maneja la conexión JDBC y el mapeo de resultados a objetos Java
  * - Optimiza las consultas SQL automáticamente
  * - Proporciona transacciones SQL automáticas
+ * - Las especificaciones se compilan a un único SELECT con todos los filtros en el WHERE,
+ *   ORDER BY y LIMIT (findBy(Specification, ...) de JpaSpecificationExecutor)
  */
-public interface PedidoRepo extends JpaRepository<Pedido, Long> {
+public interface PedidoRepo extends JpaRepository<Pedido, Long>, JpaSpecificationExecutor<Pedido> {
     /**
      * CONSULTA SQL GENERADA: SELECT * FROM pedido WHERE creado BETWEEN ? AND ?
      * Busca pedidos creados entre dos fechas específicas
@@ -33,26 +43,135 @@ public interface PedidoRepo extends JpaRepository<Pedido, Long> {
     List<Pedido> findByCreadoBetween(LocalDateTime inicio, LocalDateTime fin);
     
     /**
-     * CONSULTA SQL GENERADA: SELECT * FROM pedido WHERE total >= ?
-     * Busca pedidos con total mayor o igual al valor especificado
+     * CONSULTA SQL: SELECT * FROM pedido WHERE nombre_cliente LIKE '%?%' ORDER BY creado DESC LIMIT ?
+     * Los pedidos más recientes de un cliente; recorre el índice de creado y corta al llegar al tope
      */
-    List<Pedido> findByTotalGreaterThanEqual(Double total);
+    List<Pedido> findByNombreClienteContainingIgnoreCaseOrderByCreadoDesc(String nombreCliente, Pageable pagina);
     
     /**
-     * CONSULTA SQL GENERADA: SELECT * FROM pedido WHERE nombre_cliente LIKE '%?%'
-     * Busca pedidos por nombre de cliente (insensible a mayúsculas/minúsculas)
+     * CONSULTA SQL: DELETE FROM pedido WHERE creado < ?
+     * Purga los pedidos anteriores a una fecha en una sola sentencia
+     * @return cantidad de filas borradas
      */
-    List<Pedido> findByNombreClienteContainingIgnoreCase(String nombreCliente);
-    
+    @Modifying
+    @Transactional
+    @Query("delete from Pedido p where p.creado < :hasta")
+    int borrarCreadosAntesDe(LocalDateTime hasta);
+
     /**
-     * CONSULTA SQL GENERADA: SELECT * FROM pedido WHERE localidad = ?
-     * Busca pedidos por localidad específica
+     * CONSULTA SQL: DELETE FROM pedido WHERE id = ?
+     * Borra sin el SELECT previo que hace deleteById
      */
-    List<Pedido> findByLocalidad(String localidad);
-    
+    @Modifying
+    @Transactional
+    @Query("delete from Pedido p where p.id = :id")
+    int borrarPorId(Long id);
+
+    /**
+     * CONSULTA SQL: SELECT * FROM pedido WHERE creado < ? ORDER BY creado LIMIT ?
+     * Lote de pedidos más antiguos que el límite, para moverlos al archivo
+     */
+    List<Pedido> findByCreadoBeforeOrderByCreadoAsc(LocalDateTime limite, Pageable pagina);
+
+    /**
+     * CONSULTA SQL: DELETE FROM pedido WHERE id IN (...)
+     * Borra un lote de pedidos ya archivados
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Pedido p where p.id in :ids")
+    int borrarPorIds(Collection<Long> ids);
+
+    /**
+     * CONSULTA SQL: SELECT * FROM pedido ORDER BY creado DESC LIMIT ?
+     * Pedidos más recientes (primera página del panel de administración)
+     */
+    List<Pedido> findByOrderByCreadoDesc(Pageable pagina);
+
+    /**
+     * CONSULTA SQL: SELECT localidad, COUNT(*), SUM(total) FROM pedido WHERE creado >= ? GROUP BY localidad
+     * Cantidad de pedidos y monto vendido por localidad desde una fecha
+     */
+    @Query("select p.localidad as localidad, count(p) as cantidad, coalesce(sum(p.total), 0) as total "
+        + "from Pedido p where p.creado >= :desde group by p.localidad")
+    List<VentasLocalidad> resumirPorLocalidad(LocalDateTime desde);
+
+    // ESPECIFICACIONES - FILTROS COMPONIBLES DE POST /api/pedidos/consulta
+    // Cada una devuelve null si el filtro no se pidió: Specification.allOf ignora los null,
+    // así una consulta sin filtros es un SELECT sin WHERE
+
+    /**
+     * CONDICIÓN SQL: creado >= ? AND creado <= ? (cualquiera de los dos extremos es opcional)
+     * Rango de fechas inclusive; usa idx_pedido_creado o idx_pedido_localidad_creado
+     */
+    static Specification<Pedido> creadoEntre(LocalDateTime desde, LocalDateTime hasta) {
+        if (desde == null && hasta == null) {
+            return null;
+        }
+        return (p, q, cb) -> desde == null ? cb.lessThanOrEqualTo(p.<LocalDateTime>get("creado"), hasta)
+            : hasta == null ? cb.greaterThanOrEqualTo(p.<LocalDateTime>get("creado"), desde)
+            : cb.between(p.<LocalDateTime>get("creado"), desde, hasta);
+    }
+
+    /**
+     * CONDICIÓN SQL: total >= ? AND total <= ? (cualquiera de los dos extremos es opcional)
+     * Rango de totales inclusive; usa idx_pedido_total
+     */
+    static Specification<Pedido> totalEntre(Double minimo, Double maximo) {
+        if (minimo == null && maximo == null) {
+            return null;
+        }
+        return (p, q, cb) -> minimo == null ? cb.lessThanOrEqualTo(p.<Double>get("total"), maximo)
+            : maximo == null ? cb.greaterThanOrEqualTo(p.<Double>get("total"), minimo)
+            : cb.between(p.<Double>get("total"), minimo, maximo);
+    }
+
+    /**
+     * CONDICIÓN SQL: localidad IN (?, ?, ...)
+     * Usa idx_pedido_localidad_creado (también para ordenar por fecha dentro de una localidad)
+     */
+    static Specification<Pedido> localidadEn(Collection<String> localidades) {
+        if (localidades == null || localidades.isEmpty()) {
+            return null;
+        }
+        return (p, q, cb) -> p.get("localidad").in(localidades);
+    }
+
+    /**
+     * CONDICIÓN SQL: LOWER(nombre_cliente) LIKE '%?%'
+     * Contiene el texto sin importar mayúsculas; recorre las filas que dejan los demás filtros
+     */
+    static Specification<Pedido> clienteContiene(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return null;
+        }
+        return (p, q, cb) -> cb.like(cb.lower(p.<String>get("nombreCliente")), contiene(texto), '\\');
+    }
+
+    /**
+     * CONDICIÓN SQL: LOWER(items_json) LIKE '%?%'
+     * Pedidos con un producto cuyo nombre contiene el texto. El carrito es un CLOB con JSON:
+     * no hay índice posible, conviene combinarlo con fechas o localidades
+     */
+    static Specification<Pedido> productoContiene(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return null;
+        }
+        // El CLOB se convierte a VARCHAR: Hibernate no aplica LOWER a un @Lob
+        return (p, q, cb) -> cb.like(cb.lower(p.get("itemsJson").as(String.class)), contiene(texto), '\\');
+    }
+
+    /** Patrón LIKE '%texto%' en minúsculas, con %, _ y la barra invertida del texto escapados */
+    private static String contiene(String texto) {
+        return "%" + texto.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
     /**
-     * CONSULTA SQL GENERADA: SELECT * FROM pedido WHERE nombre_cliente LIKE '%?%' AND localidad = ?
-     * Busca pedidos por nombre de cliente y localidad (insensible a mayúsculas/minúsculas)
+     * PROYECCIÓN - una fila del resumen por localidad (Spring Data implementa la interfaz)
      */
-    List<Pedido> findByNombreClienteContainingIgnoreCaseAndLocalidad(String nombreCliente, String localidad);
+    interface VentasLocalidad {
+        String getLocalidad();
+        long getCantidad();
+        double getTotal();
+    }
 }
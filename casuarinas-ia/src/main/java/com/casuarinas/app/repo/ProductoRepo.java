@@ -1,7 +1,14 @@
 package com.casuarinas.app.repo;
 
 import com.casuarinas.app.model.Producto;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -16,6 +23,7 @@ import java.util.List;
  * - Encapsulación: Oculta la complejidad del acceso a datos
  * - Patrón Repository: Abstrae la lógica de acceso a datos
  * - Métodos de consulta: Utilizan convenciones de nomenclatura (Query Method)
+ * - Especificaciones: filtros componibles (Specification) que se combinan con AND
  * 
  * RELACIÓN CON SQL:
  * - Spring Data JPA traduce los nombres de métodos a consultas SQL automáticamente
@@ -23,8 +31,9 @@ import java.util.List;
  * - Maneja la conexión JDBC y el mapeo de resultados a objetos Java
  * - Optimiza las consultas SQL automáticamente
  * - Proporciona transacciones SQL automáticas
+ * - Las especificaciones se compilan a un único SELECT con todos los filtros en el WHERE
  */
-public interface ProductoRepo extends JpaRepository<Producto, Long> {
+public interface ProductoRepo extends JpaRepository<Producto, Long>, JpaSpecificationExecutor<Producto> {
     
     // MÉTODOS DE CONSULTA - SPRING DATA JPA GENERA SQL AUTOMÁTICAMENTE
     // El nombre del método se traduce a consultas SQL automáticamente
@@ -35,33 +44,95 @@ public interface ProductoRepo extends JpaRepository<Producto, Long> {
      */
     List<Producto> findByNombreContainingIgnoreCase(String nombre);
     
-    /**
-     * CONSULTA SQL GENERADA: SELECT * FROM producto WHERE categoria = ?
-     * Busca productos por categoría
-     */
-    List<Producto> findByCategoria(String categoria);
-    
     /**
      * CONSULTA SQL GENERADA: SELECT * FROM producto WHERE activo = true
      * Busca todos los productos activos
      */
     List<Producto> findByActivoTrue();
     
+    // ESPECIFICACIONES - FILTROS COMPONIBLES (CatalogoProductos y POST /api/productos/consulta)
+    // Cada una devuelve null si el filtro no se pidió: Specification.allOf ignora los null
+
     /**
-     * CONSULTA SQL GENERADA: SELECT * FROM producto WHERE nombre LIKE '%?%' AND activo = true
-     * Busca productos por nombre (insensible a mayúsculas/minúsculas) que estén activos
+     * CONDICIÓN SQL: LOWER(nombre) LIKE '%?%'
+     * Nombre que contiene el texto, sin importar mayúsculas
      */
-    List<Producto> findByNombreContainingIgnoreCaseAndActivoTrue(String nombre);
-    
+    static Specification<Producto> nombreContiene(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return null;
+        }
+        String patron = "%" + texto.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (p, q, cb) -> cb.like(cb.lower(p.<String>get("nombre")), patron, '\\');
+    }
+
     /**
-     * CONSULTA SQL GENERADA: SELECT * FROM producto WHERE categoria = ? AND activo = true
-     * Busca productos por categoría que estén activos
+     * CONDICIÓN SQL: categoria IN (?, ?, ...)
+     * Usa idx_producto_categoria
      */
-    List<Producto> findByCategoriaAndActivoTrue(String categoria);
-    
+    static Specification<Producto> categoriaEn(Collection<String> categorias) {
+        if (categorias == null || categorias.isEmpty()) {
+            return null;
+        }
+        return (p, q, cb) -> p.get("categoria").in(categorias);
+    }
+
+    /**
+     * CONDICIÓN SQL: precio >= ? AND precio <= ? (cualquiera de los dos extremos es opcional)
+     */
+    static Specification<Producto> precioEntre(Double minimo, Double maximo) {
+        if (minimo == null && maximo == null) {
+            return null;
+        }
+        return (p, q, cb) -> minimo == null ? cb.lessThanOrEqualTo(p.<Double>get("precio"), maximo)
+            : maximo == null ? cb.greaterThanOrEqualTo(p.<Double>get("precio"), minimo)
+            : cb.between(p.<Double>get("precio"), minimo, maximo);
+    }
+
+    /**
+     * CONDICIÓN SQL: activo = ?
+     */
+    static Specification<Producto> activo(Boolean activo) {
+        if (activo == null) {
+            return null;
+        }
+        return (p, q, cb) -> cb.equal(p.get("activo"), activo);
+    }
+
+    // OPERACIONES MASIVAS - UNA SOLA SENTENCIA SQL SIN LEER LAS FILAS ANTES
+    // Las filas que no cambiarían quedan fuera del WHERE, así no se toca "actualizado"
+
+    /**
+     * CONSULTA SQL: UPDATE producto SET precio = ROUND(precio * ?, 2), actualizado = ?
+     *               WHERE (? IS NULL OR categoria = ?) AND precio <> ROUND(precio * ?, 2)
+     * Ajusta el precio de todos los productos (o de una categoría) por un factor
+     * @return cantidad de filas modificadas
+     */
+    @Modifying
+    @Transactional
+    @Query("update Producto p set p.precio = round(p.precio * :factor, 2), p.actualizado = :ahora "
+         + "where (:categoria is null or p.categoria = :categoria) "
+         + "and p.precio is not null and p.precio <> round(p.precio * :factor, 2)")
+    int ajustarPrecios(String categoria, double factor, LocalDateTime ahora);
+
+    /**
+     * CONSULTA SQL: UPDATE producto SET activo = ?, actualizado = ?
+     *               WHERE (? IS NULL OR categoria = ?) AND (activo IS NULL OR activo <> ?)
+     * Activa o desactiva todos los productos (o los de una categoría)
+     * @return cantidad de filas modificadas
+     */
+    @Modifying
+    @Transactional
+    @Query("update Producto p set p.activo = :activo, p.actualizado = :ahora "
+         + "where (:categoria is null or p.categoria = :categoria) "
+         + "and (p.activo is null or p.activo <> :activo)")
+    int cambiarActivo(String categoria, boolean activo, LocalDateTime ahora);
+
     /**
-     * CONSULTA SQL GENERADA: SELECT * FROM producto WHERE nombre LIKE '%?%' AND categoria = ? AND activo = true
-     * Busca productos por nombre y categoría que estén activos
+     * CONSULTA SQL: DELETE FROM producto WHERE id = ?
+     * Borra sin el SELECT previo que hace deleteById
      */
-    List<Producto> findByNombreContainingIgnoreCaseAndCategoriaAndActivoTrue(String nombre, String categoria);
+    @Modifying
+    @Transactional
+    @Query("delete from Producto p where p.id = :id")
+    int borrarPorId(Long id);
 }
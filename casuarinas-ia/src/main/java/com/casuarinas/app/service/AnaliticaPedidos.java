@@ -0,0 +1,529 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.repo.PedidoRepo;
+import com.casuarinas.app.web.ConsultaAnalitica;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * SERVICIO DE ANALÍTICA COLUMNAR - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Guarda en memoria los hechos de cada pedido en arreglos primitivos (una "columna" por campo):
+ * total en centavos, día (epoch day), hora y localidad codificada por diccionario.
+ * Las consultas filtran, agrupan y agregan recorriendo esos arreglos en paralelo, sin crear
+ * objetos por fila y sin consultar H2.
+ *
+ * RELACIÓN CON POO:
+ * - Columnas: objeto inmutable en su tamaño visible; al agregar filas se publica uno nuevo
+ *   (volatile), así las lecturas nunca ven filas a medio escribir
+ * - Carga: una recarga arma columnas y diccionario propios y los publica de una sola vez;
+ *   mientras tanto las consultas siguen viendo el almacén anterior completo
+ * - Encapsulación: el diccionario de localidades y el formato de columnas son privados
+ *
+ * RELACIÓN CON SQL:
+ * - Solo al iniciar (y tras borrados/modificaciones): SELECT id, total, creado, localidad FROM pedido,
+ *   más los pedidos ya movidos al archivo (ArchivoPedidos)
+ * - Los pedidos registrados durante una recarga esperan aparte y se agregan al publicarla,
+ *   salvo los que el SELECT ya había leído (se comparan por id)
+ * - Las consultas analíticas no ejecutan SQL
+ */
+@Service
+public class AnaliticaPedidos {
+
+    private static final Logger log = LoggerFactory.getLogger(AnaliticaPedidos.class);
+
+    /** Filas por tramo de recorrido paralelo */
+    private static final int TRAMO = 64 * 1024;
+
+    /** Tope de grupos al agrupar por día (unos 100 años); más allá hay que acotar con desde / hasta */
+    private static final int MAX_DIAS_AGRUPADOS = 36_600;
+
+    /** Resultado de un grupo */
+    public record Grupo(String grupo, long cantidad, double total, double promedio, double minimo, double maximo) {}
+
+    private static final class Columnas {
+        final long[] totalCentavos;
+        final int[] dia;
+        final byte[] hora;
+        final int[] localidad;
+        final int filas;
+        final int diaMinimo;
+        final int diaMaximo;
+        final String[] nombres; // diccionario de localidades vigente para estas filas
+
+        Columnas(long[] totalCentavos, int[] dia, byte[] hora, int[] localidad, int filas,
+                 int diaMinimo, int diaMaximo, String[] nombres) {
+            this.totalCentavos = totalCentavos;
+            this.dia = dia;
+            this.hora = hora;
+            this.localidad = localidad;
+            this.filas = filas;
+            this.diaMinimo = diaMinimo;
+            this.diaMaximo = diaMaximo;
+            this.nombres = nombres;
+        }
+
+        static Columnas vacias(int capacidad) {
+            return new Columnas(new long[capacidad], new int[capacidad], new byte[capacidad], new int[capacidad], 0,
+                Integer.MAX_VALUE, Integer.MIN_VALUE, new String[0]);
+        }
+
+        /** Devuelve las columnas con la fila agregada; las escribe en los mismos arreglos si hay lugar */
+        Columnas agregar(Diccionario diccionario, double total, LocalDateTime creado, String localidad) {
+            Columnas c = this;
+            int n = c.filas;
+            if (n == c.totalCentavos.length) {
+                int capacidad = n * 2;
+                c = new Columnas(Arrays.copyOf(c.totalCentavos, capacidad), Arrays.copyOf(c.dia, capacidad),
+                    Arrays.copyOf(c.hora, capacidad), Arrays.copyOf(c.localidad, capacidad), n,
+                    c.diaMinimo, c.diaMaximo, c.nombres);
+            }
+            int dia = diaAcotado(creado.toLocalDate().toEpochDay());
+            c.totalCentavos[n] = Math.round(total * 100);
+            c.dia[n] = dia;
+            c.hora[n] = (byte) creado.getHour();
+            c.localidad[n] = diccionario.codigo(localidad);
+            return new Columnas(c.totalCentavos, c.dia, c.hora, c.localidad, n + 1,
+                Math.min(c.diaMinimo, dia), Math.max(c.diaMaximo, dia), diccionario.nombres);
+        }
+    }
+
+    /** DICCIONARIO DE LOCALIDADES - código entero <-> nombre; cada recarga arma uno nuevo */
+    private static final class Diccionario {
+        final Map<String, Integer> codigos = new HashMap<>();
+        String[] nombres = new String[0];
+
+        int codigo(String localidad) {
+            String clave = localidad != null ? localidad : "";
+            Integer codigo = codigos.get(clave);
+            if (codigo == null) {
+                codigo = nombres.length;
+                codigos.put(clave, codigo);
+                String[] ampliado = Arrays.copyOf(nombres, codigo + 1);
+                ampliado[codigo] = clave;
+                nombres = ampliado;
+            }
+            return codigo;
+        }
+    }
+
+    /** RECARGA EN CURSO - columnas, diccionario e ids propios, sin tocar el almacén publicado */
+    private static final class Carga {
+        Columnas columnas = Columnas.vacias(1024);
+        final Diccionario diccionario = new Diccionario();
+        long[] ids = new long[1024];
+
+        void agregar(long id, double total, LocalDateTime creado, String localidad) {
+            int n = columnas.filas;
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n * 2);
+            }
+            ids[n] = id;
+            columnas = columnas.agregar(diccionario, total, creado, localidad);
+        }
+
+        long[] idsOrdenados() {
+            long[] ordenados = Arrays.copyOf(ids, columnas.filas);
+            Arrays.sort(ordenados);
+            return ordenados;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PedidoRepo pedidoRepo;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Autowired
+    private ArchivoPedidos archivo;
+
+    private volatile Columnas columnas = Columnas.vacias(1024);
+
+    // Con el candado de escritura: diccionario de las columnas publicadas, ids que leyó la
+    // última recarga (ordenados) y pedidos registrados durante la recarga en curso (null = no hay)
+    private Diccionario diccionario = new Diccionario();
+    private long[] cargados = new long[0];
+    private List<Pedido> pendientes;
+
+    private final AtomicBoolean recargar = new AtomicBoolean();
+
+    // Escrituras del almacén publicado: cada pedido nuevo y el reemplazo al terminar una recarga.
+    // La lectura de H2 de la recarga va fuera del candado. ReentrantLock y no synchronized para
+    // que una petición en un hilo virtual que espera no retenga su hilo portador
+    private final ReentrantLock escritura = new ReentrantLock();
+
+    // Una recarga a la vez (arranque y tarea programada)
+    private final ReentrantLock recarga = new ReentrantLock();
+
+    /**
+     * CARGA INICIAL - lee solo las columnas necesarias, sin armar entidades Pedido, y suma
+     * los pedidos archivados
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        long t0 = System.nanoTime();
+        recarga.lock();
+        try {
+            escritura.lock();
+            try {
+                pendientes = new ArrayList<>();
+            } finally {
+                escritura.unlock();
+            }
+            Carga carga = null;
+            try {
+                carga = leer();
+            } finally {
+                publicar(carga);
+            }
+        } finally {
+            recarga.unlock();
+        }
+        log.info("Analítica columnar cargada con {} pedidos en {} ms",
+            columnas.filas, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    private Carga leer() {
+        Carga carga = new Carga();
+        // CONSULTA SQL: SELECT id, total, creado, localidad FROM pedido (un fragmento tras otro)
+        for (int n = 0; n < fragmentos.cantidad(); n++) {
+            fragmentos.ejecutarEn(n, () -> jdbcTemplate.query(
+                "select id, total, creado, localidad from pedido where creado is not null", rs -> {
+                    Timestamp creado = rs.getTimestamp(3);
+                    carga.agregar(rs.getLong(1), rs.getDouble(2), creado.toLocalDateTime(), rs.getString(4));
+                }));
+        }
+        // Un pedido puede estar en la tabla y en el archivo si se cortó un archivado: cuenta una vez
+        long[] calientes = carga.idsOrdenados();
+        archivo.recorrer(p -> {
+            if (p.getCreado() != null && Arrays.binarySearch(calientes, p.getId()) < 0) {
+                carga.agregar(p.getId(), total(p), p.getCreado(), p.getLocalidad());
+            }
+        });
+        return carga;
+    }
+
+    /**
+     * Publica la recarga (o, si falló, conserva el almacén anterior) y agrega los pedidos
+     * registrados mientras tanto que la recarga no había leído
+     */
+    private void publicar(Carga carga) {
+        escritura.lock();
+        try {
+            if (carga != null) {
+                long[] leidos = carga.idsOrdenados();
+                for (Pedido p : pendientes) {
+                    if (Arrays.binarySearch(leidos, p.getId()) < 0) {
+                        carga.agregar(p.getId(), total(p), p.getCreado(), p.getLocalidad());
+                    }
+                }
+                cargados = carga.idsOrdenados();
+                diccionario = carga.diccionario;
+                // PUBLICACIÓN - una sola escritura volatile reemplaza el almacén completo
+                columnas = carga.columnas;
+            } else {
+                for (Pedido p : pendientes) {
+                    agregar(p);
+                }
+            }
+            pendientes = null;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Agrega un pedido recién creado (y ya confirmado)
+     */
+    public void registrar(Pedido pedido) {
+        if (pedido.getCreado() == null) {
+            return;
+        }
+        escritura.lock();
+        try {
+            if (pendientes != null) {
+                pendientes.add(pedido);
+            } else {
+                agregar(pedido);
+            }
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Los pedidos creados en otras instancias se agregan; los borrados o modificados
+     * marcan el almacén para recargarlo desde H2
+     */
+    @EventListener
+    public void alCambiar(CambioEntidad cambio) {
+        if (!cambio.es(Pedido.class)) {
+            return;
+        }
+        if (cambio.operacion() == CambioEntidad.Operacion.CREADO) {
+            if (cambio.remoto() && cambio.id() != null) {
+                // CONSULTA SQL: SELECT * FROM pedido WHERE id = ?
+                fragmentos.porId(cambio.id(), () -> pedidoRepo.findById(cambio.id())).ifPresent(this::registrar);
+            }
+        } else {
+            recargar.set(true);
+        }
+    }
+
+    /**
+     * TAREA PROGRAMADA - agrupa varias modificaciones seguidas en una sola recarga
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void recargarSiHaceFalta() {
+        if (recargar.compareAndSet(true, false)) {
+            cargar();
+        }
+    }
+
+    public int getFilas() {
+        return columnas.filas;
+    }
+
+    // Solo se invoca con el candado de escritura tomado
+    private void agregar(Pedido pedido) {
+        // La última recarga pudo haberlo leído de H2 después del COMMIT y antes de este aviso
+        if (pedido.getId() != null && Arrays.binarySearch(cargados, pedido.getId()) >= 0) {
+            return;
+        }
+        // PUBLICACIÓN - la escritura volatile hace visibles las filas nuevas a las lecturas
+        columnas = columnas.agregar(diccionario, total(pedido), pedido.getCreado(), pedido.getLocalidad());
+    }
+
+    private static double total(Pedido pedido) {
+        return pedido.getTotal() != null ? pedido.getTotal() : 0;
+    }
+
+    /** Epoch day llevado al rango de int (una fecha absurda no debe desbordar la columna) */
+    private static int diaAcotado(long epochDay) {
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, epochDay));
+    }
+
+    /**
+     * Ejecuta una consulta de filtro / agrupación / agregación sobre las columnas
+     */
+    public List<Grupo> consultar(ConsultaAnalitica consulta) {
+        Columnas c = columnas;
+        String[] dic = c.nombres;
+        Filtro filtro = new Filtro(consulta, dic);
+        Agrupacion agrupacion = Agrupacion.de(consulta.getAgruparPor(), c, dic, filtro);
+
+        int tramos = (c.filas + TRAMO - 1) / TRAMO;
+        // RECORRIDO PARALELO - cada tramo acumula en sus propios arreglos y luego se combinan
+        Acumulador total = IntStream.range(0, tramos).parallel()
+            .mapToObj(t -> {
+                Acumulador acc = new Acumulador(agrupacion.grupos);
+                int fin = Math.min(c.filas, (t + 1) * TRAMO);
+                for (int i = t * TRAMO; i < fin; i++) {
+                    if (filtro.acepta(c, i)) {
+                        acc.sumar(agrupacion.grupo(c, i), c.totalCentavos[i]);
+                    }
+                }
+                return acc;
+            })
+            .reduce(Acumulador::combinar)
+            .orElseGet(() -> new Acumulador(agrupacion.grupos));
+
+        List<Grupo> resultado = new ArrayList<>();
+        for (int g = 0; g < agrupacion.grupos; g++) {
+            if (total.cantidad[g] > 0) {
+                resultado.add(new Grupo(agrupacion.nombre(g), total.cantidad[g], total.suma[g] / 100.0,
+                    total.suma[g] / 100.0 / total.cantidad[g], total.minimo[g] / 100.0, total.maximo[g] / 100.0));
+            }
+        }
+        return resultado;
+    }
+
+    private static final class Acumulador {
+        final long[] cantidad;
+        final long[] suma;
+        final long[] minimo;
+        final long[] maximo;
+
+        Acumulador(int grupos) {
+            cantidad = new long[grupos];
+            suma = new long[grupos];
+            minimo = new long[grupos];
+            maximo = new long[grupos];
+            Arrays.fill(minimo, Long.MAX_VALUE);
+            Arrays.fill(maximo, Long.MIN_VALUE);
+        }
+
+        void sumar(int g, long valor) {
+            cantidad[g]++;
+            suma[g] += valor;
+            if (valor < minimo[g]) minimo[g] = valor;
+            if (valor > maximo[g]) maximo[g] = valor;
+        }
+
+        Acumulador combinar(Acumulador otro) {
+            for (int g = 0; g < cantidad.length; g++) {
+                cantidad[g] += otro.cantidad[g];
+                suma[g] += otro.suma[g];
+                minimo[g] = Math.min(minimo[g], otro.minimo[g]);
+                maximo[g] = Math.max(maximo[g], otro.maximo[g]);
+            }
+            return this;
+        }
+    }
+
+    /** Filtros traducidos a comparaciones primitivas */
+    private static final class Filtro {
+        final boolean[] localidades;
+        final boolean[] diasSemana;
+        final int diaDesde;
+        final int diaHasta;
+        final int horaDesde;
+        final int horaHasta;
+        final long totalMinimo;
+        final long totalMaximo;
+
+        Filtro(ConsultaAnalitica q, String[] dic) {
+            if (q.getLocalidades() != null && !q.getLocalidades().isEmpty()) {
+                localidades = new boolean[dic.length];
+                for (int i = 0; i < dic.length; i++) {
+                    localidades[i] = q.getLocalidades().contains(dic[i]);
+                }
+            } else {
+                localidades = null;
+            }
+            if (q.getDiasSemana() != null && !q.getDiasSemana().isEmpty()) {
+                diasSemana = new boolean[8];
+                q.getDiasSemana().stream().filter(d -> d != null && d >= 1 && d <= 7)
+                    .forEach(d -> diasSemana[d] = true);
+            } else {
+                diasSemana = null;
+            }
+            diaDesde = q.getDesde() != null ? diaAcotado(q.getDesde().toEpochDay()) : Integer.MIN_VALUE;
+            diaHasta = q.getHasta() != null ? diaAcotado(q.getHasta().toEpochDay()) : Integer.MAX_VALUE;
+            horaDesde = q.getHoraDesde() != null ? q.getHoraDesde() : 0;
+            horaHasta = q.getHoraHasta() != null ? q.getHoraHasta() : 23;
+            totalMinimo = q.getTotalMinimo() != null ? Math.round(q.getTotalMinimo() * 100) : Long.MIN_VALUE;
+            totalMaximo = q.getTotalMaximo() != null ? Math.round(q.getTotalMaximo() * 100) : Long.MAX_VALUE;
+        }
+
+        boolean acepta(Columnas c, int i) {
+            int dia = c.dia[i];
+            int hora = c.hora[i];
+            long total = c.totalCentavos[i];
+            return dia >= diaDesde && dia <= diaHasta
+                && hora >= horaDesde && hora <= horaHasta
+                && total >= totalMinimo && total <= totalMaximo
+                && (localidades == null || (c.localidad[i] < localidades.length && localidades[c.localidad[i]]))
+                && (diasSemana == null || diasSemana[diaSemana(dia)]);
+        }
+    }
+
+    /** 1 = lunes ... 7 = domingo (ISO), calculado sin crear LocalDate */
+    private static int diaSemana(int epochDay) {
+        return Math.floorMod(epochDay + 3, 7) + 1;
+    }
+
+    /** Traduce cada fila a un índice de grupo */
+    private abstract static class Agrupacion {
+        final int grupos;
+
+        Agrupacion(int grupos) {
+            this.grupos = grupos;
+        }
+
+        abstract int grupo(Columnas c, int i);
+
+        abstract String nombre(int g);
+
+        static Agrupacion de(String campo, Columnas c, String[] dic, Filtro filtro) {
+            String clave = campo != null ? campo.toLowerCase() : "";
+            switch (clave) {
+                case "hora":
+                    return new Agrupacion(24) {
+                        int grupo(Columnas c, int i) { return c.hora[i]; }
+                        String nombre(int g) { return String.valueOf(g); }
+                    };
+                case "diasemana":
+                    return new Agrupacion(8) {
+                        int grupo(Columnas c, int i) { return diaSemana(c.dia[i]); }
+                        String nombre(int g) { return String.valueOf(g); }
+                    };
+                case "localidad":
+                    return new Agrupacion(dic.length) {
+                        int grupo(Columnas c, int i) { return c.localidad[i]; }
+                        String nombre(int g) { return dic[g]; }
+                    };
+                case "dia":
+                case "mes": {
+                    // Solo los días con datos que además deja pasar el filtro de fechas
+                    int min = Math.max(c.diaMinimo, filtro.diaDesde);
+                    int max = Math.min(c.diaMaximo, filtro.diaHasta);
+                    if (c.filas == 0 || min > max) {
+                        return sinAgrupar();
+                    }
+                    if ((long) max - min + 1 > MAX_DIAS_AGRUPADOS) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Los pedidos abarcan de "
+                            + LocalDate.ofEpochDay(min) + " a " + LocalDate.ofEpochDay(max) + ": para agrupar por "
+                            + clave + " el rango debe ser de " + MAX_DIAS_AGRUPADOS + " días como máximo (usar desde / hasta)");
+                    }
+                    final int base = min;
+                    if (clave.equals("dia")) {
+                        return new Agrupacion(max - min + 1) {
+                            int grupo(Columnas c, int i) { return c.dia[i] - base; }
+                            String nombre(int g) { return LocalDate.ofEpochDay(base + g).toString(); }
+                        };
+                    }
+                    YearMonth primero = YearMonth.from(LocalDate.ofEpochDay(min));
+                    int meses = (int) primero.until(YearMonth.from(LocalDate.ofEpochDay(max)),
+                        ChronoUnit.MONTHS) + 1;
+                    // Tabla día -> mes precalculada para no crear fechas por fila
+                    int[] mesDeDia = new int[max - min + 1];
+                    for (int d = 0; d < mesDeDia.length; d++) {
+                        mesDeDia[d] = (int) primero.until(YearMonth.from(LocalDate.ofEpochDay(base + d)),
+                            ChronoUnit.MONTHS);
+                    }
+                    return new Agrupacion(meses) {
+                        int grupo(Columnas c, int i) { return mesDeDia[c.dia[i] - base]; }
+                        String nombre(int g) { return primero.plusMonths(g).toString(); }
+                    };
+                }
+                default:
+                    return sinAgrupar();
+            }
+        }
+
+        static Agrupacion sinAgrupar() {
+            return new Agrupacion(1) {
+                int grupo(Columnas c, int i) { return 0; }
+                String nombre(int g) { return "total"; }
+            };
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import com.casuarinas.app.json.EnlaceJson;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.repo.PedidoRepo;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SERVICIO DE ARCHIVO DE PEDIDOS (DATOS FRÍOS) - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Mueve los pedidos más antiguos que el horizonte configurado fuera de H2 a segmentos
+ * inmutables comprimidos (JSON por línea + gzip) y mantiene un índice pequeño
+ * (indice.json) con el rango de fechas y totales de cada segmento.
+ *
+ * - Cada lote de 1000 escribe un segmento por mes; al terminar el archivado los segmentos
+ *   de un mismo mes se funden en uno solo (compactar)
+ * - Dentro de un segmento los pedidos van de mayor a menor total: una búsqueda por total
+ *   mínimo deja de descomprimir el segmento en el primer pedido por debajo del mínimo
+ * - Un segmento nunca se modifica: fundir o purgar escribe uno nuevo, actualiza el índice
+ *   y recién después borra los archivos viejos
+ * - En modo cluster las instancias comparten la carpeta: archivar, purgar y recorrer toman
+ *   además un candado de archivo (FileChannel.lock sobre indice.lock) y releen el índice
+ *   antes de empezar, así dos instancias nunca reescriben segmentos ni el índice a la vez
+ *
+ * RELACIÓN CON POO:
+ * - Encapsulación: el formato de los segmentos y el índice solo se conocen aquí
+ * - Segmento: record inmutable que describe un archivo ya escrito
+ *
+ * RELACIÓN CON SQL:
+ * - SELECT de a lotes de los pedidos anteriores al horizonte
+ * - DELETE FROM pedido WHERE id IN (...) una vez que el segmento quedó en disco
+ * - Las consultas por fecha y total combinan la tabla caliente con los segmentos
+ * - DELETE /api/pedidos?hasta= purga también los segmentos (purgar)
+ */
+@Service
+public class ArchivoPedidos {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivoPedidos.class);
+
+    private static final String INDICE = "indice.json";
+
+    private static final String CERROJO = "indice.lock";
+
+    // Un candado por carpeta en toda la JVM: FileChannel.lock es por proceso, y dos contextos
+    // de la misma JVM (la prueba del cluster) sobre la misma carpeta fallarían con
+    // OverlappingFileLockException en lugar de esperarse
+    private static final Map<Path, ReentrantLock> CERROJOS = new ConcurrentHashMap<>();
+
+    // Pedidos de mayor a menor total (un total nulo cuenta como 0), desempate por id
+    private static final Comparator<Pedido> POR_TOTAL_DESC = Comparator
+        .comparingDouble(ArchivoPedidos::total).reversed().thenComparing(Pedido::getId);
+
+    /**
+     * Entrada del índice: describe un segmento comprimido.
+     * porTotal = las líneas están ordenadas por total descendente (los segmentos de antes
+     * de este orden no lo están y se reescriben en la próxima compactación)
+     */
+    public record Segmento(String archivo, LocalDateTime desde, LocalDateTime hasta,
+                           int cantidad, double totalMinimo, double totalMaximo, boolean porTotal) {
+
+        YearMonth mes() {
+            return YearMonth.from(desde);
+        }
+    }
+
+    @Autowired
+    private PedidoRepo pedidoRepo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EnlaceJson enlace;
+
+    @Autowired
+    private NotificadorCambios notificador;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Value("${casuarinas.archivo.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${casuarinas.archivo.directorio:./data/archivo}")
+    private String directorio;
+
+    @Value("${casuarinas.archivo.horizonte-dias:365}")
+    private long horizonteDias;
+
+    @Value("${casuarinas.archivo.lote:1000}")
+    private int lote;
+
+    // ÍNDICE EN MEMORIA - se reemplaza completo (copy-on-write) al agregar segmentos
+    private volatile List<Segmento> segmentos = List.of();
+
+    // Un archivado a la vez; lee y escribe lotes con el candado tomado, por eso no es synchronized
+    private ReentrantLock cerrojo;
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        cerrojo = CERROJOS.computeIfAbsent(Paths.get(directorio).toAbsolutePath().normalize(), d -> new ReentrantLock());
+        cargarIndice();
+    }
+
+    public void cargarIndice() throws IOException {
+        Path indice = Paths.get(directorio, INDICE);
+        if (Files.exists(indice)) {
+            segmentos = List.copyOf(objectMapper.readValue(indice.toFile(), new TypeReference<List<Segmento>>() {}));
+        }
+    }
+
+    /**
+     * En modo cluster, otra instancia agregó segmentos: se relee el índice compartido
+     */
+    @EventListener
+    public void alCambiar(CambioEntidad cambio) throws IOException {
+        if (cambio.remoto() && "Archivo".equals(cambio.entidad())) {
+            cargarIndice();
+        }
+    }
+
+    /**
+     * TAREA PROGRAMADA - archiva los pedidos anteriores al horizonte configurado
+     */
+    @Scheduled(cron = "${casuarinas.archivo.cron:0 30 3 * * *}")
+    public void archivarProgramado() {
+        if (habilitado) {
+            archivar(LocalDateTime.now().minusDays(horizonteDias));
+        }
+    }
+
+    /**
+     * Archiva todos los pedidos creados antes del límite.
+     * @return cantidad de pedidos movidos al archivo
+     */
+    public int archivar(LocalDateTime limite) {
+        int movidos;
+        try {
+            movidos = conCerrojo(() -> {
+                int total = 0;
+                // En modo fragmentado cada fragmento se archiva por separado, con sus propios lotes
+                for (int n = 0; n < fragmentos.cantidad(); n++) {
+                    total += fragmentos.en(n, () -> archivarLotes(limite));
+                }
+                compactar();
+                return total;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo compactar el archivo en " + directorio, e);
+        }
+        if (movidos > 0) {
+            log.info("Archivados {} pedidos anteriores a {}", movidos, limite);
+            notificador.publicar("Archivo", null, CambioEntidad.Operacion.MODIFICADO);
+            notificador.eliminado(Pedido.class, null);
+        }
+        return movidos;
+    }
+
+    private int archivarLotes(LocalDateTime limite) {
+        int movidos = 0;
+        try {
+            Files.createDirectories(Paths.get(directorio));
+            while (true) {
+                // CONSULTA SQL: SELECT * FROM pedido WHERE creado < ? ORDER BY creado LIMIT ?
+                List<Pedido> antiguos = pedidoRepo.findByCreadoBeforeOrderByCreadoAsc(limite, PageRequest.of(0, lote));
+                if (antiguos.isEmpty()) {
+                    break;
+                }
+                // PARTICIÓN POR MES - cada grupo se escribe en su propio segmento
+                Map<YearMonth, List<Pedido>> porMes = new TreeMap<>();
+                for (Pedido p : antiguos) {
+                    porMes.computeIfAbsent(YearMonth.from(p.getCreado()), m -> new ArrayList<>()).add(p);
+                }
+                List<Segmento> nuevos = new ArrayList<>();
+                for (Map.Entry<YearMonth, List<Pedido>> grupo : porMes.entrySet()) {
+                    nuevos.add(escribirSegmento(grupo.getKey(), grupo.getValue()));
+                }
+                reemplazarEnIndice(List.of(), nuevos);
+                // El borrado va después de escribir el segmento: ante un corte, un pedido
+                // puede quedar en ambos lados y las lecturas lo deduplican por id
+                // CONSULTA SQL: DELETE FROM pedido WHERE id IN (...)
+                pedidoRepo.borrarPorIds(antiguos.stream().map(Pedido::getId).toList());
+                movidos += antiguos.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo archivar pedidos en " + directorio, e);
+        }
+        return movidos;
+    }
+
+    /**
+     * Funde en un único segmento los de cada mes que tenga varios (uno por lote archivado,
+     * o de varios fragmentos), y reescribe ordenados por total los segmentos viejos
+     */
+    private void compactar() throws IOException {
+        Map<YearMonth, List<Segmento>> porMes = new TreeMap<>();
+        for (Segmento s : segmentos) {
+            porMes.computeIfAbsent(s.mes(), m -> new ArrayList<>()).add(s);
+        }
+        for (Map.Entry<YearMonth, List<Segmento>> mes : porMes.entrySet()) {
+            List<Segmento> viejos = mes.getValue();
+            if (viejos.size() == 1 && viejos.get(0).porTotal()) {
+                continue;
+            }
+            // Un corte a mitad de un archivado pudo dejar el mismo pedido en dos segmentos
+            Map<Long, Pedido> porId = new LinkedHashMap<>();
+            for (Segmento s : viejos) {
+                leerSegmento(s, p -> true, p -> true, p -> porId.put(p.getId(), p));
+            }
+            Segmento fundido = escribirSegmento(mes.getKey(), new ArrayList<>(porId.values()));
+            reemplazarEnIndice(viejos, List.of(fundido));
+            log.debug("Archivo de {}: {} segmentos fundidos en {}", mes.getKey(), viejos.size(), fundido.archivo());
+        }
+    }
+
+    /**
+     * Borra del archivo los pedidos creados antes del límite: los segmentos que caen enteros
+     * antes del límite se eliminan y los que lo cruzan se reescriben sin esos pedidos.
+     * @return cantidad de pedidos archivados borrados
+     */
+    public int purgar(LocalDateTime limite) {
+        if (!Files.isDirectory(Paths.get(directorio))) {
+            return 0; // nunca se archivó nada
+        }
+        int eliminados;
+        try {
+            eliminados = conCerrojo(() -> purgarSegmentos(limite));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo purgar el archivo en " + directorio, e);
+        }
+        if (eliminados > 0) {
+            log.info("Purgados {} pedidos archivados anteriores a {}", eliminados, limite);
+            notificador.publicar("Archivo", null, CambioEntidad.Operacion.MODIFICADO);
+        }
+        return eliminados;
+    }
+
+    private int purgarSegmentos(LocalDateTime limite) throws IOException {
+        int eliminados = 0;
+        for (Segmento s : segmentos) {
+            if (!s.desde().isBefore(limite)) {
+                continue;
+            }
+            List<Segmento> nuevos = List.of();
+            if (!s.hasta().isBefore(limite)) {
+                List<Pedido> quedan = new ArrayList<>();
+                leerSegmento(s, p -> true, p -> !p.getCreado().isBefore(limite), quedan::add);
+                if (!quedan.isEmpty()) {
+                    nuevos = List.of(escribirSegmento(s.mes(), quedan));
+                }
+                eliminados += s.cantidad() - quedan.size();
+            } else {
+                eliminados += s.cantidad();
+            }
+            reemplazarEnIndice(List.of(s), nuevos);
+        }
+        return eliminados;
+    }
+
+    /**
+     * Fecha más reciente presente en el archivo, o null si está vacío.
+     * Una consulta que empieza después de esta fecha no necesita leer segmentos.
+     */
+    public LocalDateTime limiteFrio() {
+        return segmentos.stream().map(Segmento::hasta).max(Comparator.naturalOrder()).orElse(null);
+    }
+
+    /**
+     * Pedidos archivados creados entre dos fechas y con total entre dos valores (inclusive;
+     * un extremo nulo no restringe) que además cumplen el filtro. Solo se descomprimen los
+     * segmentos cuyo rango de fechas y totales se superpone con el pedido
+     */
+    public List<Pedido> buscar(LocalDateTime desde, LocalDateTime hasta, Double totalMinimo, Double totalMaximo,
+                               Predicate<Pedido> filtro) {
+        return leer(s -> (desde == null || !s.hasta().isBefore(desde)) && (hasta == null || !s.desde().isAfter(hasta))
+                && (totalMinimo == null || s.totalMaximo() >= totalMinimo)
+                && (totalMaximo == null || s.totalMinimo() <= totalMaximo),
+            // Ordenado por total descendente: pasado el mínimo no queda nada que leer
+            p -> totalMinimo == null || total(p) >= totalMinimo,
+            p -> (desde == null || !p.getCreado().isBefore(desde)) && (hasta == null || !p.getCreado().isAfter(hasta))
+                && (totalMinimo == null || p.getTotal() != null && p.getTotal() >= totalMinimo)
+                && (totalMaximo == null || p.getTotal() != null && p.getTotal() <= totalMaximo)
+                && filtro.test(p));
+    }
+
+    /**
+     * Entrega todos los pedidos archivados, segmento por segmento, sin juntarlos en memoria
+     * (recarga de AnaliticaPedidos). Con el candado tomado: mientras tanto no se funden ni
+     * purgan segmentos
+     */
+    public void recorrer(Consumer<Pedido> destino) {
+        if (!Files.isDirectory(Paths.get(directorio))) {
+            return;
+        }
+        try {
+            conCerrojo(() -> {
+                for (Segmento s : segmentos) {
+                    leerSegmento(s, p -> true, p -> true, destino);
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el archivo en " + directorio, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface OperacionArchivo<T> {
+        T aplicar() throws IOException;
+    }
+
+    /**
+     * Ejecuta la operación con el candado de esta JVM y el candado de archivo compartido
+     * entre instancias, sobre el índice recién leído de disco
+     */
+    private <T> T conCerrojo(OperacionArchivo<T> operacion) throws IOException {
+        cerrojo.lock();
+        try {
+            Path dir = Paths.get(directorio);
+            Files.createDirectories(dir);
+            try (FileChannel canal = FileChannel.open(dir.resolve(CERROJO),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock bloqueo = canal.lock();
+                try {
+                    // Otra instancia pudo fundir, purgar o agregar segmentos desde la última lectura
+                    cargarIndice();
+                    return operacion.aplicar();
+                } finally {
+                    bloqueo.release();
+                }
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Une resultados calientes y fríos quitando duplicados por id (el caliente gana)
+     */
+    public static List<Pedido> combinar(List<Pedido> calientes, List<Pedido> frios) {
+        if (frios.isEmpty()) {
+            return calientes;
+        }
+        Map<Long, Pedido> porId = new LinkedHashMap<>();
+        frios.forEach(p -> porId.put(p.getId(), p));
+        calientes.forEach(p -> porId.put(p.getId(), p));
+        return new ArrayList<>(porId.values());
+    }
+
+    /**
+     * @param seguir en un segmento ordenado por total, el primer pedido que no lo cumple
+     *               corta la lectura de ese segmento
+     */
+    private List<Pedido> leer(Predicate<Segmento> segmentoUtil, Predicate<Pedido> seguir, Predicate<Pedido> filtro) {
+        // Una compactación o purga concurrente puede borrar un segmento de esta foto del
+        // índice: se vuelve a empezar con el índice nuevo, que ya tiene sus pedidos
+        for (int intento = 0; ; intento++) {
+            List<Segmento> foto = segmentos;
+            List<Pedido> resultado = new ArrayList<>();
+            try {
+                for (Segmento s : foto) {
+                    if (segmentoUtil.test(s)) {
+                        leerSegmento(s, seguir, filtro, resultado::add);
+                    }
+                }
+                return resultado;
+            } catch (NoSuchFileException e) {
+                if (intento >= 3) {
+                    throw new UncheckedIOException("El archivo cambió durante la lectura", e);
+                }
+                recargarSiCambio(foto);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el archivo en " + directorio, e);
+            }
+        }
+    }
+
+    private void recargarSiCambio(List<Segmento> foto) {
+        try {
+            // En modo cluster el índice lo cambió otra instancia y todavía no llegó el aviso
+            if (segmentos == foto) {
+                cargarIndice();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo releer el índice en " + directorio, e);
+        }
+    }
+
+    private void leerSegmento(Segmento s, Predicate<Pedido> seguir, Predicate<Pedido> filtro,
+                              Consumer<Pedido> destino) throws IOException {
+        Path archivo = Paths.get(directorio, s.archivo());
+        ObjectReader lector = enlace.lector(Pedido.class);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archivo)), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = in.readLine()) != null) {
+                Pedido p = lector.readValue(linea);
+                if (s.porTotal() && !seguir.test(p)) {
+                    break;
+                }
+                if (filtro.test(p)) {
+                    destino.accept(p);
+                }
+            }
+        }
+    }
+
+    private Segmento escribirSegmento(YearMonth mes, List<Pedido> pedidos) throws IOException {
+        Path dir = Paths.get(directorio);
+        String nombre = String.format("pedidos-%s-%d.jsonl.gz", mes, System.nanoTime());
+        Path temporal = dir.resolve(nombre + ".tmp");
+        List<Pedido> ordenados = new ArrayList<>(pedidos);
+        ordenados.sort(POR_TOTAL_DESC);
+        LocalDateTime desde = null;
+        LocalDateTime hasta = null;
+        ObjectWriter escritor = enlace.escritor(Pedido.class);
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temporal)), StandardCharsets.UTF_8))) {
+            for (Pedido p : ordenados) {
+                out.write(escritor.writeValueAsString(p));
+                out.newLine();
+                desde = desde == null || p.getCreado().isBefore(desde) ? p.getCreado() : desde;
+                hasta = hasta == null || p.getCreado().isAfter(hasta) ? p.getCreado() : hasta;
+            }
+        }
+        Files.move(temporal, dir.resolve(nombre), StandardCopyOption.ATOMIC_MOVE);
+        double max = total(ordenados.get(0));
+        double min = total(ordenados.get(ordenados.size() - 1));
+        return new Segmento(nombre, desde, hasta, ordenados.size(), min, max, true);
+    }
+
+    /**
+     * Publica el índice sin los segmentos viejos y con los nuevos; después borra los
+     * archivos viejos (un corte entre ambos pasos solo deja archivos huérfanos)
+     */
+    private void reemplazarEnIndice(List<Segmento> viejos, List<Segmento> nuevos) throws IOException {
+        List<Segmento> todos = new ArrayList<>(segmentos);
+        todos.removeAll(viejos);
+        todos.addAll(nuevos);
+        Path dir = Paths.get(directorio);
+        Path temporal = dir.resolve(INDICE + ".tmp");
+        objectMapper.writeValue(temporal.toFile(), todos);
+        Files.move(temporal, dir.resolve(INDICE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        segmentos = List.copyOf(todos);
+        for (Segmento s : viejos) {
+            Files.deleteIfExists(dir.resolve(s.archivo()));
+        }
+    }
+
+    private static double total(Pedido p) {
+        return p.getTotal() != null ? p.getTotal() : 0;
+    }
+}
@@ -0,0 +1,231 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.diagnostico.ContadorSql;
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.repo.ClienteRepo;
+import com.casuarinas.app.repo.PedidoRepo;
+import com.casuarinas.app.repo.ProductoRepo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * SERVICIO DE BÚSQUEDA FEDERADA - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Un solo cuadro de búsqueda para el panel de administración: el texto se busca a la vez
+ * en productos, clientes y pedidos y los resultados vuelven mezclados y ordenados por
+ * relevancia.
+ *
+ * - Las tres consultas se lanzan juntas: la respuesta tarda lo que la fuente más lenta, no
+ *   la suma. Corren en un pool propio y acotado (casuarinas.buscar.hilos y .cola), no en el
+ *   pool de tareas de Spring: una ráfaga de búsquedas lentas no deja sin hilos a PanelAdmin
+ *   ni a los @Async. Con el pool y la cola llenos la fuente responde "sin hilos" al instante
+ *   en lugar de hacer cola, y la búsqueda sale parcial
+ * - Cada fuente tiene su plazo (casuarinas.buscar.timeout-ms). Si no llega a tiempo la
+ *   respuesta sale igual con las otras fuentes y esa queda marcada como "tiempo agotado"
+ * - Relevancia: coincidencia exacta > al principio del texto > al principio de una palabra
+ *   > en cualquier parte; a igual puntaje, productos, después clientes, después pedidos
+ *
+ * RELACIÓN CON POO:
+ * - Resultado, Fuente y Busqueda: records inmutables con la respuesta
+ * - Cada fuente es una función que convierte sus entidades en Resultado
+ *
+ * RELACIÓN CON SQL:
+ * - SELECT * FROM producto WHERE nombre LIKE '%?%'
+ * - SELECT * FROM cliente WHERE nombre LIKE '%?%' LIMIT ?
+ * - SELECT * FROM pedido WHERE nombre_cliente LIKE '%?%' ORDER BY creado DESC LIMIT ? (en cada fragmento)
+ * - Una consulta que se pasó del plazo no se cancela: termina en su hilo y se descarta
+ */
+@Service
+public class BuscadorFederado {
+
+    /** Largo mínimo del texto: con una sola letra casi todo coincide */
+    public static final int MINIMO = 2;
+
+    /** Un elemento encontrado */
+    public record Resultado(String tipo, Long id, String titulo, String detalle, int puntaje) {}
+
+    /**
+     * Cómo respondió una fuente
+     * @param estado "ok", "tiempo agotado", "sin hilos" (pool de búsqueda lleno) o "error: ..."
+     */
+    public record Fuente(String estado, long ms, int resultados) {}
+
+    /** Respuesta completa; parcial = alguna fuente no respondió */
+    public record Busqueda(String q, boolean parcial, Map<String, Fuente> fuentes, List<Resultado> resultados) {}
+
+    private static final List<String> ORDEN_TIPOS = List.of("producto", "cliente", "pedido");
+
+    @Autowired
+    private ProductoRepo productoRepo;
+
+    @Autowired
+    private ClienteRepo clienteRepo;
+
+    @Autowired
+    private PedidoRepo pedidoRepo;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Value("${casuarinas.buscar.timeout-ms:500}")
+    private long timeoutMs;
+
+    @Value("${casuarinas.buscar.max-por-fuente:20}")
+    private int maxPorFuente;
+
+    @Value("${casuarinas.buscar.hilos:6}")
+    private int hilos;
+
+    @Value("${casuarinas.buscar.cola:30}")
+    private int cola;
+
+    private ThreadPoolExecutor ejecutor;
+
+    @PostConstruct
+    public void iniciar() {
+        AtomicInteger numero = new AtomicInteger();
+        // Sin CallerRunsPolicy: una consulta rechazada correría en el hilo de la petición, sin plazo
+        ejecutor = new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(cola), r -> {
+            Thread t = new Thread(r, "buscar-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        ejecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void detener() {
+        ejecutor.shutdown();
+    }
+
+    public Busqueda buscar(String texto) {
+        String q = texto == null ? "" : texto.strip();
+        if (q.length() < MINIMO) {
+            return new Busqueda(q, false, Map.of(), List.of());
+        }
+        String clave = q.toLowerCase(Locale.ROOT);
+        long t0 = System.nanoTime();
+        // CONSULTAS SQL EN PARALELO - una por fuente, cada una con su conexión y su plazo
+        Map<String, CompletableFuture<Parcial>> pendientes = new LinkedHashMap<>();
+        pendientes.put("productos", fuente(t0,
+            // CONSULTA SQL: SELECT * FROM producto WHERE nombre LIKE '%?%'
+            () -> productoRepo.findByNombreContainingIgnoreCase(q),
+            p -> resultado("producto", p.getId(), p.getNombre(), clave,
+                p.getCategoria() + " - $" + p.getPrecio() + (Boolean.FALSE.equals(p.getActivo()) ? " (inactivo)" : ""))));
+        pendientes.put("clientes", fuente(t0,
+            // CONSULTA SQL: SELECT * FROM cliente WHERE nombre LIKE '%?%' LIMIT ?
+            () -> clienteRepo.findByNombreContainingIgnoreCase(q, PageRequest.of(0, maxPorFuente)),
+            c -> resultado("cliente", c.getId(), c.getNombre(), clave, c.getLocalidad() + " - " + c.getTelefono())));
+        pendientes.put("pedidos", fuente(t0,
+            // CONSULTA SQL: SELECT * FROM pedido WHERE nombre_cliente LIKE '%?%' ORDER BY creado DESC LIMIT ?
+            () -> pedidosRecientesDe(q),
+            p -> resultado("pedido", p.getId(), p.getNombreCliente(), clave,
+                p.getCreado() + " - " + p.getLocalidad() + " - $" + p.getTotal())));
+
+        Map<String, Fuente> fuentes = new LinkedHashMap<>();
+        List<Resultado> resultados = new ArrayList<>();
+        boolean parcial = false;
+        for (Map.Entry<String, CompletableFuture<Parcial>> e : pendientes.entrySet()) {
+            Parcial p = e.getValue().join();
+            fuentes.put(e.getKey(), p.fuente());
+            resultados.addAll(p.resultados());
+            parcial |= !p.fuente().estado().equals("ok");
+        }
+        // Orden estable: dentro de una fuente se respeta su orden (pedidos más recientes primero)
+        resultados.sort(Comparator.comparingInt(Resultado::puntaje).reversed()
+            .thenComparingInt(r -> ORDEN_TIPOS.indexOf(r.tipo())));
+        return new Busqueda(q, parcial, fuentes, resultados);
+    }
+
+    private List<Pedido> pedidosRecientesDe(String q) {
+        List<Pedido> unidos = fragmentos.dispersar(
+            () -> pedidoRepo.findByNombreClienteContainingIgnoreCaseOrderByCreadoDesc(q, PageRequest.of(0, maxPorFuente)),
+            Comparator.comparing(Pedido::getCreado, Comparator.nullsLast(Comparator.reverseOrder())));
+        return unidos.size() > maxPorFuente ? unidos.subList(0, maxPorFuente) : unidos;
+    }
+
+    /** Lo que devolvió una fuente, ya convertido */
+    private record Parcial(Fuente fuente, List<Resultado> resultados) {}
+
+    /**
+     * Lanza la consulta de una fuente en el pool con su plazo; nunca termina con excepción:
+     * un error o un plazo vencido se informan en Fuente.estado
+     */
+    private <T> CompletableFuture<Parcial> fuente(long t0, Supplier<List<T>> consulta, Function<T, Resultado> convertir) {
+        ContadorSql contador = ContadorSql.actual();
+        Supplier<List<Resultado>> tarea = () -> {
+            List<Resultado> convertidos = new ArrayList<>();
+            for (T entidad : consulta.get()) {
+                Resultado r = convertir.apply(entidad);
+                if (r.puntaje() > 0 && convertidos.size() < maxPorFuente) {
+                    convertidos.add(r);
+                }
+            }
+            return convertidos;
+        };
+        CompletableFuture<List<Resultado>> enCurso;
+        try {
+            enCurso = CompletableFuture.supplyAsync(contador != null ? contador.incluir(tarea) : tarea, ejecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(
+                new Parcial(new Fuente("sin hilos", (System.nanoTime() - t0) / 1_000_000, 0), List.of()));
+        }
+        return enCurso
+            .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .handle((resultados, error) -> {
+                long ms = (System.nanoTime() - t0) / 1_000_000;
+                if (error == null) {
+                    return new Parcial(new Fuente("ok", ms, resultados.size()), resultados);
+                }
+                Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                String estado = causa instanceof TimeoutException ? "tiempo agotado" : "error: " + causa.getMessage();
+                return new Parcial(new Fuente(estado, ms, 0), List.of());
+            });
+    }
+
+    private static Resultado resultado(String tipo, Long id, String titulo, String clave, String detalle) {
+        return new Resultado(tipo, id, titulo, detalle, puntaje(titulo, clave));
+    }
+
+    /**
+     * 100 igual, 75 empieza con el texto, 50 una palabra empieza con el texto, 25 lo contiene
+     */
+    static int puntaje(String titulo, String clave) {
+        if (titulo == null) {
+            return 0;
+        }
+        String t = titulo.toLowerCase(Locale.ROOT);
+        if (t.equals(clave)) {
+            return 100;
+        }
+        if (t.startsWith(clave)) {
+            return 75;
+        }
+        int i = t.indexOf(clave);
+        if (i < 0) {
+            return 0;
+        }
+        return Character.isLetterOrDigit(t.charAt(i - 1)) ? 25 : 50;
+    }
+}
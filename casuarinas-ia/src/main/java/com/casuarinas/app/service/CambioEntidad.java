@@ -0,0 +1,22 @@
+package com.casuarinas.app.service;
+
+/**
+ * EVENTO DE CAMBIO DE ENTIDAD - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Se publica (patrón Observer, vía ApplicationEventPublisher) cada vez que se modifica
+ * un Producto, Cliente o Pedido, para que las cachés en memoria se invaliden.
+ * En modo cluster también llegan los cambios hechos por las otras instancias.
+ *
+ * @param entidad nombre de la entidad ("Producto", "Cliente", "Pedido", "Archivo")
+ * @param id id afectado, o null si el cambio abarca varias filas (operaciones masivas)
+ * @param operacion tipo de cambio
+ * @param remoto true si el cambio se originó en otra instancia
+ */
+public record CambioEntidad(String entidad, Long id, Operacion operacion, boolean remoto) {
+
+    public enum Operacion { CREADO, MODIFICADO, ELIMINADO }
+
+    public boolean es(Class<?> tipo) {
+        return tipo.getSimpleName().equals(entidad);
+    }
+}
@@ -0,0 +1,190 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.model.Producto;
+import com.casuarinas.app.repo.ProductoRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SERVICIO DE CONSULTAS DEL CATÁLOGO - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Se interpone entre los endpoints de la tienda y las consultas de lectura de ProductoRepo
+ * (productos activos filtrados por nombre y/o categoría, compilados a un único SELECT con
+ * las especificaciones de ProductoRepo):
+ *
+ * 1. Caché LRU acotada (casuarinas.catalogo.max-entradas) con el resultado de cada
+ *    combinación (nombre, categoría). Cualquier cambio de un Producto la vacía.
+ *    Con casuarinas.catalogo.ttl-segundos mayor que 0 cada entrada además vence: en el
+ *    perfil cluster los cambios de otras instancias llegan por UDP (ClusterInvalidacion) y
+ *    un datagrama perdido dejaría la caché vieja para siempre; el vencimiento acota ese
+ *    desfase al TTL a cambio de un SELECT por combinación y por TTL.
+ * 2. Single-flight: si llegan varias búsquedas idénticas mientras la primera todavía está
+ *    consultando H2, las demás esperan ese mismo resultado en lugar de repetir el SELECT.
+ *
+ * RELACIÓN CON POO:
+ * - Patrón Observer: escucha CambioEntidad (locales y, en modo cluster, remotos)
+ * - Las listas devueltas son inmutables: la misma instancia se comparte entre peticiones
+ *
+ * RELACIÓN CON SQL:
+ * - Un acierto de caché o una búsqueda agrupada no ejecuta ninguna sentencia
+ * - Una consulta que empezó antes de un cambio no guarda su resultado en la caché
+ */
+@Service
+public class CatalogoProductos {
+
+    /** Combinación de filtros; null = sin filtro */
+    private record Clave(String nombre, String categoria) {}
+
+    /** Resultado guardado y el momento (System.nanoTime) en que vence; Long.MAX_VALUE = nunca */
+    private record Entrada(List<Producto> productos, long vence) {}
+
+    @Autowired
+    private ProductoRepo repo;
+
+    @Value("${casuarinas.catalogo.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${casuarinas.catalogo.max-entradas:256}")
+    private int maxEntradas;
+
+    @Value("${casuarinas.catalogo.ttl-segundos:0}")
+    private long ttlSegundos;
+
+    // CACHÉ LRU - LinkedHashMap en orden de acceso; la entrada menos usada se expulsa primero
+    private final LinkedHashMap<Clave, Entrada> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // CONSULTAS EN CURSO - agrupa las búsquedas idénticas concurrentes en un solo SELECT
+    private final ConcurrentHashMap<Clave, CompletableFuture<List<Producto>>> enCurso = new ConcurrentHashMap<>();
+
+    // Aumenta con cada cambio: un resultado leído con una generación anterior no se guarda
+    private long generacion;
+
+    // MÉTRICAS - GET /api/diagnostico/catalogo
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder agrupadas = new LongAdder();
+    private final LongAdder invalidaciones = new LongAdder();
+    private final LongAdder vencidas = new LongAdder();
+
+    /**
+     * Productos activos filtrados por nombre y/o categoría (nulo o vacío = sin ese filtro)
+     */
+    public List<Producto> activos(String nombre, String categoria) {
+        Clave clave = new Clave(nombre == null || nombre.isEmpty() ? null : nombre,
+            categoria == null || categoria.isEmpty() ? null : categoria);
+        // CONSULTA SQL: SELECT * FROM producto WHERE activo = true [AND LOWER(nombre) LIKE ?] [AND categoria IN (?)]
+        return consultar(clave, () -> repo.findAll(Specification.allOf(
+            ProductoRepo.activo(true),
+            ProductoRepo.nombreContiene(clave.nombre()),
+            ProductoRepo.categoriaEn(clave.categoria() == null ? null : List.of(clave.categoria())))));
+    }
+
+    private List<Producto> consultar(Clave clave, Supplier<List<Producto>> consulta) {
+        if (!habilitado) {
+            return consulta.get();
+        }
+        long leida;
+        synchronized (this) {
+            Entrada guardada = cache.get(clave);
+            if (guardada != null && System.nanoTime() - guardada.vence() < 0) {
+                aciertos.increment();
+                return guardada.productos();
+            }
+            if (guardada != null) {
+                cache.remove(clave);
+                vencidas.increment();
+            }
+            leida = generacion;
+        }
+        fallos.increment();
+
+        CompletableFuture<List<Producto>> propio = new CompletableFuture<>();
+        CompletableFuture<List<Producto>> existente = enCurso.putIfAbsent(clave, propio);
+        if (existente != null) {
+            agrupadas.increment();
+            return esperar(existente);
+        }
+
+        try {
+            List<Producto> resultado = List.copyOf(consulta.get());
+            guardar(clave, resultado, leida);
+            propio.complete(resultado);
+            return resultado;
+        } catch (RuntimeException e) {
+            propio.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, propio);
+        }
+    }
+
+    private synchronized void guardar(Clave clave, List<Producto> resultado, long leida) {
+        if (leida != generacion) {
+            return;
+        }
+        long vence = ttlSegundos > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSegundos) : Long.MAX_VALUE;
+        cache.put(clave, new Entrada(resultado, vence));
+        if (cache.size() > maxEntradas) {
+            cache.remove(cache.keySet().iterator().next());
+        }
+    }
+
+    private List<Producto> esperar(CompletableFuture<List<Producto>> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Cualquier alta, cambio o baja de un Producto (también masivo o remoto) vacía la caché.
+     * Las consultas en curso se sueltan: las búsquedas siguientes leen los datos nuevos.
+     */
+    @EventListener
+    public void alCambiar(CambioEntidad cambio) {
+        if (cambio.es(Producto.class)) {
+            synchronized (this) {
+                generacion++;
+                cache.clear();
+            }
+            enCurso.clear();
+            invalidaciones.increment();
+        }
+    }
+
+    public Map<String, Object> getMetricas() {
+        long a = aciertos.sum();
+        long f = fallos.sum();
+        long g = agrupadas.sum();
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("habilitado", habilitado);
+        metricas.put("aciertos", a);
+        metricas.put("fallos", f);
+        metricas.put("agrupadas", g);
+        metricas.put("consultas", f - g);
+        metricas.put("tasaAciertos", a + f == 0 ? 0 : (double) a / (a + f));
+        metricas.put("invalidaciones", invalidaciones.sum());
+        metricas.put("ttlSegundos", ttlSegundos);
+        metricas.put("vencidas", vencidas.sum());
+        synchronized (this) {
+            metricas.put("entradas", cache.size());
+        }
+        return metricas;
+    }
+}
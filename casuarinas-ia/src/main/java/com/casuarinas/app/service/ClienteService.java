@@ -0,0 +1,67 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.model.Cliente;
+import com.casuarinas.app.repo.ClienteRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * SERVICIO DE CLIENTES - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Capa entre ClienteController y ClienteRepo, con las mismas reglas que ProductoService:
+ * consultas en transacciones de solo lectura, cambios en transacciones cortas y el aviso
+ * de cambio después del COMMIT.
+ *
+ * RELACIÓN CON SQL:
+ * - SELECT en transacción read-only; INSERT / UPDATE / DELETE en transacciones cortas
+ */
+@Service
+public class ClienteService {
+
+    @Autowired
+    private ClienteRepo repo;
+
+    @Autowired
+    private Transacciones transacciones;
+
+    @Autowired
+    private NotificadorCambios notificador;
+
+    /** @param localidad null o vacía = todos los clientes */
+    public List<Cliente> listar(String localidad) {
+        if (localidad != null && !localidad.isEmpty()) {
+            // CONSULTA SQL: SELECT * FROM cliente WHERE localidad = ?
+            return transacciones.leer(() -> repo.findByLocalidad(localidad));
+        }
+        // CONSULTA SQL: SELECT * FROM cliente
+        return transacciones.leer(repo::findAll);
+    }
+
+    public Optional<Cliente> buscar(Long id) {
+        // CONSULTA SQL: SELECT * FROM cliente WHERE id = ?
+        return transacciones.leer(() -> repo.findById(id));
+    }
+
+    public Cliente crear(Cliente cliente) {
+        // CONSULTA SQL: INSERT INTO cliente (nombre, telefono, direccion, localidad) VALUES (?, ?, ?, ?)
+        Cliente creado = transacciones.escribir(() -> repo.save(cliente));
+        notificador.creado(Cliente.class, creado.getId());
+        return creado;
+    }
+
+    public Cliente actualizar(Long id, Cliente cliente) {
+        cliente.setId(id);
+        // CONSULTA SQL: UPDATE cliente SET nombre = ?, telefono = ?, direccion = ?, localidad = ? WHERE id = ?
+        Cliente actualizado = transacciones.escribir(() -> repo.save(cliente));
+        notificador.modificado(Cliente.class, id);
+        return actualizado;
+    }
+
+    public void eliminar(Long id) {
+        // CONSULTA SQL: DELETE FROM cliente WHERE id = ?
+        transacciones.escribir(() -> repo.deleteById(id));
+        notificador.eliminado(Cliente.class, id);
+    }
+}
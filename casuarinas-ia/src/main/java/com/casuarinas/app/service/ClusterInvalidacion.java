@@ -0,0 +1,125 @@
+package com.casuarinas.app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * COMPONENTE DE INVALIDACIÓN ENTRE INSTANCIAS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Solo se activa con casuarinas.cluster.habilitado=true (perfil "cluster").
+ * Reenvía cada CambioEntidad local a las demás instancias por datagramas UDP y
+ * republica como eventos remotos los que llegan de ellas.
+ *
+ * Formato del mensaje (texto): nodo|entidad|id|operacion
+ *
+ * RELACIÓN CON SQL:
+ * - No ejecuta SQL: las instancias comparten la base H2 en modo AUTO_SERVER y
+ *   este componente solo mantiene coherentes las cachés en memoria de cada una
+ */
+@Component
+@ConditionalOnProperty(name = "casuarinas.cluster.habilitado", havingValue = "true")
+public class ClusterInvalidacion {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterInvalidacion.class);
+
+    private final String nodo = UUID.randomUUID().toString();
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Value("${casuarinas.cluster.host:127.0.0.1}")
+    private String host;
+
+    @Value("${casuarinas.cluster.puerto}")
+    private int puerto;
+
+    @Value("${casuarinas.cluster.pares}")
+    private List<String> pares;
+
+    private final List<InetSocketAddress> destinos = new ArrayList<>();
+    private DatagramSocket socket;
+    private Thread receptor;
+
+    @PostConstruct
+    public void iniciar() throws SocketException {
+        socket = new DatagramSocket(new InetSocketAddress(host, puerto));
+        for (String par : pares) {
+            String[] partes = par.trim().split(":");
+            int puertoPar = Integer.parseInt(partes[1]);
+            if (puertoPar != puerto || !partes[0].equals(host)) {
+                destinos.add(new InetSocketAddress(partes[0], puertoPar));
+            }
+        }
+        receptor = new Thread(this::recibir, "cluster-invalidacion");
+        receptor.setDaemon(true);
+        receptor.start();
+        log.info("Invalidación de cluster escuchando en {}:{}, pares {}", host, puerto, destinos);
+    }
+
+    @PreDestroy
+    public void detener() {
+        socket.close();
+    }
+
+    /**
+     * Difunde a las demás instancias los cambios hechos en esta
+     */
+    @EventListener
+    public void difundir(CambioEntidad cambio) {
+        if (cambio.remoto()) {
+            return;
+        }
+        String mensaje = nodo + "|" + cambio.entidad() + "|" + (cambio.id() != null ? cambio.id() : "")
+            + "|" + cambio.operacion();
+        byte[] datos = mensaje.getBytes(StandardCharsets.UTF_8);
+        for (InetSocketAddress destino : destinos) {
+            try {
+                socket.send(new DatagramPacket(datos, datos.length, destino));
+            } catch (IOException e) {
+                // Un par caído no debe afectar la petición que originó el cambio
+                log.debug("No se pudo notificar a {}: {}", destino, e.getMessage());
+            }
+        }
+    }
+
+    private void recibir() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket paquete = new DatagramPacket(buffer, buffer.length);
+                socket.receive(paquete);
+                String[] partes = new String(paquete.getData(), 0, paquete.getLength(), StandardCharsets.UTF_8)
+                    .split("\\|", -1);
+                if (partes.length != 4 || partes[0].equals(nodo)) {
+                    continue;
+                }
+                Long id = partes[2].isEmpty() ? null : Long.valueOf(partes[2]);
+                publisher.publishEvent(new CambioEntidad(partes[1], id,
+                    CambioEntidad.Operacion.valueOf(partes[3]), true));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.warn("Error recibiendo invalidación de cluster", e);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Invalidación de cluster descartada", e);
+            }
+        }
+    }
+}
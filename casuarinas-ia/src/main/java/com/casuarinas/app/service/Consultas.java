@@ -0,0 +1,57 @@
+package com.casuarinas.app.service;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.Set;
+
+/**
+ * ORDEN Y LÍMITE DE LAS CONSULTAS COMPONIBLES - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Traduce ordenarPor / direccion / limite de ConsultaPedidos y ConsultaProductos a un Sort
+ * y un tope validados. Solo se ordena por los campos que cada servicio declara (y que
+ * tienen índice o son pocos): un campo desconocido es un 400, no un ORDER BY arbitrario.
+ *
+ * RELACIÓN CON SQL:
+ * - El Sort se agrega como ORDER BY campo, id: el id desempata, así dos consultas iguales
+ *   devuelven las mismas filas y en el mismo orden al cortar con LIMIT
+ */
+final class Consultas {
+
+    private Consultas() {}
+
+    /**
+     * @param campo nulo o vacío = campoPorDefecto
+     * @param direccion asc o desc; nulo o vacío = porDefecto
+     * @throws ResponseStatusException 400 si el campo o la dirección no se admiten
+     */
+    static Sort orden(String campo, String direccion, Set<String> permitidos, String campoPorDefecto,
+                      Sort.Direction porDefecto) {
+        String propiedad = campo == null || campo.isEmpty() ? campoPorDefecto : campo;
+        if (!permitidos.contains(propiedad)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "No se puede ordenar por '" + propiedad + "'; campos admitidos: " + permitidos);
+        }
+        Sort.Direction sentido = porDefecto;
+        if (direccion != null && !direccion.isEmpty()) {
+            sentido = Sort.Direction.fromOptionalString(direccion).orElseThrow(() -> new ResponseStatusException(
+                HttpStatus.BAD_REQUEST, "Dirección '" + direccion + "' desconocida; se admite asc o desc"));
+        }
+        Sort orden = Sort.by(sentido, propiedad);
+        return propiedad.equals("id") ? orden : orden.and(Sort.by(sentido, "id"));
+    }
+
+    /**
+     * @param pedido nulo = porDefecto; mayor que maximo = maximo
+     * @throws ResponseStatusException 400 si es cero o negativo
+     */
+    static int limite(Integer pedido, int porDefecto, int maximo) {
+        if (pedido == null) {
+            return Math.min(porDefecto, maximo);
+        }
+        if (pedido <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El límite debe ser mayor que cero");
+        }
+        return Math.min(pedido, maximo);
+    }
+}
@@ -0,0 +1,184 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import com.casuarinas.app.model.IdempotenciaPedido;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.repo.IdempotenciaRepo;
+import com.casuarinas.app.repo.PedidoRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * SERVICIO DE IDEMPOTENCIA DE PEDIDOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Evita pedidos duplicados cuando el cliente reintenta POST /api/pedidos con la
+ * misma cabecera Idempotency-Key.
+ *
+ * RELACIÓN CON POO:
+ * - Encapsulación: la caché acotada y los pedidos en curso son privados
+ * - Las peticiones concurrentes con la misma clave comparten un único CompletableFuture,
+ *   por lo que solo una de ellas ejecuta el INSERT
+ *
+ * RELACIÓN CON SQL:
+ * - Un reintento resuelto en memoria no ejecuta ninguna consulta SQL
+ * - Si la clave no está en memoria se consulta la tabla idempotencia_pedido
+ * - El pedido y su clave se insertan en la misma transacción SQL
+ * - La PRIMARY KEY de la clave resuelve las carreras entre instancias
+ */
+@Service
+public class IdempotenciaService {
+
+    @Autowired
+    private PedidoRepo pedidoRepo;
+
+    @Autowired
+    private IdempotenciaRepo idempotenciaRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Value("${casuarinas.idempotencia.max-entradas:10000}")
+    private int maxEntradas;
+
+    @Value("${casuarinas.idempotencia.ttl-minutos:60}")
+    private long ttlMinutos;
+
+    @Value("${casuarinas.idempotencia.retencion-horas:24}")
+    private long retencionHoras;
+
+    // CACHÉ ACOTADA EN ORDEN DE INSERCIÓN - la entrada más antigua se expulsa primero
+    private final LinkedHashMap<String, Entrada> cache = new LinkedHashMap<>();
+
+    // PEDIDOS EN CURSO - agrupa los duplicados concurrentes en una sola escritura
+    private final ConcurrentHashMap<String, CompletableFuture<Pedido>> enCurso = new ConcurrentHashMap<>();
+
+    private record Entrada(Pedido pedido, long venceEn) {}
+
+    /**
+     * Devuelve el pedido ya creado para la clave, o ejecuta la creación una única vez.
+     * @param clave valor de la cabecera Idempotency-Key
+     * @param creacion inserta el pedido; solo se invoca si la clave es nueva
+     * @throws ResponseStatusException 400 si la clave no entra en la columna clave
+     */
+    public Pedido ejecutar(String clave, Supplier<Pedido> creacion) {
+        validar(clave);
+        Pedido previo = buscarEnCache(clave);
+        if (previo != null) {
+            return previo;
+        }
+
+        CompletableFuture<Pedido> propio = new CompletableFuture<>();
+        CompletableFuture<Pedido> existente = enCurso.putIfAbsent(clave, propio);
+        if (existente != null) {
+            return esperar(existente);
+        }
+
+        try {
+            Pedido resultado = resolver(clave, creacion);
+            guardarEnCache(clave, resultado);
+            propio.complete(resultado);
+            return resultado;
+        } catch (RuntimeException e) {
+            propio.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, propio);
+        }
+    }
+
+    /** Una clave más larga que la columna haría fallar el INSERT con un 500 */
+    private static void validar(String clave) {
+        if (clave.length() > IdempotenciaPedido.LARGO_CLAVE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Idempotency-Key admite como máximo " + IdempotenciaPedido.LARGO_CLAVE + " caracteres");
+        }
+    }
+
+    private Pedido resolver(String clave, Supplier<Pedido> creacion) {
+        Optional<Pedido> persistido = buscarPersistido(clave);
+        if (persistido.isPresent()) {
+            return persistido.get();
+        }
+        try {
+            // CONSULTAS SQL: INSERT INTO pedido ... ; INSERT INTO idempotencia_pedido ... (misma transacción)
+            return transactionTemplate.execute(status -> {
+                Pedido creado = creacion.get();
+                idempotenciaRepo.save(new IdempotenciaPedido(clave, creado.getId(), LocalDateTime.now()));
+                return creado;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia registró la misma clave entre la consulta y el INSERT
+            return buscarPersistido(clave).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<Pedido> buscarPersistido(String clave) {
+        // CONSULTAS SQL: SELECT * FROM idempotencia_pedido WHERE clave = ?; SELECT * FROM pedido WHERE id = ?
+        return idempotenciaRepo.findById(clave)
+            .flatMap(registro -> pedidoRepo.findById(registro.getPedidoId()));
+    }
+
+    private Pedido esperar(CompletableFuture<Pedido> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized Pedido buscarEnCache(String clave) {
+        Entrada entrada = cache.get(clave);
+        if (entrada == null) {
+            return null;
+        }
+        if (entrada.venceEn() < System.currentTimeMillis()) {
+            cache.remove(clave);
+            return null;
+        }
+        return entrada.pedido();
+    }
+
+    private synchronized void guardarEnCache(String clave, Pedido pedido) {
+        cache.put(clave, new Entrada(pedido, System.currentTimeMillis() + ttlMinutos * 60_000L));
+        Iterator<Map.Entry<String, Entrada>> it = cache.entrySet().iterator();
+        while (cache.size() > maxEntradas && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * TAREA PROGRAMADA - expulsa las entradas vencidas de memoria y de la tabla de respaldo
+     */
+    @Scheduled(fixedDelayString = "${casuarinas.idempotencia.limpieza-ms:600000}")
+    public void limpiar() {
+        long ahora = System.currentTimeMillis();
+        synchronized (this) {
+            cache.values().removeIf(entrada -> entrada.venceEn() < ahora);
+        }
+        // CONSULTA SQL: DELETE FROM idempotencia_pedido WHERE creado < ? (en cada fragmento)
+        LocalDateTime limite = LocalDateTime.now().minusHours(retencionHoras);
+        fragmentos.sumar(() -> idempotenciaRepo.borrarAnterioresA(limite));
+    }
+}
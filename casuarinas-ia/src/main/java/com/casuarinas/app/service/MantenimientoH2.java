@@ -0,0 +1,323 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.diagnostico.LatenciaPeticiones;
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import org.h2.engine.Database;
+import org.h2.mvstore.FileStore;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.RandomAccessStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SERVICIO DE MANTENIMIENTO DEL ARCHIVO H2 - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Con altas, cambios y bajas constantes de pedidos el MVStore deja chunks a medio usar y
+ * huecos libres en el archivo .mv.db: el archivo crece y las lecturas y los respaldos se
+ * vuelven más lentos. Esta tarea de fondo:
+ *
+ * 1. Mide el relleno del archivo (espacio ocupado / tamaño) y el de los chunks (datos
+ *    vivos / espacio de los chunks)
+ * 2. Si alguno está por debajo de casuarinas.mantenimiento.relleno-objetivo, compacta de a
+ *    pasos: reescribe los datos vivos de los chunks más vacíos (MVStore.compact) y mueve
+ *    chunks del final del archivo a los huecos del principio para que se pueda truncar
+ *    (RandomAccessStore.compactMoveChunks)
+ * 3. Actualiza las estadísticas de las tablas para el optimizador (ANALYZE)
+ *
+ * Presupuesto y convivencia con los clientes:
+ * - Cada ejecución escribe como máximo casuarinas.mantenimiento.mb-por-ejecucion, en pasos
+ *   de mb-por-paso, a no más de mb-por-segundo
+ * - Solo empieza y solo sigue mientras el tráfico reciente (LatenciaPeticiones) está por
+ *   debajo de max-peticiones-por-segundo y max-latencia-ms; si no, cede y sigue en la
+ *   próxima ejecución
+ * - Nunca corre a la vez que RespaldoH2: mover chunks cambia bytes que el respaldo copia
+ *
+ * H2 también compacta solo cuando está ocioso; esta tarea lo hace con presupuesto, de forma
+ * medible y en los momentos tranquilos de la tienda.
+ *
+ * RELACIÓN CON POO:
+ * - Estado y Ejecucion: records inmutables con las métricas (GET /api/diagnostico/almacenamiento)
+ * - Encapsulación: el acceso al MVStore interno de H2 queda en esta clase y en RespaldoH2
+ *
+ * RELACIÓN CON SQL:
+ * - ANALYZE: recalcula la selectividad de las columnas de todas las tablas
+ * - En modo fragmentado mantiene también cada base de fragmento
+ * - Las bases en memoria no tienen archivo: se omiten
+ * - Con AUTO_SERVER (perfil cluster) solo mantiene la instancia que tiene abierto el archivo
+ */
+@Service
+public class MantenimientoH2 {
+
+    private static final Logger log = LoggerFactory.getLogger(MantenimientoH2.class);
+
+    /** Medición del archivo de una base */
+    public record Estado(String base, String archivo, long tamano, int relleno, int rellenoChunks) {}
+
+    /**
+     * Resultado de una ejecución sobre una base
+     * @param fin "completa", "presupuesto", "sin avance" o el motivo por el que cedió
+     */
+    public record Ejecucion(String base, LocalDateTime fecha, Estado antes, Estado despues, int pasos,
+                            long bytesPresupuestados, long duracionMs, boolean analizada, String fin) {}
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Autowired
+    private LatenciaPeticiones latencias;
+
+    @Autowired
+    private RespaldoH2 respaldo;
+
+    @Value("${casuarinas.mantenimiento.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${casuarinas.mantenimiento.relleno-objetivo:80}")
+    private int rellenoObjetivo;
+
+    @Value("${casuarinas.mantenimiento.mb-por-ejecucion:64}")
+    private int mbPorEjecucion;
+
+    @Value("${casuarinas.mantenimiento.mb-por-paso:4}")
+    private int mbPorPaso;
+
+    @Value("${casuarinas.mantenimiento.mb-por-segundo:8}")
+    private double mbPorSegundo;
+
+    @Value("${casuarinas.mantenimiento.max-peticiones-por-segundo:20}")
+    private double maxPeticionesPorSegundo;
+
+    @Value("${casuarinas.mantenimiento.max-latencia-ms:50}")
+    private double maxLatenciaMs;
+
+    @Value("${casuarinas.mantenimiento.analizar-cada-minutos:60}")
+    private long analizarCadaMinutos;
+
+    // ÚLTIMAS EJECUCIONES - la más reciente primero
+    private final LinkedList<Ejecucion> historial = new LinkedList<>();
+
+    private volatile long ultimoAnalisis;
+
+    // Una pasada de mantenimiento a la vez (ReentrantLock: se sostiene mientras se escribe el archivo)
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    /**
+     * TAREA PROGRAMADA - espera un momento tranquilo; si no lo hay, no hace nada
+     */
+    @Scheduled(fixedDelayString = "${casuarinas.mantenimiento.intervalo-ms:60000}",
+               initialDelayString = "${casuarinas.mantenimiento.intervalo-ms:60000}")
+    public void mantenerProgramado() {
+        if (habilitado && motivoParaCeder() == null) {
+            mantener();
+        }
+    }
+
+    /**
+     * Mantiene todas las bases persistentes (también cede si sube el tráfico)
+     * @return lo hecho en cada base
+     */
+    public List<Ejecucion> mantener() {
+        cerrojo.lock();
+        try {
+            return mantenerTodas();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private List<Ejecucion> mantenerTodas() {
+        long ahora = System.currentTimeMillis();
+        boolean analizar = ahora - ultimoAnalisis >= TimeUnit.MINUTES.toMillis(analizarCadaMinutos);
+        List<Ejecucion> hechas = new ArrayList<>();
+        mantenerBase(analizar).ifPresent(hechas::add);
+        if (fragmentos.habilitado()) {
+            for (int n = 0; n < fragmentos.cantidad(); n++) {
+                fragmentos.en(n, () -> mantenerBase(analizar)).ifPresent(hechas::add);
+            }
+        }
+        if (hechas.stream().anyMatch(Ejecucion::analizada)) {
+            ultimoAnalisis = ahora;
+        }
+        synchronized (historial) {
+            for (Ejecucion e : hechas) {
+                historial.addFirst(e);
+            }
+            while (historial.size() > 50) {
+                historial.removeLast();
+            }
+        }
+        return hechas;
+    }
+
+    /** Estado actual del archivo de cada base persistente */
+    public List<Estado> getEstados() {
+        List<Estado> estados = new ArrayList<>();
+        conStore((db, store) -> estado(db, store)).ifPresent(estados::add);
+        if (fragmentos.habilitado()) {
+            for (int n = 0; n < fragmentos.cantidad(); n++) {
+                fragmentos.en(n, () -> conStore((db, store) -> estado(db, store))).ifPresent(estados::add);
+            }
+        }
+        return estados;
+    }
+
+    public List<Ejecucion> getHistorial() {
+        synchronized (historial) {
+            return new ArrayList<>(historial);
+        }
+    }
+
+    /**
+     * Mantiene la base a la que apunta el DataSource en este hilo (principal o fragmento)
+     */
+    private Optional<Ejecucion> mantenerBase(boolean analizar) {
+        return conStore((db, store) -> {
+            long t0 = System.nanoTime();
+            Estado antes = estado(db, store);
+            long presupuesto = (long) mbPorEjecucion * 1048576;
+            int paso = mbPorPaso * 1048576;
+            long escrito = 0;
+            int pasos = 0;
+            String fin = "completa";
+            while (fragmentada(store)) {
+                if (escrito >= presupuesto) {
+                    fin = "presupuesto";
+                    break;
+                }
+                String motivo = motivoParaCeder();
+                if (motivo != null) {
+                    fin = motivo;
+                    break;
+                }
+                long p0 = System.nanoTime();
+                if (!respaldo.sinRespaldo(() -> compactarPaso(store, paso))) {
+                    // Los chunks liberados recién se reutilizan pasado el tiempo de retención del MVStore
+                    fin = "sin avance";
+                    break;
+                }
+                pasos++;
+                escrito += paso;
+                esperarCaudal(paso, System.nanoTime() - p0);
+            }
+            boolean analizada = analizar && motivoParaCeder() == null && analizar(db);
+            Estado despues = estado(db, store);
+            Ejecucion e = new Ejecucion(antes.base(), LocalDateTime.now(), antes, despues, pasos, escrito,
+                (System.nanoTime() - t0) / 1_000_000, analizada, fin);
+            if (pasos > 0) {
+                log.info("Mantenimiento de {}: {} pasos, {} KB -> {} KB, relleno {}% -> {}%, chunks {}% -> {}% ({})",
+                    e.base(), pasos, antes.tamano() / 1024, despues.tamano() / 1024, antes.relleno(),
+                    despues.relleno(), antes.rellenoChunks(), despues.rellenoChunks(), fin);
+            }
+            return e;
+        });
+    }
+
+    private boolean fragmentada(MVStore store) {
+        return store.getFillRate() < rellenoObjetivo || store.getFileStore().getChunksFillRate() < rellenoObjetivo;
+    }
+
+    /**
+     * Un paso: reescribe hasta "bytes" de datos vivos de los chunks más vacíos y después
+     * mueve hasta "bytes" de chunks del final del archivo hacia los huecos del principio.
+     * @return false si no había nada para hacer
+     */
+    private boolean compactarPaso(MVStore store, int bytes) {
+        FileStore<?> archivo = store.getFileStore();
+        long tamano = archivo.size();
+        int relleno = store.getFillRate();
+        boolean reescribio = store.compact(rellenoObjetivo, bytes);
+        store.commit();
+        if (archivo instanceof RandomAccessStore accesoAleatorio) {
+            accesoAleatorio.compactMoveChunks(rellenoObjetivo, bytes, store);
+        }
+        return reescribio || archivo.size() != tamano || store.getFillRate() != relleno;
+    }
+
+    /** null si se puede seguir; si no, el motivo para ceder */
+    private String motivoParaCeder() {
+        if (respaldo.isEnCurso()) {
+            return "respaldo en curso";
+        }
+        LatenciaPeticiones.Reciente reciente = latencias.getReciente();
+        if (reciente.peticionesPorSegundo() > maxPeticionesPorSegundo) {
+            return String.format("tráfico %.1f pet/s", reciente.peticionesPorSegundo());
+        }
+        if (reciente.promedioMs() > maxLatenciaMs) {
+            return String.format("latencia %.1f ms", reciente.promedioMs());
+        }
+        return null;
+    }
+
+    /** Duerme lo necesario para no superar casuarinas.mantenimiento.mb-por-segundo */
+    private void esperarCaudal(long bytes, long nanosUsados) {
+        if (mbPorSegundo <= 0) {
+            return;
+        }
+        long espera = (long) (bytes / (mbPorSegundo * 1048576) * 1e9) - nanosUsados;
+        if (espera > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(espera);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean analizar(Database db) {
+        try (Connection c = dataSource.getConnection(); Statement st = c.createStatement()) {
+            // CONSULTA SQL: ANALYZE - recalcula la selectividad de las columnas (muestra de 10000 filas por tabla)
+            st.execute("ANALYZE");
+        } catch (SQLException e) {
+            log.warn("ANALYZE falló en {}: {}", db.getShortName(), e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private static Estado estado(Database db, MVStore store) {
+        FileStore<?> archivo = store.getFileStore();
+        return new Estado(db.getShortName().toLowerCase(), archivo.getFileName(), archivo.size(),
+            store.getFillRate(), archivo.getChunksFillRate());
+    }
+
+    @FunctionalInterface
+    private interface OperacionStore<T> {
+        T aplicar(Database db, MVStore store);
+    }
+
+    /**
+     * Ejecuta la operación con el MVStore de la base a la que apunta el DataSource en este
+     * hilo; vacío si es una base en memoria o si el archivo lo tiene abierto otra instancia
+     */
+    private <T> Optional<T> conStore(OperacionStore<T> operacion) {
+        Database db;
+        try (Connection c = dataSource.getConnection()) {
+            // Con AUTO_SERVER solo la instancia dueña del archivo tiene el MVStore (ver RespaldoH2.baseLocal)
+            db = RespaldoH2.baseLocal(c).orElse(null);
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo abrir la base: " + e.getMessage(), e);
+        }
+        if (db == null || !db.isPersistent() || db.getStore() == null || db.getStore().getMvStore().getFileStore() == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(operacion.aplicar(db, db.getStore().getMvStore()));
+    }
+}
@@ -0,0 +1,34 @@
+package com.casuarinas.app.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+/**
+ * SERVICIO NOTIFICADOR DE CAMBIOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Punto único por el que los controladores avisan que modificaron datos.
+ * Publica un CambioEntidad local; ClusterInvalidacion lo reenvía a las demás instancias.
+ */
+@Service
+public class NotificadorCambios {
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    public void creado(Class<?> tipo, Long id) {
+        publicar(tipo.getSimpleName(), id, CambioEntidad.Operacion.CREADO);
+    }
+
+    public void modificado(Class<?> tipo, Long id) {
+        publicar(tipo.getSimpleName(), id, CambioEntidad.Operacion.MODIFICADO);
+    }
+
+    public void eliminado(Class<?> tipo, Long id) {
+        publicar(tipo.getSimpleName(), id, CambioEntidad.Operacion.ELIMINADO);
+    }
+
+    public void publicar(String entidad, Long id, CambioEntidad.Operacion operacion) {
+        publisher.publishEvent(new CambioEntidad(entidad, id, operacion, false));
+    }
+}
@@ -0,0 +1,102 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.diagnostico.ContadorSql;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.model.Producto;
+import com.casuarinas.app.repo.PedidoRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * SERVICIO DEL PANEL DE ADMINISTRACIÓN - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Arma en el servidor todo lo que admin.html necesita al abrirse, en una sola respuesta:
+ * catálogo completo, primera página de pedidos recientes y ventas del día por localidad.
+ *
+ * RELACIÓN CON POO:
+ * - Las tres consultas son independientes: se lanzan a la vez (CompletableFuture) en el
+ *   pool de tareas de Spring y el resultado se compone al llegar la última
+ * - Pide los datos a ProductoService y PedidoService, que eligen el fragmento y abren la
+ *   transacción de solo lectura, igual que para el resto de la API
+ * - Tablero: record inmutable con la respuesta completa
+ *
+ * RELACIÓN CON SQL:
+ * - SELECT * FROM producto
+ * - SELECT * FROM pedido ORDER BY creado DESC LIMIT ?
+ * - SELECT localidad, COUNT(*), SUM(total) FROM pedido WHERE creado >= hoy GROUP BY localidad
+ * - Cada consulta corre en su propio hilo y por lo tanto en su propia conexión del pool
+ */
+@Service
+public class PanelAdmin {
+
+    /** Máximo de pedidos recientes que se pueden pedir en una página */
+    public static final int PEDIDOS_MAXIMO = 500;
+
+    /** Ventas del día en una localidad */
+    public record Localidad(String localidad, long pedidos, double total) {}
+
+    /** Totales del día */
+    public record Hoy(LocalDate fecha, long pedidos, double total, List<Localidad> localidades) {}
+
+    /** Respuesta completa del panel */
+    public record Tablero(List<Producto> productos, List<Pedido> pedidosRecientes, Hoy hoy) {}
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor ejecutor;
+
+    public Tablero armar(int cantidadPedidos) {
+        int n = Math.max(1, Math.min(cantidadPedidos, PEDIDOS_MAXIMO));
+        LocalDate hoy = LocalDate.now();
+        // CONSULTAS SQL EN PARALELO - una por hilo, cada una con su conexión
+        CompletableFuture<List<Producto>> productos = enParalelo(productoService::todos);
+        CompletableFuture<List<Pedido>> recientes = enParalelo(() -> pedidoService.recientes(n));
+        CompletableFuture<Hoy> ventas = enParalelo(() -> ventasDe(hoy));
+        try {
+            return new Tablero(productos.join(), recientes.join(), ventas.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private Hoy ventasDe(LocalDate dia) {
+        // CONSULTA SQL: SELECT localidad, COUNT(*), SUM(total) ... GROUP BY localidad (en cada fragmento)
+        Map<String, Localidad> porLocalidad = new TreeMap<>();
+        for (PedidoRepo.VentasLocalidad fila : pedidoService.ventasPorLocalidad(dia.atStartOfDay())) {
+            String nombre = fila.getLocalidad() != null ? fila.getLocalidad() : "";
+            porLocalidad.merge(nombre, new Localidad(nombre, fila.getCantidad(), fila.getTotal()),
+                (a, b) -> new Localidad(nombre, a.pedidos() + b.pedidos(), a.total() + b.total()));
+        }
+        List<Localidad> localidades = new ArrayList<>(porLocalidad.values());
+        localidades.sort(Comparator.comparingLong(Localidad::pedidos).reversed());
+        long pedidos = localidades.stream().mapToLong(Localidad::pedidos).sum();
+        double total = Math.round(localidades.stream().mapToDouble(Localidad::total).sum() * 100) / 100.0;
+        return new Hoy(dia, pedidos, total, localidades);
+    }
+
+    /** Lanza la consulta en el pool; sus sentencias se suman al contador SQL de la petición */
+    private <T> CompletableFuture<T> enParalelo(Supplier<T> consulta) {
+        ContadorSql contador = ContadorSql.actual();
+        return CompletableFuture.supplyAsync(contador != null ? contador.incluir(consulta) : consulta, ejecutor);
+    }
+}
@@ -0,0 +1,304 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.repo.PedidoRepo;
+import com.casuarinas.app.web.ConsultaPedidos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * SERVICIO DE PEDIDOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Capa entre PedidoController y PedidoRepo. Decide el fragmento de cada operación
+ * (FragmentosPedidos) y, ya dentro de él, abre la transacción (Transacciones): de solo
+ * lectura para las consultas, de escritura solo alrededor del INSERT / UPDATE / DELETE.
+ * En una consulta dispersa cada fragmento tiene su propia transacción, en su hilo.
+ *
+ * - Checkout: con Idempotency-Key el pedido y su clave se insertan en la misma
+ *   transacción (IdempotenciaService); el ranking, la analítica y el aviso de cambio se
+ *   registran recién después del COMMIT (Transacciones.despuesDelCommit)
+ * - Todas las búsquedas (listado, fecha, total y POST /api/pedidos/consulta) componen las
+ *   especificaciones de PedidoRepo en un único SELECT por fragmento
+ * - Las búsquedas por fecha y total y las consultas componibles suman los segmentos
+ *   archivados (ArchivoPedidos) fuera de toda transacción: se leen de disco
+ *
+ * RELACIÓN CON POO:
+ * - Separación de responsabilidades: el controlador solo traduce HTTP
+ *
+ * RELACIÓN CON SQL:
+ * - SELECT en transacción read-only en cada fragmento; INSERT / UPDATE / DELETE en
+ *   transacciones cortas en el fragmento del pedido
+ * - Una consulta componible es SELECT ... WHERE (filtros) ORDER BY campo, id LIMIT n en cada
+ *   fragmento: H2 corta en n filas y la unión de los fragmentos se vuelve a cortar en n
+ */
+@Service
+public class PedidoService {
+
+    private static final Comparator<Pedido> POR_ID = Comparator.comparing(Pedido::getId);
+
+    private static final Sort ORDEN_ID = Sort.by("id");
+
+    // CAMPOS ORDENABLES - el mismo orden que el ORDER BY, para intercalar fragmentos y archivo
+    private static final Map<String, Comparator<Pedido>> ORDENABLES = Map.of(
+        "creado", comparando(Pedido::getCreado),
+        "total", comparando(Pedido::getTotal),
+        "id", POR_ID,
+        "nombreCliente", comparando(Pedido::getNombreCliente),
+        "localidad", comparando(Pedido::getLocalidad));
+
+    @Autowired
+    private PedidoRepo repo;
+
+    @Autowired
+    private Transacciones transacciones;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Autowired
+    private IdempotenciaService idempotencia;
+
+    @Autowired
+    private RankingVentas ranking;
+
+    @Autowired
+    private AnaliticaPedidos analitica;
+
+    @Autowired
+    private ArchivoPedidos archivo;
+
+    @Autowired
+    private NotificadorCambios notificador;
+
+    @Value("${casuarinas.consulta.limite:100}")
+    private int limitePorDefecto;
+
+    @Value("${casuarinas.consulta.max-limite:1000}")
+    private int maxLimite;
+
+    /** Nulos primero, como ordena H2 de forma ascendente */
+    private static <U extends Comparable<? super U>> Comparator<Pedido> comparando(Function<Pedido, U> campo) {
+        return Comparator.comparing(campo, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    /** La consulta envuelta en una transacción de solo lectura, para correr en cada fragmento */
+    private <T> Supplier<T> lectura(Supplier<T> consulta) {
+        return () -> transacciones.leer(consulta);
+    }
+
+    /** Filtros opcionales; con localidad solo se consulta el fragmento de esa localidad */
+    public List<Pedido> listar(String nombreCliente, String localidad) {
+        ConsultaPedidos consulta = new ConsultaPedidos();
+        consulta.setCliente(nombreCliente);
+        consulta.setLocalidades(localidad == null || localidad.isEmpty() ? null : List.of(localidad));
+        // CONSULTA SQL: SELECT * FROM pedido [WHERE LOWER(nombre_cliente) LIKE ? AND localidad IN (?)] ORDER BY id
+        return ejecutar(consulta, ORDEN_ID, null, false);
+    }
+
+    /**
+     * POST /api/pedidos/consulta: filtros componibles, orden y límite
+     * (casuarinas.consulta.limite por defecto, nunca más de casuarinas.consulta.max-limite)
+     */
+    public List<Pedido> consultar(ConsultaPedidos consulta) {
+        Sort orden = Consultas.orden(consulta.getOrdenarPor(), consulta.getDireccion(), ORDENABLES.keySet(),
+            "creado", Sort.Direction.DESC);
+        // CONSULTA SQL: SELECT * FROM pedido WHERE ... ORDER BY ?, id LIMIT ?
+        return ejecutar(consulta, orden, Consultas.limite(consulta.getLimite(), limitePorDefecto, maxLimite), true);
+    }
+
+    public Optional<Pedido> buscar(Long id) {
+        // CONSULTA SQL: SELECT * FROM pedido WHERE id = ? (solo en el fragmento del id)
+        return fragmentos.porId(id, lectura(() -> repo.findById(id)));
+    }
+
+    /**
+     * Guarda un pedido nuevo. Un reintento con la misma clave de idempotencia devuelve el
+     * pedido original sin otro INSERT
+     */
+    public Pedido crear(Pedido pedido, String claveIdempotencia) {
+        if (pedido.getCreado() == null) {
+            pedido.setCreado(LocalDateTime.now());
+        }
+        if (claveIdempotencia == null || claveIdempotencia.isBlank()) {
+            return guardarNuevo(pedido);
+        }
+        // La clave se registra en el mismo fragmento (y la misma transacción) que el pedido
+        return fragmentos.enFragmentoDe(pedido,
+            () -> idempotencia.ejecutar(claveIdempotencia, () -> guardarNuevo(pedido)));
+    }
+
+    private Pedido guardarNuevo(Pedido pedido) {
+        // CONSULTA SQL: INSERT INTO pedido (...) VALUES (...)
+        Pedido creado = fragmentos.enFragmentoDe(pedido, () -> transacciones.escribir(() -> repo.save(pedido)));
+        // Con Idempotency-Key todavía falta el INSERT de la clave y el COMMIT (IdempotenciaService):
+        // si otra petición gana la carrera por la clave, este pedido se revierte y no se cuenta
+        transacciones.despuesDelCommit(() -> {
+            ranking.registrar(creado);
+            analitica.registrar(creado);
+            notificador.creado(Pedido.class, creado.getId());
+        });
+        return creado;
+    }
+
+    /**
+     * @throws ResponseStatusException 400 si la nueva localidad corresponde a otro fragmento:
+     *         el id indica el fragmento del pedido, así que la fila no puede mudarse sin cambiar de id
+     */
+    public Pedido actualizar(Long id, Pedido pedido) {
+        if (fragmentos.habilitado() && fragmentos.fragmentoDe(pedido.getLocalidad()) != fragmentos.fragmentoDeId(id)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La localidad '" + pedido.getLocalidad()
+                + "' se guarda en otro fragmento; para cambiarla hay que borrar el pedido y crearlo de nuevo");
+        }
+        pedido.setId(id);
+        // CONSULTA SQL: UPDATE pedido SET ... WHERE id = ?
+        Pedido actualizado = fragmentos.porId(id, () -> transacciones.escribir(() -> repo.save(pedido)));
+        notificador.modificado(Pedido.class, id);
+        return actualizado;
+    }
+
+    public void eliminar(Long id) {
+        // CONSULTA SQL: DELETE FROM pedido WHERE id = ?
+        fragmentos.porId(id, () -> transacciones.escribir(() -> repo.borrarPorId(id)));
+        notificador.eliminado(Pedido.class, id);
+    }
+
+    /**
+     * Purga con un único DELETE por fragmento y quita del archivo los pedidos ya movidos
+     * a disco; devuelve la cantidad de pedidos borrados entre ambos
+     */
+    public int borrarHasta(LocalDateTime limite) {
+        // CONSULTA SQL: DELETE FROM pedido WHERE creado < ? (en cada fragmento)
+        int eliminados = fragmentos.sumar(() -> transacciones.escribir(() -> repo.borrarCreadosAntesDe(limite)));
+        eliminados += archivo.purgar(limite);
+        if (eliminados > 0) {
+            notificador.eliminado(Pedido.class, null);
+        }
+        return eliminados;
+    }
+
+    public List<Pedido> porFecha(LocalDateTime inicio, LocalDateTime fin) {
+        ConsultaPedidos consulta = new ConsultaPedidos();
+        consulta.setDesde(inicio);
+        consulta.setHasta(fin);
+        // CONSULTA SQL: SELECT * FROM pedido WHERE creado BETWEEN ? AND ? ORDER BY id (en cada fragmento)
+        return ejecutar(consulta, ORDEN_ID, null, true);
+    }
+
+    /** Los n pedidos más recientes de todos los fragmentos (panel de administración) */
+    public List<Pedido> recientes(int n) {
+        // CONSULTA SQL: SELECT * FROM pedido ORDER BY creado DESC LIMIT ? (en cada fragmento)
+        List<Pedido> unidos = fragmentos.dispersar(lectura(() -> repo.findByOrderByCreadoDesc(PageRequest.of(0, n))),
+            Comparator.comparing(Pedido::getCreado, Comparator.nullsLast(Comparator.reverseOrder())));
+        return unidos.size() > n ? new ArrayList<>(unidos.subList(0, n)) : unidos;
+    }
+
+    /**
+     * Cantidad y monto vendido por localidad desde una fecha. En modo fragmentado una
+     * localidad puede aparecer una vez por fragmento: quien llama suma las filas
+     */
+    public List<PedidoRepo.VentasLocalidad> ventasPorLocalidad(LocalDateTime desde) {
+        // CONSULTA SQL: SELECT localidad, COUNT(*), SUM(total) FROM pedido WHERE creado >= ? GROUP BY localidad (en cada fragmento)
+        List<PedidoRepo.VentasLocalidad> filas = new ArrayList<>();
+        fragmentos.enTodos(lectura(() -> repo.resumirPorLocalidad(desde))).forEach(filas::addAll);
+        return filas;
+    }
+
+    public List<Pedido> porTotalMinimo(Double total) {
+        ConsultaPedidos consulta = new ConsultaPedidos();
+        consulta.setTotalMinimo(total);
+        // CONSULTA SQL: SELECT * FROM pedido WHERE total >= ? ORDER BY id (en cada fragmento)
+        return ejecutar(consulta, ORDEN_ID, null, true);
+    }
+
+    /**
+     * Compila los filtros a un único SELECT con ORDER BY y LIMIT. Si todas las localidades
+     * pedidas caen en un mismo fragmento solo se consulta ese; si no, el SELECT corre en
+     * todos y las corridas ya ordenadas se intercalan y se vuelven a cortar en el límite
+     * @param limite null = sin LIMIT
+     * @param conArchivo también se leen los segmentos archivados si el rango llega a ellos
+     */
+    private List<Pedido> ejecutar(ConsultaPedidos consulta, Sort orden, Integer limite, boolean conArchivo) {
+        Specification<Pedido> filtro = Specification.allOf(
+            PedidoRepo.creadoEntre(consulta.getDesde(), consulta.getHasta()),
+            PedidoRepo.totalEntre(consulta.getTotalMinimo(), consulta.getTotalMaximo()),
+            PedidoRepo.localidadEn(consulta.getLocalidades()),
+            PedidoRepo.clienteContiene(consulta.getCliente()),
+            PedidoRepo.productoContiene(consulta.getProducto()));
+        Comparator<Pedido> comparador = comparador(orden);
+        // limit() antes de sortBy(): Spring Data JPA 3.2 repite en el ORDER BY el orden ya fijado al limitar
+        Supplier<List<Pedido>> seleccion = lectura(() -> repo.findBy(filtro, q -> limite == null
+            ? q.sortBy(orden).all() : q.limit(limite).sortBy(orden).all()));
+
+        Collection<String> localidades = consulta.getLocalidades();
+        Set<Integer> destinos = localidades == null ? Set.of()
+            : localidades.stream().map(fragmentos::fragmentoDe).collect(Collectors.toSet());
+        List<Pedido> calientes = destinos.size() == 1
+            ? fragmentos.en(destinos.iterator().next(), seleccion)
+            : cortar(fragmentos.dispersar(seleccion, comparador), limite);
+
+        // Solo se leen segmentos archivados si el rango llega a los datos fríos
+        LocalDateTime limiteFrio = archivo.limiteFrio();
+        if (!conArchivo || limiteFrio == null || (consulta.getDesde() != null && consulta.getDesde().isAfter(limiteFrio))) {
+            return calientes;
+        }
+        List<Pedido> frios = archivo.buscar(consulta.getDesde(), consulta.getHasta(),
+            consulta.getTotalMinimo(), consulta.getTotalMaximo(), enMemoria(consulta));
+        if (frios.isEmpty()) {
+            return calientes;
+        }
+        List<Pedido> unidos = ArchivoPedidos.combinar(calientes, frios);
+        unidos.sort(comparador);
+        return cortar(unidos, limite);
+    }
+
+    /** Los filtros que no son rangos, evaluados sobre los pedidos leídos del archivo */
+    private static Predicate<Pedido> enMemoria(ConsultaPedidos consulta) {
+        Predicate<Pedido> filtro = p -> true;
+        if (consulta.getLocalidades() != null && !consulta.getLocalidades().isEmpty()) {
+            filtro = filtro.and(p -> consulta.getLocalidades().contains(p.getLocalidad()));
+        }
+        if (consulta.getCliente() != null && !consulta.getCliente().isEmpty()) {
+            String cliente = consulta.getCliente().toLowerCase();
+            filtro = filtro.and(p -> p.getNombreCliente() != null && p.getNombreCliente().toLowerCase().contains(cliente));
+        }
+        if (consulta.getProducto() != null && !consulta.getProducto().isEmpty()) {
+            String producto = consulta.getProducto().toLowerCase();
+            filtro = filtro.and(p -> p.getItemsJson() != null && p.getItemsJson().toLowerCase().contains(producto));
+        }
+        return filtro;
+    }
+
+    /** El mismo orden que el Sort (campo y desempate por id) */
+    private static Comparator<Pedido> comparador(Sort orden) {
+        Comparator<Pedido> comparador = null;
+        for (Sort.Order o : orden) {
+            Comparator<Pedido> campo = ORDENABLES.get(o.getProperty());
+            campo = o.isAscending() ? campo : campo.reversed();
+            comparador = comparador == null ? campo : comparador.thenComparing(campo);
+        }
+        return comparador;
+    }
+
+    private static List<Pedido> cortar(List<Pedido> pedidos, Integer limite) {
+        return limite == null || pedidos.size() <= limite ? pedidos : new ArrayList<>(pedidos.subList(0, limite));
+    }
+}
@@ -0,0 +1,140 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.model.Producto;
+import com.casuarinas.app.repo.ProductoRepo;
+import com.casuarinas.app.web.ConsultaProductos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * SERVICIO DE PRODUCTOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Capa entre ProductoController y ProductoRepo: cada operación corre en su propia
+ * transacción (Transacciones), de solo lectura para las consultas y de escritura solo
+ * alrededor de los cambios. Los avisos de cambio (NotificadorCambios) salen después del
+ * COMMIT, así las cachés y el índice de sugerencias nunca releen un dato sin confirmar.
+ *
+ * Las búsquedas de productos activos de la tienda siguen en CatalogoProductos (caché).
+ *
+ * RELACIÓN CON POO:
+ * - Separación de responsabilidades: el controlador solo traduce HTTP, el servicio decide
+ *   qué se hace y en qué transacción
+ *
+ * RELACIÓN CON SQL:
+ * - SELECT en transacción read-only; INSERT / UPDATE / DELETE en transacciones cortas
+ * - La consulta componible del panel (POST /api/productos/consulta) es un único
+ *   SELECT ... WHERE (filtros) ORDER BY campo, id LIMIT n
+ */
+@Service
+public class ProductoService {
+
+    private static final Set<String> ORDENABLES = Set.of("nombre", "precio", "categoria", "id", "actualizado");
+
+    @Autowired
+    private ProductoRepo repo;
+
+    @Autowired
+    private Transacciones transacciones;
+
+    @Autowired
+    private NotificadorCambios notificador;
+
+    @Value("${casuarinas.consulta.limite:100}")
+    private int limitePorDefecto;
+
+    @Value("${casuarinas.consulta.max-limite:1000}")
+    private int maxLimite;
+
+    public Optional<Producto> buscar(Long id) {
+        // CONSULTA SQL: SELECT * FROM producto WHERE id = ?
+        return transacciones.leer(() -> repo.findById(id));
+    }
+
+    /** Todos los productos, activos e inactivos (panel de administración) */
+    public List<Producto> todos() {
+        // CONSULTA SQL: SELECT * FROM producto
+        return transacciones.leer(repo::findAll);
+    }
+
+    /**
+     * Filtros componibles, orden y límite (casuarinas.consulta.limite por defecto, nunca más
+     * de casuarinas.consulta.max-limite). Sin caché: es una consulta del panel
+     */
+    public List<Producto> consultar(ConsultaProductos consulta) {
+        Sort orden = Consultas.orden(consulta.getOrdenarPor(), consulta.getDireccion(), ORDENABLES,
+            "nombre", Sort.Direction.ASC);
+        int limite = Consultas.limite(consulta.getLimite(), limitePorDefecto, maxLimite);
+        Specification<Producto> filtro = Specification.allOf(
+            ProductoRepo.nombreContiene(consulta.getNombre()),
+            ProductoRepo.categoriaEn(consulta.getCategorias()),
+            ProductoRepo.precioEntre(consulta.getPrecioMinimo(), consulta.getPrecioMaximo()),
+            ProductoRepo.activo(consulta.getActivo()));
+        // CONSULTA SQL: SELECT * FROM producto WHERE ... ORDER BY ?, id LIMIT ?
+        return transacciones.leer(() -> repo.findBy(filtro, q -> q.limit(limite).sortBy(orden).all()));
+    }
+
+    public Producto crear(Producto producto) {
+        // CONSULTA SQL: INSERT INTO producto (nombre, precio, comentario, categoria, unidad, activo, creado, actualizado) VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        Producto creado = transacciones.escribir(() -> repo.save(producto));
+        notificador.creado(Producto.class, creado.getId());
+        return creado;
+    }
+
+    public Producto actualizar(Long id, Producto producto) {
+        producto.setId(id);
+        // CONSULTA SQL: UPDATE producto SET nombre = ?, precio = ?, comentario = ?, categoria = ?, unidad = ?, activo = ?, actualizado = ? WHERE id = ?
+        Producto actualizado = transacciones.escribir(() -> repo.save(producto));
+        notificador.modificado(Producto.class, id);
+        return actualizado;
+    }
+
+    public void eliminar(Long id) {
+        // CONSULTA SQL: DELETE FROM producto WHERE id = ?
+        transacciones.escribir(() -> repo.borrarPorId(id));
+        notificador.eliminado(Producto.class, id);
+    }
+
+    /**
+     * Ajuste masivo: cada cambio presente es una única sentencia UPDATE, sin SELECT previo,
+     * y todas se confirman juntas. Devuelve las filas afectadas por campo
+     * @param categoria null = todos los productos
+     * @param porcentajePrecio null o 0 = no cambia precios
+     * @param activo null = no cambia el estado
+     * @throws ResponseStatusException 400 si porcentajePrecio es -100 o menor (precios en cero o negativos)
+     */
+    public Map<String, Integer> actualizarMasivo(String categoria, Double porcentajePrecio, Boolean activo) {
+        if (porcentajePrecio != null && (!Double.isFinite(porcentajePrecio) || porcentajePrecio <= -100)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "porcentajePrecio debe ser mayor que -100 (recibido " + porcentajePrecio + ")");
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        Map<String, Integer> afectados = transacciones.escribir(() -> {
+            Map<String, Integer> filas = new LinkedHashMap<>();
+            if (porcentajePrecio != null && porcentajePrecio != 0) {
+                // CONSULTA SQL: UPDATE producto SET precio = ROUND(precio * ?, 2), actualizado = ? WHERE ...
+                double factor = 1 + porcentajePrecio / 100.0;
+                filas.put("precio", repo.ajustarPrecios(categoria, factor, ahora));
+            }
+            if (activo != null) {
+                // CONSULTA SQL: UPDATE producto SET activo = ?, actualizado = ? WHERE ... AND activo <> ?
+                filas.put("activo", repo.cambiarActivo(categoria, activo, ahora));
+            }
+            return filas;
+        });
+        if (afectados.values().stream().anyMatch(n -> n > 0)) {
+            notificador.modificado(Producto.class, null);
+        }
+        return afectados;
+    }
+}
@@ -0,0 +1,295 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import com.casuarinas.app.json.EnlaceJson;
+import com.casuarinas.app.json.ItemPedido;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.repo.PedidoRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * SERVICIO DE RANKING EN TIEMPO REAL - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Lleva contadores exactos de unidades vendidas por producto y de pedidos por localidad
+ * en ventanas fijas (hora, día y semana en curso).
+ *
+ * RELACIÓN CON POO:
+ * - Cada ventana es un objeto Periodo inmutable en su identidad; al cambiar la hora/día/semana
+ *   se reemplaza atómicamente por uno nuevo (AtomicReference)
+ * - Los contadores son LongAdder: las escrituras concurrentes no se bloquean entre sí
+ * - Un checkout solo suma en los contadores y marca la ventana como "sucia": su costo no
+ *   depende del tamaño del catálogo. La foto ordenada de los K primeros se recalcula fuera del
+ *   checkout: en la primera lectura que la encuentra sucia o en la tarea programada
+ *   (casuarinas.ranking.publicar-ms), lo que ocurra antes
+ * - Las lecturas sin cambios pendientes devuelven la foto ya ordenada, sin locks ni recorridos
+ *
+ * RELACIÓN CON SQL:
+ * - Solo se consulta la base al iniciar: SELECT * FROM pedido WHERE creado BETWEEN ? AND ?
+ *   para la semana en curso; después se alimenta desde PedidoService.crear
+ * - Tomcat ya atiende checkouts mientras se reconstruye: esos pedidos esperan aparte y se
+ *   cuentan al final solo si el SELECT no los había leído
+ */
+@Service
+public class RankingVentas {
+
+    private static final Logger log = LoggerFactory.getLogger(RankingVentas.class);
+
+    /** Máximo de posiciones que se mantienen precalculadas por ranking */
+    public static final int K_MAXIMO = 20;
+
+    /** Ventanas de tiempo disponibles */
+    public enum Ventana {
+        HORA, DIA, SEMANA;
+
+        LocalDateTime inicio(LocalDateTime momento) {
+            switch (this) {
+                case HORA: return momento.truncatedTo(ChronoUnit.HOURS);
+                case DIA: return momento.truncatedTo(ChronoUnit.DAYS);
+                default: return momento.truncatedTo(ChronoUnit.DAYS)
+                    .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+        }
+    }
+
+    /** Una posición del ranking */
+    public record Posicion(String clave, long total) {}
+
+    /** Foto inmutable de una ventana: es lo que se devuelve al leer */
+    public record Foto(Ventana ventana, LocalDateTime desde, List<Posicion> productos, List<Posicion> localidades) {}
+
+    private static final class Periodo {
+        final LocalDateTime desde;
+        final ConcurrentHashMap<String, LongAdder> productos = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, LongAdder> localidades = new ConcurrentHashMap<>();
+        final AtomicBoolean sucio = new AtomicBoolean();
+        volatile Foto foto;
+
+        Periodo(Ventana ventana, LocalDateTime desde) {
+            this.desde = desde;
+            this.foto = new Foto(ventana, desde, List.of(), List.of());
+        }
+    }
+
+    @Autowired
+    private PedidoRepo pedidoRepo;
+
+    @Autowired
+    private EnlaceJson enlace;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    private final Map<Ventana, AtomicReference<Periodo>> periodos = new EnumMap<>(Ventana.class);
+
+    // ARRANQUE - pedidos registrados antes de terminar reconstruir(); null una vez terminada
+    private final Object arranque = new Object();
+    private volatile List<Pedido> pendientes = new ArrayList<>();
+
+    // Ids leídos por reconstruir(): un registrar() tardío de uno de ellos no se cuenta de nuevo
+    private volatile Set<Long> reconstruidos = Set.of();
+
+    public RankingVentas() {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (Ventana v : Ventana.values()) {
+            periodos.put(v, new AtomicReference<>(new Periodo(v, v.inicio(ahora))));
+        }
+    }
+
+    /**
+     * RECONSTRUCCIÓN AL INICIAR - lee los pedidos de la semana en curso y los procesa en paralelo
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        long t0 = System.nanoTime();
+        LocalDateTime ahora = LocalDateTime.now();
+        Set<Long> leidos = Set.of();
+        try {
+            // CONSULTA SQL: SELECT * FROM pedido WHERE creado BETWEEN ? AND ?
+            List<Pedido> recientes = fragmentos.enTodos(() -> pedidoRepo.findByCreadoBetween(Ventana.SEMANA.inicio(ahora), ahora))
+                .stream().flatMap(List::stream).toList();
+            recientes.parallelStream().forEach(this::contar);
+            leidos = recientes.stream().map(Pedido::getId).collect(Collectors.toSet());
+            log.info("Ranking de ventas reconstruido con {} pedidos en {} ms",
+                recientes.size(), (System.nanoTime() - t0) / 1_000_000);
+        } finally {
+            // Los pedidos que llegaron durante el SELECT: solo los que no leyó
+            reconstruidos = leidos;
+            List<Pedido> llegados;
+            synchronized (arranque) {
+                llegados = pendientes;
+                pendientes = null;
+            }
+            for (Pedido pedido : llegados) {
+                if (!leidos.contains(pedido.getId())) {
+                    contar(pedido);
+                }
+            }
+            periodos.values().forEach(ref -> publicar(ref.get()));
+        }
+    }
+
+    /**
+     * Registra un pedido recién creado (y ya confirmado) en todas las ventanas que lo contienen.
+     * Solo suma en los contadores: la foto se republica en la próxima lectura o en refrescar()
+     */
+    public void registrar(Pedido pedido) {
+        if (pendientes != null) {
+            synchronized (arranque) {
+                if (pendientes != null) {
+                    pendientes.add(pedido);
+                    return;
+                }
+            }
+        }
+        if (pedido.getId() != null && reconstruidos.contains(pedido.getId())) {
+            return;
+        }
+        contar(pedido);
+    }
+
+    /**
+     * En modo cluster, cuenta también los pedidos creados por las otras instancias
+     */
+    @EventListener
+    public void alCambiar(CambioEntidad cambio) {
+        if (cambio.remoto() && cambio.es(Pedido.class) && cambio.id() != null
+                && cambio.operacion() == CambioEntidad.Operacion.CREADO) {
+            // CONSULTA SQL: SELECT * FROM pedido WHERE id = ?
+            fragmentos.porId(cambio.id(), () -> pedidoRepo.findById(cambio.id())).ifPresent(this::registrar);
+        }
+    }
+
+    /**
+     * Devuelve los K primeros de la ventana en curso. O(K) y sin locks si no hubo checkouts
+     * desde la última publicación; si los hubo, la recalcula antes (una sola lectura lo hace)
+     */
+    public Foto top(Ventana ventana, int k) {
+        Periodo periodo = periodos.get(ventana).get();
+        publicar(periodo);
+        Foto foto = periodo.foto;
+        if (!periodo.desde.equals(ventana.inicio(LocalDateTime.now()))) {
+            // La ventana terminó y todavía no llegó ningún pedido de la nueva
+            return new Foto(ventana, ventana.inicio(LocalDateTime.now()), List.of(), List.of());
+        }
+        int n = Math.max(0, Math.min(k, K_MAXIMO));
+        return new Foto(ventana, foto.desde(),
+            foto.productos().subList(0, Math.min(n, foto.productos().size())),
+            foto.localidades().subList(0, Math.min(n, foto.localidades().size())));
+    }
+
+    private void contar(Pedido pedido) {
+        if (pedido.getCreado() == null) {
+            return;
+        }
+        List<Map.Entry<String, Long>> items = leerItems(pedido.getItemsJson());
+        for (Ventana ventana : Ventana.values()) {
+            Periodo periodo = periodoPara(ventana, pedido.getCreado());
+            if (periodo == null) {
+                continue;
+            }
+            for (Map.Entry<String, Long> item : items) {
+                periodo.productos.computeIfAbsent(item.getKey(), c -> new LongAdder()).add(item.getValue());
+            }
+            if (pedido.getLocalidad() != null && !pedido.getLocalidad().isEmpty()) {
+                periodo.localidades.computeIfAbsent(pedido.getLocalidad(), c -> new LongAdder()).increment();
+            }
+            periodo.sucio.set(true);
+        }
+    }
+
+    /**
+     * Devuelve el periodo en curso que contiene el momento, rotando la ventana si empezó una nueva.
+     * Null si el momento pertenece a una ventana ya cerrada.
+     */
+    private Periodo periodoPara(Ventana ventana, LocalDateTime momento) {
+        AtomicReference<Periodo> ref = periodos.get(ventana);
+        LocalDateTime desde = ventana.inicio(momento);
+        while (true) {
+            Periodo actual = ref.get();
+            int cmp = desde.compareTo(actual.desde);
+            if (cmp == 0) {
+                return actual;
+            }
+            if (cmp < 0) {
+                return null;
+            }
+            Periodo nuevo = new Periodo(ventana, desde);
+            if (ref.compareAndSet(actual, nuevo)) {
+                return nuevo;
+            }
+        }
+    }
+
+    private List<Map.Entry<String, Long>> leerItems(String itemsJson) {
+        try {
+            List<ItemPedido> items = enlace.leerItems(itemsJson);
+            List<Map.Entry<String, Long>> resultado = new ArrayList<>(items.size());
+            for (ItemPedido item : items) {
+                if (item != null && item.nombre() != null) {
+                    resultado.add(Map.entry(item.nombre(), item.cantidad()));
+                }
+            }
+            return resultado;
+        } catch (Exception e) {
+            // Un itemsJson mal formado no debe impedir registrar la localidad
+            return List.of();
+        }
+    }
+
+    /**
+     * Recalcula la foto de un periodo: recorre todos sus contadores, O(productos · log K).
+     * Solo la ejecuta quien limpia la marca "sucio", así las lecturas concurrentes no repiten
+     * el trabajo; nunca corre dentro de un checkout.
+     */
+    private void publicar(Periodo periodo) {
+        if (periodo.sucio.compareAndSet(true, false)) {
+            Ventana ventana = periodo.foto.ventana();
+            periodo.foto = new Foto(ventana, periodo.desde, primeros(periodo.productos), primeros(periodo.localidades));
+        }
+    }
+
+    /**
+     * TAREA PROGRAMADA - republica los periodos que quedaron con cambios sin publicar, para que
+     * la foto esté al día aunque nadie la lea (y la próxima lectura no pague el recálculo)
+     */
+    @Scheduled(fixedDelayString = "${casuarinas.ranking.publicar-ms:250}")
+    public void refrescar() {
+        periodos.values().forEach(ref -> publicar(ref.get()));
+    }
+
+    private static List<Posicion> primeros(Map<String, LongAdder> contadores) {
+        PriorityQueue<Posicion> heap = new PriorityQueue<>(K_MAXIMO + 1,
+            (a, b) -> Long.compare(a.total(), b.total()));
+        contadores.forEach((clave, contador) -> {
+            heap.offer(new Posicion(clave, contador.sum()));
+            if (heap.size() > K_MAXIMO) {
+                heap.poll();
+            }
+        });
+        List<Posicion> orden = new ArrayList<>(heap);
+        orden.sort((a, b) -> Long.compare(b.total(), a.total()));
+        return Collections.unmodifiableList(orden);
+    }
+}
@@ -0,0 +1,501 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.diagnostico.LatenciaPeticiones;
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.engine.Database;
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SERVICIO DE RESPALDO EN CALIENTE DE H2 - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Copia el archivo .mv.db mientras la aplicación sigue atendiendo pedidos, sin bloquear
+ * escrituras. Usa la misma técnica que BACKUP TO de H2: mientras dura la copia el MVStore
+ * no reutiliza espacio libre, así que los chunks nuevos se agregan al final del archivo y
+ * los bytes anteriores a la longitud tomada al empezar no cambian.
+ *
+ * El archivo se corta en bloques de tamaño fijo; cada bloque se guarda comprimido bajo su
+ * SHA-256 (bloques/ab/abcd....gz). Un respaldo es un manifiesto con la lista ordenada de
+ * bloques: los bloques que no cambiaron desde el respaldo anterior no se vuelven a escribir.
+ *
+ * Además:
+ * - La lectura del archivo vivo se limita a casuarinas.respaldo.mb-por-segundo
+ * - Verificación: reconstruye el archivo, compara el SHA-256 completo y lo abre con H2
+ * - Rotación: conserva los últimos casuarinas.respaldo.retener respaldos de cada base y
+ *   borra los bloques que ya no usa ningún manifiesto
+ * - La latencia de las peticiones durante el respaldo queda en LatenciaPeticiones
+ *
+ * RELACIÓN CON POO:
+ * - Respaldo: record inmutable que se guarda como manifiesto JSON
+ * - Encapsulación: el formato de bloques y manifiestos solo se conoce aquí
+ *
+ * RELACIÓN CON SQL:
+ * - CHECKPOINT SYNC antes de copiar: lo confirmado hasta ese momento queda en el archivo
+ * - En modo fragmentado se respalda también cada base de fragmento
+ * - Con AUTO_SERVER (perfil cluster) respalda solo la instancia que tiene abierto el archivo
+ */
+@Service
+public class RespaldoH2 {
+
+    private static final Logger log = LoggerFactory.getLogger(RespaldoH2.class);
+
+    private static final DateTimeFormatter NOMBRE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS");
+
+    private static final int HISTORIAL = 20;
+
+    /** Manifiesto de un respaldo: los bloques concatenados en orden forman el archivo .mv.db */
+    public record Respaldo(String base, LocalDateTime fecha, long tamano, int bloqueBytes, List<String> bloques,
+                           String sha256, int bloquesNuevos, long bytesLeidos, long bytesEscritos,
+                           long duracionMs, Boolean verificado) {}
+
+    /** Datos de un respaldo sin la lista de bloques, para GET /api/diagnostico/respaldo */
+    public record Resumen(String base, LocalDateTime fecha, long tamano, int bloques, int bloquesNuevos,
+                          long bytesLeidos, long bytesEscritos, long duracionMs, double mbPorSegundo,
+                          Boolean verificado) {
+
+        static Resumen de(Respaldo r) {
+            double mbs = r.duracionMs() == 0 ? 0 : r.bytesLeidos() / 1048576.0 / (r.duracionMs() / 1000.0);
+            return new Resumen(r.base(), r.fecha(), r.tamano(), r.bloques().size(), r.bloquesNuevos(),
+                r.bytesLeidos(), r.bytesEscritos(), r.duracionMs(), Math.round(mbs * 10) / 10.0, r.verificado());
+        }
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Autowired
+    private LatenciaPeticiones latencias;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${casuarinas.respaldo.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${casuarinas.respaldo.directorio:./data/respaldos}")
+    private String directorio;
+
+    @Value("${casuarinas.respaldo.bloque-kb:1024}")
+    private int bloqueKb;
+
+    @Value("${casuarinas.respaldo.mb-por-segundo:20}")
+    private double mbPorSegundo;
+
+    @Value("${casuarinas.respaldo.retener:24}")
+    private int retener;
+
+    @Value("${casuarinas.respaldo.verificar:true}")
+    private boolean verificar;
+
+    @Value("${spring.datasource.username:sa}")
+    private String usuario;
+
+    @Value("${spring.datasource.password:}")
+    private String clave;
+
+    // ÚLTIMOS RESPALDOS - el más reciente primero; su propio candado, respaldar() puede tardar minutos
+    private final LinkedList<Resumen> historial = new LinkedList<>();
+
+    private volatile boolean enCurso;
+
+    // Un respaldo a la vez, y nada de compactar mientras tanto (sinRespaldo). Es un
+    // ReentrantLock porque se sostiene durante minutos de E/S: un hilo virtual que espera o
+    // lee dentro de synchronized no suelta su hilo portador
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    @PostConstruct
+    public void cargarHistorial() throws IOException {
+        for (Respaldo r : leerManifiestos()) {
+            agregarAlHistorial(Resumen.de(r));
+        }
+    }
+
+    /**
+     * TAREA PROGRAMADA - respalda la base principal y, en modo fragmentado, cada fragmento
+     */
+    @Scheduled(cron = "${casuarinas.respaldo.cron:0 15 * * * *}")
+    public void respaldarProgramado() {
+        if (habilitado) {
+            respaldar();
+        }
+    }
+
+    /**
+     * Respalda todas las bases persistentes; las bases en memoria se omiten.
+     * @return resumen de cada respaldo hecho
+     */
+    public List<Resumen> respaldar() {
+        cerrojo.lock();
+        enCurso = true;
+        latencias.iniciar();
+        try {
+            List<Resumen> hechos = new ArrayList<>();
+            respaldarBase().ifPresent(hechos::add);
+            if (fragmentos.habilitado()) {
+                for (int n = 0; n < fragmentos.cantidad(); n++) {
+                    fragmentos.en(n, this::respaldarBase).ifPresent(hechos::add);
+                }
+            }
+            rotar();
+            return hechos;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            latencias.terminar();
+            enCurso = false;
+            cerrojo.unlock();
+        }
+    }
+
+    public boolean isEnCurso() { return enCurso; }
+
+    /**
+     * Ejecuta una tarea que mueve datos dentro del archivo (MantenimientoH2) sin que haya un
+     * respaldo copiándolo a la vez: comparte el candado de respaldar()
+     */
+    public <T> T sinRespaldo(Supplier<T> tarea) {
+        cerrojo.lock();
+        try {
+            return tarea.get();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public List<Resumen> getHistorial() {
+        synchronized (historial) {
+            return new ArrayList<>(historial);
+        }
+    }
+
+    /**
+     * Respalda la base a la que apunta el DataSource en este hilo (principal o fragmento)
+     */
+    private Optional<Resumen> respaldarBase() {
+        MVStore store;
+        try (Connection c = dataSource.getConnection()) {
+            Database db = baseLocal(c).orElse(null);
+            if (db == null) {
+                log.debug("Respaldo omitido: el archivo lo tiene abierto otra instancia (AUTO_SERVER)");
+                return Optional.empty();
+            }
+            if (!db.isPersistent()) {
+                log.debug("Respaldo omitido: {} es una base en memoria", db.getShortName());
+                return Optional.empty();
+            }
+            store = db.getStore().getMvStore();
+            // La suspensión va antes del CHECKPOINT: desde ahí todo chunk nuevo se escribe al final
+            boolean reutilizaba = store.isSpaceReused();
+            store.setReuseSpace(false);
+            try {
+                try (Statement st = c.createStatement()) {
+                    // CONSULTA SQL: CHECKPOINT SYNC - escribe y sincroniza lo confirmado
+                    st.execute("CHECKPOINT SYNC");
+                }
+                Respaldo r = copiar(db.getShortName().toLowerCase(), Paths.get(store.getFileStore().getFileName()),
+                    store.getFileStore().size());
+                return Optional.of(Resumen.de(r));
+            } finally {
+                store.setReuseSpace(reutilizaba);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo respaldar la base: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * La base H2 de la conexión si este proceso es el dueño del archivo. Con AUTO_SERVER solo la
+     * instancia que abrió el archivo tiene una sesión local; las demás se conectan por TCP
+     * (SessionRemote) y no pueden tocar el MVStore: respaldo y mantenimiento quedan en el dueño.
+     */
+    static Optional<Database> baseLocal(Connection c) throws SQLException {
+        return c.unwrap(JdbcConnection.class).getSession() instanceof SessionLocal sesion
+            ? Optional.of(sesion.getDatabase()) : Optional.empty();
+    }
+
+    private Respaldo copiar(String base, Path archivo, long tamano) throws IOException {
+        long t0 = System.nanoTime();
+        int bloqueBytes = bloqueKb * 1024;
+        List<String> bloques = new ArrayList<>((int) (tamano / bloqueBytes) + 1);
+        MessageDigest total = sha256();
+        Limitador limitador = new Limitador(mbPorSegundo);
+        ByteBuffer buffer = ByteBuffer.allocate(bloqueBytes);
+        int nuevos = 0;
+        long escritos = 0;
+        // Canal propio en solo lectura: H2 sigue escribiendo (al final) por el suyo
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            for (long pos = 0; pos < tamano; pos += bloqueBytes) {
+                buffer.clear().limit((int) Math.min(bloqueBytes, tamano - pos));
+                while (buffer.hasRemaining()) {
+                    if (canal.read(buffer, pos + buffer.position()) < 0) {
+                        throw new IOException("El archivo " + archivo + " terminó antes de " + tamano + " bytes");
+                    }
+                }
+                byte[] datos = Arrays.copyOf(buffer.array(), buffer.limit());
+                limitador.consumir(datos.length);
+                total.update(datos);
+                String hash = HexFormat.of().formatHex(sha256().digest(datos));
+                bloques.add(hash);
+                long escrito = guardarBloque(hash, datos);
+                if (escrito > 0) {
+                    nuevos++;
+                    escritos += escrito;
+                }
+            }
+        }
+        String sha = HexFormat.of().formatHex(total.digest());
+        Respaldo r = new Respaldo(base, LocalDateTime.now(), tamano, bloqueBytes, bloques, sha, nuevos, tamano,
+            escritos, (System.nanoTime() - t0) / 1_000_000, null);
+        if (verificar) {
+            r = new Respaldo(r.base(), r.fecha(), r.tamano(), r.bloqueBytes(), r.bloques(), r.sha256(),
+                r.bloquesNuevos(), r.bytesLeidos(), r.bytesEscritos(), r.duracionMs(), verificar(r));
+        }
+        escribirManifiesto(r);
+        Resumen resumen = Resumen.de(r);
+        agregarAlHistorial(resumen);
+        log.info("Respaldo de {}: {} bytes, {}/{} bloques nuevos ({} bytes escritos) en {} ms, verificado={}",
+            base, tamano, nuevos, bloques.size(), escritos, r.duracionMs(), r.verificado());
+        return r;
+    }
+
+    /**
+     * Guarda el bloque comprimido si todavía no existe.
+     * @return bytes escritos (0 si el bloque ya estaba en un respaldo anterior)
+     */
+    private long guardarBloque(String hash, byte[] datos) throws IOException {
+        Path destino = rutaBloque(hash);
+        if (Files.exists(destino)) {
+            return 0;
+        }
+        Files.createDirectories(destino.getParent());
+        Path temporal = destino.resolveSibling(hash + ".tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporal))) {
+            out.write(datos);
+        }
+        Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return Files.size(destino);
+    }
+
+    private Path rutaBloque(String hash) {
+        return Paths.get(directorio, "bloques", hash.substring(0, 2), hash + ".gz");
+    }
+
+    /**
+     * Reconstruye el archivo .mv.db de un respaldo comprobando el SHA-256 de cada bloque
+     * y el del archivo completo.
+     */
+    public void restaurar(Respaldo r, Path destino) throws IOException {
+        MessageDigest total = sha256();
+        Limitador limitador = new Limitador(mbPorSegundo);
+        Files.createDirectories(destino.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(destino)) {
+            for (String hash : r.bloques()) {
+                byte[] datos;
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(rutaBloque(hash)))) {
+                    datos = in.readAllBytes();
+                }
+                if (!HexFormat.of().formatHex(sha256().digest(datos)).equals(hash)) {
+                    throw new IOException("Bloque dañado: " + hash);
+                }
+                limitador.consumir(datos.length);
+                total.update(datos);
+                out.write(datos);
+            }
+        }
+        if (!HexFormat.of().formatHex(total.digest()).equals(r.sha256())) {
+            throw new IOException("El SHA-256 del archivo restaurado no coincide con el del respaldo " + r.fecha());
+        }
+    }
+
+    /**
+     * Restaura el respaldo en un directorio temporal y lo abre con H2
+     */
+    private boolean verificar(Respaldo r) {
+        Path dir = Paths.get(directorio, "verificacion");
+        Path archivo = dir.resolve(r.base() + ".mv.db");
+        try {
+            restaurar(r, archivo);
+            String url = "jdbc:h2:file:" + dir.toAbsolutePath().resolve(r.base()) + ";IFEXISTS=TRUE";
+            try (Connection c = DriverManager.getConnection(url, usuario, clave);
+                 Statement st = c.createStatement();
+                 // CONSULTA SQL: SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES - la copia abre y se puede leer
+                 ResultSet rs = st.executeQuery("select count(*) from information_schema.tables")) {
+                return rs.next();
+            }
+        } catch (IOException | SQLException e) {
+            log.error("Respaldo de {} del {} no verificado: {}", r.base(), r.fecha(), e.getMessage());
+            return false;
+        } finally {
+            borrarDirectorio(dir);
+        }
+    }
+
+    private void escribirManifiesto(Respaldo r) throws IOException {
+        Path dir = Paths.get(directorio, "manifiestos");
+        Files.createDirectories(dir);
+        Path destino = dir.resolve(r.base() + "-" + NOMBRE.format(r.fecha()) + ".json");
+        Path temporal = dir.resolve(destino.getFileName() + ".tmp");
+        objectMapper.writeValue(temporal.toFile(), r);
+        Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private List<Respaldo> leerManifiestos() throws IOException {
+        Path dir = Paths.get(directorio, "manifiestos");
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        List<Respaldo> respaldos = new ArrayList<>();
+        try (Stream<Path> archivos = Files.list(dir)) {
+            for (Path p : archivos.filter(p -> p.toString().endsWith(".json")).toList()) {
+                respaldos.add(objectMapper.readValue(p.toFile(), Respaldo.class));
+            }
+        }
+        respaldos.sort(Comparator.comparing(Respaldo::fecha));
+        return respaldos;
+    }
+
+    /**
+     * Conserva los últimos respaldos de cada base y borra los bloques sin referencias
+     */
+    private void rotar() throws IOException {
+        List<Respaldo> todos = leerManifiestos();
+        Path dir = Paths.get(directorio, "manifiestos");
+        Set<String> usados = new HashSet<>();
+        for (Respaldo r : todos) {
+            long posteriores = todos.stream()
+                .filter(o -> o.base().equals(r.base()) && o.fecha().isAfter(r.fecha()))
+                .count();
+            if (posteriores >= retener) {
+                Files.deleteIfExists(dir.resolve(r.base() + "-" + NOMBRE.format(r.fecha()) + ".json"));
+            } else {
+                usados.addAll(r.bloques());
+            }
+        }
+        Path bloques = Paths.get(directorio, "bloques");
+        if (!Files.isDirectory(bloques)) {
+            return;
+        }
+        int borrados = 0;
+        try (Stream<Path> archivos = Files.walk(bloques)) {
+            for (Path p : archivos.filter(Files::isRegularFile).toList()) {
+                String nombre = p.getFileName().toString();
+                if (!usados.contains(nombre.substring(0, nombre.indexOf('.')))) {
+                    Files.delete(p);
+                    borrados++;
+                }
+            }
+        }
+        if (borrados > 0) {
+            log.info("Rotación de respaldos: {} bloques sin referencias borrados", borrados);
+        }
+    }
+
+    private void agregarAlHistorial(Resumen r) {
+        synchronized (historial) {
+            historial.addFirst(r);
+            if (historial.size() > HISTORIAL) {
+                historial.removeLast();
+            }
+        }
+    }
+
+    private static void borrarDirectorio(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> archivos = Files.walk(dir)) {
+            for (Path p : archivos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Limita la lectura a un caudal fijo: duerme cuando va adelantada respecto del reloj
+     */
+    private static final class Limitador {
+        private final double bytesPorNano;
+        private final long inicio = System.nanoTime();
+        private long bytes;
+
+        Limitador(double mbPorSegundo) {
+            this.bytesPorNano = mbPorSegundo * 1048576 / 1e9;
+        }
+
+        void consumir(int n) throws IOException {
+            if (bytesPorNano <= 0) {
+                return;
+            }
+            bytes += n;
+            long espera = inicio + (long) (bytes / bytesPorNano) - System.nanoTime();
+            if (espera > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(espera);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Respaldo interrumpido", e);
+                }
+            }
+        }
+    }
+}
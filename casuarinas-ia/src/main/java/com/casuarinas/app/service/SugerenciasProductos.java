@@ -0,0 +1,308 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.model.Producto;
+import com.casuarinas.app.repo.ProductoRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SERVICIO DE AUTOCOMPLETADO DEL CATÁLOGO - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Responde GET /api/productos/sugerir?prefijo= desde memoria, sin tocar H2, para que el
+ * cuadro de búsqueda de cliente.html pueda pedir sugerencias con cada tecla.
+ *
+ * - Índice: un árbol de prefijos (trie) con los nombres, categorías y unidades de los
+ *   productos activos. Se indexa desde el comienzo de cada palabra: "maiz" sugiere
+ *   "Pan de maíz"
+ * - Plegado: minúsculas y sin acentos, en el índice y en el prefijo ("LACTEOS" = "lácteos")
+ * - Cada nodo guarda ya ordenadas sus mejores casuarinas.sugerir.max sugerencias: una
+ *   consulta solo baja por el árbol letra a letra y devuelve esa lista, sin crear objetos
+ * - Orden: primero lo que empieza con el prefijo, después lo que lo tiene en otra palabra;
+ *   luego lo que abarca más productos (una categoría antes que un producto) y alfabético
+ *
+ * RELACIÓN CON POO:
+ * - Copy-on-write: el índice es inmutable; un cambio de Producto arma uno nuevo aparte y
+ *   lo publica con una sola escritura volatile. Las lecturas nunca esperan
+ * - Patrón Observer: escucha CambioEntidad (locales y, en modo cluster, remotos)
+ *
+ * RELACIÓN CON SQL:
+ * - SELECT * FROM producto WHERE activo = true solo al iniciar y después de cada cambio
+ * - Varios cambios seguidos se agrupan en una sola reconstrucción
+ */
+@Service
+public class SugerenciasProductos {
+
+    private static final Logger log = LoggerFactory.getLogger(SugerenciasProductos.class);
+
+    /** Una sugerencia; productos = cuántos productos activos abarca */
+    public record Sugerencia(String texto, String tipo, int productos) {}
+
+    // PLEGADO - tabla precalculada para Latin-1 y Latin Extended-A/B; el resto solo en minúsculas
+    private static final char[] PLEGADO = new char[0x250];
+
+    static {
+        for (char c = 0; c < PLEGADO.length; c++) {
+            String descompuesto = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = Character.toLowerCase(descompuesto.charAt(0));
+            PLEGADO[c] = Character.isLetterOrDigit(base) ? base : ' ';
+        }
+    }
+
+    private static final char[] SIN_LETRAS = new char[0];
+    private static final Nodo[] SIN_HIJOS = new Nodo[0];
+
+    /** Nodo inmutable: letras ordenadas para búsqueda binaria y sus hijos en el mismo orden */
+    private static final class Nodo {
+        final char[] letras;
+        final Nodo[] hijos;
+        final List<Sugerencia> mejores;
+
+        Nodo(char[] letras, Nodo[] hijos, List<Sugerencia> mejores) {
+            this.letras = letras;
+            this.hijos = hijos;
+            this.mejores = mejores;
+        }
+
+        Nodo hijo(char c) {
+            int i = Arrays.binarySearch(letras, c);
+            return i < 0 ? null : hijos[i];
+        }
+    }
+
+    /** Índice publicado */
+    private record Indice(Nodo raiz, int terminos, int nodos, long construidoMs) {}
+
+    @Autowired
+    private ProductoRepo repo;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor ejecutor;
+
+    @Value("${casuarinas.sugerir.max:10}")
+    private int max;
+
+    private volatile Indice indice = new Indice(new Nodo(SIN_LETRAS, SIN_HIJOS, List.of()), 0, 1, 0);
+
+    // Hay una reconstrucción encargada que todavía no empezó
+    private final AtomicBoolean pendiente = new AtomicBoolean();
+
+    // Una reconstrucción a la vez, así el último índice publicado es el de la última lectura
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    // MÉTRICAS - GET /api/diagnostico/catalogo
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder reconstrucciones = new LongAdder();
+
+    /**
+     * Las mejores sugerencias para el prefijo (a lo sumo limite y casuarinas.sugerir.max).
+     * La lista devuelta es inmutable y compartida
+     */
+    public List<Sugerencia> sugerir(String prefijo, int limite) {
+        consultas.increment();
+        Nodo nodo = indice.raiz;
+        boolean espacio = false;
+        boolean algo = false;
+        for (int i = 0; i < prefijo.length() && nodo != null; i++) {
+            char c = plegar(prefijo.charAt(i));
+            if (c == ' ') {
+                espacio = algo;
+                continue;
+            }
+            if (espacio) {
+                nodo = nodo.hijo(' ');
+                espacio = false;
+                if (nodo == null) {
+                    break;
+                }
+            }
+            nodo = nodo.hijo(c);
+            algo = true;
+        }
+        if (!algo || nodo == null) {
+            return List.of();
+        }
+        List<Sugerencia> mejores = nodo.mejores;
+        return limite < mejores.size() ? mejores.subList(0, Math.max(limite, 0)) : mejores;
+    }
+
+    private static char plegar(char c) {
+        return c < PLEGADO.length ? PLEGADO[c] : Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ';
+    }
+
+    /** Texto plegado con los separadores reducidos a un espacio entre palabras */
+    private static String plegar(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = plegar(texto.charAt(i));
+            if (c != ' ') {
+                sb.append(c);
+            } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                sb.append(' ');
+            }
+        }
+        int fin = sb.length();
+        return fin > 0 && sb.charAt(fin - 1) == ' ' ? sb.substring(0, fin - 1) : sb.toString();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        reconstruir();
+    }
+
+    /**
+     * Cualquier cambio de un Producto encarga una reconstrucción en segundo plano; mientras
+     * tanto se sigue respondiendo con el índice anterior
+     */
+    @EventListener
+    public void alCambiar(CambioEntidad cambio) {
+        if (cambio.es(Producto.class) && pendiente.compareAndSet(false, true)) {
+            ejecutor.execute(() -> {
+                pendiente.set(false);
+                reconstruir();
+            });
+        }
+    }
+
+    /** Lee los productos activos, arma un índice nuevo y lo publica */
+    public void reconstruir() {
+        cerrojo.lock();
+        try {
+            construir();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private void construir() {
+        long t0 = System.nanoTime();
+        // CONSULTA SQL: SELECT * FROM producto WHERE activo = true
+        List<Producto> activos = repo.findByActivoTrue();
+
+        // Términos distintos (plegados) con la primera forma escrita y cuántos productos abarcan
+        Map<String, Termino> terminos = new LinkedHashMap<>();
+        for (Producto p : activos) {
+            agregar(terminos, p.getNombre(), "producto");
+            agregar(terminos, p.getCategoria(), "categoria");
+            agregar(terminos, p.getUnidad(), "unidad");
+        }
+
+        Constructor raiz = new Constructor();
+        for (Map.Entry<String, Termino> e : terminos.entrySet()) {
+            String plegado = e.getKey().substring(e.getKey().indexOf(':') + 1);
+            Sugerencia s = e.getValue().sugerencia();
+            int inicio = 0;
+            while (true) {
+                Constructor nodo = raiz;
+                for (int i = inicio; i < plegado.length(); i++) {
+                    nodo = nodo.hijos.computeIfAbsent(plegado.charAt(i), c -> new Constructor());
+                    nodo.candidatos.add(new Candidato(s, inicio == 0));
+                }
+                int espacio = plegado.indexOf(' ', inicio);
+                if (espacio < 0) {
+                    break;
+                }
+                inicio = espacio + 1;
+            }
+        }
+        int[] nodos = {0};
+        Nodo nueva = congelar(raiz, nodos);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        indice = new Indice(nueva, terminos.size(), nodos[0], ms);
+        reconstrucciones.increment();
+        log.info("Índice de sugerencias: {} términos, {} nodos, {} ms", terminos.size(), nodos[0], ms);
+    }
+
+    private static void agregar(Map<String, Termino> terminos, String texto, String tipo) {
+        if (texto == null || texto.isBlank()) {
+            return;
+        }
+        String plegado = plegar(texto);
+        if (plegado.isEmpty()) {
+            return;
+        }
+        terminos.computeIfAbsent(tipo + ":" + plegado, k -> new Termino(texto.strip(), tipo)).productos++;
+    }
+
+    private static final class Termino {
+        final String texto;
+        final String tipo;
+        int productos;
+
+        Termino(String texto, String tipo) {
+            this.texto = texto;
+            this.tipo = tipo;
+        }
+
+        Sugerencia sugerencia() {
+            return new Sugerencia(texto, tipo, productos);
+        }
+    }
+
+    /** Un término que pasa por un nodo; alComienzo = el prefijo es el comienzo del término */
+    private record Candidato(Sugerencia sugerencia, boolean alComienzo) {}
+
+    private static final Comparator<Candidato> ORDEN = Comparator
+        .comparing(Candidato::alComienzo).reversed()
+        .thenComparingInt(c -> -c.sugerencia().productos())
+        .thenComparing(c -> c.sugerencia().texto(), String.CASE_INSENSITIVE_ORDER);
+
+    /** Nodo mutable, solo durante la construcción */
+    private static final class Constructor {
+        final TreeMap<Character, Constructor> hijos = new TreeMap<>();
+        final List<Candidato> candidatos = new ArrayList<>();
+    }
+
+    private Nodo congelar(Constructor c, int[] nodos) {
+        nodos[0]++;
+        char[] letras = new char[c.hijos.size()];
+        Nodo[] hijos = new Nodo[letras.length];
+        int i = 0;
+        for (Map.Entry<Character, Constructor> e : c.hijos.entrySet()) {
+            letras[i] = e.getKey();
+            hijos[i] = congelar(e.getValue(), nodos);
+            i++;
+        }
+        // Un término puede llegar al mismo nodo por dos palabras: cuenta una vez, la mejor
+        Map<Sugerencia, Candidato> unicos = new HashMap<>();
+        for (Candidato cand : c.candidatos) {
+            unicos.merge(cand.sugerencia(), cand, (a, b) -> a.alComienzo() ? a : b);
+        }
+        List<Sugerencia> mejores = unicos.values().stream()
+            .sorted(ORDEN)
+            .limit(max)
+            .map(Candidato::sugerencia)
+            .toList();
+        return new Nodo(letras.length == 0 ? SIN_LETRAS : letras, hijos.length == 0 ? SIN_HIJOS : hijos, mejores);
+    }
+
+    public Map<String, Object> getMetricas() {
+        Indice actual = indice;
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("terminos", actual.terminos());
+        metricas.put("nodos", actual.nodos());
+        metricas.put("construidoMs", actual.construidoMs());
+        metricas.put("reconstrucciones", reconstrucciones.sum());
+        metricas.put("consultas", consultas.sum());
+        return metricas;
+    }
+}
@@ -0,0 +1,77 @@
+package com.casuarinas.app.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import jakarta.annotation.PostConstruct;
+import java.util.function.Supplier;
+
+/**
+ * TRANSACCIONES EXPLÍCITAS DE LA CAPA DE SERVICIOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Con spring.jpa.open-in-view=false la conexión ya no queda tomada durante toda la petición:
+ * cada servicio abre una transacción corta alrededor de su acceso a la base y la devuelve
+ * al pool antes de que Jackson escriba la respuesta.
+ *
+ * - leer(): transacción de solo lectura. Hibernate abre la sesión en modo read-only (sin
+ *   copias de las entidades para comparar ni dirty checking) y con FlushMode.MANUAL, y la
+ *   conexión JDBC se marca setReadOnly(true)
+ * - escribir(): transacción normal, solo alrededor de los INSERT / UPDATE / DELETE
+ *
+ * Son TransactionTemplate y no @Transactional porque los pedidos deben abrir la transacción
+ * dentro del fragmento ya elegido (FragmentosPedidos.en), igual que IdempotenciaService.
+ * Si ya hay una transacción en curso, ambas se unen a ella.
+ *
+ * - despuesDelCommit(): los efectos fuera de la base (ranking, analítica, avisos al cluster)
+ *   esperan a que confirme la transacción en curso; si se revierte, no ocurren
+ *
+ * RELACIÓN CON SQL:
+ * - BEGIN ... COMMIT por cada operación del servicio, en una sola conexión del pool
+ */
+@Component
+public class Transacciones {
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate lectura;
+    private TransactionTemplate escritura;
+
+    @PostConstruct
+    public void iniciar() {
+        lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        escritura = new TransactionTemplate(transactionManager);
+    }
+
+    public <T> T leer(Supplier<T> operacion) {
+        return lectura.execute(estado -> operacion.get());
+    }
+
+    public <T> T escribir(Supplier<T> operacion) {
+        return escritura.execute(estado -> operacion.get());
+    }
+
+    public void escribir(Runnable operacion) {
+        escritura.executeWithoutResult(estado -> operacion.run());
+    }
+
+    /**
+     * Ejecuta la acción al confirmar la transacción en curso, o enseguida si no hay ninguna
+     */
+    public void despuesDelCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
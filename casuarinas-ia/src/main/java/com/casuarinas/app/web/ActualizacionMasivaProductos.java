@@ -0,0 +1,29 @@
+package com.casuarinas.app.web;
+
+/**
+ * CUERPO DE PATCH /api/productos/bulk - PROGRAMACIÓN ORIENTADA A OBJETOS
+ * 
+ * Describe una modificación parcial aplicada a muchos productos a la vez.
+ * Los campos nulos no se modifican.
+ * 
+ * RELACIÓN CON SQL:
+ * - categoria: se traduce a WHERE categoria = ? (nulo = todos los productos)
+ * - porcentajePrecio: UPDATE producto SET precio = ROUND(precio * (1 + %/100), 2)
+ * - activo: UPDATE producto SET activo = ?
+ */
+public class ActualizacionMasivaProductos {
+    private String categoria;
+    private Double porcentajePrecio; // +10 sube un 10%, -5 baja un 5%; debe ser mayor que -100
+    private Boolean activo;
+
+    public ActualizacionMasivaProductos() {}
+
+    public String getCategoria() { return categoria; }
+    public void setCategoria(String categoria) { this.categoria = categoria; }
+
+    public Double getPorcentajePrecio() { return porcentajePrecio; }
+    public void setPorcentajePrecio(Double porcentajePrecio) { this.porcentajePrecio = porcentajePrecio; }
+
+    public Boolean getActivo() { return activo; }
+    public void setActivo(Boolean activo) { this.activo = activo; }
+}
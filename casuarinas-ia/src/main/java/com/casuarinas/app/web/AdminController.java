@@ -0,0 +1,33 @@
+package com.casuarinas.app.web;
+
+import com.casuarinas.app.service.PanelAdmin;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * CONTROLADOR REST ADMINISTRACIÓN - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Expone el panel de administración compuesto: admin.html lo obtiene con una sola petición.
+ *
+ * RELACIÓN CON POO:
+ * - @RestController: Convierte la clase en un controlador REST (patrón Controller)
+ * - Inyección de dependencias: @Autowired inyecta PanelAdmin (patrón Dependency Injection)
+ *
+ * RELACIÓN CON SQL:
+ * - PanelAdmin ejecuta las consultas del catálogo, pedidos recientes y ventas del día en paralelo
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    @Autowired
+    private PanelAdmin panel;
+
+    /**
+     * Catálogo, pedidos más recientes y ventas de hoy por localidad
+     * @param pedidos tamaño de la página de pedidos recientes (máximo PanelAdmin.PEDIDOS_MAXIMO)
+     */
+    @GetMapping("/dashboard")
+    public PanelAdmin.Tablero dashboard(@RequestParam(defaultValue = "50") int pedidos) {
+        return panel.armar(pedidos);
+    }
+}
@@ -0,0 +1,28 @@
+package com.casuarinas.app.web;
+
+import com.casuarinas.app.service.AnaliticaPedidos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import java.util.List;
+
+/**
+ * CONTROLADOR REST ANALÍTICA - PROGRAMACIÓN ORIENTADA A OBJETOS
+ * 
+ * Consultas ad-hoc de los dueños (ticket promedio, facturación por hora, etc.)
+ * resueltas sobre el almacén columnar en memoria.
+ * 
+ * RELACIÓN CON SQL:
+ * - No ejecuta consultas SQL: equivale a SELECT grupo, COUNT(*), SUM(total), AVG(total),
+ *   MIN(total), MAX(total) FROM pedido WHERE ... GROUP BY grupo, pero sin tocar H2
+ */
+@RestController
+@RequestMapping("/api/analitica")
+public class AnaliticaController {
+    @Autowired
+    private AnaliticaPedidos analitica;
+
+    @PostMapping("/consulta")
+    public List<AnaliticaPedidos.Grupo> consultar(@RequestBody ConsultaAnalitica consulta) {
+        return analitica.consultar(consulta);
+    }
+}
@@ -0,0 +1,30 @@
+package com.casuarinas.app.web;
+
+import com.casuarinas.app.service.BuscadorFederado;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * CONTROLADOR REST DE BÚSQUEDA - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * El cuadro de búsqueda único del panel: GET /api/buscar?q=texto devuelve productos,
+ * clientes y pedidos que coinciden, ordenados por relevancia, y cómo respondió cada fuente.
+ *
+ * RELACIÓN CON POO:
+ * - Delega todo en BuscadorFederado; aquí solo se traduce la petición HTTP
+ *
+ * RELACIÓN CON SQL:
+ * - Tres SELECT ... LIKE en paralelo (ver BuscadorFederado)
+ */
+@RestController
+@RequestMapping("/api/buscar")
+public class BusquedaController {
+
+    @Autowired
+    private BuscadorFederado buscador;
+
+    @GetMapping
+    public BuscadorFederado.Busqueda buscar(@RequestParam(defaultValue = "") String q) {
+        return buscador.buscar(q);
+    }
+}
@@ -1,7 +1,7 @@
 package com.casuarinas.app.web;
 
 import com.casuarinas.app.model.Cliente;
-import com.casuarinas.app.repo.ClienteRepo;
+import com.casuarinas.app.service.ClienteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -15,13 +15,14 @@ import java.util.Optional;
  * 
  * RELACIÓN CON POO:
  * - @RestController: Convierte la clase en un controlador REST (patrón Controller)
- * - Inyección de dependencias: @Autowired inyecta ClienteRepo (patrón Dependency Injection)
+ * - Inyección de dependencias: @Autowired inyecta ClienteService (patrón Dependency Injection)
  * - Encapsulación: Métodos privados para lógica interna, públicos para endpoints
  * - Polimorfismo: Implementa la interfaz de controlador REST de Spring
  * - Separación de responsabilidades: Solo maneja peticiones HTTP, delega lógica de negocio
  * 
  * RELACIÓN CON SQL:
- * - Cada endpoint ejecuta consultas SQL a través del repositorio
+ * - Cada endpoint ejecuta consultas SQL a través de ClienteService, en una transacción
+ *   corta que devuelve la conexión antes de escribir el JSON
  * - @GetMapping: Genera consultas SELECT SQL
  * - @PostMapping: Genera consultas INSERT SQL
  * - @PutMapping: Genera consultas UPDATE SQL
@@ -32,35 +33,30 @@ import java.util.Optional;
 @RequestMapping("/api/clientes")
 public class ClienteController {
     @Autowired
-    private ClienteRepo repo;
+    private ClienteService servicio;
 
     @GetMapping
     public List<Cliente> getAll(@RequestParam(required = false) String localidad) {
-        if (localidad != null && !localidad.isEmpty()) {
-            return repo.findByLocalidad(localidad);
-        } else {
-            return repo.findAll();
-        }
+        return servicio.listar(localidad);
     }
 
     @GetMapping("/{id}")
     public Optional<Cliente> getById(@PathVariable Long id) {
-        return repo.findById(id);
+        return servicio.buscar(id);
     }
 
     @PostMapping
     public Cliente create(@RequestBody Cliente cliente) {
-        return repo.save(cliente);
+        return servicio.crear(cliente);
     }
 
     @PutMapping("/{id}")
     public Cliente update(@PathVariable Long id, @RequestBody Cliente cliente) {
-        cliente.setId(id);
-        return repo.save(cliente);
+        return servicio.actualizar(id, cliente);
     }
 
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id) {
-        repo.deleteById(id);
+        servicio.eliminar(id);
     }
 }
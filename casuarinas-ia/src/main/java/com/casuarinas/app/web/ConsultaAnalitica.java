@@ -0,0 +1,56 @@
+package com.casuarinas.app.web;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * CUERPO DE POST /api/analitica/consulta - PROGRAMACIÓN ORIENTADA A OBJETOS
+ * 
+ * Filtros, agrupación y agregación sobre el historial de pedidos en memoria.
+ * Todos los filtros son opcionales; los nulos no restringen.
+ * 
+ * Ejemplo: ticket promedio en Carrasco los fines de semana
+ *   {"localidades": ["Carrasco"], "diasSemana": [6, 7]}
+ * Ejemplo: facturación por hora del día
+ *   {"agruparPor": "hora"}
+ */
+public class ConsultaAnalitica {
+    private List<String> localidades;
+    private LocalDate desde;                // inclusive
+    private LocalDate hasta;                // inclusive
+    private List<Integer> diasSemana;       // 1 = lunes ... 7 = domingo
+    private Integer horaDesde;              // 0..23 inclusive
+    private Integer horaHasta;              // 0..23 inclusive
+    private Double totalMinimo;
+    private Double totalMaximo;
+    private String agruparPor;              // hora, diaSemana, localidad, dia, mes (nulo = sin agrupar)
+
+    public ConsultaAnalitica() {}
+
+    public List<String> getLocalidades() { return localidades; }
+    public void setLocalidades(List<String> localidades) { this.localidades = localidades; }
+
+    public LocalDate getDesde() { return desde; }
+    public void setDesde(LocalDate desde) { this.desde = desde; }
+
+    public LocalDate getHasta() { return hasta; }
+    public void setHasta(LocalDate hasta) { this.hasta = hasta; }
+
+    public List<Integer> getDiasSemana() { return diasSemana; }
+    public void setDiasSemana(List<Integer> diasSemana) { this.diasSemana = diasSemana; }
+
+    public Integer getHoraDesde() { return horaDesde; }
+    public void setHoraDesde(Integer horaDesde) { this.horaDesde = horaDesde; }
+
+    public Integer getHoraHasta() { return horaHasta; }
+    public void setHoraHasta(Integer horaHasta) { this.horaHasta = horaHasta; }
+
+    public Double getTotalMinimo() { return totalMinimo; }
+    public void setTotalMinimo(Double totalMinimo) { this.totalMinimo = totalMinimo; }
+
+    public Double getTotalMaximo() { return totalMaximo; }
+    public void setTotalMaximo(Double totalMaximo) { this.totalMaximo = totalMaximo; }
+
+    public String getAgruparPor() { return agruparPor; }
+    public void setAgruparPor(String agruparPor) { this.agruparPor = agruparPor; }
+}
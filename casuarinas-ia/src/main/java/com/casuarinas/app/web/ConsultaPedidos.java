@@ -0,0 +1,61 @@
+package com.casuarinas.app.web;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * CUERPO DE POST /api/pedidos/consulta - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Filtros componibles sobre la tabla de pedidos. Todos son opcionales; los nulos no
+ * restringen. PedidoService los compila a un único SELECT con ORDER BY y LIMIT.
+ *
+ * Ejemplo: los 20 pedidos más caros de Carrasco y Pocitos en octubre
+ *   {"localidades": ["Carrasco", "Pocitos"], "desde": "2026-10-01T00:00:00",
+ *    "hasta": "2026-10-31T23:59:59", "ordenarPor": "total", "direccion": "desc", "limite": 20}
+ * Ejemplo: los últimos pedidos con queso de un cliente
+ *   {"cliente": "martínez", "producto": "queso"}
+ */
+public class ConsultaPedidos {
+    private LocalDateTime desde;            // inclusive
+    private LocalDateTime hasta;            // inclusive
+    private Double totalMinimo;             // inclusive
+    private Double totalMaximo;             // inclusive
+    private List<String> localidades;       // con localidades solo se consultan sus fragmentos
+    private String cliente;                 // el nombre del cliente contiene el texto
+    private String producto;                // algún ítem del carrito contiene el texto
+    private String ordenarPor;              // creado, total, id, nombreCliente, localidad (nulo = creado)
+    private String direccion;               // asc, desc (nulo = desc)
+    private Integer limite;                 // nulo = casuarinas.consulta.limite; tope casuarinas.consulta.max-limite
+
+    public ConsultaPedidos() {}
+
+    public LocalDateTime getDesde() { return desde; }
+    public void setDesde(LocalDateTime desde) { this.desde = desde; }
+
+    public LocalDateTime getHasta() { return hasta; }
+    public void setHasta(LocalDateTime hasta) { this.hasta = hasta; }
+
+    public Double getTotalMinimo() { return totalMinimo; }
+    public void setTotalMinimo(Double totalMinimo) { this.totalMinimo = totalMinimo; }
+
+    public Double getTotalMaximo() { return totalMaximo; }
+    public void setTotalMaximo(Double totalMaximo) { this.totalMaximo = totalMaximo; }
+
+    public List<String> getLocalidades() { return localidades; }
+    public void setLocalidades(List<String> localidades) { this.localidades = localidades; }
+
+    public String getCliente() { return cliente; }
+    public void setCliente(String cliente) { this.cliente = cliente; }
+
+    public String getProducto() { return producto; }
+    public void setProducto(String producto) { this.producto = producto; }
+
+    public String getOrdenarPor() { return ordenarPor; }
+    public void setOrdenarPor(String ordenarPor) { this.ordenarPor = ordenarPor; }
+
+    public String getDireccion() { return direccion; }
+    public void setDireccion(String direccion) { this.direccion = direccion; }
+
+    public Integer getLimite() { return limite; }
+    public void setLimite(Integer limite) { this.limite = limite; }
+}
@@ -0,0 +1,52 @@
+package com.casuarinas.app.web;
+
+import java.util.List;
+
+/**
+ * CUERPO DE POST /api/productos/consulta - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Filtros componibles sobre el catálogo completo (activos e inactivos, para el panel de
+ * administración). Todos son opcionales; los nulos no restringen. ProductoService los
+ * compila a un único SELECT con ORDER BY y LIMIT.
+ *
+ * Ejemplo: los 10 lácteos activos más baratos
+ *   {"categorias": ["Lácteos"], "activo": true, "ordenarPor": "precio", "limite": 10}
+ * Ejemplo: productos inactivos que contienen "miel"
+ *   {"nombre": "miel", "activo": false}
+ */
+public class ConsultaProductos {
+    private String nombre;                  // el nombre contiene el texto
+    private List<String> categorias;
+    private Double precioMinimo;            // inclusive
+    private Double precioMaximo;            // inclusive
+    private Boolean activo;                 // nulo = activos e inactivos
+    private String ordenarPor;              // nombre, precio, categoria, id, actualizado (nulo = nombre)
+    private String direccion;               // asc, desc (nulo = asc)
+    private Integer limite;                 // nulo = casuarinas.consulta.limite; tope casuarinas.consulta.max-limite
+
+    public ConsultaProductos() {}
+
+    public String getNombre() { return nombre; }
+    public void setNombre(String nombre) { this.nombre = nombre; }
+
+    public List<String> getCategorias() { return categorias; }
+    public void setCategorias(List<String> categorias) { this.categorias = categorias; }
+
+    public Double getPrecioMinimo() { return precioMinimo; }
+    public void setPrecioMinimo(Double precioMinimo) { this.precioMinimo = precioMinimo; }
+
+    public Double getPrecioMaximo() { return precioMaximo; }
+    public void setPrecioMaximo(Double precioMaximo) { this.precioMaximo = precioMaximo; }
+
+    public Boolean getActivo() { return activo; }
+    public void setActivo(Boolean activo) { this.activo = activo; }
+
+    public String getOrdenarPor() { return ordenarPor; }
+    public void setOrdenarPor(String ordenarPor) { this.ordenarPor = ordenarPor; }
+
+    public String getDireccion() { return direccion; }
+    public void setDireccion(String direccion) { this.direccion = direccion; }
+
+    public Integer getLimite() { return limite; }
+    public void setLimite(Integer limite) { this.limite = limite; }
+}
@@ -0,0 +1,212 @@
+package com.casuarinas.app.web;
+
+import com.casuarinas.app.boot.Calentamiento;
+import com.casuarinas.app.diagnostico.EstadisticasSql;
+import com.casuarinas.app.diagnostico.GrabacionJfr;
+import com.casuarinas.app.diagnostico.HilosVirtuales;
+import com.casuarinas.app.diagnostico.LatenciaPeticiones;
+import com.casuarinas.app.diagnostico.RegistroAccesos;
+import com.casuarinas.app.service.CatalogoProductos;
+import com.casuarinas.app.service.MantenimientoH2;
+import com.casuarinas.app.service.RespaldoH2;
+import com.casuarinas.app.service.SugerenciasProductos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CONTROLADOR REST DIAGNÓSTICO - PROGRAMACIÓN ORIENTADA A OBJETOS
+ * 
+ * Expone las métricas internas que ayudan a detectar regresiones de rendimiento.
+ * 
+ * RELACIÓN CON SQL:
+ * - /sql: sentencias, filas y tiempo SQL acumulados por endpoint, con las violaciones
+ *   de presupuesto (por ejemplo un N+1 nuevo en PedidoController)
+ * - /listo: sonda de disponibilidad para el balanceador; 503 hasta que termina el calentamiento
+ * - /respaldo: últimos respaldos de H2 y latencia de las peticiones durante y fuera de ellos
+ * - /almacenamiento: tamaño y relleno del archivo de cada base y últimas compactaciones
+ * - /catalogo: aciertos de la caché de búsquedas y consultas agrupadas por single-flight,
+ *   y tamaño del índice de autocompletado
+ * - /memoria: heap, memoria residente e hilos del proceso (MedicionPilas la usa para estimar
+ *   la memoria por conexión de cada pila)
+ * - /hilos: modo de hilos (virtuales o de plataforma), conexiones del pool y bloqueos de
+ *   hilos virtuales que no sueltan su portador (pinning)
+ * - /accesos: entradas del registro de accesos binario escritas, pendientes y descartadas
+ * - /jfr: los últimos minutos de la grabación JFR continua, para analizar un pico de latencia
+ *   después de que pasó
+ */
+@RestController
+@RequestMapping("/api/diagnostico")
+public class DiagnosticoController {
+    @Autowired
+    private EstadisticasSql estadisticasSql;
+
+    @Autowired
+    private ApplicationAvailability disponibilidad;
+
+    @Autowired
+    private Calentamiento calentamiento;
+
+    @Autowired
+    private RespaldoH2 respaldo;
+
+    @Autowired
+    private LatenciaPeticiones latencias;
+
+    @Autowired
+    private CatalogoProductos catalogo;
+
+    @Autowired
+    private SugerenciasProductos sugerencias;
+
+    @Autowired
+    private GrabacionJfr jfr;
+
+    @Autowired
+    private HilosVirtuales hilos;
+
+    @Autowired
+    private MantenimientoH2 mantenimiento;
+
+    @Autowired
+    private RegistroAccesos accesos;
+
+    @GetMapping("/sql")
+    public Map<String, EstadisticasSql.Endpoint> sql() {
+        return estadisticasSql.getEndpoints();
+    }
+
+    /**
+     * Spring pasa a ACCEPTING_TRAFFIC recién después de todos los CommandLineRunner,
+     * incluido el calentamiento: hasta entonces la sonda responde 503
+     */
+    @GetMapping("/listo")
+    public ResponseEntity<Map<String, Object>> listo() {
+        ReadinessState estado = disponibilidad.getReadinessState();
+        Map<String, Object> cuerpo = Map.of(
+            "estado", estado,
+            "calentamientoTerminado", calentamiento.isTerminado(),
+            "calentamientoMs", calentamiento.getDuracionMs(),
+            "fases", calentamiento.getFases());
+        return ResponseEntity.status(estado == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+            .body(cuerpo);
+    }
+
+    @GetMapping("/respaldo")
+    public Map<String, Object> respaldo() {
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("enCurso", respaldo.isEnCurso());
+        cuerpo.put("latencias", latencias.getGrupos());
+        cuerpo.put("historial", respaldo.getHistorial());
+        return cuerpo;
+    }
+
+    /**
+     * Respalda ahora, fuera del horario programado; responde cuando termina
+     */
+    @PostMapping("/respaldo")
+    public List<RespaldoH2.Resumen> respaldar() {
+        return respaldo.respaldar();
+    }
+
+    @GetMapping("/almacenamiento")
+    public Map<String, Object> almacenamiento() {
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("bases", mantenimiento.getEstados());
+        cuerpo.put("reciente", latencias.getReciente());
+        cuerpo.put("historial", mantenimiento.getHistorial());
+        return cuerpo;
+    }
+
+    /**
+     * Compacta ahora, sin esperar la tarea programada; igual cede si sube el tráfico
+     */
+    @PostMapping("/almacenamiento")
+    public List<MantenimientoH2.Ejecucion> compactar() {
+        return mantenimiento.mantener();
+    }
+
+    @GetMapping("/catalogo")
+    public Map<String, Object> catalogo() {
+        Map<String, Object> metricas = catalogo.getMetricas();
+        metricas.put("sugerencias", sugerencias.getMetricas());
+        return metricas;
+    }
+
+    /**
+     * Descarga un .jfr con los últimos minutos (abrir con JDK Mission Control o "jfr print
+     * --events casuarinas.Peticion archivo.jfr"); una copia queda en casuarinas.jfr.directorio
+     */
+    @GetMapping("/jfr")
+    public ResponseEntity<Resource> jfr(@RequestParam(defaultValue = "5") int minutos) throws IOException {
+        if (!jfr.isGrabando()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        Path archivo = jfr.volcar(Math.max(1, minutos));
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(archivo.getFileName().toString()).build().toString())
+            .body(new FileSystemResource(archivo));
+    }
+
+    /**
+     * @param gc pedir una recolección antes de medir, para que el heap usado refleje lo vivo
+     */
+    @GetMapping("/memoria")
+    public Map<String, Object> memoria(@RequestParam(defaultValue = "false") boolean gc) {
+        if (gc) {
+            System.gc();
+        }
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("heapUsado", memoria.getHeapMemoryUsage().getUsed());
+        cuerpo.put("noHeapUsado", memoria.getNonHeapMemoryUsage().getUsed());
+        cuerpo.put("residente", residente());
+        cuerpo.put("hilos", ManagementFactory.getThreadMXBean().getThreadCount());
+        return cuerpo;
+    }
+
+    /**
+     * Estado del registro de accesos; los archivos se resumen con LectorAccesos
+     */
+    @GetMapping("/accesos")
+    public Map<String, Object> accesos() {
+        return accesos.getEstado();
+    }
+
+    @GetMapping("/hilos")
+    public Map<String, Object> hilos() {
+        return hilos.getEstado();
+    }
+
+    /** VmRSS de /proc/self/status en bytes; -1 fuera de Linux */
+    private static long residente() {
+        try {
+            for (String linea : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (linea.startsWith("VmRSS:")) {
+                    return Long.parseLong(linea.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Sin /proc: solo quedan los datos de la JVM
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,103 @@
+package com.casuarinas.app.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * FILTRO DE CACHÉ HTTP PARA LAS PÁGINAS ESTÁTICAS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Usa el manifiesto que genera PipelineEstaticos en el build:
+ * - Pedido con ?v=huella vigente: Cache-Control inmutable por un año
+ * - Pedido sin huella (o con una vieja): no-cache, el navegador revalida con If-None-Match
+ * - If-None-Match igual al ETag de la página: 304 sin cuerpo
+ *
+ * La elección entre .br, .gz o el original según Accept-Encoding la hace el
+ * resolvedor de recursos de Spring (spring.web.resources.chain.compressed).
+ *
+ * Si el manifiesto no existe (ejecución desde el IDE sin el build de Maven) no hace nada.
+ */
+@Component
+public class FiltroCacheEstaticos extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltroCacheEstaticos.class);
+
+    /** Manifiesto que escribe PipelineEstaticos en el build, dentro de static/ */
+    public static final String MANIFIESTO = "manifest-estaticos.properties";
+
+    private static final String INMUTABLE = "public, max-age=31536000, immutable";
+
+    private final Properties manifiesto = new Properties();
+
+    public FiltroCacheEstaticos() {
+        ClassPathResource recurso = new ClassPathResource("static/" + MANIFIESTO);
+        if (recurso.exists()) {
+            try {
+                PropertiesLoaderUtils.fillProperties(manifiesto, recurso);
+            } catch (IOException e) {
+                log.warn("No se pudo leer el manifiesto de estáticos: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return manifiesto.isEmpty() || !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Cabeceras cabeceras = cabeceras(request.getRequestURI(), request.getParameter("v"));
+        if (cabeceras == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, cabeceras.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cabeceras.cacheControl());
+        if (cabeceras.vigente(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /** ETag y Cache-Control de una página del manifiesto */
+    public record Cabeceras(String etag, String cacheControl) {
+
+        /** If-None-Match igual al ETag: el ETag cubre el contenido descomprimido, vale para cualquier codificación */
+        public boolean vigente(String ifNoneMatch) {
+            return ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.contains(etag.substring(2)));
+        }
+    }
+
+    /**
+     * Cabeceras para la URI pedida con ?v=version (null si no vino), o null si no es una
+     * página del manifiesto. También las usa la pila reactiva (FiltroEstaticosReactivo)
+     */
+    public Cabeceras cabeceras(String uri, String version) {
+        String pagina = pagina(uri);
+        String huella = manifiesto.getProperty(pagina);
+        if (huella == null) {
+            return null;
+        }
+        return new Cabeceras("W/\"" + manifiesto.getProperty(pagina + ".etag") + "\"",
+            huella.equals(version) ? INMUTABLE : "no-cache");
+    }
+
+    /** "/" se sirve como la página de bienvenida index.html */
+    private static String pagina(String uri) {
+        String nombre = uri.substring(uri.lastIndexOf('/') + 1);
+        return nombre.isEmpty() && "/".equals(uri) ? "index.html" : nombre;
+    }
+}
@@ -1,11 +1,12 @@
 package com.casuarinas.app.web;
 
 import com.casuarinas.app.model.Pedido;
-import com.casuarinas.app.repo.PedidoRepo;
+import com.casuarinas.app.service.PedidoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -16,74 +17,84 @@ import java.util.Optional;
  * 
  * RELACIÓN CON POO:
  * - @RestController: Convierte la clase en un controlador REST (patrón Controller)
- * - Inyección de dependencias: @Autowired inyecta PedidoRepo (patrón Dependency Injection)
+ * - Inyección de dependencias: @Autowired inyecta PedidoService (patrón Dependency Injection)
  * - Encapsulación: Métodos privados para lógica interna, públicos para endpoints
  * - Polimorfismo: Implementa la interfaz de controlador REST de Spring
  * - Separación de responsabilidades: Solo maneja peticiones HTTP, delega lógica de negocio
  * 
  * RELACIÓN CON SQL:
- * - Cada endpoint ejecuta consultas SQL a través del repositorio
+ * - Cada endpoint ejecuta consultas SQL a través de PedidoService, en transacciones cortas
+ *   que devuelven la conexión antes de escribir el JSON
  * - @GetMapping: Genera consultas SELECT SQL
  * - @PostMapping: Genera consultas INSERT SQL
  * - @PutMapping: Genera consultas UPDATE SQL
  * - @DeleteMapping: Genera consultas DELETE SQL
  * - Los filtros se traducen a cláusulas WHERE en SQL
+ * - En modo fragmentado cada operación va al fragmento del pedido (FragmentosPedidos) y las
+ *   búsquedas que no indican localidad se ejecutan en todos los fragmentos en paralelo
  */
 @RestController
 @RequestMapping("/api/pedidos")
 public class PedidoController {
     @Autowired
-    private PedidoRepo repo;
+    private PedidoService servicio;
 
     @GetMapping
     public List<Pedido> getAll(
         @RequestParam(required = false) String nombreCliente,
         @RequestParam(required = false) String localidad
     ) {
-        if (nombreCliente != null && localidad != null && !nombreCliente.isEmpty() && !localidad.isEmpty()) {
-            return repo.findByNombreClienteContainingIgnoreCaseAndLocalidad(nombreCliente, localidad);
-        } else if (nombreCliente != null && !nombreCliente.isEmpty()) {
-            return repo.findByNombreClienteContainingIgnoreCase(nombreCliente);
-        } else if (localidad != null && !localidad.isEmpty()) {
-            return repo.findByLocalidad(localidad);
-        } else {
-            return repo.findAll();
-        }
+        return servicio.listar(nombreCliente, localidad);
+    }
+
+    /**
+     * Consulta componible: rango de fechas y de totales, localidades, cliente y producto,
+     * con orden y límite; un único SELECT por fragmento consultado
+     */
+    @PostMapping("/consulta")
+    public List<Pedido> consultar(@RequestBody ConsultaPedidos consulta) {
+        return servicio.consultar(consulta);
     }
 
     @GetMapping("/{id}")
     public Optional<Pedido> getById(@PathVariable Long id) {
-        return repo.findById(id);
+        return servicio.buscar(id);
     }
 
     @PostMapping
-    public Pedido create(@RequestBody Pedido pedido) {
-        if (pedido.getCreado() == null) {
-            pedido.setCreado(LocalDateTime.now());
-        }
-        return repo.save(pedido);
+    public Pedido create(
+        @RequestBody Pedido pedido,
+        @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia
+    ) {
+        return servicio.crear(pedido, claveIdempotencia);
     }
 
     @PutMapping("/{id}")
     public Pedido update(@PathVariable Long id, @RequestBody Pedido pedido) {
-        pedido.setId(id);
-        return repo.save(pedido);
+        return servicio.actualizar(id, pedido);
     }
 
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id) {
-        repo.deleteById(id);
+        servicio.eliminar(id);
+    }
+
+    /**
+     * Purga los pedidos creados antes de la fecha indicada con un único DELETE
+     * y devuelve la cantidad de pedidos borrados
+     */
+    @DeleteMapping(params = "hasta")
+    public Map<String, Integer> borrarHasta(@RequestParam String hasta) {
+        return Map.of("eliminados", servicio.borrarHasta(LocalDateTime.parse(hasta)));
     }
 
     @GetMapping("/fecha")
     public List<Pedido> filtrarPorFecha(@RequestParam String fechaInicio, @RequestParam String fechaFin) {
-        LocalDateTime inicio = LocalDateTime.parse(fechaInicio);
-        LocalDateTime fin = LocalDateTime.parse(fechaFin);
-        return repo.findByCreadoBetween(inicio, fin);
+        return servicio.porFecha(LocalDateTime.parse(fechaInicio), LocalDateTime.parse(fechaFin));
     }
 
     @GetMapping("/total")
     public List<Pedido> filtrarPorTotal(@RequestParam Double total) {
-        return repo.findByTotalGreaterThanEqual(total);
+        return servicio.porTotalMinimo(total);
     }
 }
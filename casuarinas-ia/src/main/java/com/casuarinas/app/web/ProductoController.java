@@ -1,10 +1,13 @@
 package com.casuarinas.app.web;
 
 import com.casuarinas.app.model.Producto;
-import com.casuarinas.app.repo.ProductoRepo;
+import com.casuarinas.app.service.CatalogoProductos;
+import com.casuarinas.app.service.ProductoService;
+import com.casuarinas.app.service.SugerenciasProductos;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -15,18 +18,21 @@ import java.util.Optional;
  * 
  * RELACIÓN CON POO:
  * - @RestController: Convierte la clase en un controlador REST (patrón Controller)
- * - Inyección de dependencias: @Autowired inyecta ProductoRepo (patrón Dependency Injection)
+ * - Inyección de dependencias: @Autowired inyecta ProductoService (patrón Dependency Injection)
  * - Encapsulación: Métodos privados para lógica interna, públicos para endpoints
  * - Polimorfismo: Implementa la interfaz de controlador REST de Spring
  * - Separación de responsabilidades: Solo maneja peticiones HTTP, delega lógica de negocio
  * 
  * RELACIÓN CON SQL:
- * - Cada endpoint ejecuta consultas SQL a través del repositorio
+ * - Cada endpoint ejecuta consultas SQL a través de ProductoService, que abre una
+ *   transacción corta: la conexión vuelve al pool antes de escribir el JSON
  * - @GetMapping: Genera consultas SELECT SQL
  * - @PostMapping: Genera consultas INSERT SQL
  * - @PutMapping: Genera consultas UPDATE SQL
  * - @DeleteMapping: Genera consultas DELETE SQL
  * - Los filtros se traducen a cláusulas WHERE en SQL
+ * - Las búsquedas de productos activos pasan por CatalogoProductos: un acierto de caché
+ *   no ejecuta SQL
  */
 @RestController // ANOTACIÓN SPRING: Indica que esta clase es un controlador REST
 @RequestMapping("/api/productos") // ANOTACIÓN SPRING: Define la ruta base para todas las operaciones
@@ -34,7 +40,13 @@ public class ProductoController {
     
     // INYECCIÓN DE DEPENDENCIAS - POO + SPRING
     @Autowired // ANOTACIÓN SPRING: Inyecta automáticamente la dependencia
-    private ProductoRepo repo;
+    private ProductoService servicio;
+
+    @Autowired // Búsquedas de la tienda: caché LRU y single-flight delante de ProductoRepo
+    private CatalogoProductos catalogo;
+
+    @Autowired // Autocompletado desde un índice en memoria, sin consultas
+    private SugerenciasProductos sugerencias;
 
     /**
      * MÉTODO GET - OPERACIÓN CRUD (READ)
@@ -46,20 +58,8 @@ public class ProductoController {
         @RequestParam(required = false) String nombre, // PARÁMETRO OPCIONAL
         @RequestParam(required = false) String categoria // PARÁMETRO OPCIONAL
     ) {
-        // LÓGICA DE NEGOCIO - POO
-        if (nombre != null && !nombre.isEmpty() && categoria != null && !categoria.isEmpty()) {
-            // CONSULTA SQL: SELECT * FROM producto WHERE nombre LIKE '%?%' AND categoria = ? AND activo = true
-            return repo.findByNombreContainingIgnoreCaseAndCategoriaAndActivoTrue(nombre, categoria);
-        } else if (nombre != null && !nombre.isEmpty()) {
-            // CONSULTA SQL: SELECT * FROM producto WHERE nombre LIKE '%?%' AND activo = true
-            return repo.findByNombreContainingIgnoreCaseAndActivoTrue(nombre);
-        } else if (categoria != null && !categoria.isEmpty()) {
-            // CONSULTA SQL: SELECT * FROM producto WHERE categoria = ? AND activo = true
-            return repo.findByCategoriaAndActivoTrue(categoria);
-        } else {
-            // CONSULTA SQL: SELECT * FROM producto WHERE activo = true
-            return repo.findByActivoTrue();
-        }
+        // CONSULTA SQL: SELECT * FROM producto WHERE activo = true [AND nombre LIKE '%?%'] [AND categoria = ?]
+        return catalogo.activos(nombre, categoria);
     }
 
     /**
@@ -69,7 +69,7 @@ public class ProductoController {
     @GetMapping("/{id}") // ANOTACIÓN SPRING: Mapea peticiones GET con parámetro de ruta
     public Optional<Producto> getById(@PathVariable Long id) { // PARÁMETRO DE RUTA
         // CONSULTA SQL: SELECT * FROM producto WHERE id = ?
-        return repo.findById(id);
+        return servicio.buscar(id);
     }
 
     /**
@@ -79,7 +79,7 @@ public class ProductoController {
     @PostMapping // ANOTACIÓN SPRING: Mapea peticiones POST
     public Producto create(@RequestBody Producto producto) { // PARÁMETRO DEL CUERPO DE LA PETICIÓN
         // CONSULTA SQL: INSERT INTO producto (nombre, precio, comentario, categoria, unidad, activo, creado, actualizado) VALUES (?, ?, ?, ?, ?, ?, ?, ?)
-        return repo.save(producto);
+        return servicio.crear(producto);
     }
 
     /**
@@ -88,9 +88,8 @@ public class ProductoController {
      */
     @PutMapping("/{id}") // ANOTACIÓN SPRING: Mapea peticiones PUT con parámetro de ruta
     public Producto update(@PathVariable Long id, @RequestBody Producto producto) {
-        producto.setId(id);
         // CONSULTA SQL: UPDATE producto SET nombre = ?, precio = ?, comentario = ?, categoria = ?, unidad = ?, activo = ?, actualizado = ? WHERE id = ?
-        return repo.save(producto);
+        return servicio.actualizar(id, producto);
     }
 
     /**
@@ -100,7 +99,21 @@ public class ProductoController {
     @DeleteMapping("/{id}") // ANOTACIÓN SPRING: Mapea peticiones DELETE con parámetro de ruta
     public void delete(@PathVariable Long id) {
         // CONSULTA SQL: DELETE FROM producto WHERE id = ?
-        repo.deleteById(id);
+        servicio.eliminar(id);
+    }
+
+    /**
+     * MÉTODO PATCH MASIVO - OPERACIÓN CRUD (UPDATE EN LOTE)
+     * Maneja peticiones PATCH a /api/productos/bulk
+     * Cada campo presente se aplica con una única sentencia UPDATE, sin SELECT previo,
+     * y devuelve la cantidad de filas afectadas por campo
+     */
+    @PatchMapping("/bulk") // ANOTACIÓN SPRING: Mapea peticiones PATCH con ruta específica
+    public Map<String, Integer> actualizarMasivo(@RequestBody ActualizacionMasivaProductos cambios) {
+        String categoria = cambios.getCategoria() != null && !cambios.getCategoria().isEmpty()
+            ? cambios.getCategoria() : null;
+        // CONSULTAS SQL: UPDATE producto SET precio = ... / SET activo = ... en una sola transacción
+        return servicio.actualizarMasivo(categoria, cambios.getPorcentajePrecio(), cambios.getActivo());
     }
 
     /**
@@ -110,7 +123,20 @@ public class ProductoController {
     @GetMapping("/buscar") // ANOTACIÓN SPRING: Mapea peticiones GET con ruta específica
     public List<Producto> buscarPorNombre(@RequestParam String nombre) {
         // CONSULTA SQL: SELECT * FROM producto WHERE nombre LIKE '%?%' AND activo = true
-        return repo.findByNombreContainingIgnoreCaseAndActivoTrue(nombre);
+        return catalogo.activos(nombre, null);
+    }
+
+    /**
+     * MÉTODO GET ESPECÍFICO - AUTOCOMPLETADO
+     * Maneja peticiones GET a /api/productos/sugerir?prefijo=que
+     * Nombres, categorías y unidades de productos activos que empiezan (o tienen una palabra
+     * que empieza) con el prefijo, sin importar mayúsculas ni acentos
+     */
+    @GetMapping("/sugerir") // ANOTACIÓN SPRING: Mapea peticiones GET con ruta específica
+    public List<SugerenciasProductos.Sugerencia> sugerir(@RequestParam(defaultValue = "") String prefijo,
+                                                         @RequestParam(defaultValue = "10") int limite) {
+        // Sin SQL: el índice se arma al iniciar y después de cada cambio de Producto
+        return sugerencias.sugerir(prefijo, limite);
     }
 
     /**
@@ -120,7 +146,7 @@ public class ProductoController {
     @GetMapping("/categoria") // ANOTACIÓN SPRING: Mapea peticiones GET con ruta específica
     public List<Producto> filtrarPorCategoria(@RequestParam String categoria) {
         // CONSULTA SQL: SELECT * FROM producto WHERE categoria = ? AND activo = true
-        return repo.findByCategoriaAndActivoTrue(categoria);
+        return catalogo.activos(null, categoria);
     }
 
     /**
@@ -130,7 +156,18 @@ public class ProductoController {
     @GetMapping("/activos") // ANOTACIÓN SPRING: Mapea peticiones GET con ruta específica
     public List<Producto> getProductosActivos() {
         // CONSULTA SQL: SELECT * FROM producto WHERE activo = true
-        return repo.findByActivoTrue();
+        return catalogo.activos(null, null);
+    }
+
+    /**
+     * MÉTODO POST - CONSULTA COMPONIBLE (ADMIN)
+     * Maneja peticiones POST a /api/productos/consulta
+     * Filtros opcionales por nombre, categorías, rango de precio y estado, con orden y límite
+     */
+    @PostMapping("/consulta") // ANOTACIÓN SPRING: Mapea peticiones POST con ruta específica
+    public List<Producto> consultar(@RequestBody ConsultaProductos consulta) {
+        // CONSULTA SQL: SELECT * FROM producto WHERE ... ORDER BY ?, id LIMIT ?
+        return servicio.consultar(consulta);
     }
 
     /**
@@ -141,6 +178,6 @@ public class ProductoController {
     @GetMapping("/admin") // ANOTACIÓN SPRING: Mapea peticiones GET con ruta específica
     public List<Producto> getAllForAdmin() {
         // CONSULTA SQL: SELECT * FROM producto (sin filtro de activo)
-        return repo.findAll();
+        return servicio.todos();
     }
 }
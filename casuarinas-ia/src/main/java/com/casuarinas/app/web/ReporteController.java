@@ -0,0 +1,47 @@
+package com.casuarinas.app.web;
+
+import com.casuarinas.app.service.RankingVentas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.Locale;
+
+/**
+ * CONTROLADOR REST REPORTES - PROGRAMACIÓN ORIENTADA A OBJETOS
+ * 
+ * Expone reportes de ventas calculados en memoria para el panel "qué se vende hoy".
+ * 
+ * RELACIÓN CON POO:
+ * - @RestController: Convierte la clase en un controlador REST (patrón Controller)
+ * - Inyección de dependencias: @Autowired inyecta RankingVentas (patrón Dependency Injection)
+ * 
+ * RELACIÓN CON SQL:
+ * - Las lecturas no ejecutan consultas SQL: los contadores se mantienen al crear pedidos
+ */
+@RestController
+@RequestMapping("/api/reportes")
+public class ReporteController {
+    @Autowired
+    private RankingVentas ranking;
+
+    /**
+     * Productos más vendidos (unidades) y localidades con más pedidos en la ventana en curso
+     * @param ventana hora, dia o semana
+     * @param k cantidad de posiciones (máximo RankingVentas.K_MAXIMO)
+     */
+    @GetMapping("/top")
+    public RankingVentas.Foto top(
+        @RequestParam(defaultValue = "dia") String ventana,
+        @RequestParam(defaultValue = "10") int k
+    ) {
+        RankingVentas.Ventana elegida;
+        try {
+            elegida = RankingVentas.Ventana.valueOf(ventana.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Ventana '" + ventana + "' desconocida; se admite hora, dia o semana");
+        }
+        return ranking.top(elegida, k);
+    }
+}
@@ -0,0 +1,141 @@
+package com.casuarinas.app.reactivo;
+
+import com.casuarinas.app.fragmentos.FragmentosPedidos;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * CONFIGURACIÓN DE LA PILA REACTIVA (PERFIL "reactivo") - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Con spring.main.web-application-type=reactive (application-reactivo.properties) la
+ * aplicación arranca sobre Netty: las conexiones lentas (checkouts desde el celular) no
+ * ocupan un hilo mientras suben el cuerpo o esperan la respuesta.
+ *
+ * - /api/productos, /api/productos/{id}, /api/pedidos, /api/pedidos/{id} y POST /api/pedidos
+ *   los atienden ManejadorProductos y ManejadorPedidos con repositorios R2DBC. Las rutas
+ *   funcionales tienen prioridad sobre los @RestController con la misma ruta.
+ * - El resto de los controladores (JPA) siguen funcionando: WebFlux los ejecuta en un pool
+ *   propio (casuarinas.reactivo.hilos-bloqueantes) para no bloquear los hilos de Netty.
+ *
+ * RELACIÓN CON POO:
+ * - Los beans de R2DBC no son ConnectionFactory ni TransactionManager a propósito: con un
+ *   bean de esos tipos Spring Boot dejaría de crear el DataSource y el JpaTransactionManager
+ *
+ * RELACIÓN CON SQL:
+ * - Misma base que JPA (spring.datasource.url): dentro de la JVM H2 comparte la instancia
+ * - r2dbc-h2 ejecuta H2 embebido en el hilo que se suscribe; las consultas corren en el
+ *   planificador "h2-reactivo", acotado como un pool de conexiones, y no en el event loop
+ */
+@Configuration
+@Profile("reactivo")
+@EnableR2dbcRepositories(entityOperationsRef = "operacionesR2dbc")
+public class ConfiguracionReactiva implements WebFluxConfigurer, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ConfiguracionReactiva.class);
+
+    private final ConnectionPool pool;
+    private final Scheduler planificador;
+    private final ThreadPoolTaskExecutor bloqueantes;
+
+    public ConfiguracionReactiva(
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username:sa}") String usuario,
+            @Value("${spring.datasource.password:}") String clave,
+            @Value("${casuarinas.reactivo.pool:10}") int conexiones,
+            @Value("${casuarinas.reactivo.hilos-bloqueantes:50}") int hilosBloqueantes,
+            FragmentosPedidos fragmentos) {
+        if (fragmentos.habilitado()) {
+            throw new IllegalStateException("El perfil reactivo no admite el modo fragmentado (casuarinas.fragmentos.cantidad)");
+        }
+        if (!url.startsWith("jdbc:h2:")) {
+            throw new IllegalStateException("El perfil reactivo solo admite H2: " + url);
+        }
+        H2ConnectionConfiguration configuracion = H2ConnectionConfiguration.builder()
+            .url(url.substring("jdbc:h2:".length()))
+            .username(usuario)
+            .password(clave)
+            .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuracion))
+            .name("r2dbc-h2")
+            .maxSize(conexiones)
+            .build());
+        this.planificador = Schedulers.newBoundedElastic(conexiones, Integer.MAX_VALUE, "h2-reactivo");
+        this.bloqueantes = new ThreadPoolTaskExecutor();
+        bloqueantes.setCorePoolSize(hilosBloqueantes);
+        bloqueantes.setThreadNamePrefix("bloqueante-");
+        bloqueantes.initialize();
+        log.info("Pila reactiva: R2DBC sobre {} ({} conexiones)", url, conexiones);
+    }
+
+    /**
+     * Tomcat también está en el classpath (pila por defecto) y Spring Boot lo prefiere para
+     * WebFlux; con esta fábrica el servidor reactivo es Netty
+     */
+    @Bean
+    public NettyReactiveWebServerFactory servidorNetty() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public R2dbcEntityTemplate operacionesR2dbc() {
+        return new R2dbcEntityTemplate(pool);
+    }
+
+    @Bean
+    public TransactionalOperator transaccionesR2dbc() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(pool));
+    }
+
+    @Bean
+    public Scheduler planificadorH2() {
+        return planificador;
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> rutasReactivas(ManejadorProductos productos, ManejadorPedidos pedidos) {
+        return RouterFunctions.route()
+            .GET("/api/productos", productos::listar)
+            .GET("/api/productos/{id:\\d+}", productos::porId)
+            .GET("/api/pedidos", pedidos::listar)
+            .GET("/api/pedidos/{id:\\d+}", pedidos::porId)
+            .POST("/api/pedidos", pedidos::crear)
+            .build();
+    }
+
+    /**
+     * Los @RestController con retorno no reactivo (todos los de web/) corren en el pool bloqueante
+     */
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        configurer.setExecutor(bloqueantes);
+    }
+
+    @Override
+    public void destroy() {
+        bloqueantes.shutdown();
+        planificador.dispose();
+        pool.dispose();
+    }
+}
@@ -0,0 +1,51 @@
+package com.casuarinas.app.reactivo;
+
+import com.casuarinas.app.web.FiltroCacheEstaticos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * FILTRO DE CACHÉ HTTP DE ESTÁTICOS SOBRE WEBFLUX (PERFIL "reactivo") - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Mismas cabeceras que FiltroCacheEstaticos (que sobre Netty no corre): inmutable con la
+ * huella vigente, no-cache sin ella y 304 si If-None-Match coincide con el ETag. Las
+ * cabeceras las calcula FiltroCacheEstaticos con el manifiesto de PipelineEstaticos.
+ */
+@Component
+@Profile("reactivo")
+public class FiltroEstaticosReactivo implements WebFilter {
+
+    @Autowired
+    private FiltroCacheEstaticos estaticos;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!HttpMethod.GET.equals(request.getMethod()) && !HttpMethod.HEAD.equals(request.getMethod())) {
+            return chain.filter(exchange);
+        }
+        FiltroCacheEstaticos.Cabeceras cabeceras = estaticos.cabeceras(request.getPath().value(),
+            request.getQueryParams().getFirst("v"));
+        if (cabeceras == null) {
+            return chain.filter(exchange);
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().set(HttpHeaders.ETAG, cabeceras.etag());
+        response.getHeaders().set(HttpHeaders.CACHE_CONTROL, cabeceras.cacheControl());
+        if (cabeceras.vigente(request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        return chain.filter(exchange);
+    }
+}
@@ -0,0 +1,99 @@
+package com.casuarinas.app.reactivo;
+
+import com.casuarinas.app.boot.Calentamiento;
+import com.casuarinas.app.diagnostico.EventosJfr;
+import com.casuarinas.app.diagnostico.FiltroMetricasSql;
+import com.casuarinas.app.diagnostico.LatenciaPeticiones;
+import com.casuarinas.app.diagnostico.RegistroAccesos;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FILTRO DE PETICIONES SOBRE WEBFLUX (PERFIL "reactivo") - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Equivalente reactivo de FiltroMetricasSql para /api/**: sobre Netty los filtros de servlet
+ * no corren. Cada petición alimenta a LatenciaPeticiones, queda en RegistroAccesos (con los
+ * bytes de la respuesta, contados al pasar) y, si GrabacionJfr está grabando, queda como
+ * evento casuarinas.Peticion. El endpoint es el patrón resuelto por WebFlux, tanto de las
+ * rutas funcionales como de los @RestController.
+ *
+ * Lo que no cubre: la petición no corre en un solo hilo (event loop, pool bloqueante,
+ * planificador de H2), así que no hay ContadorSql ni bytes asignados por hilo. Las
+ * sentencias SQL, los presupuestos de EstadisticasSql y la memoria asignada por endpoint
+ * solo se miden con la pila servlet; en el registro y en JFR quedan en 0.
+ *
+ * RELACIÓN CON SQL:
+ * - No ejecuta SQL: solo mide la petición de punta a punta
+ */
+@Component
+@Profile("reactivo")
+public class FiltroPeticionesReactivo implements WebFilter {
+
+    @Autowired
+    private LatenciaPeticiones latencias;
+
+    @Autowired
+    private RegistroAccesos accesos;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String ruta = request.getPath().value();
+        // Las peticiones del calentamiento de arranque no representan tráfico real
+        if (!ruta.startsWith("/api/") || request.getHeaders().containsKey(Calentamiento.CABECERA)) {
+            return chain.filter(exchange);
+        }
+        long t0 = System.nanoTime();
+        EventosJfr.Peticion evento = new EventosJfr.Peticion();
+        evento.begin();
+        AtomicLong bytes = new AtomicLong();
+        ServerHttpResponseDecorator contada = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> cuerpo) {
+                return super.writeWith(Flux.from(cuerpo).doOnNext(b -> bytes.addAndGet(b.readableByteCount())));
+            }
+        };
+        ServerWebExchange medido = exchange.mutate().response(contada).build();
+        return chain.filter(medido).doFinally(senal -> {
+            long nanos = System.nanoTime() - t0;
+            String endpoint = endpoint(medido);
+            HttpStatusCode estado = medido.getResponse().getStatusCode();
+            int codigo = estado != null ? estado.value() : 200;
+            long bytesPedido = Math.max(0, request.getHeaders().getContentLength());
+            if (accesos.isHabilitado()) {
+                accesos.registrar(endpoint, codigo, nanos, bytesPedido, bytes.get(), 0);
+            }
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.endpoint = endpoint;
+                evento.estado = codigo;
+                evento.bytesPedido = bytesPedido;
+                evento.commit();
+            }
+            if (!ruta.startsWith("/api/diagnostico/")) {
+                latencias.registrar(nanos / 1_000_000);
+            }
+        });
+    }
+
+    /** "MÉTODO /patrón" como FiltroMetricasSql.endpoint, para que ambas pilas agrupen igual */
+    private static String endpoint(ServerWebExchange exchange) {
+        PathPattern patron = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return exchange.getRequest().getMethod().name() + " "
+            + (patron != null ? patron.getPatternString() : FiltroMetricasSql.SIN_RUTA);
+    }
+}
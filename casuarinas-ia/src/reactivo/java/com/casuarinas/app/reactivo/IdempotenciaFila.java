@@ -0,0 +1,19 @@
+package com.casuarinas.app.reactivo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.LocalDateTime;
+
+/**
+ * FILA DE IDEMPOTENCIA PARA R2DBC - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Clave Idempotency-Key ya usada y el pedido que creó, en la misma tabla que
+ * IdempotenciaPedido.
+ *
+ * RELACIÓN CON SQL:
+ * - clave es la clave primaria: un segundo INSERT con la misma clave falla y el
+ *   handler devuelve el pedido original
+ */
+@Table("idempotencia_pedido")
+public record IdempotenciaFila(@Id String clave, Long pedidoId, LocalDateTime creado) {
+}
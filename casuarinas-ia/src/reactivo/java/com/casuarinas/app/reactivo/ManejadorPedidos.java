@@ -0,0 +1,141 @@
+package com.casuarinas.app.reactivo;
+
+import com.casuarinas.app.model.IdempotenciaPedido;
+import com.casuarinas.app.model.Pedido;
+import com.casuarinas.app.service.AnaliticaPedidos;
+import com.casuarinas.app.service.NotificadorCambios;
+import com.casuarinas.app.service.RankingVentas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import java.time.LocalDateTime;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+import static org.springframework.data.relational.core.query.Query.query;
+
+/**
+ * HANDLER REACTIVO DE PEDIDOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Versión WebFlux de la toma de pedidos de PedidoController: listado con filtros,
+ * búsqueda por id y POST /api/pedidos con la cabecera Idempotency-Key.
+ *
+ * El cuerpo del pedido se lee sin ocupar un hilo: un cliente con mala señal puede
+ * tardar segundos en subirlo y solo ocupa una conexión abierta.
+ *
+ * RELACIÓN CON POO:
+ * - Después del INSERT avisa a RankingVentas, AnaliticaPedidos y NotificadorCambios,
+ *   igual que PedidoController
+ *
+ * RELACIÓN CON SQL:
+ * - Con Idempotency-Key: INSERT del pedido e INSERT de la clave en la misma transacción;
+ *   si la clave ya existe (reintento o duplicado concurrente) devuelve el pedido original.
+ *   No usa la caché en memoria de IdempotenciaService: la tabla decide
+ */
+@Component
+@Profile("reactivo")
+public class ManejadorPedidos {
+
+    @Autowired
+    private PedidoReactivoRepo repo;
+
+    @Autowired
+    private R2dbcEntityTemplate operacionesR2dbc;
+
+    @Autowired
+    private TransactionalOperator transaccionesR2dbc;
+
+    @Autowired
+    @Qualifier("planificadorH2")
+    private Scheduler h2;
+
+    @Autowired
+    private RankingVentas ranking;
+
+    @Autowired
+    private AnaliticaPedidos analitica;
+
+    @Autowired
+    private NotificadorCambios notificador;
+
+    public Mono<ServerResponse> listar(ServerRequest request) {
+        String nombreCliente = request.queryParam("nombreCliente").filter(s -> !s.isEmpty()).orElse(null);
+        String localidad = request.queryParam("localidad").filter(s -> !s.isEmpty()).orElse(null);
+        Flux<PedidoFila> pedidos;
+        if (nombreCliente != null && localidad != null) {
+            pedidos = repo.findByNombreClienteContainingIgnoreCaseAndLocalidad(nombreCliente, localidad);
+        } else if (nombreCliente != null) {
+            pedidos = repo.findByNombreClienteContainingIgnoreCase(nombreCliente);
+        } else if (localidad != null) {
+            pedidos = repo.findByLocalidad(localidad);
+        } else {
+            pedidos = repo.findAll();
+        }
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+            .body(pedidos.subscribeOn(h2), PedidoFila.class);
+    }
+
+    public Mono<ServerResponse> porId(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        return repo.findById(id).subscribeOn(h2)
+            .flatMap(pedido -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(pedido))
+            .switchIfEmpty(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> crear(ServerRequest request) {
+        String clave = request.headers().firstHeader("Idempotency-Key");
+        if (clave != null && clave.length() > IdempotenciaPedido.LARGO_CLAVE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Idempotency-Key admite como máximo " + IdempotenciaPedido.LARGO_CLAVE + " caracteres"));
+        }
+        return request.bodyToMono(PedidoFila.class)
+            .map(pedido -> pedido.creado() == null ? pedido.conCreado(LocalDateTime.now()) : pedido)
+            .flatMap(pedido -> clave == null || clave.isBlank() ? guardarNuevo(pedido) : guardarUnaVez(clave, pedido))
+            .flatMap(creado -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(creado));
+    }
+
+    private Mono<PedidoFila> guardarNuevo(PedidoFila pedido) {
+        // CONSULTA SQL: INSERT INTO pedido (...) VALUES (...)
+        return repo.save(pedido.withId(null))
+            .doOnNext(this::registrar)
+            .subscribeOn(h2);
+    }
+
+    private Mono<PedidoFila> guardarUnaVez(String clave, PedidoFila pedido) {
+        // CONSULTAS SQL: INSERT INTO pedido ...; INSERT INTO idempotencia_pedido ... (misma transacción)
+        Mono<PedidoFila> insertar = repo.save(pedido.withId(null))
+            .flatMap(creado -> operacionesR2dbc.insert(new IdempotenciaFila(clave, creado.id(), LocalDateTime.now()))
+                .thenReturn(creado))
+            .as(transaccionesR2dbc::transactional)
+            .doOnNext(this::registrar);
+        return buscarPorClave(clave)
+            .switchIfEmpty(insertar.onErrorResume(DataIntegrityViolationException.class,
+                // Otra petición registró la misma clave entre la consulta y el INSERT
+                e -> buscarPorClave(clave).switchIfEmpty(Mono.error(e))))
+            .subscribeOn(h2);
+    }
+
+    private Mono<PedidoFila> buscarPorClave(String clave) {
+        // CONSULTAS SQL: SELECT * FROM idempotencia_pedido WHERE clave = ?; SELECT * FROM pedido WHERE id = ?
+        return operacionesR2dbc.selectOne(query(where("clave").is(clave)), IdempotenciaFila.class)
+            .flatMap(registro -> repo.findById(registro.pedidoId()));
+    }
+
+    private void registrar(PedidoFila creado) {
+        Pedido pedido = creado.aPedido();
+        ranking.registrar(pedido);
+        analitica.registrar(pedido);
+        notificador.creado(Pedido.class, creado.id());
+    }
+}
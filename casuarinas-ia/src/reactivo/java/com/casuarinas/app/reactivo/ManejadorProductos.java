@@ -0,0 +1,61 @@
+package com.casuarinas.app.reactivo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * HANDLER REACTIVO DE PRODUCTOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Versión WebFlux de GET /api/productos y GET /api/productos/{id} de ProductoController,
+ * con los mismos filtros y el mismo JSON.
+ *
+ * RELACIÓN CON POO:
+ * - Handler funcional: ConfiguracionReactiva asocia cada ruta a un método
+ *
+ * RELACIÓN CON SQL:
+ * - Las consultas son las de ProductoReactivoRepo; solo productos activos en el listado
+ */
+@Component
+@Profile("reactivo")
+public class ManejadorProductos {
+
+    @Autowired
+    private ProductoReactivoRepo repo;
+
+    @Autowired
+    @Qualifier("planificadorH2")
+    private Scheduler h2;
+
+    public Mono<ServerResponse> listar(ServerRequest request) {
+        String nombre = request.queryParam("nombre").filter(s -> !s.isEmpty()).orElse(null);
+        String categoria = request.queryParam("categoria").filter(s -> !s.isEmpty()).orElse(null);
+        Flux<ProductoFila> productos;
+        if (nombre != null && categoria != null) {
+            productos = repo.findByNombreContainingIgnoreCaseAndCategoriaAndActivoTrue(nombre, categoria);
+        } else if (nombre != null) {
+            productos = repo.findByNombreContainingIgnoreCaseAndActivoTrue(nombre);
+        } else if (categoria != null) {
+            productos = repo.findByCategoriaAndActivoTrue(categoria);
+        } else {
+            productos = repo.findByActivoTrue();
+        }
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+            .body(productos.subscribeOn(h2), ProductoFila.class);
+    }
+
+    /** Si no existe responde 200 sin cuerpo, igual que el Optional vacío de ProductoController */
+    public Mono<ServerResponse> porId(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        return repo.findById(id).subscribeOn(h2)
+            .flatMap(producto -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(producto))
+            .switchIfEmpty(ServerResponse.ok().build());
+    }
+}
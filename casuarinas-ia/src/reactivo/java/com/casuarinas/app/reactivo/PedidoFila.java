@@ -0,0 +1,36 @@
+package com.casuarinas.app.reactivo;
+
+import com.casuarinas.app.model.Pedido;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.LocalDateTime;
+
+/**
+ * FILA DE PEDIDO PARA R2DBC - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Vista inmutable de la tabla pedido que usa la pila reactiva, con las mismas propiedades
+ * (y el mismo JSON) que la entidad JPA Pedido.
+ *
+ * RELACIÓN CON POO:
+ * - withId(): Spring Data devuelve una copia con el id generado después del INSERT
+ * - aPedido(): convierte a la entidad JPA para los servicios en memoria (ranking, analítica)
+ *
+ * RELACIÓN CON SQL:
+ * - id es IDENTITY: se inserta con id nulo y H2 lo asigna
+ */
+@Table("pedido")
+public record PedidoFila(@Id Long id, String nombreCliente, String telefono, String direccion, String localidad,
+                         String itemsJson, Double total, String ubicacion, LocalDateTime creado) {
+
+    public PedidoFila withId(Long id) {
+        return new PedidoFila(id, nombreCliente, telefono, direccion, localidad, itemsJson, total, ubicacion, creado);
+    }
+
+    public PedidoFila conCreado(LocalDateTime creado) {
+        return new PedidoFila(id, nombreCliente, telefono, direccion, localidad, itemsJson, total, ubicacion, creado);
+    }
+
+    public Pedido aPedido() {
+        return new Pedido(id, nombreCliente, telefono, direccion, localidad, itemsJson, total, ubicacion, creado);
+    }
+}
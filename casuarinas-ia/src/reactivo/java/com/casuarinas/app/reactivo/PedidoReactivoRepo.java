@@ -0,0 +1,26 @@
+package com.casuarinas.app.reactivo;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+
+/**
+ * REPOSITORIO REACTIVO DE PEDIDOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Las consultas de PedidoRepo que usa la toma de pedidos (listado con filtros, búsqueda
+ * por id e INSERT), sobre R2DBC.
+ *
+ * RELACIÓN CON SQL:
+ * - save() con id nulo: INSERT INTO pedido ... (id IDENTITY)
+ * - findById(): SELECT * FROM pedido WHERE id = ?
+ */
+public interface PedidoReactivoRepo extends ReactiveCrudRepository<PedidoFila, Long> {
+
+    // CONSULTA SQL: SELECT * FROM pedido WHERE localidad = ?
+    Flux<PedidoFila> findByLocalidad(String localidad);
+
+    // CONSULTA SQL: SELECT * FROM pedido WHERE UPPER(nombre_cliente) LIKE UPPER('%?%')
+    Flux<PedidoFila> findByNombreClienteContainingIgnoreCase(String nombreCliente);
+
+    // CONSULTA SQL: SELECT * FROM pedido WHERE UPPER(nombre_cliente) LIKE UPPER('%?%') AND localidad = ?
+    Flux<PedidoFila> findByNombreClienteContainingIgnoreCaseAndLocalidad(String nombreCliente, String localidad);
+}
@@ -0,0 +1,20 @@
+package com.casuarinas.app.reactivo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.LocalDateTime;
+
+/**
+ * FILA DE PRODUCTO PARA R2DBC - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Vista inmutable de la tabla producto que usa la pila reactiva. Tiene las mismas
+ * propiedades que la entidad JPA Producto, así el JSON de las dos pilas es idéntico.
+ *
+ * RELACIÓN CON SQL:
+ * - @Table("producto"): la misma tabla que crea Hibernate; R2DBC no genera DDL
+ * - Las propiedades en camelCase se mapean a columnas en snake_case, igual que en JPA
+ */
+@Table("producto")
+public record ProductoFila(@Id Long id, String nombre, Double precio, String comentario, String categoria,
+                           String unidad, Boolean activo, LocalDateTime creado, LocalDateTime actualizado) {
+}
@@ -0,0 +1,28 @@
+package com.casuarinas.app.reactivo;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+
+/**
+ * REPOSITORIO REACTIVO DE PRODUCTOS - PROGRAMACIÓN ORIENTADA A OBJETOS
+ *
+ * Las mismas consultas de lectura que ProductoRepo, sobre R2DBC: devuelven Flux en lugar
+ * de List y no ocupan un hilo mientras esperan.
+ *
+ * RELACIÓN CON SQL:
+ * - Spring Data R2DBC deriva el SQL del nombre del método, como Spring Data JPA
+ */
+public interface ProductoReactivoRepo extends ReactiveCrudRepository<ProductoFila, Long> {
+
+    // CONSULTA SQL: SELECT * FROM producto WHERE activo = true
+    Flux<ProductoFila> findByActivoTrue();
+
+    // CONSULTA SQL: SELECT * FROM producto WHERE UPPER(nombre) LIKE UPPER('%?%') AND activo = true
+    Flux<ProductoFila> findByNombreContainingIgnoreCaseAndActivoTrue(String nombre);
+
+    // CONSULTA SQL: SELECT * FROM producto WHERE categoria = ? AND activo = true
+    Flux<ProductoFila> findByCategoriaAndActivoTrue(String categoria);
+
+    // CONSULTA SQL: SELECT * FROM producto WHERE UPPER(nombre) LIKE UPPER('%?%') AND categoria = ? AND activo = true
+    Flux<ProductoFila> findByNombreContainingIgnoreCaseAndCategoriaAndActivoTrue(String nombre, String categoria);
+}
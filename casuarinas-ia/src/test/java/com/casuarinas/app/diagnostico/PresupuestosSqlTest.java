@@ -0,0 +1,183 @@
+package com.casuarinas.app.diagnostico;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.HandlerMapping;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PRUEBA DE PRESUPUESTOS SQL - casuarinas.sql.presupuestos
+ *
+ * Levanta la aplicación con datos generados, recorre cada endpoint que tiene presupuesto
+ * y falla si alguna petición ejecutó más sentencias que las permitidas (un N+1 nuevo, una
+ * consulta de más en un servicio). También falla si un endpoint presupuestado no se
+ * ejercitó, para que un presupuesto nuevo venga con su petición en esta prueba.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:presupuestos-sql;DB_CLOSE_DELAY=-1",
+    "casuarinas.generador.clientes=50",
+    "casuarinas.generador.pedidos=500",
+    "casuarinas.archivo.habilitado=false",
+    "casuarinas.respaldo.habilitado=false",
+    "casuarinas.mantenimiento.habilitado=false",
+    "casuarinas.calentamiento.habilitado=false",
+    "casuarinas.jfr.habilitado=false",
+    "casuarinas.accesos.habilitado=false"
+})
+@AutoConfigureMockMvc
+class PresupuestosSqlTest {
+
+    // MockMvc pasa por los mismos filtros que una petición real (FiltroMetricasSql incluido) y,
+    // a diferencia del cliente HTTP del JDK, admite PATCH; el servidor real lo pide Calentamiento
+    @Autowired
+    private MockMvc http;
+
+    @Autowired
+    private EstadisticasSql estadisticas;
+
+    @Autowired
+    private ObjectMapper json;
+
+    @Value("${casuarinas.sql.presupuestos}")
+    private String presupuestos;
+
+    @Test
+    void ningunEndpointSuperaSuPresupuestoDeSentencias() {
+        ejercitarProductos();
+        ejercitarClientes();
+        ejercitarPedidos();
+        get("/api/admin/dashboard");
+        get("/api/buscar?q=queso");
+
+        Map<String, EstadisticasSql.Endpoint> medidos = estadisticas.getEndpoints();
+        List<String> superados = new ArrayList<>();
+        medidos.forEach((endpoint, e) -> {
+            Integer presupuesto = estadisticas.presupuesto(endpoint);
+            if (presupuesto != null && (e.getMaximoSentencias() > presupuesto || e.getViolaciones() > 0)) {
+                superados.add(endpoint + ": " + e.getMaximoSentencias() + " sentencias (máximo " + presupuesto + ")");
+            }
+        });
+        assertTrue(superados.isEmpty(), "Presupuestos SQL superados: " + superados);
+
+        Set<String> sinEjercitar = new TreeSet<>(configurados());
+        sinEjercitar.removeAll(medidos.keySet());
+        assertTrue(sinEjercitar.isEmpty(), "Endpoints con presupuesto que la prueba no ejercitó: " + sinEjercitar);
+    }
+
+    @Test
+    void peticionSinHandlerNoCreaUnEndpointPorUri() {
+        MockHttpServletRequest conHandler = new MockHttpServletRequest("GET", "/api/pedidos/42");
+        conHandler.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/pedidos/{id}");
+        assertEquals("GET /api/pedidos/{id}", FiltroMetricasSql.endpoint(conHandler));
+
+        assertEquals("GET (sin ruta)", FiltroMetricasSql.endpoint(new MockHttpServletRequest("GET", "/api/x/1")));
+        assertEquals("GET (sin ruta)", FiltroMetricasSql.endpoint(new MockHttpServletRequest("GET", "/api/x/2")));
+        assertEquals("POST (sin ruta)", FiltroMetricasSql.endpoint(new MockHttpServletRequest("POST", "/api/y")));
+    }
+
+    private void ejercitarProductos() {
+        get("/api/productos");
+        get("/api/productos/activos");
+        get("/api/productos/admin");
+        get("/api/productos/buscar?nombre=queso");
+        get("/api/productos/sugerir?prefijo=que");
+        get("/api/productos/categoria?categoria=Lácteos");
+        Map<?, ?> creado = enviar(HttpMethod.POST, "/api/productos",
+            "{\"nombre\":\"Prueba\",\"precio\":5,\"categoria\":\"Prueba\",\"unidad\":\"u\"}");
+        Object id = creado.get("id");
+        get("/api/productos/" + id);
+        enviar(HttpMethod.PUT, "/api/productos/" + id,
+            "{\"nombre\":\"Prueba 2\",\"precio\":6,\"categoria\":\"Prueba\",\"unidad\":\"u\",\"activo\":true}");
+        enviar(HttpMethod.PATCH, "/api/productos/bulk", "{\"categoria\":\"Prueba\",\"porcentajePrecio\":10}");
+        intercambiar(HttpMethod.DELETE, "/api/productos/" + id, null, new HttpHeaders());
+    }
+
+    private void ejercitarClientes() {
+        get("/api/clientes");
+        Map<?, ?> creado = enviar(HttpMethod.POST, "/api/clientes", "{\"nombre\":\"Prueba\",\"localidad\":\"Carrasco\"}");
+        Object id = creado.get("id");
+        get("/api/clientes/" + id);
+        enviar(HttpMethod.PUT, "/api/clientes/" + id, "{\"nombre\":\"Prueba 2\",\"localidad\":\"Carrasco\"}");
+        intercambiar(HttpMethod.DELETE, "/api/clientes/" + id, null, new HttpHeaders());
+    }
+
+    private void ejercitarPedidos() {
+        get("/api/pedidos");
+        get("/api/pedidos?nombreCliente=a");
+        get("/api/pedidos/total?total=1500");
+        get("/api/pedidos/fecha?fechaInicio=2026-01-01T00:00:00&fechaFin=2026-02-01T00:00:00");
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.set("Idempotency-Key", "presupuestos-sql");
+        String pedido = "{\"nombreCliente\":\"Prueba\",\"localidad\":\"Carrasco\",\"total\":3,\"itemsJson\":\"[]\"}";
+        Map<?, ?> creado = enviar(HttpMethod.POST, "/api/pedidos", pedido, cabeceras);
+        // Reintento con la misma clave: devuelve el pedido ya creado
+        enviar(HttpMethod.POST, "/api/pedidos", pedido, cabeceras);
+        Object id = creado.get("id");
+        get("/api/pedidos/" + id);
+        enviar(HttpMethod.PUT, "/api/pedidos/" + id,
+            "{\"nombreCliente\":\"Prueba 2\",\"localidad\":\"Carrasco\",\"total\":4,\"itemsJson\":\"[]\"}");
+        intercambiar(HttpMethod.DELETE, "/api/pedidos/" + id, null, new HttpHeaders());
+        intercambiar(HttpMethod.DELETE, "/api/pedidos?hasta=2000-01-01T00:00:00", null, new HttpHeaders());
+    }
+
+    private void get(String ruta) {
+        intercambiar(HttpMethod.GET, ruta, null, new HttpHeaders());
+    }
+
+    private Map<?, ?> enviar(HttpMethod metodo, String ruta, String cuerpo) {
+        return enviar(metodo, ruta, cuerpo, new HttpHeaders());
+    }
+
+    private Map<?, ?> enviar(HttpMethod metodo, String ruta, String cuerpo, HttpHeaders cabeceras) {
+        try {
+            return json.readValue(intercambiar(metodo, ruta, cuerpo, cabeceras), Map.class);
+        } catch (JsonProcessingException e) {
+            throw new AssertionError(metodo + " " + ruta + " no devolvió un objeto JSON", e);
+        }
+    }
+
+    private String intercambiar(HttpMethod metodo, String ruta, String cuerpo, HttpHeaders cabeceras) {
+        MockHttpServletRequestBuilder peticion = MockMvcRequestBuilders.request(metodo, ruta).headers(cabeceras);
+        if (cuerpo != null) {
+            peticion.contentType(MediaType.APPLICATION_JSON).content(cuerpo);
+        }
+        try {
+            MockHttpServletResponse respuesta = http.perform(peticion).andReturn().getResponse();
+            assertTrue(respuesta.getStatus() < 300, metodo + " " + ruta + " respondió " + respuesta.getStatus());
+            return respuesta.getContentAsString(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new AssertionError(metodo + " " + ruta + " falló", e);
+        }
+    }
+
+    private Set<String> configurados() {
+        return Arrays.stream(presupuestos.split(","))
+            .map(String::trim)
+            .filter(entrada -> entrada.contains("="))
+            .map(entrada -> entrada.substring(0, entrada.indexOf('=')).trim())
+            .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,72 @@
+package com.casuarinas.app.fragmentos;
+
+import com.casuarinas.app.model.Pedido;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PRUEBA DE ÍNDICES EN LOS FRAGMENTOS - casuarinas.fragmentos.cantidad
+ *
+ * ddl-auto solo crea los índices de Pedido en la base principal; los fragmentos los crea
+ * ConfiguracionFragmentos. Falla si un fragmento no tiene alguno de los índices que declara
+ * la entidad, o si el optimizador de H2 no los usa para los filtros de la consulta componible.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:indices-fragmentos;DB_CLOSE_DELAY=-1",
+    "casuarinas.fragmentos.cantidad=3",
+    "casuarinas.fragmentos.url=jdbc:h2:mem:indices-fragmento-{n};DB_CLOSE_DELAY=-1",
+    "casuarinas.archivo.habilitado=false",
+    "casuarinas.respaldo.habilitado=false",
+    "casuarinas.mantenimiento.habilitado=false",
+    "casuarinas.calentamiento.habilitado=false",
+    "casuarinas.jfr.habilitado=false",
+    "casuarinas.accesos.habilitado=false"
+})
+class IndicesFragmentosTest {
+
+    @Autowired
+    private FragmentosPedidos fragmentos;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void cadaFragmentoTieneLosIndicesDeLaEntidad() {
+        Set<String> declarados = Arrays.stream(Pedido.class.getAnnotation(Table.class).indexes())
+            .map(Index::name).map(n -> n.toUpperCase(Locale.ROOT)).collect(Collectors.toSet());
+        assertTrue(declarados.containsAll(Set.of("IDX_PEDIDO_CREADO", "IDX_PEDIDO_LOCALIDAD_CREADO", "IDX_PEDIDO_TOTAL")));
+        for (int n = 0; n < fragmentos.cantidad(); n++) {
+            // CONSULTA SQL: SELECT index_name FROM information_schema.indexes WHERE table_name = 'PEDIDO'
+            Set<String> creados = new HashSet<>(fragmentos.en(n, () -> jdbc.queryForList(
+                "select index_name from information_schema.indexes where table_name = 'PEDIDO'", String.class)));
+            assertTrue(creados.containsAll(declarados), "El fragmento " + n + " solo tiene " + creados);
+        }
+    }
+
+    @Test
+    void losFiltrosDeLaConsultaUsanLosIndicesEnCadaFragmento() {
+        for (int n = 0; n < fragmentos.cantidad(); n++) {
+            assertPlanUsa(n, "select * from pedido where total >= 1000", "IDX_PEDIDO_TOTAL");
+            assertPlanUsa(n, "select * from pedido where localidad = 'Carrasco' and creado >= timestamp '2026-01-01 00:00:00'",
+                "IDX_PEDIDO_LOCALIDAD_CREADO");
+        }
+    }
+
+    private void assertPlanUsa(int fragmento, String consulta, String indice) {
+        // CONSULTA SQL: EXPLAIN SELECT ... - el plan nombra el índice elegido
+        String plan = fragmentos.en(fragmento, () -> jdbc.queryForObject("explain " + consulta, String.class));
+        assertTrue(plan != null && plan.toUpperCase(Locale.ROOT).contains(indice),
+            "El fragmento " + fragmento + " no usa " + indice + ": " + plan);
+    }
+}
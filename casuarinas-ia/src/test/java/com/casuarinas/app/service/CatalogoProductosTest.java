@@ -0,0 +1,53 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * PRUEBA DEL VENCIMIENTO DEL CATÁLOGO - casuarinas.catalogo.ttl-segundos
+ *
+ * Cambia un precio con un UPDATE directo, sin pasar por ProductoService: es lo que ve una
+ * instancia del cluster cuando se pierde el datagrama de ClusterInvalidacion. La caché sigue
+ * con el precio viejo hasta que vence la entrada y después lee el nuevo.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:catalogo-ttl;DB_CLOSE_DELAY=-1",
+    "casuarinas.catalogo.ttl-segundos=1",
+    "casuarinas.archivo.habilitado=false",
+    "casuarinas.respaldo.habilitado=false",
+    "casuarinas.mantenimiento.habilitado=false",
+    "casuarinas.calentamiento.habilitado=false",
+    "casuarinas.jfr.habilitado=false",
+    "casuarinas.accesos.habilitado=false"
+})
+class CatalogoProductosTest {
+
+    @Autowired
+    private CatalogoProductos catalogo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void unCambioSinAvisoSeVeAlVencerLaEntrada() throws InterruptedException {
+        Producto elegido = catalogo.activos(null, null).get(0);
+        double nuevo = elegido.getPrecio() + 1;
+        // CONSULTA SQL: UPDATE producto SET precio = ? WHERE id = ? - sin evento CambioEntidad
+        jdbc.update("update producto set precio = ? where id = ?", nuevo, elegido.getId());
+
+        assertEquals(Optional.of(elegido.getPrecio()), precio(elegido.getId()), "antes del TTL debe seguir en caché");
+        Thread.sleep(1_200);
+        assertEquals(Optional.of(nuevo), precio(elegido.getId()), "al vencer la entrada debe leer la tabla");
+    }
+
+    private Optional<Double> precio(Long id) {
+        return catalogo.activos(null, null).stream()
+            .filter(p -> p.getId().equals(id)).map(Producto::getPrecio).findFirst();
+    }
+}
@@ -0,0 +1,160 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.App;
+import com.casuarinas.app.model.Producto;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PRUEBA DEL PERFIL CLUSTER - TRES INSTANCIAS EN LA MISMA JVM
+ *
+ * Levanta tres contextos de App con el perfil "cluster" sobre la misma base H2
+ * (AUTO_SERVER, en target/) y con puertos UDP propios, y comprueba que un cambio hecho en
+ * una instancia invalida la caché de catálogo (CatalogoProductos) de las otras dos.
+ * El TTL del catálogo se fija en 0 (sin vencimiento): sin el aviso de ClusterInvalidacion
+ * las otras instancias seguirían devolviendo el precio viejo. ClusterProcesosTest repite la
+ * prueba con procesos separados y escrituras concurrentes.
+ */
+class ClusterInvalidacionTest {
+
+    private static final int NODOS = 3;
+    private static final long ESPERA_MS = 10_000;
+
+    private static final List<ConfigurableApplicationContext> nodos = new ArrayList<>();
+
+    // Eventos remotos recibidos por cada nodo
+    private static final List<List<CambioEntidad>> recibidos = new ArrayList<>();
+
+    @BeforeAll
+    static void levantar() throws IOException {
+        Path directorio = Paths.get("target", "cluster-test", String.valueOf(System.nanoTime())).toAbsolutePath();
+        List<Integer> puertos = new ArrayList<>();
+        for (int i = 0; i < NODOS; i++) {
+            puertos.add(puertoUdpLibre());
+        }
+        String pares = puertos.stream().map(p -> "127.0.0.1:" + p).collect(Collectors.joining(","));
+        for (int i = 0; i < NODOS; i++) {
+            List<CambioEntidad> eventos = new CopyOnWriteArrayList<>();
+            recibidos.add(eventos);
+            ConfigurableApplicationContext contexto = new SpringApplicationBuilder(App.class)
+                .profiles("cluster")
+                .listeners(ApplicationListener.forPayload((Object evento) -> {
+                    if (evento instanceof CambioEntidad cambio && cambio.remoto()) {
+                        eventos.add(cambio);
+                    }
+                }))
+                // Como argumentos: .properties() son valores por defecto y application-cluster.properties los pisaría
+                .run("--server.port=0",
+                    "--spring.datasource.url=jdbc:h2:file:" + directorio.resolve("casuarinas-db") + ";AUTO_SERVER=TRUE",
+                    "--casuarinas.cluster.puerto=" + puertos.get(i),
+                    "--casuarinas.cluster.pares=" + pares,
+                    "--casuarinas.catalogo.ttl-segundos=0",
+                    "--casuarinas.archivo.directorio=" + directorio.resolve("archivo"),
+                    "--casuarinas.respaldo.habilitado=false",
+                    "--casuarinas.mantenimiento.habilitado=false",
+                    "--casuarinas.calentamiento.habilitado=false",
+                    "--casuarinas.jfr.habilitado=false",
+                    "--casuarinas.accesos.habilitado=false");
+            nodos.add(contexto);
+        }
+    }
+
+    @AfterAll
+    static void detener() {
+        nodos.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void cambioDeProductoInvalidaLaCacheDeLasOtrasInstancias() {
+        Producto elegido = catalogo(0).activos(null, null).get(0);
+        Long id = elegido.getId();
+        // Las tres instancias dejan el catálogo en su caché con el precio actual
+        for (int i = 0; i < NODOS; i++) {
+            assertEquals(elegido.getPrecio(), precioEnCatalogo(i, id).orElseThrow());
+        }
+
+        ProductoService productos = nodos.get(1).getBean(ProductoService.class);
+        Producto cambiado = productos.buscar(id).orElseThrow();
+        double nuevo = cambiado.getPrecio() + 1;
+        cambiado.setPrecio(nuevo);
+        productos.actualizar(id, cambiado);
+
+        for (int i = 0; i < NODOS; i++) {
+            int nodo = i;
+            esperar(() -> Optional.of(nuevo).equals(precioEnCatalogo(nodo, id)),
+                "la instancia " + nodo + " sigue con el precio viejo del producto " + id);
+        }
+        esperar(() -> recibioRemoto(0, id) && recibioRemoto(2, id),
+            "las instancias 0 y 2 no recibieron el aviso de cambio del producto " + id);
+        assertFalse(recibioRemoto(1, id), "la instancia que hizo el cambio no debe recibirlo como remoto");
+    }
+
+    @Test
+    void bajaDeProductoDesapareceDelCatalogoDeTodasLasInstancias() {
+        Long id = catalogo(2).activos(null, null).get(1).getId();
+        for (int i = 0; i < NODOS; i++) {
+            assertTrue(precioEnCatalogo(i, id).isPresent());
+        }
+
+        nodos.get(2).getBean(ProductoService.class).eliminar(id);
+
+        for (int i = 0; i < NODOS; i++) {
+            int nodo = i;
+            esperar(() -> precioEnCatalogo(nodo, id).isEmpty(),
+                "la instancia " + nodo + " todavía lista el producto borrado " + id);
+        }
+    }
+
+    private static CatalogoProductos catalogo(int nodo) {
+        return nodos.get(nodo).getBean(CatalogoProductos.class);
+    }
+
+    private static Optional<Double> precioEnCatalogo(int nodo, Long id) {
+        return catalogo(nodo).activos(null, null).stream()
+            .filter(p -> p.getId().equals(id)).map(Producto::getPrecio).findFirst();
+    }
+
+    private static boolean recibioRemoto(int nodo, Long id) {
+        return recibidos.get(nodo).stream()
+            .anyMatch(c -> c.es(Producto.class) && id.equals(c.id()) && c.operacion() == CambioEntidad.Operacion.MODIFICADO);
+    }
+
+    private static void esperar(BooleanSupplier condicion, String mensaje) {
+        long limite = System.currentTimeMillis() + ESPERA_MS;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                throw new AssertionError(mensaje);
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(mensaje, e);
+            }
+        }
+    }
+
+    private static int puertoUdpLibre() throws IOException {
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.casuarinas.app.service;
+
+import com.casuarinas.app.App;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PRUEBA DEL PERFIL CLUSTER - TRES PROCESOS, ESCRITURAS CONCURRENTES
+ *
+ * A diferencia de ClusterInvalidacionTest, cada instancia es una JVM aparte: solo la primera
+ * abre el archivo H2 y las otras dos llegan por el servidor TCP de AUTO_SERVER (SessionRemote),
+ * como en producción. Las tres modifican precios por HTTP al mismo tiempo, incluido un producto
+ * que todas pisan, y al terminar el catálogo en caché de cada instancia (GET /api/productos/activos)
+ * debe coincidir con la tabla (GET /api/productos/admin, sin caché).
+ * El TTL del catálogo queda en 0: la convergencia tiene que venir de los avisos UDP.
+ */
+class ClusterProcesosTest {
+
+    private static final int NODOS = 3;
+    private static final int RONDAS = 20;
+    private static final long ARRANQUE_MS = 120_000;
+    private static final long ESPERA_MS = 10_000;
+
+    private static final ObjectMapper json = new ObjectMapper();
+    private static final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    private static final List<Process> procesos = new ArrayList<>();
+    private static final List<Integer> puertosHttp = new ArrayList<>();
+
+    @BeforeAll
+    static void levantar() throws Exception {
+        Path directorio = Paths.get("target", "cluster-procesos", String.valueOf(System.nanoTime())).toAbsolutePath();
+        Files.createDirectories(directorio);
+        List<Integer> puertosUdp = new ArrayList<>();
+        for (int i = 0; i < NODOS; i++) {
+            puertosUdp.add(puertoUdpLibre());
+            puertosHttp.add(puertoTcpLibre());
+        }
+        String pares = puertosUdp.stream().map(p -> "127.0.0.1:" + p).collect(Collectors.joining(","));
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (int i = 0; i < NODOS; i++) {
+            Process proceso = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), App.class.getName(),
+                    "--spring.profiles.active=cluster",
+                    "--server.port=" + puertosHttp.get(i),
+                    "--spring.datasource.url=jdbc:h2:file:" + directorio.resolve("casuarinas-db")
+                        + ";AUTO_SERVER=TRUE;AUTO_RECONNECT=TRUE",
+                    "--casuarinas.cluster.puerto=" + puertosUdp.get(i),
+                    "--casuarinas.cluster.pares=" + pares,
+                    "--casuarinas.catalogo.ttl-segundos=0",
+                    "--casuarinas.archivo.directorio=" + directorio.resolve("archivo"),
+                    "--casuarinas.respaldo.habilitado=false",
+                    "--casuarinas.mantenimiento.habilitado=false",
+                    "--casuarinas.calentamiento.habilitado=false",
+                    "--casuarinas.jfr.habilitado=false",
+                    "--casuarinas.accesos.habilitado=false")
+                .redirectErrorStream(true)
+                .redirectOutput(directorio.resolve("nodo-" + i + ".log").toFile())
+                .start();
+            procesos.add(proceso);
+            // La primera abre el archivo y carga los datos; las demás se conectan a su servidor TCP
+            if (i == 0) {
+                esperarArranque(0);
+            }
+        }
+        for (int i = 1; i < NODOS; i++) {
+            esperarArranque(i);
+        }
+    }
+
+    @AfterAll
+    static void detener() throws InterruptedException {
+        // Primero las clientes: si la dueña del archivo cae antes, las demás intentan reabrirlo
+        for (int i = procesos.size() - 1; i >= 0; i--) {
+            procesos.get(i).destroy();
+            procesos.get(i).waitFor();
+        }
+    }
+
+    @Test
+    void escriturasConcurrentesDejanIgualesLasCachesDeTodasLasInstancias() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode producto : obtener(0, "/api/productos/activos")) {
+            ids.add(producto.get("id").asLong());
+        }
+        assertTrue(ids.size() > NODOS, "hacen falta más productos activos que instancias: " + ids);
+        // Todas las instancias dejan el catálogo en su caché antes de empezar
+        for (int i = 0; i < NODOS; i++) {
+            obtener(i, "/api/productos/activos");
+        }
+
+        Long compartido = ids.get(0);
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService escritores = Executors.newFixedThreadPool(NODOS);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < NODOS; i++) {
+                int nodo = i;
+                tareas.add(escritores.submit(() -> {
+                    largada.await();
+                    for (int ronda = 0; ronda < RONDAS; ronda++) {
+                        // Un producto propio (los demás no lo tocan) y el compartido, que pisan todas
+                        cambiarPrecio(nodo, ids.get(1 + (nodo + ronda * NODOS) % (ids.size() - 1)), nodo, ronda);
+                        cambiarPrecio(nodo, compartido, nodo, ronda);
+                    }
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            escritores.shutdownNow();
+        }
+
+        long limite = System.currentTimeMillis() + ESPERA_MS;
+        for (int i = 0; i < NODOS; i++) {
+            Map<Long, Double> tabla;
+            Map<Long, Double> cache;
+            do {
+                tabla = precios(0, "/api/productos/admin");
+                cache = precios(i, "/api/productos/activos");
+                if (tabla.equals(cache)) {
+                    break;
+                }
+                Thread.sleep(100);
+            } while (System.currentTimeMillis() < limite);
+            assertTrue(tabla.equals(cache), "la caché de la instancia " + i + " quedó en " + cache + " y la tabla en " + tabla);
+        }
+    }
+
+    private static void cambiarPrecio(int nodo, Long id, int escritor, int ronda) throws IOException, InterruptedException {
+        ObjectNode producto = (ObjectNode) obtener(nodo, "/api/productos/" + id);
+        producto.put("precio", 100 + escritor * 1000 + ronda);
+        HttpRequest peticion = HttpRequest.newBuilder(uri(nodo, "/api/productos/" + id))
+            .header("Content-Type", "application/json")
+            .PUT(HttpRequest.BodyPublishers.ofString(json.writeValueAsString(producto)))
+            .build();
+        HttpResponse<String> respuesta = http.send(peticion, HttpResponse.BodyHandlers.ofString());
+        assertTrue(respuesta.statusCode() == 200, "PUT en la instancia " + nodo + ": " + respuesta.statusCode() + " " + respuesta.body());
+    }
+
+    /** id -> precio de los productos activos, ordenados por id */
+    private static Map<Long, Double> precios(int nodo, String ruta) throws IOException, InterruptedException {
+        Map<Long, Double> precios = new TreeMap<>();
+        for (JsonNode producto : obtener(nodo, ruta)) {
+            if (producto.path("activo").asBoolean(true)) {
+                precios.put(producto.get("id").asLong(), producto.get("precio").asDouble());
+            }
+        }
+        return precios;
+    }
+
+    private static JsonNode obtener(int nodo, String ruta) throws IOException, InterruptedException {
+        HttpResponse<String> respuesta = http.send(HttpRequest.newBuilder(uri(nodo, ruta)).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() != 200) {
+            throw new AssertionError("GET " + ruta + " en la instancia " + nodo + ": " + respuesta.statusCode());
+        }
+        return json.readTree(respuesta.body());
+    }
+
+    private static URI uri(int nodo, String ruta) {
+        return URI.create("http://127.0.0.1:" + puertosHttp.get(nodo) + ruta);
+    }
+
+    private static void esperarArranque(int nodo) throws InterruptedException {
+        long limite = System.currentTimeMillis() + ARRANQUE_MS;
+        while (System.currentTimeMillis() < limite) {
+            if (!procesos.get(nodo).isAlive()) {
+                throw new AssertionError("la instancia " + nodo + " terminó al arrancar (ver target/cluster-procesos)");
+            }
+            try {
+                // Sin pasar por el catálogo: DataLoader carga los productos después de abrir el puerto
+                // con saveAll, sin aviso, y una lista vacía quedaría en la caché
+                if (!obtener(nodo, "/api/productos/admin").isEmpty()) {
+                    return;
+                }
+                Thread.sleep(250);
+            } catch (IOException | AssertionError e) {
+                Thread.sleep(250);
+            }
+        }
+        throw new AssertionError("la instancia " + nodo + " no arrancó en " + ARRANQUE_MS + " ms");
+    }
+
+    private static int puertoUdpLibre() throws IOException {
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static int puertoTcpLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}